@@ -0,0 +1,276 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jenkinsci.plugins.relution_publisher.builder;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.gson.JsonObject;
+
+import org.apache.commons.lang.StringUtils;
+import org.jenkinsci.plugins.relution_publisher.configuration.global.Store;
+import org.jenkinsci.plugins.relution_publisher.logging.Log;
+import org.jenkinsci.plugins.relution_publisher.model.Artifact;
+import org.jenkinsci.plugins.relution_publisher.model.ResultHolder;
+import org.jenkinsci.plugins.relution_publisher.model.entities.ApiObject;
+import org.jenkinsci.plugins.relution_publisher.model.entities.Version;
+import org.jenkinsci.plugins.relution_publisher.net.Network;
+import org.jenkinsci.plugins.relution_publisher.net.RequestFactory;
+import org.jenkinsci.plugins.relution_publisher.net.requests.ApiRequest;
+import org.jenkinsci.plugins.relution_publisher.net.responses.ApiResponse;
+import org.jenkinsci.plugins.relution_publisher.util.Builds;
+import org.jenkinsci.plugins.relution_publisher.util.Json;
+import org.jenkinsci.plugins.relution_publisher.util.RateLimiter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+
+import hudson.model.Result;
+
+
+/**
+ * Deletes previous versions of an app, either because they are replaced by an uploaded version,
+ * or because they are no longer retained by the store.
+ * <p>
+ * Versions are deleted using up to {@link Store#getDeleteConcurrency()} concurrent requests,
+ * sending no more than {@link Store#getDeleteRateLimit()} requests per second. If neither is
+ * configured the requests are pipelined instead. Failures are reported in a single summary once
+ * all requests have completed.
+ */
+public class ArchivedVersionCleaner {
+
+    /**
+     * Maximum length of a server's error message included in the summary.
+     */
+    private static final int     MAX_MESSAGE_LENGTH = 200;
+
+    private final RequestFactory requestFactory;
+    private final Network        network;
+    private final Log            log;
+
+    public ArchivedVersionCleaner(
+            final RequestFactory requestFactory,
+            final Network network,
+            final Log log) {
+        this.requestFactory = requestFactory;
+        this.network = network;
+        this.log = log;
+    }
+
+    /**
+     * Deletes the specified versions. The result of the artifact is set to
+     * {@link Result#UNSTABLE} if a version could not be deleted.
+     * @param artifact The {@link Artifact} whose previous versions to delete.
+     * @param versions The versions to delete.
+     * @return The versions that were deleted.
+     * @throws InterruptedException The current thread was interrupted.
+     */
+    public List<JsonObject> delete(final Artifact artifact, final List<JsonObject> versions) throws InterruptedException {
+        return this.delete(artifact.getStore(), artifact, versions);
+    }
+
+    /**
+     * Deletes the specified versions from the specified store. The result of the holder is set
+     * to {@link Result#UNSTABLE} if a version could not be deleted. Deleted versions are removed
+     * from the {@link UploadIndex}, so their files are uploaded again if they are published.
+     * @param store The {@link Store} from which to delete the versions.
+     * @param holder The {@link ResultHolder} that receives the result.
+     * @param versions The versions to delete.
+     * @return The versions that were deleted.
+     * @throws InterruptedException The current thread was interrupted.
+     */
+    public List<JsonObject> delete(final Store store, final ResultHolder holder, final List<JsonObject> versions) throws InterruptedException {
+        final List<JsonObject> deleted = new ArrayList<>();
+
+        if (versions.isEmpty()) {
+            return deleted;
+        }
+        final int concurrency = Math.min(store.getDeleteConcurrency(), versions.size());
+        final int rateLimit = store.getDeleteRateLimit();
+
+        final List<ListenableFuture<ApiResponse>> futures;
+
+        if (concurrency > 1 && rateLimit > 0) {
+            this.log.write(this, "Deleting %d app version(s), %d at a time, at most %d per second…", versions.size(), concurrency, rateLimit);
+            futures = this.deleteConcurrently(store, versions, concurrency, rateLimit);
+
+        } else if (concurrency > 1) {
+            this.log.write(this, "Deleting %d app version(s), %d at a time…", versions.size(), concurrency);
+            futures = this.deleteConcurrently(store, versions, concurrency, rateLimit);
+
+        } else if (rateLimit > 0) {
+            this.log.write(this, "Deleting %d app version(s), at most %d per second…", versions.size(), rateLimit);
+            futures = this.deleteConcurrently(store, versions, concurrency, rateLimit);
+
+        } else {
+            this.log.write(this, "Deleting %d app version(s)…", versions.size());
+            futures = this.deletePipelined(store, versions);
+
+        }
+
+        final UploadIndex uploadIndex = UploadIndex.getInstance();
+        final List<String> errors = new ArrayList<>();
+
+        for (int index = 0; index < futures.size(); index++) {
+            final JsonObject version = versions.get(index);
+            final String error = this.getError(futures.get(index));
+
+            if (error != null) {
+                errors.add(String.format("%s: %s", this.describe(version), error));
+                continue;
+            }
+
+            deleted.add(version);
+            uploadIndex.removeAsset(store, getAssetUuid(version));
+        }
+
+        this.writeSummary(holder, versions.size(), errors);
+        return deleted;
+    }
+
+    /**
+     * Returns the UUID of the file of the specified version.
+     * @param version The version whose file to return.
+     * @return The UUID of the version's file, or {@code null} if the version has no file.
+     */
+    public static String getAssetUuid(final JsonObject version) {
+        final JsonObject file = Json.getObject(version, Version.FILE);
+        return Json.isNull(file) ? null : Json.getString(file, ApiObject.UUID);
+    }
+
+    private List<ListenableFuture<ApiResponse>> deletePipelined(final Store store, final List<JsonObject> versions)
+            throws InterruptedException {
+        final List<ApiRequest> requests = new ArrayList<>(versions.size());
+
+        for (final JsonObject version : versions) {
+            requests.add(this.requestFactory.createDeleteVersionRequest(store, version));
+        }
+
+        final List<ListenableFuture<ApiResponse>> futures = new ArrayList<>(versions.size());
+
+        try {
+            for (final ApiResponse response : this.network.executePipelined(requests, this.log)) {
+                futures.add(Futures.immediateFuture(response));
+            }
+
+        } catch (final IOException e) {
+            this.addFailures(futures, versions.size(), e);
+
+        } catch (final ExecutionException e) {
+            this.addFailures(futures, versions.size(), e.getCause());
+
+        }
+        return futures;
+    }
+
+    private void addFailures(final List<ListenableFuture<ApiResponse>> futures, final int count, final Throwable t) {
+        while (futures.size() < count) {
+            futures.add(Futures.<ApiResponse> immediateFailedFuture(t));
+        }
+    }
+
+    private List<ListenableFuture<ApiResponse>> deleteConcurrently(
+            final Store store,
+            final List<JsonObject> versions,
+            final int concurrency,
+            final int rateLimit) throws InterruptedException {
+
+        final Semaphore permits = new Semaphore(concurrency);
+        final RateLimiter rateLimiter = new RateLimiter(rateLimit);
+        final List<ListenableFuture<ApiResponse>> futures = new ArrayList<>(versions.size());
+
+        for (final JsonObject version : versions) {
+            rateLimiter.acquire();
+            permits.acquire();
+
+            final ApiRequest request = this.requestFactory.createDeleteVersionRequest(store, version);
+            futures.add(this.delete(request, permits));
+        }
+        return futures;
+    }
+
+    private ListenableFuture<ApiResponse> delete(final ApiRequest request, final Semaphore permits) {
+        try {
+            final ListenableFuture<ApiResponse> future = this.network.executeAsync(request, this.log);
+
+            future.addListener(new Runnable() {
+
+                @Override
+                public void run() {
+                    permits.release();
+                }
+            }, MoreExecutors.sameThreadExecutor());
+
+            return future;
+
+        } catch (final IOException e) {
+            permits.release();
+            return Futures.immediateFailedFuture(e);
+
+        }
+    }
+
+    /**
+     * Waits for the specified request to complete and returns the reason it failed.
+     * @return A description of the error, or {@code null} if the version was deleted.
+     */
+    private String getError(final ListenableFuture<ApiResponse> future) throws InterruptedException {
+        try {
+            final ApiResponse response = future.get();
+
+            if (response == null) {
+                return "Server's response is empty";
+            }
+
+            if (response.getStatus() != 0) {
+                return String.format(
+                        "Server responded with %d, %s",
+                        response.getStatusCode(),
+                        StringUtils.abbreviate(response.getMessage(), MAX_MESSAGE_LENGTH));
+            }
+            return null;
+
+        } catch (final ExecutionException e) {
+            return String.valueOf(e.getCause());
+
+        }
+    }
+
+    private String describe(final JsonObject version) {
+        return String.format(
+                "\"%s\" (%d)",
+                Json.getString(version, Version.VERSION_NAME),
+                Json.getInt(version, Version.VERSION_CODE));
+    }
+
+    private void writeSummary(final ResultHolder holder, final int count, final List<String> errors) {
+        if (errors.isEmpty()) {
+            this.log.write(this, "Deleted %d app version(s)", count);
+            return;
+        }
+
+        this.log.write(this, "Deleted %d of %d app version(s), %d failed:", count - errors.size(), count, errors.size());
+
+        for (final String error : errors) {
+            this.log.write(this, "- %s", error);
+        }
+        Builds.setResult(holder, Result.UNSTABLE, this.log);
+    }
+}
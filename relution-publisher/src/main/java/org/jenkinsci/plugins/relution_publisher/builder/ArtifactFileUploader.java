@@ -21,16 +21,27 @@ import org.jenkinsci.plugins.relution_publisher.configuration.jobs.Publication;
 import org.jenkinsci.plugins.relution_publisher.factories.UploaderFactory;
 import org.jenkinsci.plugins.relution_publisher.logging.Log;
 import org.jenkinsci.plugins.relution_publisher.model.Artifact;
+import org.jenkinsci.plugins.relution_publisher.model.FileDigests;
 import org.jenkinsci.plugins.relution_publisher.model.ResultHolder;
+import org.jenkinsci.plugins.relution_publisher.model.ServerCapabilities;
 import org.jenkinsci.plugins.relution_publisher.model.ServerVersion;
+import org.jenkinsci.plugins.relution_publisher.model.UploadRecord;
 import org.jenkinsci.plugins.relution_publisher.net.AuthenticatedNetwork;
+import org.jenkinsci.plugins.relution_publisher.net.CapabilityCache;
 import org.jenkinsci.plugins.relution_publisher.net.RequestFactory;
 import org.jenkinsci.plugins.relution_publisher.net.SessionManager;
 import org.jenkinsci.plugins.relution_publisher.util.Builds;
+import org.jenkinsci.plugins.relution_publisher.util.Metrics;
 import org.jenkinsci.remoting.RoleChecker;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.ExecutionException;
 
 import hudson.FilePath.FileCallable;
 import hudson.model.Result;
@@ -39,9 +50,14 @@ import hudson.remoting.VirtualChannel;
 
 /**
  * Uploads build artifacts to a {@link Store} that has been specified in a Jenkins project's
- * post-build action, in the form of a {@link Publication}.
+ * post-build action, in the form of one or more {@link Publication}s. All publications are
+ * published using the same session.
+ * <p>
+ * The {@link ServerCapabilities} of the store cached by the Jenkins controller are sent to the
+ * node along with the uploader. The uploader is selected from these capabilities before logging
+ * in, and is only selected again if the server reports different capabilities when logging in.
  */
-public class ArtifactFileUploader implements FileCallable<Result>, ResultHolder {
+public class ArtifactFileUploader implements FileCallable<UploadReport>, ResultHolder {
 
     /**
      * The serial version number of this class.
@@ -59,50 +75,127 @@ public class ArtifactFileUploader implements FileCallable<Result>, ResultHolder
 
     private Result                     result;
 
-    private final Publication          publication;
+    private final List<Publication>    publications;
     private final Store                store;
     private final Log                  log;
 
+    private final List<UploadRecord>   published;
+    private final List<UploadRecord>   records          = new ArrayList<>();
+    private final List<String>         deletedAssets    = new ArrayList<>();
+    private final List<Publication>    completed        = new ArrayList<>();
+
+    private final ServerCapabilities   capabilities;
+    private FileDigests                digests          = new FileDigests();
+
     private final RequestFactory       requestFactory;
     private final AuthenticatedNetwork network;
 
+    private boolean                    logMetrics;
+
+    /**
+     * Initializes a new instance of the {@link ArtifactFileUploader} class.
+     * @param result The build that produced the artifacts to be published.
+     * @param publications The {@link Publication}s that describe the artifacts to be published.
+     * @param store The {@link Store} to which the publications should be published.
+     * @param log The {@link Log} to write log messages to.
+     */
+    public ArtifactFileUploader(final Result result, final List<Publication> publications, final Store store, final Log log) {
+        this(result, publications, store, Collections.<UploadRecord> emptyList(), log);
+    }
+
     /**
      * Initializes a new instance of the {@link ArtifactFileUploader} class.
-     * @param result The build that produced the artifact to be published.
-     * @param publication The {@link Publication} that describes the artifact to be published.
-     * @param store The {@link Store} to which the publication should be published.
+     * @param result The build that produced the artifacts to be published.
+     * @param publications The {@link Publication}s that describe the artifacts to be published.
+     * @param store The {@link Store} to which the publications should be published.
+     * @param published The {@link UploadRecord}s of files that have already been published to the
+     * store. The upload of these files is skipped.
      * @param log The {@link Log} to write log messages to.
      */
-    public ArtifactFileUploader(final Result result, final Publication publication, final Store store, final Log log) {
+    public ArtifactFileUploader(
+            final Result result,
+            final List<Publication> publications,
+            final Store store,
+            final Collection<UploadRecord> published,
+            final Log log) {
 
         this.result = result;
 
-        this.publication = publication;
+        this.publications = new ArrayList<>(publications);
         this.store = store;
         this.log = log;
 
+        this.published = new ArrayList<>(published);
+        this.capabilities = CapabilityCache.getInstance().get(store);
+
         this.requestFactory = new RequestFactory();
-        this.network = new SessionManager(this.requestFactory);
-        this.network.setProxy(store.getProxyHost(), store.getProxyPort());
-        this.network.setProxyCredentials(store.getProxyUsername(), store.getProxyPassword());
+        this.network = new SessionManager(this.requestFactory, store);
+    }
+
+    /**
+     * Sets a value indicating whether the {@link Metrics} of the node that executes the upload
+     * are written to the log once the upload has completed. The metrics are maintained by the
+     * node, so they cannot be logged by the Jenkins controller.
+     * @param logMetrics {@code true} to log the node's metrics; otherwise, {@code false}.
+     */
+    public void setLogMetrics(final boolean logMetrics) {
+        this.logMetrics = logMetrics;
+    }
+
+    /**
+     * Sets the digests of the files to be published, which have been computed on the node that
+     * executes the upload to look up the files in the {@link UploadLedger}. The uploader reuses
+     * these digests instead of reading the files again.
+     * @param digests The {@link FileDigests} of the files.
+     */
+    public void setDigests(final FileDigests digests) {
+        this.digests = digests;
+    }
+
+    Store getStore() {
+        return this.store;
+    }
+
+    List<Publication> getPublications() {
+        return this.publications;
+    }
+
+    Log getLog() {
+        return this.log;
     }
 
     @Override
-    public Result invoke(final File basePath, final VirtualChannel channel)
+    public UploadReport invoke(final File basePath, final VirtualChannel channel)
             throws IOException, InterruptedException {
 
+        final UploadIndex index = UploadIndex.getInstance();
+
+        for (final UploadRecord record : this.published) {
+            index.add(this.store, record);
+        }
+
+        CapabilityCache.getInstance().seed(this.store, this.capabilities);
+
+        final UploaderFactory factory = new UploaderFactory(this.requestFactory, this.network, this.log);
+        final ServerCapabilities cached = CapabilityCache.getInstance().get(this.store);
+        Uploader uploader = (cached != null) ? factory.createUploader(cached) : null;
+        ServerVersion serverVersion = null;
+
         try {
             this.log.write(this, "Log in to server…");
             this.network.logIn(this.store);
 
-            final ServerVersion serverVersion = this.network.getServerVersion();
+            final ServerCapabilities capabilities = this.network.getServerCapabilities();
+            serverVersion = capabilities.getVersion();
             this.log.write(this, "Logged in (Relution server version %s)", serverVersion);
 
-            final UploaderFactory factory = new UploaderFactory(this.requestFactory, this.network, this.log);
-            final Uploader uploader = factory.createUploader(serverVersion);
+            if (cached == null || cached.supportsSingleRequestUpload() != capabilities.supportsSingleRequestUpload()) {
+                uploader = factory.createUploader(capabilities);
+            }
 
-            final Artifact artifact = new Artifact(this.store, basePath, this.publication, this.result);
-            this.result = uploader.publish(artifact);
+            for (final Publication publication : this.publications) {
+                this.publish(uploader, basePath, publication);
+            }
 
         } catch (final Exception e) {
             this.log.write(this, "Publication failed.\n\n%s\n", e);
@@ -114,7 +207,67 @@ public class ArtifactFileUploader implements FileCallable<Result>, ResultHolder
             this.log.write(this, "Connection closed");
 
         }
-        return this.result;
+
+        if (this.logMetrics) {
+            this.logMetrics();
+        }
+        final UploadReport report = new UploadReport(this.result, this.records, this.deletedAssets, this.getFailedPublications());
+        report.setServerVersion(serverVersion);
+        return report;
+    }
+
+    private List<String> getFailedPublications() {
+        final List<String> failed = new ArrayList<>();
+
+        for (final Publication publication : this.publications) {
+            if (!this.completed.contains(publication)) {
+                failed.add(publication.getArtifactPath());
+            }
+        }
+        return failed;
+    }
+
+    /**
+     * Logs the counters of the node. Since logging out completes in the background, the counters
+     * include the outcome of previous logouts only.
+     */
+    private void logMetrics() {
+        this.log.write(this, "Metrics (node):");
+
+        for (final Entry<String, Long> entry : Metrics.snapshot().entrySet()) {
+            this.log.write(this, "%s: %d", entry.getKey(), entry.getValue());
+        }
+    }
+
+    private void publish(final Uploader uploader, final File basePath, final Publication publication)
+            throws InterruptedException {
+        if (this.publications.size() > 1) {
+            this.log.write();
+            this.log.write(this, "Publishing '%s'…", publication.getArtifactPath());
+        }
+
+        try {
+            // The artifact's result only reflects its publication, the result of the build is
+            // merged into the result of this uploader
+            final Artifact artifact = new Artifact(this.store, basePath, publication, Result.SUCCESS, this.digests);
+            final Result result = uploader.publish(artifact);
+            this.records.addAll(artifact.getRecords());
+            this.deletedAssets.addAll(artifact.getDeletedAssets());
+            Builds.setResult(this, result, this.log);
+
+            if (Result.SUCCESS.equals(result)) {
+                this.completed.add(publication);
+            }
+
+        } catch (final IOException e) {
+            this.log.write(this, "Publication of '%s' failed.\n\n%s\n", publication.getArtifactPath(), e);
+            Builds.setResult(this, Result.UNSTABLE, this.log);
+
+        } catch (final ExecutionException e) {
+            this.log.write(this, "Publication of '%s' failed.\n\n%s\n", publication.getArtifactPath(), e);
+            Builds.setResult(this, Result.UNSTABLE, this.log);
+
+        }
     }
 
     @Override
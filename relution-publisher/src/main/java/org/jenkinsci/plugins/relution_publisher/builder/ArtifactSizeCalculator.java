@@ -0,0 +1,93 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jenkinsci.plugins.relution_publisher.builder;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang.StringUtils;
+import org.apache.tools.ant.types.FileSet;
+import org.jenkinsci.plugins.relution_publisher.configuration.jobs.Publication;
+import org.jenkinsci.plugins.relution_publisher.util.Bundles;
+import org.jenkinsci.remoting.RoleChecker;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import hudson.FilePath.FileCallable;
+import hudson.Util;
+import hudson.remoting.VirtualChannel;
+
+
+/**
+ * Computes the total size of the files matched by one or more {@link Publication}s, on the node
+ * that contains the files.
+ */
+public class ArtifactSizeCalculator implements FileCallable<Long> {
+
+    /**
+     * The serial version number of this class.
+     * <p>
+     * This version number is used to determine whether a serialized representation of this class
+     * is compatible with the current implementation of the class.
+     * <p>
+     * <b>Note</b> Maintainers must change this value <b>if and only if</b> the new version of this
+     * class is not compatible with old versions.
+     * @see
+     * <a href="http://docs.oracle.com/javase/6/docs/platform/serialization/spec/version.html">
+     * Versioning of Serializable Objects</a>.
+     */
+    private static final long       serialVersionUID = 1L;
+
+    private final List<Publication> publications;
+
+    /**
+     * Initializes a new instance of the {@link ArtifactSizeCalculator} class.
+     * @param publications The {@link Publication}s whose files should be measured.
+     */
+    public ArtifactSizeCalculator(final List<Publication> publications) {
+        this.publications = new ArrayList<>(publications);
+    }
+
+    /**
+     * @return The total size of all matched files, in bytes.
+     */
+    @Override
+    public Long invoke(final File basePath, final VirtualChannel channel) throws IOException, InterruptedException {
+        long size = 0;
+
+        for (final Publication publication : this.publications) {
+            if (StringUtils.isBlank(publication.getArtifactPath())) {
+                continue;
+            }
+
+            final FileSet fileSet = Util.createFileSet(basePath, publication.getArtifactPath(), publication.getArtifactExcludePath());
+
+            for (final String fileName : Bundles.getIncludedArtifacts(fileSet.getDirectoryScanner())) {
+                final File file = new File(basePath, fileName);
+
+                // Bundles are compressed while they are uploaded, their size is an upper bound
+                size += file.isDirectory() ? FileUtils.sizeOfDirectory(file) : file.length();
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public void checkRoles(final RoleChecker roleChecker) throws SecurityException {
+    }
+}
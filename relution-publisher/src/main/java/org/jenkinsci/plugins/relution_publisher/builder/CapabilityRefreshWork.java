@@ -0,0 +1,94 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jenkinsci.plugins.relution_publisher.builder;
+
+import org.jenkinsci.plugins.relution_publisher.configuration.global.Store;
+import org.jenkinsci.plugins.relution_publisher.configuration.global.StoreConfiguration;
+import org.jenkinsci.plugins.relution_publisher.logging.BuildLog;
+import org.jenkinsci.plugins.relution_publisher.logging.Log;
+import org.jenkinsci.plugins.relution_publisher.model.ServerVersion;
+import org.jenkinsci.plugins.relution_publisher.net.CapabilityCache;
+import org.jenkinsci.plugins.relution_publisher.net.RequestFactory;
+import org.jenkinsci.plugins.relution_publisher.net.SessionManager;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+
+import hudson.Extension;
+import hudson.model.AsyncPeriodicWork;
+import hudson.model.TaskListener;
+
+
+/**
+ * Refreshes the {@link CapabilityCache} entries of all configured stores in the background, so
+ * builds can select an uploader without waiting for the server to report its version.
+ * <p>
+ * The version of a store is requested without logging in. The output of the task is written to
+ * the Jenkins task log.
+ */
+@Extension
+public class CapabilityRefreshWork extends AsyncPeriodicWork {
+
+    /**
+     * The interval, in milliseconds, at which the capabilities are refreshed. This is shorter
+     * than the time to live of the cache entries, so entries of reachable stores do not expire.
+     */
+    private static final long  RECURRENCE_PERIOD = TimeUnit.MINUTES.toMillis(15);
+
+    @Inject
+    private StoreConfiguration globalConfiguration;
+
+    public CapabilityRefreshWork() {
+        super("Relution capability refresh");
+    }
+
+    @Override
+    public long getRecurrencePeriod() {
+        return RECURRENCE_PERIOD;
+    }
+
+    @Override
+    protected void execute(final TaskListener listener) throws IOException, InterruptedException {
+        if (this.globalConfiguration == null) {
+            return;
+        }
+
+        final Log log = new BuildLog(listener);
+
+        for (final Store store : this.globalConfiguration.getStores()) {
+            final SessionManager network = new SessionManager(new RequestFactory(), store);
+
+            try {
+                final ServerVersion version = network.refreshServerVersion(store);
+                log.write(this, "Store \"%s\" reports server version %s", store.getUrl(), version);
+
+            } catch (final IOException e) {
+                log.write(this, "Could not refresh capabilities of store \"%s\":\n\n%s\n", store.getUrl(), e);
+
+            } catch (final ExecutionException e) {
+                log.write(this, "Could not refresh capabilities of store \"%s\":\n\n%s\n", store.getUrl(), e);
+
+            } finally {
+                network.close();
+
+            }
+        }
+    }
+}
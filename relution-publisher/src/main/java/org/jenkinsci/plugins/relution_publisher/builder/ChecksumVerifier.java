@@ -0,0 +1,73 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jenkinsci.plugins.relution_publisher.builder;
+
+import org.apache.commons.lang.StringUtils;
+import org.jenkinsci.plugins.relution_publisher.logging.Log;
+import org.jenkinsci.plugins.relution_publisher.model.ResultHolder;
+import org.jenkinsci.plugins.relution_publisher.net.requests.ZeroCopyFileRequest.Item;
+import org.jenkinsci.plugins.relution_publisher.util.Builds;
+import org.jenkinsci.plugins.relution_publisher.util.Metrics;
+
+import hudson.model.Result;
+
+
+/**
+ * Compares the checksums of uploaded files, computed while the files were sent, with the
+ * checksums reported by the server.
+ * <p>
+ * The server reports the Base64 encoded MD5 checksum of a file as the asset's
+ * {@link org.jenkinsci.plugins.relution_publisher.model.entities.Asset#HASHCODE hash code}.
+ */
+final class ChecksumVerifier {
+
+    private ChecksumVerifier() {
+    }
+
+    /**
+     * Verifies the checksum of the specified item. Nothing is verified if no checksum has been
+     * computed for the item. If the checksums differ, the result is set to
+     * {@link Result#UNSTABLE unstable}.
+     * @param holder The {@link ResultHolder} whose result to update.
+     * @param item The uploaded {@link Item}.
+     * @param serverChecksum The checksum reported by the server, may be {@code null}.
+     * @param log The {@link Log} to write to.
+     */
+    public static void verify(final ResultHolder holder, final Item item, final String serverChecksum, final Log log) {
+        if (item.getSha256() == null) {
+            return;
+        }
+
+        final String fileName = item.getFile().getName();
+        log.write(ChecksumVerifier.class, "Checksums of %s: SHA-256 %s, MD5 %s", fileName, item.getSha256(), item.getMd5());
+
+        if (StringUtils.isBlank(serverChecksum)) {
+            log.write(ChecksumVerifier.class, "Server did not report a checksum, upload not verified.");
+            Metrics.increment(Metrics.CHECKSUM_UNAVAILABLE);
+
+        } else if (StringUtils.equals(serverChecksum, item.getMd5())) {
+            log.write(ChecksumVerifier.class, "Checksum verified.");
+            Metrics.increment(Metrics.CHECKSUM_VERIFIED);
+
+        } else {
+            log.write(ChecksumVerifier.class, "Checksum mismatch, server reported MD5 %s for %s.", serverChecksum, fileName);
+            Metrics.increment(Metrics.CHECKSUM_MISMATCH);
+            Builds.setResult(holder, Result.UNSTABLE, log);
+
+        }
+    }
+}
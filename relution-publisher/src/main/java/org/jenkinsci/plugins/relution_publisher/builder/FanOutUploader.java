@@ -0,0 +1,135 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jenkinsci.plugins.relution_publisher.builder;
+
+import org.jenkinsci.plugins.relution_publisher.configuration.jobs.Publication;
+import org.jenkinsci.plugins.relution_publisher.model.UploadRecord;
+import org.jenkinsci.plugins.relution_publisher.util.DaemonThreadFactory;
+import org.jenkinsci.remoting.RoleChecker;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import hudson.FilePath.FileCallable;
+import hudson.model.Result;
+import hudson.remoting.VirtualChannel;
+
+
+/**
+ * Publishes the artifacts of a build to several stores in a single pass, by executing one
+ * {@link ArtifactFileUploader} per store concurrently on the node that contains the artifacts.
+ * <p>
+ * The uploaders share the digests of the artifacts, so each artifact is digested only once, no
+ * matter how many stores it is published to. Each uploader sends files using zero-copy
+ * transfers. Since the uploads start at the same time, a file read from disk for one store is
+ * usually still in the page cache when it is sent to the others. Each store is published to
+ * using its own connection, which means a slow or failing store does not affect the others.
+ */
+public class FanOutUploader implements FileCallable<List<UploadReport>> {
+
+    /**
+     * The serial version number of this class.
+     * <p>
+     * This version number is used to determine whether a serialized representation of this class
+     * is compatible with the current implementation of the class.
+     * <p>
+     * <b>Note</b> Maintainers must change this value <b>if and only if</b> the new version of this
+     * class is not compatible with old versions.
+     * @see
+     * <a href="http://docs.oracle.com/javase/6/docs/platform/serialization/spec/version.html">
+     * Versioning of Serializable Objects</a>.
+     */
+    private static final long                serialVersionUID = 1L;
+
+    private final List<ArtifactFileUploader> uploaders;
+
+    /**
+     * Initializes a new instance of the {@link FanOutUploader} class.
+     * @param uploaders The {@link ArtifactFileUploader}s to execute, one per store.
+     */
+    public FanOutUploader(final List<ArtifactFileUploader> uploaders) {
+        this.uploaders = new ArrayList<>(uploaders);
+    }
+
+    /**
+     * @return The {@link UploadReport}s of all uploaders, in the order in which the uploaders
+     * were passed to this instance.
+     */
+    @Override
+    public List<UploadReport> invoke(final File basePath, final VirtualChannel channel)
+            throws IOException, InterruptedException {
+
+        final ExecutorService executor = Executors.newFixedThreadPool(
+                Math.max(this.uploaders.size(), 1),
+                new DaemonThreadFactory("Relution fan-out"));
+
+        final List<Future<UploadReport>> futures = new ArrayList<>();
+
+        try {
+            for (final ArtifactFileUploader uploader : this.uploaders) {
+                final Future<UploadReport> future = executor.submit(new Callable<UploadReport>() {
+
+                    @Override
+                    public UploadReport call() throws Exception {
+                        return uploader.invoke(basePath, channel);
+                    }
+                });
+                futures.add(future);
+            }
+
+            final List<UploadReport> reports = new ArrayList<>();
+
+            for (int index = 0; index < futures.size(); index++) {
+                reports.add(this.await(futures.get(index), this.uploaders.get(index)));
+            }
+            return reports;
+
+        } finally {
+            executor.shutdownNow();
+
+        }
+    }
+
+    private UploadReport await(final Future<UploadReport> future, final ArtifactFileUploader uploader)
+            throws InterruptedException {
+        try {
+            return future.get();
+
+        } catch (final ExecutionException e) {
+            uploader.getLog().write(this, "Publishing to '%s' failed, error during execution:\n\n%s\n", uploader.getStore(), e.getCause());
+            final List<String> failed = new ArrayList<>();
+
+            for (final Publication publication : uploader.getPublications()) {
+                failed.add(publication.getArtifactPath());
+            }
+            return new UploadReport(Result.FAILURE, Collections.<UploadRecord> emptyList(), Collections.<String> emptyList(), failed);
+
+        }
+    }
+
+    @Override
+    public void checkRoles(final RoleChecker roleChecker) throws SecurityException {
+    }
+}
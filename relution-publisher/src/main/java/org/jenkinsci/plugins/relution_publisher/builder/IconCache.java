@@ -0,0 +1,162 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jenkinsci.plugins.relution_publisher.builder;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import org.apache.commons.lang.StringUtils;
+import org.jenkinsci.plugins.relution_publisher.configuration.global.Store;
+import org.jenkinsci.plugins.relution_publisher.model.entities.ApiObject;
+import org.jenkinsci.plugins.relution_publisher.util.Json;
+import org.jenkinsci.plugins.relution_publisher.util.UrlUtils;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Remembers the assets of app icons that have been uploaded to a store within the current JVM,
+ * so an icon that did not change can be reused instead of being uploaded again for every
+ * version.
+ * <p>
+ * Icons are identified by the store and the SHA-256 digest of the icon file. Entries expire
+ * after {@link #MAX_AGE} milliseconds and the least recently used entry is evicted once the cache
+ * contains more than {@link #MAX_ENTRIES} entries. An entry should be {@link #invalidate(Store,
+ * JsonObject) invalidated} if the server rejects a version that references its asset.
+ */
+public final class IconCache {
+
+    /**
+     * The maximum amount of time, in milliseconds, an icon asset is reused.
+     */
+    private final static long              MAX_AGE     = TimeUnit.HOURS.toMillis(12);
+
+    /**
+     * The maximum number of icon assets kept in the cache.
+     */
+    private final static int               MAX_ENTRIES = 256;
+
+    private final static IconCache         INSTANCE    = new IconCache();
+
+    private final Map<String, CachedAsset> entries     = new LinkedHashMap<String, CachedAsset>(16, 0.75f, true) {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, CachedAsset> eldest) {
+            return this.size() > MAX_ENTRIES;
+        }
+    };
+
+    private IconCache() {
+    }
+
+    /**
+     * @return The {@link IconCache} of the current JVM.
+     */
+    public static IconCache getInstance() {
+        return INSTANCE;
+    }
+
+    private static String getKey(final Store store, final String digest) {
+        return String.format("%s|%s|%s", UrlUtils.toBaseUrl(store.getUrl()), store.getUsername(), digest);
+    }
+
+    /**
+     * Returns the asset of an icon that has been uploaded to the specified store.
+     * @param store The {@link Store} to which the icon was uploaded.
+     * @param digest The SHA-256 digest of the icon file.
+     * @return A copy of the icon's asset, or {@code null} if the icon has not been uploaded or
+     * its entry has expired.
+     */
+    public synchronized JsonObject get(final Store store, final String digest) {
+        final String key = getKey(store, digest);
+        final CachedAsset entry = this.entries.get(key);
+
+        if (entry == null) {
+            return null;
+        }
+
+        if (System.currentTimeMillis() - entry.created > MAX_AGE) {
+            this.entries.remove(key);
+            return null;
+        }
+
+        return new JsonParser().parse(entry.json).getAsJsonObject();
+    }
+
+    /**
+     * Adds the asset of an uploaded icon to the cache. Assets without UUID are ignored.
+     * @param store The {@link Store} to which the icon was uploaded.
+     * @param digest The SHA-256 digest of the icon file.
+     * @param asset The asset returned by the server.
+     */
+    public synchronized void put(final Store store, final String digest, final JsonObject asset) {
+        final String uuid = Json.getString(asset, ApiObject.UUID);
+
+        if (StringUtils.isBlank(uuid)) {
+            return;
+        }
+        this.entries.put(getKey(store, digest), new CachedAsset(asset.toString(), uuid));
+    }
+
+    /**
+     * Removes the specified icon asset from the cache.
+     * @param store The {@link Store} to which the icon was uploaded.
+     * @param asset The icon asset to remove, may be {@code null}.
+     */
+    public synchronized void invalidate(final Store store, final JsonObject asset) {
+        if (Json.isNull(asset)) {
+            return;
+        }
+
+        final String prefix = getKey(store, "");
+        final String uuid = Json.getString(asset, ApiObject.UUID);
+        final Iterator<Map.Entry<String, CachedAsset>> iterator = this.entries.entrySet().iterator();
+
+        while (iterator.hasNext()) {
+            final Map.Entry<String, CachedAsset> entry = iterator.next();
+
+            if (entry.getKey().startsWith(prefix) && StringUtils.equals(entry.getValue().uuid, uuid)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Removes all entries from the cache.
+     */
+    public synchronized void clear() {
+        this.entries.clear();
+    }
+
+    private static final class CachedAsset {
+
+        private final String json;
+        private final String uuid;
+        private final long   created;
+
+        public CachedAsset(final String json, final String uuid) {
+            this.json = json;
+            this.uuid = uuid;
+            this.created = System.currentTimeMillis();
+        }
+    }
+}
@@ -24,20 +24,30 @@ import com.google.gson.JsonObject;
 import org.apache.commons.lang.StringUtils;
 import org.apache.tika.io.IOUtils;
 import org.apache.tools.ant.types.FileSet;
+import org.jenkinsci.plugins.relution_publisher.configuration.global.Store;
 import org.jenkinsci.plugins.relution_publisher.configuration.jobs.Publication;
+import org.jenkinsci.plugins.relution_publisher.logging.BufferedLog;
 import org.jenkinsci.plugins.relution_publisher.logging.Log;
+import org.jenkinsci.plugins.relution_publisher.model.AppMetadata;
 import org.jenkinsci.plugins.relution_publisher.model.ArchiveMode;
 import org.jenkinsci.plugins.relution_publisher.model.Artifact;
 import org.jenkinsci.plugins.relution_publisher.model.ResultHolder;
+import org.jenkinsci.plugins.relution_publisher.model.UploadRecord;
 import org.jenkinsci.plugins.relution_publisher.model.entities.ApiObject;
 import org.jenkinsci.plugins.relution_publisher.model.entities.App;
+import org.jenkinsci.plugins.relution_publisher.model.entities.Asset;
 import org.jenkinsci.plugins.relution_publisher.model.entities.Language;
 import org.jenkinsci.plugins.relution_publisher.model.entities.Version;
 import org.jenkinsci.plugins.relution_publisher.net.Network;
 import org.jenkinsci.plugins.relution_publisher.net.RequestFactory;
 import org.jenkinsci.plugins.relution_publisher.net.requests.ApiRequest;
+import org.jenkinsci.plugins.relution_publisher.net.requests.ZeroCopyFileRequest;
 import org.jenkinsci.plugins.relution_publisher.net.responses.ApiResponse;
+import org.jenkinsci.plugins.relution_publisher.util.AppMetadataReader;
 import org.jenkinsci.plugins.relution_publisher.util.Builds;
+import org.jenkinsci.plugins.relution_publisher.util.Bundles;
+import org.jenkinsci.plugins.relution_publisher.util.DaemonThreadFactory;
+import org.jenkinsci.plugins.relution_publisher.util.Digests;
 import org.jenkinsci.plugins.relution_publisher.util.Json;
 
 import java.io.BufferedReader;
@@ -48,11 +58,15 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 import hudson.Util;
@@ -70,7 +84,11 @@ public class MultiRequestUploader implements Uploader {
     private final Network        network;
     private final Log            log;
 
+    private final UploadIndex    index     = UploadIndex.getInstance();
+    private final IconCache      iconCache = IconCache.getInstance();
+
     private Set<String>          locales;
+    private StoreVersions        versions;
 
     public MultiRequestUploader(
             final RequestFactory requestFactory,
@@ -89,35 +107,252 @@ public class MultiRequestUploader implements Uploader {
         final String excludePath = publication.getArtifactExcludePath();
 
         this.log.write(this, "Uploading build artifacts…");
-        final List<JsonObject> assets = this.uploadAssets(
-                artifact,
-                artifactPath,
-                excludePath);
+        final int concurrency = artifact.getStore().getUploadConcurrency();
 
-        if (this.isEmpty(assets) && artifact.is(Result.UNSTABLE)) {
-            this.log.write(this, "Upload of build artifacts failed.");
+        if (concurrency > 1) {
+            return this.publishConcurrently(artifact, artifactPath, excludePath, concurrency);
+        }
+
+        final FileSet fileSet = this.getFileSet(artifact, artifactPath, excludePath);
+
+        if (fileSet == null) {
+            return this.noAssetsUploaded(artifact);
+        }
+
+        final File directory = fileSet.getDirectoryScanner().getBasedir();
+        final List<JsonObject> assets = new ArrayList<JsonObject>();
+        final List<String> digests = new ArrayList<String>();
+        boolean published = false;
+
+        for (final String fileName : Bundles.getIncludedArtifacts(fileSet.getDirectoryScanner())) {
+            final String digest = artifact.getDigests().sha256(new File(directory, fileName));
+
+            if (this.isPublished(artifact, directory, fileName, digest)) {
+                published = true;
+                continue;
+            }
+
+            final JsonObject asset = this.uploadAsset(artifact, directory, fileName);
+
+            if (asset != null) {
+                assets.add(asset);
+                digests.add(digest);
+            }
+        }
+
+        if (assets.isEmpty() && published) {
             return artifact.getResult();
+        }
 
-        } else if (this.isEmpty(assets)) {
-            this.log.write(this, "No artifacts to upload found.");
-            return Builds.setResult(artifact, Result.NOT_BUILT, this.log);
+        if (assets.isEmpty()) {
+            return this.noAssetsUploaded(artifact);
+        }
 
+        for (int index = 0; index < assets.size(); index++) {
+            this.retrieveApplication(artifact, assets.get(index), digests.get(index));
         }
 
-        for (final JsonObject asset : assets) {
-            this.retrieveApplication(artifact, asset);
+        return artifact.getResult();
+    }
+
+    /**
+     * Uploads the files of the specified artifact one after the other, and retrieves and persists
+     * the app associated with each uploaded file using a bounded number of workers. Processing of
+     * a file starts as soon as its upload has completed. The log messages of each file are
+     * buffered and written to the build log in the order of the files.
+     */
+    private Result publishConcurrently(
+            final Artifact artifact,
+            final String includes,
+            final String excludes,
+            final int concurrency) throws IOException, InterruptedException, ExecutionException {
+
+        final FileSet fileSet = this.getFileSet(artifact, includes, excludes);
+
+        if (fileSet == null) {
+            return this.noAssetsUploaded(artifact);
+        }
+
+        if (this.locales == null && this.requiresLocales(artifact)) {
+            // Request the languages once, instead of once for each file
+            this.getLocales(artifact);
+        }
+
+        final File directory = fileSet.getDirectoryScanner().getBasedir();
+        final String[] fileNames = Bundles.getIncludedArtifacts(fileSet.getDirectoryScanner());
+
+        final ExecutorService executor = Executors.newFixedThreadPool(concurrency, new DaemonThreadFactory("Relution asset processing"));
+        final List<Future<?>> futures = new ArrayList<Future<?>>();
+        final List<BufferedLog> logs = new ArrayList<BufferedLog>();
+        boolean published = false;
+
+        try {
+            for (final String fileName : fileNames) {
+                final String digest = artifact.getDigests().sha256(new File(directory, fileName));
+
+                if (this.isPublished(artifact, directory, fileName, digest)) {
+                    published = true;
+                    continue;
+                }
+
+                final JsonObject asset = this.uploadAsset(artifact, directory, fileName);
+
+                if (asset == null) {
+                    continue;
+                }
+
+                final BufferedLog assetLog = new BufferedLog(this.log);
+                final MultiRequestUploader uploader = new MultiRequestUploader(this.requestFactory, this.network, assetLog);
+                uploader.locales = this.locales;
+
+                final Future<?> future = executor.submit(new Callable<Void>() {
+
+                    @Override
+                    public Void call() throws Exception {
+                        uploader.retrieveApplication(artifact, asset, digest);
+                        return null;
+                    }
+                });
+
+                futures.add(future);
+                logs.add(assetLog);
+            }
+
+            if (futures.isEmpty() && published) {
+                return artifact.getResult();
+            }
+
+            if (futures.isEmpty()) {
+                return this.noAssetsUploaded(artifact);
+            }
+
+            for (int index = 0; index < futures.size(); index++) {
+                final BufferedLog assetLog = logs.get(index);
+                this.await(artifact, futures.get(index), assetLog);
+                assetLog.flush();
+            }
+
+        } finally {
+            executor.shutdownNow();
+
         }
 
         return artifact.getResult();
     }
 
-    private void retrieveApplication(final Artifact artifact, final JsonObject asset)
+    private Result noAssetsUploaded(final Artifact artifact) {
+        if (artifact.is(Result.UNSTABLE)) {
+            this.log.write(this, "Upload of build artifacts failed.");
+            return artifact.getResult();
+        }
+
+        this.log.write(this, "No artifacts to upload found.");
+        return Builds.setResult(artifact, Result.NOT_BUILT, this.log);
+    }
+
+    /**
+     * Returns a value indicating whether the specified file, or another file that contains the
+     * same app version, has already been published to the artifact's store, in which case its
+     * upload can be skipped. Since the server would reject a different file with an existing
+     * version, the artifact is marked as unstable in that case.
+     */
+    private boolean isPublished(final Artifact artifact, final File directory, final String fileName, final String digest)
+            throws InterruptedException {
+        final Store store = artifact.getStore();
+        final String releaseStatus = this.getReleaseStatus(artifact);
+        final UploadRecord record = this.index.find(store, releaseStatus, digest);
+
+        if (record != null && this.isConfirmed(store, record)) {
+            this.log.write(this, "%s already published (SHA-256 %s), upload skipped", fileName, digest);
+            return true;
+        }
+
+        final AppMetadata metadata = this.readMetadata(new File(directory, fileName));
+
+        if (metadata == null || metadata.getVersionCode() == null) {
+            return false;
+        }
+
+        final UploadRecord version = this.index.findVersion(store, releaseStatus, metadata.getIdentifier(), metadata.getVersionCode());
+
+        if (version == null || !this.isConfirmed(store, version)) {
+            return false;
+        }
+
+        this.log.write(
+                this,
+                "Version %d of \"%s\" already exists in \"%s\", upload of %s skipped",
+                metadata.getVersionCode(),
+                metadata.getIdentifier(),
+                releaseStatus,
+                fileName);
+
+        Builds.setResult(artifact, Result.UNSTABLE, this.log);
+        return true;
+    }
+
+    /**
+     * Returns a value indicating whether the store still contains the version described by the
+     * specified record. The record is removed from the index if it does not.
+     */
+    private boolean isConfirmed(final Store store, final UploadRecord record) throws InterruptedException {
+        if (this.getVersions(store).contains(record, this.log)) {
+            return true;
+        }
+
+        this.log.write(
+                this,
+                "Version %d of \"%s\" no longer exists in \"%s\"",
+                record.getVersionCode(),
+                record.getAppId(),
+                record.getReleaseStatus());
+
+        this.index.remove(store, record);
+        return false;
+    }
+
+    private synchronized StoreVersions getVersions(final Store store) {
+        if (this.versions == null) {
+            this.versions = new StoreVersions(this.requestFactory, this.network, store);
+        }
+        return this.versions;
+    }
+
+    private AppMetadata readMetadata(final File file) {
+        try {
+            return AppMetadataReader.read(file);
+
+        } catch (final IOException e) {
+            this.log.write(this, "Unable to read app metadata of %s: %s", file.getName(), e.getMessage());
+            return null;
+
+        }
+    }
+
+    private void addRecord(final Artifact artifact, final String digest, final JsonObject app, final JsonObject version) {
+        final UploadRecord record = UploadRecord.create(artifact.getStore(), digest, app, version);
+        this.index.add(artifact.getStore(), record);
+        this.getVersions(artifact.getStore()).add(record);
+        artifact.addRecord(record);
+    }
+
+    private void await(final Artifact artifact, final Future<?> future, final Log log) throws InterruptedException {
+        try {
+            future.get();
+
+        } catch (final ExecutionException e) {
+            log.write(this, "Retrieval of app failed, error during execution:\n\n%s\n", e.getCause());
+            Builds.setResult(artifact, Result.UNSTABLE, log);
+
+        }
+    }
+
+    private void retrieveApplication(final Artifact artifact, final JsonObject asset, final String digest)
             throws IOException, InterruptedException, ExecutionException {
         this.log.write();
         this.log.write(this, "Requesting app associated with asset {%s}…", Json.getString(asset, ApiObject.UUID));
 
-        final ApiRequest request = this.requestFactory.createAppFromFileRequest(artifact.getStore(), asset);
-        final ApiResponse response = this.network.execute(request, this.log);
+        final ApiResponse response = this.requestApplication(artifact, asset);
 
         if (!this.verifyApplicationResponse(response)) {
             this.log.write(this, "Retrieval of app failed.");
@@ -148,11 +383,18 @@ public class MultiRequestUploader implements Uploader {
         this.setVersionMetadata(artifact, version);
 
         if (Json.isNull(app, ApiObject.UUID)) {
-            this.persistApplication(artifact, app);
+            if (this.persistApplication(artifact, app)) {
+                this.addRecord(artifact, digest, app, version);
+            } else {
+                this.iconCache.invalidate(artifact.getStore(), Json.getObject(version, Version.ICON));
+            }
 
         } else {
             if (this.persistVersion(artifact, app, version)) {
+                this.addRecord(artifact, digest, app, version);
                 this.manageArchivedVersions(artifact, app, version);
+            } else {
+                this.iconCache.invalidate(artifact.getStore(), Json.getObject(version, Version.ICON));
             }
         }
 
@@ -164,6 +406,35 @@ public class MultiRequestUploader implements Uploader {
                 Json.getString(version, Version.RELEASE_STATUS));
     }
 
+    /**
+     * Requests the app associated with the specified asset. If the configured languages are
+     * required to set the app's metadata, but have not been requested yet, both requests are
+     * executed together, since they are independent of each other.
+     */
+    private ApiResponse requestApplication(final Artifact artifact, final JsonObject asset)
+            throws IOException, InterruptedException, ExecutionException {
+        final ApiRequest request = this.requestFactory.createAppFromFileRequest(artifact.getStore(), asset);
+
+        if (this.locales != null || !this.requiresLocales(artifact)) {
+            return this.network.execute(request, this.log);
+        }
+
+        final ApiRequest languageRequest = this.requestFactory.createLanguageRequest(artifact.getStore());
+        final List<ApiResponse> responses = this.network.executePipelined(Arrays.asList(request, languageRequest), this.log);
+
+        this.log.write(this, "Requested configured languages:");
+        this.locales = this.getLocales(responses.get(1));
+        return responses.get(0);
+    }
+
+    private boolean requiresLocales(final Artifact artifact) {
+        final Publication publication = artifact.getPublication();
+
+        return !StringUtils.isBlank(publication.getName())
+                || !StringUtils.isBlank(publication.getChangeLogPath())
+                || !StringUtils.isBlank(publication.getDescriptionPath());
+    }
+
     private List<JsonObject> getArchivedVersions(final JsonObject app, final JsonObject newVersion) {
         final String newReleaseStatus = Json.getString(newVersion, Version.RELEASE_STATUS);
         final int newVersionCode = Json.getInt(newVersion, Version.VERSION_CODE);
@@ -186,7 +457,7 @@ public class MultiRequestUploader implements Uploader {
     }
 
     private void manageArchivedVersions(final Artifact artifact, final JsonObject app, final JsonObject version)
-            throws InterruptedException, ExecutionException {
+            throws InterruptedException {
 
         final String archiveMode = !artifact.getPublication().usesDefaultArchiveMode()
                 ? artifact.getPublication().getArchiveMode()
@@ -195,9 +466,10 @@ public class MultiRequestUploader implements Uploader {
         if (StringUtils.equals(archiveMode, ArchiveMode.OVERWRITE.key)) {
             this.log.write(this, "Delete previous app version from \"%s\"", Json.getString(version, Version.RELEASE_STATUS));
             final List<JsonObject> archived = this.getArchivedVersions(app, version);
+            final ArchivedVersionCleaner cleaner = new ArchivedVersionCleaner(this.requestFactory, this.network, this.log);
 
-            for (final JsonObject current : archived) {
-                this.deleteVersion(artifact, current);
+            for (final JsonObject deleted : cleaner.delete(artifact, archived)) {
+                artifact.addDeletedAsset(ArchivedVersionCleaner.getAssetUuid(deleted));
             }
 
         } else {
@@ -206,31 +478,6 @@ public class MultiRequestUploader implements Uploader {
         }
     }
 
-    private void deleteVersion(final Artifact artifact, final JsonObject version)
-            throws InterruptedException, ExecutionException {
-        this.log.write(
-                this,
-                "Deleting app version \"%s\" (%d) from \"%s\"…",
-                Json.getString(version, Version.VERSION_NAME),
-                Json.getInt(version, Version.VERSION_CODE),
-                Json.getString(version, Version.RELEASE_STATUS));
-
-        try {
-            final ApiRequest request = this.requestFactory.createDeleteVersionRequest(artifact.getStore(), version);
-            final ApiResponse response = this.network.execute(request, this.log);
-
-            if (!this.verifyDeleteResponse(response)) {
-                this.log.write(this, "Error deleting app version");
-                Builds.setResult(artifact, Result.UNSTABLE, this.log);
-                return;
-            }
-
-        } catch (final IOException e) {
-            this.log.write(this, "Error deleting app version: %s", e.getMessage());
-            e.printStackTrace();
-        }
-    }
-
     private void setVersionMetadata(final Artifact artifact, final JsonObject version)
             throws IOException, InterruptedException, ExecutionException {
         this.setReleaseStatus(artifact, version);
@@ -244,10 +491,14 @@ public class MultiRequestUploader implements Uploader {
         this.setVersionName(artifact, version);
     }
 
-    private void setReleaseStatus(final Artifact artifact, final JsonObject version) {
-        final String releaseStatus = !artifact.getPublication().usesDefaultReleaseStatus()
+    private String getReleaseStatus(final Artifact artifact) {
+        return !artifact.getPublication().usesDefaultReleaseStatus()
                 ? artifact.getPublication().getReleaseStatus()
                 : artifact.getStore().getReleaseStatus();
+    }
+
+    private void setReleaseStatus(final Artifact artifact, final JsonObject version) {
+        final String releaseStatus = this.getReleaseStatus(artifact);
 
         if (!StringUtils.isBlank(releaseStatus)) {
             version.addProperty("releaseStatus", releaseStatus);
@@ -271,8 +522,17 @@ public class MultiRequestUploader implements Uploader {
             return;
         }
 
-        this.log.write(this, "Uploading app icon…");
         final String filePath = artifact.getPublication().getIconPath();
+        final String digest = this.getIconDigest(artifact, filePath);
+        final JsonObject cached = (digest != null) ? this.iconCache.get(artifact.getStore(), digest) : null;
+
+        if (cached != null) {
+            this.log.write(this, "App icon unchanged, using asset {%s}.", Json.getString(cached, ApiObject.UUID));
+            version.add(Version.ICON, cached);
+            return;
+        }
+
+        this.log.write(this, "Uploading app icon…");
         final List<JsonObject> assets = this.uploadAssets(artifact, filePath, null);
 
         if (assets == null) {
@@ -287,7 +547,24 @@ public class MultiRequestUploader implements Uploader {
             return;
         }
 
-        version.add("icon", assets.get(0));
+        if (digest != null) {
+            this.iconCache.put(artifact.getStore(), digest, assets.get(0));
+        }
+        version.add(Version.ICON, assets.get(0));
+    }
+
+    /**
+     * Returns the SHA-256 digest of the icon file, or {@code null} if the path does not match
+     * exactly one file, in which case the icon is not cached.
+     */
+    private String getIconDigest(final Artifact artifact, final String filePath) throws IOException {
+        final FileSet fileSet = Util.createFileSet(artifact.getBasePath(), filePath);
+        final String[] fileNames = fileSet.getDirectoryScanner().getIncludedFiles();
+
+        if (fileNames.length != 1) {
+            return null;
+        }
+        return Digests.sha256(new File(fileSet.getDirectoryScanner().getBasedir(), fileNames[0]));
     }
 
     private void setChangeLog(final Artifact artifact, final JsonObject version)
@@ -348,8 +625,13 @@ public class MultiRequestUploader implements Uploader {
         final ApiRequest request = this.requestFactory.createLanguageRequest(artifact.getStore());
         final ApiResponse response = this.network.execute(request, this.log);
 
+        this.locales = this.getLocales(response);
+        return this.locales;
+    }
+
+    private Set<String> getLocales(final ApiResponse response) {
         final JsonArray languages = response.getResults();
-        this.locales = new HashSet<String>(languages.size());
+        final Set<String> locales = new HashSet<String>(languages.size());
 
         for (final JsonElement element : languages) {
             final JsonObject language = element.getAsJsonObject();
@@ -357,10 +639,10 @@ public class MultiRequestUploader implements Uploader {
             final String locale = Json.getString(language, Language.LOCALE);
 
             this.log.write(this, "%s: %s", name, locale);
-            this.locales.add(locale);
+            locales.add(locale);
         }
 
-        return this.locales;
+        return locales;
     }
 
     private void setVersionName(final Artifact artifact, final JsonObject version) {
@@ -410,23 +692,13 @@ public class MultiRequestUploader implements Uploader {
     private List<JsonObject> uploadAssets(final Artifact artifact, final String includes, final String excludes)
             throws InterruptedException {
 
-        if (StringUtils.isBlank(includes)) {
-            this.log.write(this, "No file to upload specified, filter expression is empty, upload failed.");
-            return null;
-        }
-
-        if (!StringUtils.isBlank(excludes)) {
-            this.log.write(this, "Excluding files that match \"%s\"", excludes);
-        }
+        final FileSet fileSet = this.getFileSet(artifact, includes, excludes);
 
-        final FileSet fileSet = Util.createFileSet(artifact.getBasePath(), includes, excludes);
-        final File directory = fileSet.getDirectoryScanner().getBasedir();
-
-        if (fileSet.getDirectoryScanner().getIncludedFilesCount() < 1) {
-            this.log.write(this, "The file specified by \"%s\" does not exist, upload failed.", includes);
+        if (fileSet == null) {
             return null;
         }
 
+        final File directory = fileSet.getDirectoryScanner().getBasedir();
         final List<JsonObject> assets = new ArrayList<JsonObject>();
 
         for (final String fileName : fileSet.getDirectoryScanner().getIncludedFiles()) {
@@ -440,15 +712,44 @@ public class MultiRequestUploader implements Uploader {
         return assets;
     }
 
+    private FileSet getFileSet(final Artifact artifact, final String includes, final String excludes) {
+        if (StringUtils.isBlank(includes)) {
+            this.log.write(this, "No file to upload specified, filter expression is empty, upload failed.");
+            return null;
+        }
+
+        if (!StringUtils.isBlank(excludes)) {
+            this.log.write(this, "Excluding files that match \"%s\"", excludes);
+        }
+
+        final FileSet fileSet = Util.createFileSet(artifact.getBasePath(), includes, excludes);
+
+        if (Bundles.getIncludedArtifacts(fileSet.getDirectoryScanner()).length < 1) {
+            this.log.write(this, "The file specified by \"%s\" does not exist, upload failed.", includes);
+            return null;
+        }
+
+        return fileSet;
+    }
+
     private JsonObject uploadAsset(final Artifact artifact, final File directory, final String fileName)
             throws InterruptedException {
 
         try {
             final Stopwatch sw = new Stopwatch();
             final File file = new File(directory, fileName);
-            final ApiRequest request = this.requestFactory.createUploadRequest(artifact.getStore(), file);
+            final ZeroCopyFileRequest request = this.requestFactory.createUploadRequest(artifact.getStore(), file);
+
+            if (file.isDirectory()) {
+                this.log.write(this, "Uploading \"%s\" (zipped during upload)…", fileName);
+            } else {
+                this.log.write(this, "Uploading \"%s\" (%,d Byte)…", fileName, file.length());
+                // The file was read to look up its digest, its checksums are computed already
+                request.setChecksums(file, artifact.getDigests().sha256(file), artifact.getDigests().md5(file));
+            }
 
-            this.log.write(this, "Uploading \"%s\" (%,d Byte)…", fileName, file.length());
+            // Read the file to compute its checksums before the upload is timed
+            request.computeChecksums();
 
             sw.start();
             final ApiResponse response = this.network.execute(request, this.log);
@@ -457,7 +758,12 @@ public class MultiRequestUploader implements Uploader {
             final String speed = this.getUploadSpeed(sw, file);
             this.log.write(this, "Upload of file completed (%s, %s).", sw, speed);
 
-            return this.extractAsset(artifact, response);
+            final JsonObject asset = this.extractAsset(artifact, response);
+
+            if (asset != null) {
+                ChecksumVerifier.verify(artifact, request.getItems().get(0), Json.getString(asset, Asset.HASHCODE), this.log);
+            }
+            return asset;
 
         } catch (final IOException e) {
             this.log.write(this, "Upload of file failed, error during execution:\n\n%s\n", e);
@@ -507,7 +813,7 @@ public class MultiRequestUploader implements Uploader {
         final float milliseconds = sw.elapsedTime(TimeUnit.MILLISECONDS);
         final float seconds = milliseconds / 1000f;
 
-        if (file.length() == 0 || seconds == 0) {
+        if (file.isDirectory() || file.length() == 0 || seconds == 0) {
             return "Unknown";
         }
 
@@ -645,22 +951,6 @@ public class MultiRequestUploader implements Uploader {
         return true;
     }
 
-    private boolean verifyDeleteResponse(final ApiResponse response) {
-        this.log.write(this, "Status: %d", response.getStatus());
-
-        if (response.getStatus() != 0) {
-            this.log.write(
-                    this,
-                    "Error deleting app version (%d), server's response:\n\n%s\n",
-                    response.getStatusCode(),
-                    response.getMessage());
-
-            return false;
-        }
-
-        return true;
-    }
-
     private String getEllipsizedText(final String input, final int maxLen) {
         if (StringUtils.isEmpty(input) || input.length() <= maxLen) {
             return input;
@@ -668,8 +958,4 @@ public class MultiRequestUploader implements Uploader {
         return input.substring(0, maxLen - 1) + "…";
     }
 
-    private boolean isEmpty(final Collection<?> collection) {
-        return (collection == null || collection.size() == 0);
-    }
-
 }
@@ -0,0 +1,203 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jenkinsci.plugins.relution_publisher.builder;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import org.jenkinsci.plugins.relution_publisher.configuration.global.Store;
+import org.jenkinsci.plugins.relution_publisher.configuration.global.StoreConfiguration;
+import org.jenkinsci.plugins.relution_publisher.logging.BuildLog;
+import org.jenkinsci.plugins.relution_publisher.logging.Log;
+import org.jenkinsci.plugins.relution_publisher.model.ResultHolder;
+import org.jenkinsci.plugins.relution_publisher.model.RetentionPolicy;
+import org.jenkinsci.plugins.relution_publisher.model.entities.App;
+import org.jenkinsci.plugins.relution_publisher.net.Network;
+import org.jenkinsci.plugins.relution_publisher.net.RequestFactory;
+import org.jenkinsci.plugins.relution_publisher.net.SessionManager;
+import org.jenkinsci.plugins.relution_publisher.net.requests.ApiRequest;
+import org.jenkinsci.plugins.relution_publisher.net.responses.ApiResponse;
+import org.jenkinsci.plugins.relution_publisher.util.Json;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+
+import hudson.Extension;
+import hudson.model.AsyncPeriodicWork;
+import hudson.model.Result;
+import hudson.model.TaskListener;
+
+
+/**
+ * Removes versions that are no longer retained by a store's {@link RetentionPolicy} in the
+ * background, so builds do not have to wait for previous versions to be deleted.
+ * <p>
+ * Versions are deleted using the store's settings for concurrent deletions and deletions per
+ * second. The output of the task is written to the Jenkins task log.
+ */
+@Extension
+public class RetentionCleanupWork extends AsyncPeriodicWork {
+
+    /**
+     * The interval, in milliseconds, at which the retention policies are applied.
+     */
+    private static final long  RECURRENCE_PERIOD = TimeUnit.HOURS.toMillis(1);
+
+    @Inject
+    private StoreConfiguration globalConfiguration;
+
+    public RetentionCleanupWork() {
+        super("Relution retention cleanup");
+    }
+
+    @Override
+    public long getRecurrencePeriod() {
+        return RECURRENCE_PERIOD;
+    }
+
+    @Override
+    protected void execute(final TaskListener listener) throws IOException, InterruptedException {
+        if (this.globalConfiguration == null) {
+            return;
+        }
+
+        final Log log = new BuildLog(listener);
+
+        for (final Store store : this.globalConfiguration.getStores()) {
+            final RetentionPolicy policy = new RetentionPolicy(store);
+
+            if (!policy.isEnabled()) {
+                continue;
+            }
+
+            log.write(this, "Applying retention policy of store \"%s\"…", store.getUrl());
+
+            try {
+                this.cleanUp(store, policy, log);
+
+            } catch (final IOException e) {
+                log.write(this, "Retention cleanup failed, error during execution:\n\n%s\n", e);
+
+            } catch (final ExecutionException e) {
+                log.write(this, "Retention cleanup failed, error during execution:\n\n%s\n", e);
+
+            }
+            log.write();
+        }
+    }
+
+    private void cleanUp(final Store store, final RetentionPolicy policy, final Log log)
+            throws IOException, InterruptedException, ExecutionException {
+        final RequestFactory requestFactory = new RequestFactory();
+        final SessionManager network = new SessionManager(requestFactory, store);
+
+        try {
+            network.logIn(store);
+            this.cleanUp(store, policy, requestFactory, network, UploadLedger.getInstance(), System.currentTimeMillis(), log);
+
+        } finally {
+            network.close();
+
+        }
+    }
+
+    /**
+     * Deletes the versions of the specified store that are expired according to the specified
+     * policy. Deleted versions are removed from the {@link UploadLedger} and the
+     * {@link UploadIndex}, so their files are uploaded again if they are published.
+     * @return The versions that were deleted.
+     */
+    List<JsonObject> cleanUp(
+            final Store store,
+            final RetentionPolicy policy,
+            final RequestFactory requestFactory,
+            final Network network,
+            final UploadLedger ledger,
+            final long now,
+            final Log log) throws IOException, InterruptedException, ExecutionException {
+
+        final List<JsonObject> deleted = new ArrayList<>();
+        final ApiRequest request = requestFactory.createAppStoreItemsRequest(store);
+        final ApiResponse response = network.execute(request, log);
+
+        if (response == null || response.getStatus() != 0) {
+            log.write(this, "Could not retrieve apps of store.");
+            return deleted;
+        }
+
+        final ArchivedVersionCleaner cleaner = new ArchivedVersionCleaner(requestFactory, network, log);
+        final CleanupResult result = new CleanupResult();
+
+        for (final JsonElement element : response.getResults()) {
+            final JsonObject app = element.getAsJsonObject();
+            final List<JsonObject> expired = policy.getExpiredVersions(app, now);
+
+            if (!expired.isEmpty()) {
+                log.write(this, "App \"%s\" has %d expired version(s)", Json.getString(app, App.INTERNAL_NAME), expired.size());
+                deleted.addAll(cleaner.delete(store, result, expired));
+            }
+        }
+
+        this.removeRecords(store, ledger, deleted, log);
+        log.write(this, "Retention cleanup completed (%s)", result.getResult());
+        return deleted;
+    }
+
+    private void removeRecords(final Store store, final UploadLedger ledger, final List<JsonObject> versions, final Log log) {
+        final List<String> assetUuids = new ArrayList<>();
+
+        for (final JsonObject version : versions) {
+            final String assetUuid = ArchivedVersionCleaner.getAssetUuid(version);
+
+            if (assetUuid != null) {
+                assetUuids.add(assetUuid);
+            }
+        }
+
+        try {
+            ledger.removeAssets(store, assetUuids);
+
+        } catch (final IOException e) {
+            log.write(this, "Unable to update upload ledger.\n\n%s\n", e);
+
+        }
+    }
+
+    /**
+     * Collects the result of a cleanup, which is {@link Result#UNSTABLE} if a version could not
+     * be deleted.
+     */
+    private static class CleanupResult implements ResultHolder {
+
+        private Result result = Result.SUCCESS;
+
+        @Override
+        public Result getResult() {
+            return this.result;
+        }
+
+        @Override
+        public void setResult(final Result result) {
+            this.result = result;
+        }
+    }
+}
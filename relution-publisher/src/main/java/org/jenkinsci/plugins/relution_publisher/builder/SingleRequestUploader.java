@@ -17,25 +17,44 @@
 package org.jenkinsci.plugins.relution_publisher.builder;
 
 import com.google.common.base.Stopwatch;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.tools.ant.DirectoryScanner;
 import org.apache.tools.ant.types.FileSet;
 import org.jenkinsci.plugins.relution_publisher.configuration.global.Store;
 import org.jenkinsci.plugins.relution_publisher.configuration.jobs.Publication;
+import org.jenkinsci.plugins.relution_publisher.logging.BufferedLog;
 import org.jenkinsci.plugins.relution_publisher.logging.Log;
 import org.jenkinsci.plugins.relution_publisher.model.ArchiveMode;
 import org.jenkinsci.plugins.relution_publisher.model.Artifact;
+import org.jenkinsci.plugins.relution_publisher.model.UploadRecord;
+import org.jenkinsci.plugins.relution_publisher.model.entities.App;
+import org.jenkinsci.plugins.relution_publisher.model.entities.Asset;
+import org.jenkinsci.plugins.relution_publisher.model.entities.Version;
 import org.jenkinsci.plugins.relution_publisher.net.Network;
 import org.jenkinsci.plugins.relution_publisher.net.RequestFactory;
 import org.jenkinsci.plugins.relution_publisher.net.requests.ZeroCopyFileRequest;
+import org.jenkinsci.plugins.relution_publisher.net.requests.ZeroCopyFileRequest.Item;
 import org.jenkinsci.plugins.relution_publisher.net.responses.ApiResponse;
 import org.jenkinsci.plugins.relution_publisher.util.Builds;
+import org.jenkinsci.plugins.relution_publisher.util.Bundles;
+import org.jenkinsci.plugins.relution_publisher.util.DaemonThreadFactory;
+import org.jenkinsci.plugins.relution_publisher.util.Json;
 
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 import hudson.Util;
@@ -48,6 +67,10 @@ public class SingleRequestUploader implements Uploader {
     private final Network        network;
     private final Log            log;
 
+    private final UploadIndex    index = UploadIndex.getInstance();
+
+    private StoreVersions        versions;
+
     public SingleRequestUploader(
             final RequestFactory requestFactory,
             final Network network,
@@ -77,75 +100,424 @@ public class SingleRequestUploader implements Uploader {
             this.log.write(this, "No change log set");
         }
 
-        for (final String fileName : fileSet.getDirectoryScanner().getIncludedFiles()) {
-            try {
-                this.publish(artifact, fileSet, fileName, changelog);
+        final File baseDir = fileSet.getDirectoryScanner().getBasedir();
+        final String[] fileNames = Bundles.getIncludedArtifacts(fileSet.getDirectoryScanner());
+        final int concurrency = Math.min(artifact.getStore().getUploadConcurrency(), fileNames.length);
 
-            } catch (final IOException e) {
-                this.log.write(this, "Upload of file failed, error during execution:\n\n%s\n", e);
-                Builds.setResult(artifact, Result.UNSTABLE, this.log);
+        if (artifact.getStore().isBatchUploads() && fileNames.length > 1) {
+            this.publishBatch(artifact, baseDir, fileNames, changelog);
+            return;
+        }
 
-            } catch (final ExecutionException e) {
-                this.log.write(this, "Upload of file failed, error during execution:\n\n%s\n", e);
-                Builds.setResult(artifact, Result.UNSTABLE, this.log);
+        if (concurrency > 1) {
+            this.publishConcurrently(artifact, baseDir, fileNames, changelog, concurrency);
+            return;
+        }
 
+        for (final String fileName : fileNames) {
+            this.publishQuietly(artifact, baseDir, fileName, changelog, this.log);
+        }
+    }
+
+    /**
+     * Uploads the specified files using a bounded number of concurrent requests. The log messages
+     * of each file are buffered and written to the build log in the order of the files, once the
+     * upload of the respective file has completed.
+     */
+    private void publishConcurrently(
+            final Artifact artifact,
+            final File baseDir,
+            final String[] fileNames,
+            final File changelog,
+            final int concurrency) throws InterruptedException {
+
+        this.log.write();
+        this.log.write(this, "Uploading %d files, %d at a time…", fileNames.length, concurrency);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(concurrency, new DaemonThreadFactory("Relution upload"));
+        final List<Future<?>> futures = new ArrayList<>();
+        final List<BufferedLog> logs = new ArrayList<>();
+
+        try {
+            for (final String fileName : fileNames) {
+                final BufferedLog fileLog = new BufferedLog(this.log);
+                final Future<?> future = executor.submit(new Callable<Void>() {
+
+                    @Override
+                    public Void call() throws Exception {
+                        SingleRequestUploader.this.publishQuietly(artifact, baseDir, fileName, changelog, fileLog);
+                        return null;
+                    }
+                });
+
+                futures.add(future);
+                logs.add(fileLog);
+            }
+
+            for (int index = 0; index < futures.size(); index++) {
+                final BufferedLog fileLog = logs.get(index);
+                this.await(artifact, futures.get(index), fileLog);
+                fileLog.flush();
             }
+
+        } finally {
+            executor.shutdownNow();
+
         }
     }
 
-    private void publish(final Artifact artifact, final FileSet fileSet, final String fileName, final File changelog)
-            throws IOException, InterruptedException, ExecutionException {
+    /**
+     * Uploads the specified files using a single request, which contains one part per file and a
+     * single change log shared by all files. The server responds with one app per file, which is
+     * matched to its file by name, see {@link #matchApps(List, JsonArray, String)}.
+     */
+    private void publishBatch(final Artifact artifact, final File baseDir, final String[] fileNames, final File changelog)
+            throws InterruptedException {
+
         this.log.write();
-        this.log.write(this, "Uploading %s…", fileName);
+        this.log.write(this, "Uploading %d files in a single request…", fileNames.length);
+
+        final Store store = artifact.getStore();
+        final String releaseStatus = this.getReleaseStatus(artifact);
+        final List<File> apps = new ArrayList<>();
+        final List<String> digests = new ArrayList<>();
+
+        try {
+            for (final String fileName : fileNames) {
+                final File app = new File(baseDir, fileName);
+                final String digest = artifact.getDigests().sha256(app);
+
+                if (this.isPublished(store, releaseStatus, digest, this.log)) {
+                    this.log.write(this, "%s already published (SHA-256 %s), upload skipped", fileName, digest);
+                    continue;
+                }
+
+                apps.add(app);
+                digests.add(digest);
+            }
+
+            if (apps.isEmpty()) {
+                return;
+            }
+
+            final ZeroCopyFileRequest request = this.createRequest(artifact, apps, changelog, this.log);
+            final ApiResponse upload = this.upload(request, this.log);
+
+            if (!this.verifyUpload(upload, this.log)) {
+                Builds.setResult(artifact, Result.UNSTABLE, this.log);
+                return;
+            }
+
+            final List<Item> items = request.getItems().subList(0, apps.size());
+            final JsonObject[] results = this.matchApps(items, upload.getResults(), releaseStatus);
+
+            for (int index = 0; index < apps.size(); index++) {
+                final JsonObject app = results[index];
+
+                if (app == null) {
+                    this.log.write(this, "Server's response contains no app for %s", apps.get(index).getName());
+                    Builds.setResult(artifact, Result.UNSTABLE, this.log);
+                    continue;
+                }
 
-        final File app = new File(fileSet.getDirectoryScanner().getBasedir(), fileName);
-        final ApiResponse upload = this.upload(artifact, app, changelog);
+                this.recordUpload(artifact, releaseStatus, digests.get(index), app, items.get(index), this.log);
+            }
+
+        } catch (final IOException e) {
+            this.log.write(this, "Upload of files failed, error during execution:\n\n%s\n", e);
+            Builds.setResult(artifact, Result.UNSTABLE, this.log);
 
-        if (!this.verifyUpload(upload)) {
+        } catch (final ExecutionException e) {
+            this.log.write(this, "Upload of files failed, error during execution:\n\n%s\n", e);
             Builds.setResult(artifact, Result.UNSTABLE, this.log);
+
+        }
+    }
+
+    /**
+     * Matches the apps returned by the server in response to a batch upload to the uploaded
+     * files, using the file name of each app's newest version with the specified release status.
+     * An app whose file name does not identify exactly one of the files, e.g. because the server
+     * renamed the file or two files have the same name, is matched to the file at its position.
+     * @param items The {@link Item}s of the uploaded files, in the order of the request.
+     * @param results The apps returned by the server, can be {@code null}.
+     * @return The app returned for each file, or {@code null} for a file without an app.
+     */
+    private JsonObject[] matchApps(final List<Item> items, final JsonArray results, final String releaseStatus) {
+        final JsonObject[] apps = new JsonObject[items.size()];
+        final List<Integer> ambiguous = new ArrayList<>();
+
+        if (results == null) {
+            return apps;
+        }
+
+        for (int index = 0; index < results.size(); index++) {
+            final JsonObject app = Json.getObject(results, index);
+            final int position = this.indexOf(items, this.getFileName(app, releaseStatus));
+
+            if (position != -1 && apps[position] == null) {
+                apps[position] = app;
+            } else {
+                ambiguous.add(index);
+            }
+        }
+
+        for (final int index : ambiguous) {
+            if (index < apps.length && apps[index] == null) {
+                apps[index] = Json.getObject(results, index);
+            }
+        }
+        return apps;
+    }
+
+    /**
+     * @return The position of the only item with the specified file name, or {@code -1} if no
+     * item or more than one item has the file name.
+     */
+    private int indexOf(final List<Item> items, final String fileName) {
+        int position = -1;
+
+        if (fileName == null) {
+            return position;
+        }
+
+        for (int index = 0; index < items.size(); index++) {
+            if (!fileName.equals(items.get(index).getFileName())) {
+                continue;
+            }
+
+            if (position != -1) {
+                return -1;
+            }
+            position = index;
+        }
+        return position;
+    }
+
+    /**
+     * @return The name of the file of the app's newest version with the specified release status,
+     * or {@code null} if the app does not contain such a version.
+     */
+    private String getFileName(final JsonObject app, final String releaseStatus) {
+        final JsonObject version = this.getNewestVersion(app, releaseStatus);
+        final JsonObject file = (version != null) ? Json.getObject(version, Version.FILE) : null;
+
+        return !Json.isNull(file) ? Json.getString(file, Asset.NAME) : null;
+    }
+
+    private void await(final Artifact artifact, final Future<?> future, final Log log) throws InterruptedException {
+        try {
+            future.get();
+
+        } catch (final ExecutionException e) {
+            log.write(this, "Upload of file failed, error during execution:\n\n%s\n", e.getCause());
+            Builds.setResult(artifact, Result.UNSTABLE, log);
+
+        }
+    }
+
+    private void publishQuietly(final Artifact artifact, final File baseDir, final String fileName, final File changelog, final Log log)
+            throws InterruptedException {
+        try {
+            this.publish(artifact, baseDir, fileName, changelog, log);
+
+        } catch (final IOException e) {
+            log.write(this, "Upload of file failed, error during execution:\n\n%s\n", e);
+            Builds.setResult(artifact, Result.UNSTABLE, log);
+
+        } catch (final ExecutionException e) {
+            log.write(this, "Upload of file failed, error during execution:\n\n%s\n", e);
+            Builds.setResult(artifact, Result.UNSTABLE, log);
+
         }
     }
 
-    private ApiResponse upload(final Artifact artifact, final File app, final File changelog)
+    private void publish(final Artifact artifact, final File baseDir, final String fileName, final File changelog, final Log log)
             throws IOException, InterruptedException, ExecutionException {
+        log.write();
+        log.write(this, "Uploading %s…", fileName);
+
+        final File app = new File(baseDir, fileName);
+        final Store store = artifact.getStore();
+        final String releaseStatus = this.getReleaseStatus(artifact);
+        final String digest = artifact.getDigests().sha256(app);
+
+        if (this.isPublished(store, releaseStatus, digest, log)) {
+            log.write(this, "File already published (SHA-256 %s), upload skipped", digest);
+            return;
+        }
+
+        final ZeroCopyFileRequest request = this.createRequest(artifact, Collections.singletonList(app), changelog, log);
+        final ApiResponse upload = this.upload(request, log);
+
+        if (!this.verifyUpload(upload, log)) {
+            Builds.setResult(artifact, Result.UNSTABLE, log);
+            return;
+        }
+
+        final JsonArray results = upload.getResults();
+        final JsonObject result = !Json.isEmpty(results) ? Json.getObject(results, 0) : null;
+
+        this.recordUpload(artifact, releaseStatus, digest, result, request.getItems().get(0), log);
+    }
+
+    /**
+     * Returns a value indicating whether a file with the specified digest has been published to
+     * the store and the store still contains the version of the file. If the version no longer
+     * exists, the file is removed from the index.
+     */
+    private boolean isPublished(final Store store, final String releaseStatus, final String digest, final Log log)
+            throws InterruptedException {
+        final UploadRecord record = this.index.find(store, releaseStatus, digest);
+
+        if (record == null) {
+            return false;
+        }
+
+        if (this.getVersions(store).contains(record, log)) {
+            return true;
+        }
+
+        log.write(
+                this,
+                "Version %d of \"%s\" no longer exists in \"%s\"",
+                record.getVersionCode(),
+                record.getAppId(),
+                record.getReleaseStatus());
+
+        this.index.remove(store, record);
+        return false;
+    }
+
+    private synchronized StoreVersions getVersions(final Store store) {
+        if (this.versions == null) {
+            this.versions = new StoreVersions(this.requestFactory, this.network, store);
+        }
+        return this.versions;
+    }
+
+    /**
+     * Records the upload of a file and verifies its checksum against the version returned by the
+     * server.
+     * @param app The app returned by the server for the file, can be {@code null}.
+     * @param item The {@link Item} of the request that contained the file.
+     */
+    private void recordUpload(
+            final Artifact artifact,
+            final String releaseStatus,
+            final String digest,
+            final JsonObject app,
+            final Item item,
+            final Log log) {
+
+        final JsonObject version = this.addRecord(artifact, releaseStatus, digest, app);
+        final JsonObject file = (version != null) ? Json.getObject(version, Version.FILE) : null;
+        final String checksum = (file != null) ? Json.getString(file, Asset.HASHCODE) : null;
+
+        ChecksumVerifier.verify(artifact, item, checksum, log);
+    }
+
+    /**
+     * Records the newest version with the specified release status of the app returned by the
+     * server in response to an upload.
+     * @return The recorded version, or {@code null} if the app does not contain a version with
+     * the release status.
+     */
+    private JsonObject addRecord(final Artifact artifact, final String releaseStatus, final String digest, final JsonObject app) {
+        final JsonObject newest = this.getNewestVersion(app, releaseStatus);
+
+        if (newest != null) {
+            final UploadRecord record = UploadRecord.create(artifact.getStore(), digest, app, newest);
+            this.index.add(artifact.getStore(), record);
+            this.getVersions(artifact.getStore()).add(record);
+            artifact.addRecord(record);
+        }
+        return newest;
+    }
+
+    /**
+     * @return The newest version with the specified release status of the app returned by the
+     * server, or {@code null} if the app does not contain a version with the release status.
+     */
+    private JsonObject getNewestVersion(final JsonObject app, final String releaseStatus) {
+        if (app == null) {
+            return null;
+        }
+
+        JsonObject newest = null;
+
+        for (final JsonElement element : Json.getArray(app, App.VERSIONS)) {
+            final JsonObject version = element.getAsJsonObject();
+
+            if (!StringUtils.equals(Json.getString(version, Version.RELEASE_STATUS), releaseStatus)) {
+                continue;
+            }
+
+            if (newest == null || Json.getLong(version, Version.CREATION_DATE) > Json.getLong(newest, Version.CREATION_DATE)) {
+                newest = version;
+            }
+        }
+        return newest;
+    }
+
+    private ZeroCopyFileRequest createRequest(final Artifact artifact, final List<File> apps, final File changelog, final Log log)
+            throws IOException {
         final Store store = artifact.getStore();
         final String releaseStatus = this.getReleaseStatus(artifact);
         final boolean archivePreviousVersion = this.isArchivePreviousVersion(artifact);
         final String environmentUuid = this.getEnvironmentUuid(artifact);
 
-        this.log.write(this, "- Release status          : %s", releaseStatus);
-        this.log.write(this, "- Archive previous version: %s", archivePreviousVersion);
-        this.log.write(this, "- Environment             : %s", environmentUuid);
+        log.write(this, "- Release status          : %s", releaseStatus);
+        log.write(this, "- Archive previous version: %s", archivePreviousVersion);
+        log.write(this, "- Environment             : %s", environmentUuid);
 
         final ZeroCopyFileRequest request = this.requestFactory.createUploadAppRequest(store, releaseStatus, archivePreviousVersion, environmentUuid);
-        this.log.write(this, "- App                     : %,d Byte", app.length());
-        request.addItem("app", app);
+        for (final File app : apps) {
+            if (app.isDirectory()) {
+                log.write(this, "- App                     : %s (zipped during upload)", app.getName());
+            } else {
+                log.write(this, "- App                     : %,d Byte", app.length());
+            }
+            request.addItem("app", app);
+
+            if (!app.isDirectory()) {
+                // The app was read to look up its digest, its checksums are computed already
+                request.setChecksums(app, artifact.getDigests().sha256(app), artifact.getDigests().md5(app));
+            }
+        }
 
         if (changelog != null) {
-            this.log.write(this, "- Change log              : %,d Byte", changelog.length());
+            log.write(this, "- Change log              : %,d Byte", changelog.length());
             request.addItem("changelog", changelog);
         }
+        return request;
+    }
 
+    private ApiResponse upload(final ZeroCopyFileRequest request, final Log log)
+            throws IOException, InterruptedException, ExecutionException {
         final Stopwatch sw = new Stopwatch();
 
+        // Read the files to compute their checksums before the upload is timed
+        request.computeChecksums();
+
         sw.start();
-        final ApiResponse response = this.network.execute(request, this.log);
+        final ApiResponse response = this.network.execute(request, log);
         sw.stop();
 
         final String speed = this.getUploadSpeed(sw, request);
-        this.log.write(this, "Upload completed (%s, %s)", sw, speed);
+        log.write(this, "Upload completed (%s, %s)", sw, speed);
 
         return response;
     }
 
-    private boolean verifyUpload(final ApiResponse response) {
+    private boolean verifyUpload(final ApiResponse response, final Log log) {
         if (response == null) {
-            this.log.write(this, "Error during upload, server's response is empty");
+            log.write(this, "Error during upload, server's response is empty");
             return false;
         }
 
         if (response.getStatus() != 0) {
-            this.log.write(
+            log.write(
                     this,
                     "Error uploading file (%d), server's response:\n\n%s\n",
                     response.getStatusCode(),
@@ -154,7 +526,7 @@ public class SingleRequestUploader implements Uploader {
             return false;
         }
 
-        this.log.write(this, "Upload completed with success (%d)", response.getStatusCode());
+        log.write(this, "Upload completed with success (%d)", response.getStatusCode());
         return true;
     }
 
@@ -209,13 +581,14 @@ public class SingleRequestUploader implements Uploader {
 
         final FileSet fileSet = Util.createFileSet(artifact.getBasePath(), includes, excludes);
         final DirectoryScanner scanner = fileSet.getDirectoryScanner();
-        final int includedFilesCount = scanner.getIncludedFilesCount();
+        final String[] fileNames = Bundles.getIncludedArtifacts(scanner);
+        final int includedFilesCount = fileNames.length;
 
         if (includedFilesCount < 1) {
             this.log.write(this, "No file(s) found that match \"%s\"", includes);
             return null;
         } else if (includedFilesCount == 1) {
-            final String fileName = scanner.getIncludedFiles()[0];
+            final String fileName = fileNames[0];
             this.log.write(this, "Found \"%s\"", fileName);
         } else {
             this.log.write(this, "Found %d files", includedFilesCount);
@@ -247,7 +620,7 @@ public class SingleRequestUploader implements Uploader {
 
         final long length = request.getContentLength();
 
-        if (length == 0 || seconds == 0) {
+        if (length <= 0 || seconds == 0) {
             return "Unknown";
         }
 
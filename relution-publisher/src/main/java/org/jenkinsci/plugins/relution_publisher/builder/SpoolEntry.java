@@ -0,0 +1,197 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jenkinsci.plugins.relution_publisher.builder;
+
+import org.jenkinsci.plugins.relution_publisher.configuration.jobs.Publication;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import hudson.model.Result;
+
+
+/**
+ * The manifest of publications that have been handed to the {@link UploadSpool} by a build, and
+ * that are published to a store in the background.
+ */
+public class SpoolEntry {
+
+    private final String            id;
+    private final String            storeId;
+    private final String            job;
+    private final int               buildNumber;
+    private final Result            result;
+    private final List<Publication> publications;
+    private final String            group;
+    private final boolean           release;
+    private final long              bytes;
+    private final long              created;
+
+    private int                     attempts;
+    private long                    nextAttempt;
+    private String                  lastError;
+
+    /**
+     * Initializes a new instance of the {@link SpoolEntry} class.
+     * @param id The unique identifier of the entry.
+     * @param storeId The identifier of the store to publish to.
+     * @param job The full name of the job that spooled the entry.
+     * @param buildNumber The number of the build that spooled the entry.
+     * @param result The result of the build at the time the entry was spooled.
+     * @param publications The {@link Publication}s to publish.
+     * @param group The group of the publications, or {@code null} if the entry cannot be
+     * superseded by newer builds.
+     * @param release {@code true} if a publication uploads to {@code Release}; otherwise,
+     * {@code false}.
+     * @param bytes The total size of the spooled files, in bytes.
+     */
+    public SpoolEntry(
+            final String id,
+            final String storeId,
+            final String job,
+            final int buildNumber,
+            final Result result,
+            final List<Publication> publications,
+            final String group,
+            final boolean release,
+            final long bytes) {
+
+        this.id = id;
+        this.storeId = storeId;
+        this.job = job;
+        this.buildNumber = buildNumber;
+        this.result = result;
+        this.publications = new ArrayList<>(publications);
+        this.group = group;
+        this.release = release;
+        this.bytes = bytes;
+        this.created = System.currentTimeMillis();
+        this.nextAttempt = this.created;
+    }
+
+    /**
+     * @return The unique identifier of the entry.
+     */
+    public String getId() {
+        return this.id;
+    }
+
+    /**
+     * @return The identifier of the store to publish to.
+     */
+    public String getStoreId() {
+        return this.storeId;
+    }
+
+    /**
+     * @return The full name of the job that spooled the entry.
+     */
+    public String getJob() {
+        return this.job;
+    }
+
+    /**
+     * @return The number of the build that spooled the entry.
+     */
+    public int getBuildNumber() {
+        return this.buildNumber;
+    }
+
+    /**
+     * @return The result of the build at the time the entry was spooled.
+     */
+    public Result getResult() {
+        return this.result;
+    }
+
+    /**
+     * @return The {@link Publication}s to publish.
+     */
+    public List<Publication> getPublications() {
+        return this.publications;
+    }
+
+    /**
+     * @return The group of the publications, or {@code null} if the entry cannot be superseded
+     * by newer builds.
+     */
+    public String getGroup() {
+        return this.group;
+    }
+
+    /**
+     * @return {@code true} if a publication uploads to {@code Release}; otherwise,
+     * {@code false}.
+     */
+    public boolean isRelease() {
+        return this.release;
+    }
+
+    /**
+     * @return The total size of the spooled files, in bytes.
+     */
+    public long getBytes() {
+        return this.bytes;
+    }
+
+    /**
+     * @return The time, in milliseconds since the epoch, the entry was spooled.
+     */
+    public long getCreated() {
+        return this.created;
+    }
+
+    /**
+     * @return The number of failed attempts to publish the entry.
+     */
+    public int getAttempts() {
+        return this.attempts;
+    }
+
+    /**
+     * @return The time, in milliseconds since the epoch, after which the entry should be
+     * published.
+     */
+    public long getNextAttempt() {
+        return this.nextAttempt;
+    }
+
+    /**
+     * @return A description of the error that caused the most recent attempt to fail, or
+     * {@code null} if the entry has not failed yet.
+     */
+    public String getLastError() {
+        return this.lastError;
+    }
+
+    /**
+     * Records a failed attempt to publish the entry.
+     * @param nextAttempt The time, in milliseconds since the epoch, after which the entry should
+     * be published again.
+     * @param error A description of the error that caused the attempt to fail.
+     */
+    public void setFailed(final long nextAttempt, final String error) {
+        this.attempts++;
+        this.nextAttempt = nextAttempt;
+        this.lastError = error;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s #%d", this.job, this.buildNumber);
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jenkinsci.plugins.relution_publisher.builder;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import org.jenkinsci.plugins.relution_publisher.configuration.global.Store;
+import org.jenkinsci.plugins.relution_publisher.logging.Log;
+import org.jenkinsci.plugins.relution_publisher.model.UploadRecord;
+import org.jenkinsci.plugins.relution_publisher.model.entities.ApiObject;
+import org.jenkinsci.plugins.relution_publisher.model.entities.App;
+import org.jenkinsci.plugins.relution_publisher.model.entities.Version;
+import org.jenkinsci.plugins.relution_publisher.net.Network;
+import org.jenkinsci.plugins.relution_publisher.net.RequestFactory;
+import org.jenkinsci.plugins.relution_publisher.net.requests.ApiRequest;
+import org.jenkinsci.plugins.relution_publisher.net.responses.ApiResponse;
+import org.jenkinsci.plugins.relution_publisher.util.Json;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+
+
+/**
+ * Looks up the versions that exist in a store, so uploaders can confirm that a file recorded in
+ * the {@link UploadIndex} has not been deleted since it was published.
+ * <p>
+ * The apps of the store are retrieved once, when the first record is confirmed. A record is
+ * confirmed if the store contains a version of its app with the same release status and version
+ * code and, if the record knows the file of the version, the same file.
+ * <p>
+ * If the apps of the store cannot be retrieved, the {@link UploadIndex} stands in for the store:
+ * every record that has not expired is confirmed, so an unavailable server does not cause all
+ * published files to be uploaded again. The apps are not requested again in that case.
+ */
+public class StoreVersions {
+
+    private final RequestFactory requestFactory;
+    private final Network        network;
+    private final Store          store;
+
+    private Set<String>          versions;
+    private Set<String>          assets;
+    private boolean              unavailable;
+
+    public StoreVersions(
+            final RequestFactory requestFactory,
+            final Network network,
+            final Store store) {
+        this.requestFactory = requestFactory;
+        this.network = network;
+        this.store = store;
+    }
+
+    private static String getKey(final String appId, final String releaseStatus, final int versionCode) {
+        return String.format("%s|%s|%d", appId, releaseStatus, versionCode);
+    }
+
+    /**
+     * Returns a value indicating whether the version described by the specified record exists in
+     * the store.
+     * @param record The {@link UploadRecord} to confirm.
+     * @param log The {@link Log} to write log messages to.
+     * @return {@code true} if the version exists or the versions of the store could not be
+     * retrieved; {@code false} if it does not exist.
+     * @throws InterruptedException The current thread was interrupted.
+     */
+    public synchronized boolean contains(final UploadRecord record, final Log log) throws InterruptedException {
+        if (record.getAppId() == null) {
+            return false;
+        }
+
+        if (this.versions == null && !this.unavailable) {
+            this.unavailable = !this.load(log);
+        }
+
+        if (this.unavailable) {
+            return true;
+        }
+
+        if (!this.versions.contains(getKey(record.getAppId(), record.getReleaseStatus(), record.getVersionCode()))) {
+            return false;
+        }
+        return record.getAssetUuid() == null || this.assets.contains(record.getAssetUuid());
+    }
+
+    /**
+     * Adds a version that has been published since the versions of the store were retrieved.
+     * @param record The {@link UploadRecord} of the published version.
+     */
+    public synchronized void add(final UploadRecord record) {
+        if (this.versions == null || record.getAppId() == null) {
+            return;
+        }
+
+        this.versions.add(getKey(record.getAppId(), record.getReleaseStatus(), record.getVersionCode()));
+
+        if (record.getAssetUuid() != null) {
+            this.assets.add(record.getAssetUuid());
+        }
+    }
+
+    private boolean load(final Log log) throws InterruptedException {
+        try {
+            final ApiRequest request = this.requestFactory.createAppStoreItemsRequest(this.store);
+            final ApiResponse response = this.network.execute(request, log);
+
+            if (response == null || response.getStatus() != 0) {
+                log.write(this, "Could not retrieve apps of store, relying on the upload index to skip published files.");
+                return false;
+            }
+
+            this.versions = new HashSet<>();
+            this.assets = new HashSet<>();
+
+            if (response.getResults() != null) {
+                for (final JsonElement element : response.getResults()) {
+                    this.addVersions(element.getAsJsonObject());
+                }
+            }
+            return true;
+
+        } catch (final IOException e) {
+            log.write(this, "Could not retrieve apps of store, relying on the upload index to skip published files.\n\n%s\n", e);
+            return false;
+
+        } catch (final ExecutionException e) {
+            log.write(this, "Could not retrieve apps of store, relying on the upload index to skip published files.\n\n%s\n", e);
+            return false;
+
+        }
+    }
+
+    private void addVersions(final JsonObject app) {
+        final String appId = Json.getString(app, App.INTERNAL_NAME);
+
+        for (final JsonElement element : Json.getArray(app, App.VERSIONS)) {
+            final JsonObject version = element.getAsJsonObject();
+            final JsonObject file = Json.getObject(version, Version.FILE);
+
+            this.versions.add(getKey(appId, Json.getString(version, Version.RELEASE_STATUS), Json.getInt(version, Version.VERSION_CODE)));
+
+            if (!Json.isNull(file)) {
+                this.assets.add(Json.getString(file, ApiObject.UUID));
+            }
+        }
+    }
+}
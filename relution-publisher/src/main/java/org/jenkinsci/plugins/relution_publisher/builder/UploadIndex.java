@@ -0,0 +1,202 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jenkinsci.plugins.relution_publisher.builder;
+
+import org.apache.commons.lang.StringUtils;
+import org.jenkinsci.plugins.relution_publisher.configuration.global.Store;
+import org.jenkinsci.plugins.relution_publisher.model.UploadRecord;
+import org.jenkinsci.plugins.relution_publisher.util.UrlUtils;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Remembers the files that have been published to a store within the current JVM, so that
+ * uploaders can skip files that the store already knows.
+ * <p>
+ * Files are identified by their SHA-256 digest, the store and the release status the file was
+ * published to. The version that contains a file is indexed as well, so a different file with
+ * the same version can be recognized before it is uploaded. Versions can be deleted on the server
+ * at any time, so an entry only indicates that a file is likely to be published. Uploaders
+ * confirm this with the server before they skip a file, see {@link StoreVersions}.
+ * <p>
+ * Entries expire {@link #TIME_TO_LIVE} milliseconds after they were added and are removed as
+ * soon as the version they describe is deleted. The index keeps at most {@link #MAX_ENTRIES}
+ * entries and evicts the least recently used entry once that limit is exceeded.
+ */
+public final class UploadIndex {
+
+    /**
+     * The maximum number of entries kept in the index.
+     */
+    private final static int         MAX_ENTRIES  = 4096;
+
+    /**
+     * The time, in milliseconds, after which an entry expires.
+     */
+    private final static long        TIME_TO_LIVE = TimeUnit.DAYS.toMillis(1);
+
+    private final static UploadIndex INSTANCE     = new UploadIndex();
+
+    private final Map<String, Entry> entries      = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, Entry> eldest) {
+            return this.size() > MAX_ENTRIES;
+        }
+    };
+
+    private UploadIndex() {
+    }
+
+    /**
+     * @return The {@link UploadIndex} of the current JVM.
+     */
+    public static UploadIndex getInstance() {
+        return INSTANCE;
+    }
+
+    private static String getStoreKey(final Store store) {
+        return String.format("%s|%s|", UrlUtils.toBaseUrl(store.getUrl()), store.getUsername());
+    }
+
+    private static String getKey(final Store store, final String releaseStatus, final String digest) {
+        return String.format("%s%s|%s", getStoreKey(store), releaseStatus, digest);
+    }
+
+    private static String getKey(final Store store, final String releaseStatus, final String appId, final int versionCode) {
+        return String.format("%s%s|%s|%d", getStoreKey(store), releaseStatus, appId, versionCode);
+    }
+
+    /**
+     * Returns the record of a file that has been published to the specified store.
+     * @param store The {@link Store} to which the file is published.
+     * @param releaseStatus The release status to which the file is published.
+     * @param digest The SHA-256 digest of the file.
+     * @return The {@link UploadRecord} of the file, or {@code null} if the file has not been
+     * published or its entry has expired.
+     */
+    public synchronized UploadRecord find(final Store store, final String releaseStatus, final String digest) {
+        return this.get(getKey(store, releaseStatus, digest));
+    }
+
+    /**
+     * Returns the record of a version of an app that has been published to the specified store.
+     * @param store The {@link Store} to which the version is published.
+     * @param releaseStatus The release status to which the version is published.
+     * @param appId The package name or bundle identifier of the app.
+     * @param versionCode The version code of the version.
+     * @return The {@link UploadRecord} of the version, or {@code null} if the version has not been
+     * published or its entry has expired.
+     */
+    public synchronized UploadRecord findVersion(final Store store, final String releaseStatus, final String appId, final int versionCode) {
+        return this.get(getKey(store, releaseStatus, appId, versionCode));
+    }
+
+    private UploadRecord get(final String key) {
+        final Entry entry = this.entries.get(key);
+
+        if (entry == null) {
+            return null;
+        }
+
+        if (entry.isExpired(System.currentTimeMillis())) {
+            this.entries.remove(key);
+            return null;
+        }
+        return entry.record;
+    }
+
+    /**
+     * Records that a file has been published to the specified store, along with the app version
+     * it contains.
+     * @param store The {@link Store} to which the file was published.
+     * @param record The {@link UploadRecord} that describes the published file.
+     */
+    public synchronized void add(final Store store, final UploadRecord record) {
+        final Entry entry = new Entry(record, System.currentTimeMillis() + TIME_TO_LIVE);
+        this.entries.put(getKey(store, record.getReleaseStatus(), record.getDigest()), entry);
+
+        if (record.getAppId() != null) {
+            this.entries.put(getKey(store, record.getReleaseStatus(), record.getAppId(), record.getVersionCode()), entry);
+        }
+    }
+
+    /**
+     * Removes the specified record from the index, e.g. because the server no longer knows the
+     * version it describes.
+     * @param store The {@link Store} to which the file was published.
+     * @param record The {@link UploadRecord} to remove.
+     */
+    public synchronized void remove(final Store store, final UploadRecord record) {
+        this.entries.remove(getKey(store, record.getReleaseStatus(), record.getDigest()));
+
+        if (record.getAppId() != null) {
+            this.entries.remove(getKey(store, record.getReleaseStatus(), record.getAppId(), record.getVersionCode()));
+        }
+    }
+
+    /**
+     * Removes the records of the specified file from the index, because the version that
+     * contains the file has been deleted.
+     * @param store The {@link Store} from which the version was deleted.
+     * @param assetUuid The UUID of the version's file on the server.
+     */
+    public synchronized void removeAsset(final Store store, final String assetUuid) {
+        if (assetUuid == null) {
+            return;
+        }
+
+        final String storeKey = getStoreKey(store);
+        final Iterator<Map.Entry<String, Entry>> iterator = this.entries.entrySet().iterator();
+
+        while (iterator.hasNext()) {
+            final Map.Entry<String, Entry> entry = iterator.next();
+
+            if (entry.getKey().startsWith(storeKey) && StringUtils.equals(entry.getValue().record.getAssetUuid(), assetUuid)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Removes all entries from the index.
+     */
+    public synchronized void clear() {
+        this.entries.clear();
+    }
+
+    private static final class Entry {
+
+        private final UploadRecord record;
+        private final long         expiresAt;
+
+        public Entry(final UploadRecord record, final long expiresAt) {
+            this.record = record;
+            this.expiresAt = expiresAt;
+        }
+
+        public boolean isExpired(final long now) {
+            return now >= this.expiresAt;
+        }
+    }
+}
@@ -0,0 +1,447 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jenkinsci.plugins.relution_publisher.builder;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import org.jenkinsci.plugins.relution_publisher.configuration.global.Store;
+import org.jenkinsci.plugins.relution_publisher.configuration.jobs.Publication;
+import org.jenkinsci.plugins.relution_publisher.logging.Log;
+import org.jenkinsci.plugins.relution_publisher.model.FileDigests;
+import org.jenkinsci.plugins.relution_publisher.model.UploadRecord;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import hudson.FilePath;
+import jenkins.model.Jenkins;
+
+
+/**
+ * A ledger of the files that have been published to each store, kept on the Jenkins controller.
+ * <p>
+ * The records of each store are written to a separate file in
+ * {@code $JENKINS_HOME/relution-publisher/ledger}, one JSON object per line. Every append is
+ * forced to disk before it is added to the in-memory index. If the controller crashes while a
+ * record is written, the incomplete line is discarded the next time the ledger is loaded.
+ * <p>
+ * The ledger is loaded lazily, once per store, and indexed by release status and content digest,
+ * as well as by app and release status, so lookups do not need to read the file again.
+ * <p>
+ * Records older than {@link #MAX_AGE} milliseconds are dropped when the ledger is loaded, as are
+ * the records of versions that have been deleted. The file of a store is compacted, i.e.
+ * rewritten with its current records only, once it contains more superseded or dropped lines
+ * than current records.
+ */
+public final class UploadLedger {
+
+    private final static String                   FILE_EXTENSION = ".jsonl";
+
+    /**
+     * The time, in milliseconds, after which a record is dropped from the ledger.
+     */
+    private final static long                     MAX_AGE        = TimeUnit.DAYS.toMillis(90);
+
+    /**
+     * Orders records by the time of their upload, oldest first.
+     */
+    private final static Comparator<UploadRecord> OLDEST_FIRST   = new Comparator<UploadRecord>() {
+
+        @Override
+        public int compare(final UploadRecord lhs, final UploadRecord rhs) {
+            return Long.compare(lhs.getUploadedAt(), rhs.getUploadedAt());
+        }
+    };
+
+    private static UploadLedger                   instance;
+
+    private final File                            directory;
+    private final Gson                            gson           = new Gson();
+    private final Map<String, StoreRecords>       stores         = new HashMap<>();
+
+    /**
+     * Initializes a new instance of the {@link UploadLedger} class.
+     * @param directory The directory that contains the ledger files.
+     */
+    UploadLedger(final File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * @return The {@link UploadLedger} of the Jenkins controller.
+     */
+    public static synchronized UploadLedger getInstance() {
+        if (instance == null) {
+            final File rootDir = Jenkins.getInstance().getRootDir();
+            instance = new UploadLedger(new File(rootDir, "relution-publisher/ledger"));
+        }
+        return instance;
+    }
+
+    private static String getKey(final String first, final String second) {
+        return first + "|" + second;
+    }
+
+    /**
+     * Returns the record of a file that has been published to the specified store.
+     * @param store The {@link Store} to which the file was published.
+     * @param releaseStatus The release status to which the file was published.
+     * @param digest The SHA-256 digest of the file.
+     * @return The most recent {@link UploadRecord} of the file, or {@code null} if the file has
+     * not been published to the store.
+     * @throws IOException The ledger could not be read.
+     */
+    public synchronized UploadRecord find(final Store store, final String releaseStatus, final String digest)
+            throws IOException {
+        return this.getRecords(store).byDigest.get(getKey(releaseStatus, digest));
+    }
+
+    /**
+     * Returns the records of all files that have been published to the specified store. If the
+     * same file was published more than once, only its most recent record is returned.
+     * @param store The {@link Store} whose records to return.
+     * @return A list of {@link UploadRecord}s.
+     * @throws IOException The ledger could not be read.
+     */
+    public synchronized List<UploadRecord> getRecords(final Store store) throws IOException {
+        return new ArrayList<>(this.getRecords(store).byDigest.values());
+    }
+
+    /**
+     * Returns the records of the files with the specified digests that have been published to
+     * the specified store, in any release status.
+     * @param store The {@link Store} whose records to return.
+     * @param digests The SHA-256 digests of the files whose records to return.
+     * @return A list of {@link UploadRecord}s.
+     * @throws IOException The ledger could not be read.
+     */
+    public synchronized List<UploadRecord> getRecords(final Store store, final Collection<String> digests) throws IOException {
+        final Set<String> candidates = new HashSet<>(digests);
+        final List<UploadRecord> records = new ArrayList<>();
+
+        for (final UploadRecord record : this.getRecords(store).byDigest.values()) {
+            if (candidates.contains(record.getDigest())) {
+                records.add(record);
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Digests the files matched by the specified publications where they are located, e.g. on
+     * the node that contains the workspace. The ledger is not locked while the files are
+     * digested.
+     * @param basePath The directory that contains the files.
+     * @param publications The {@link Publication}s that match the files.
+     * @param log The {@link Log} to write to if the files could not be digested.
+     * @return The {@link FileDigests} of the files, which is empty if the files could not be
+     * read. The uploader digests the files itself in this case.
+     * @throws InterruptedException The thread was interrupted while the files were digested.
+     */
+    public FileDigests getDigests(
+            final FilePath basePath,
+            final List<Publication> publications,
+            final Log log) throws InterruptedException {
+
+        try {
+            return basePath.act(new ArtifactDigestCalculator(publications));
+
+        } catch (final IOException e) {
+            log.write(this, "Unable to digest files, all files will be uploaded.\n\n%s\n", e);
+            return new FileDigests();
+
+        }
+    }
+
+    /**
+     * Returns the records of the specified files that have been published to the specified
+     * store, so only the records that can be used to skip a file are sent to the node.
+     * @param store The {@link Store} whose records to return.
+     * @param digests The {@link FileDigests} of the files, see
+     * {@link #getDigests(FilePath, List, Log)}.
+     * @param log The {@link Log} to write to if the records could not be determined.
+     * @return A list of {@link UploadRecord}s, which is empty if the ledger could not be read.
+     */
+    public List<UploadRecord> getPublishedRecords(final Store store, final FileDigests digests, final Log log) {
+        try {
+            return this.getRecords(store, digests.getSha256s());
+
+        } catch (final IOException e) {
+            log.write(this, "Unable to look up published files, all files will be uploaded.\n\n%s\n", e);
+            return Collections.emptyList();
+
+        }
+    }
+
+    /**
+     * Returns a value indicating whether no files have been published to the specified store.
+     * @param store The {@link Store} to check.
+     * @return {@code true} if the ledger contains no records of the store; otherwise,
+     * {@code false}.
+     * @throws IOException The ledger could not be read.
+     */
+    public synchronized boolean isEmpty(final Store store) throws IOException {
+        return this.getRecords(store).byDigest.isEmpty();
+    }
+
+    /**
+     * Returns the most recently published version of each app and release status.
+     * @param store The {@link Store} whose versions to return.
+     * @return A list of {@link UploadRecord}s.
+     * @throws IOException The ledger could not be read.
+     */
+    public synchronized List<UploadRecord> getLiveVersions(final Store store) throws IOException {
+        return new ArrayList<>(this.getRecords(store).byApp.values());
+    }
+
+    /**
+     * Appends the specified records to the ledger of the specified store.
+     * @param store The {@link Store} to which the files were published.
+     * @param records The {@link UploadRecord}s to append.
+     * @throws IOException The records could not be written.
+     */
+    public synchronized void append(final Store store, final Collection<UploadRecord> records) throws IOException {
+        if (records.isEmpty()) {
+            return;
+        }
+
+        final StoreRecords storeRecords = this.getRecords(store);
+        final StringBuilder sb = new StringBuilder();
+
+        for (final UploadRecord record : records) {
+            sb.append(this.gson.toJson(record)).append('\n');
+        }
+
+        if (!this.directory.isDirectory() && !this.directory.mkdirs()) {
+            throw new IOException("Unable to create ledger directory " + this.directory);
+        }
+
+        try (FileOutputStream out = new FileOutputStream(this.getFile(store), true)) {
+            out.write(sb.toString().getBytes(StandardCharsets.UTF_8));
+            out.getChannel().force(false);
+        }
+
+        for (final UploadRecord record : records) {
+            storeRecords.add(record);
+        }
+        storeRecords.lines += records.size();
+
+        if (storeRecords.isStale()) {
+            this.compact(store, storeRecords);
+        }
+    }
+
+    /**
+     * Removes the records of the specified files from the ledger of the specified store, because
+     * the versions that contain the files have been deleted.
+     * @param store The {@link Store} from which the versions were deleted.
+     * @param assetUuids The UUIDs of the deleted files on the server.
+     * @throws IOException The ledger could not be written.
+     */
+    public synchronized void removeAssets(final Store store, final Collection<String> assetUuids) throws IOException {
+        if (assetUuids.isEmpty()) {
+            return;
+        }
+
+        final StoreRecords storeRecords = this.getRecords(store);
+
+        if (storeRecords.removeAssets(new HashSet<>(assetUuids))) {
+            this.compact(store, storeRecords);
+        }
+    }
+
+    /**
+     * Rewrites the file of the specified store with its current records. The records are written
+     * to a temporary file first, which then replaces the ledger file.
+     */
+    private void compact(final Store store, final StoreRecords records) throws IOException {
+        final File file = this.getFile(store);
+        final File temp = new File(this.directory, store.getId() + FILE_EXTENSION + ".tmp");
+        final List<UploadRecord> current = records.getRecords();
+        final StringBuilder sb = new StringBuilder();
+
+        for (final UploadRecord record : current) {
+            sb.append(this.gson.toJson(record)).append('\n');
+        }
+
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            out.write(sb.toString().getBytes(StandardCharsets.UTF_8));
+            out.getChannel().force(false);
+        }
+
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        records.lines = current.size();
+    }
+
+    private File getFile(final Store store) {
+        return new File(this.directory, store.getId() + FILE_EXTENSION);
+    }
+
+    private StoreRecords getRecords(final Store store) throws IOException {
+        StoreRecords records = this.stores.get(store.getId());
+
+        if (records == null) {
+            records = this.load(this.getFile(store));
+            this.stores.put(store.getId(), records);
+
+            if (records.isStale()) {
+                this.compact(store, records);
+            }
+        }
+        return records;
+    }
+
+    private StoreRecords load(final File file) throws IOException {
+        final StoreRecords records = new StoreRecords();
+
+        if (!file.isFile()) {
+            return records;
+        }
+
+        this.discardIncompleteLine(file);
+
+        final long expiresBefore = System.currentTimeMillis() - MAX_AGE;
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+
+            while ((line = reader.readLine()) != null) {
+                final UploadRecord record = this.parse(line);
+                records.lines++;
+
+                if (record != null && record.getUploadedAt() >= expiresBefore) {
+                    records.add(record);
+                }
+            }
+        }
+        return records;
+    }
+
+    private UploadRecord parse(final String line) {
+        try {
+            return this.gson.fromJson(line, UploadRecord.class);
+
+        } catch (final JsonParseException e) {
+            return null;
+
+        }
+    }
+
+    /**
+     * Truncates the specified file after its last line break, so a line that was not written
+     * completely is not continued by the next append.
+     */
+    private void discardIncompleteLine(final File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            long length = raf.length();
+
+            while (length > 0) {
+                raf.seek(length - 1);
+
+                if (raf.read() == '\n') {
+                    break;
+                }
+                length--;
+            }
+
+            if (length != raf.length()) {
+                raf.setLength(length);
+            }
+        }
+    }
+
+    private static final class StoreRecords {
+
+        private final Map<String, UploadRecord> byDigest = new HashMap<>();
+        private final Map<String, UploadRecord> byApp    = new LinkedHashMap<>();
+
+        /**
+         * The number of lines in the ledger file of the store.
+         */
+        private int                             lines;
+
+        public void add(final UploadRecord record) {
+            this.byDigest.put(getKey(record.getReleaseStatus(), record.getDigest()), record);
+            this.byApp.put(getKey(record.getAppId(), record.getReleaseStatus()), record);
+        }
+
+        /**
+         * Removes the records of the specified files.
+         * @return {@code true} if a record was removed; otherwise, {@code false}.
+         */
+        public boolean removeAssets(final Set<String> assetUuids) {
+            boolean removed = false;
+            final Iterator<UploadRecord> iterator = this.byDigest.values().iterator();
+
+            while (iterator.hasNext()) {
+                if (assetUuids.contains(iterator.next().getAssetUuid())) {
+                    iterator.remove();
+                    removed = true;
+                }
+            }
+
+            if (removed) {
+                // The most recent version of an app may have been removed
+                final List<UploadRecord> records = this.getRecords();
+                this.byApp.clear();
+
+                for (final UploadRecord record : records) {
+                    this.byApp.put(getKey(record.getAppId(), record.getReleaseStatus()), record);
+                }
+            }
+            return removed;
+        }
+
+        /**
+         * @return The current records, oldest first.
+         */
+        public List<UploadRecord> getRecords() {
+            final List<UploadRecord> records = new ArrayList<>(this.byDigest.values());
+            Collections.sort(records, OLDEST_FIRST);
+            return records;
+        }
+
+        /**
+         * @return {@code true} if the file contains more superseded or dropped lines than
+         * current records; otherwise, {@code false}.
+         */
+        public boolean isStale() {
+            return this.lines > 2 * this.byDigest.size();
+        }
+    }
+}
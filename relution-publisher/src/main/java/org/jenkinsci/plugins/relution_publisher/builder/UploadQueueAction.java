@@ -0,0 +1,68 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jenkinsci.plugins.relution_publisher.builder;
+
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import hudson.model.InvisibleAction;
+
+
+/**
+ * Records how long the publications of a build waited in the {@link UploadScheduler} before
+ * they were allowed to start. The total wait time is exposed through the build's remote API.
+ */
+@ExportedBean
+public class UploadQueueAction extends InvisibleAction {
+
+    private final Map<String, Long> waitTimes = new LinkedHashMap<>();
+
+    /**
+     * Adds the time a publication to the specified store waited.
+     * @param storeId The identifier of the store.
+     * @param waitTime The time, in milliseconds, the publication waited.
+     */
+    public synchronized void add(final String storeId, final long waitTime) {
+        final Long previous = this.waitTimes.get(storeId);
+        this.waitTimes.put(storeId, (previous != null) ? previous + waitTime : waitTime);
+    }
+
+    /**
+     * @return The time, in milliseconds, the publications of the build waited, by store
+     * identifier.
+     */
+    public synchronized Map<String, Long> getWaitTimes() {
+        return Collections.unmodifiableMap(new LinkedHashMap<>(this.waitTimes));
+    }
+
+    /**
+     * @return The total time, in milliseconds, the publications of the build waited.
+     */
+    @Exported
+    public synchronized long getTotalWaitTime() {
+        long total = 0;
+
+        for (final Long waitTime : this.waitTimes.values()) {
+            total += waitTime;
+        }
+        return total;
+    }
+}
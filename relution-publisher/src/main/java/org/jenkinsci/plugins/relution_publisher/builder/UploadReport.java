@@ -0,0 +1,149 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jenkinsci.plugins.relution_publisher.builder;
+
+import org.jenkinsci.plugins.relution_publisher.model.ServerVersion;
+import org.jenkinsci.plugins.relution_publisher.model.UploadRecord;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import hudson.model.Result;
+
+
+/**
+ * The outcome of an {@link ArtifactFileUploader}, which is returned from the node that executed
+ * the upload to the Jenkins controller.
+ */
+public class UploadReport implements Serializable {
+
+    /**
+     * The serial version number of this class.
+     * <p>
+     * This version number is used to determine whether a serialized representation of this class
+     * is compatible with the current implementation of the class.
+     * <p>
+     * <b>Note</b> Maintainers must change this value <b>if and only if</b> the new version of this
+     * class is not compatible with old versions.
+     * @see
+     * <a href="http://docs.oracle.com/javase/6/docs/platform/serialization/spec/version.html">
+     * Versioning of Serializable Objects</a>.
+     */
+    private static final long        serialVersionUID = 1L;
+
+    private final Result             result;
+    private final List<UploadRecord> records;
+    private final List<String>       deletedAssets;
+    private final List<String>       failedPublications;
+
+    private ServerVersion            serverVersion;
+
+    /**
+     * Initializes a new instance of the {@link UploadReport} class.
+     * @param result The {@link Result} of the publications.
+     * @param records The {@link UploadRecord}s of the files that were published.
+     */
+    public UploadReport(final Result result, final List<UploadRecord> records) {
+        this(result, records, Collections.<String> emptyList());
+    }
+
+    /**
+     * Initializes a new instance of the {@link UploadReport} class.
+     * @param result The {@link Result} of the publications.
+     * @param records The {@link UploadRecord}s of the files that were published.
+     * @param deletedAssets The UUIDs of the files of the versions that were deleted.
+     */
+    public UploadReport(final Result result, final List<UploadRecord> records, final List<String> deletedAssets) {
+        this(result, records, deletedAssets, Collections.<String> emptyList());
+    }
+
+    /**
+     * Initializes a new instance of the {@link UploadReport} class.
+     * @param result The {@link Result} of the publications.
+     * @param records The {@link UploadRecord}s of the files that were published.
+     * @param deletedAssets The UUIDs of the files of the versions that were deleted.
+     * @param failedPublications The artifact paths of the publications that failed.
+     */
+    public UploadReport(
+            final Result result,
+            final List<UploadRecord> records,
+            final List<String> deletedAssets,
+            final List<String> failedPublications) {
+
+        this.result = result;
+        this.records = new ArrayList<>(records);
+        this.deletedAssets = new ArrayList<>(deletedAssets);
+        this.failedPublications = new ArrayList<>(failedPublications);
+    }
+
+    /**
+     * @return The {@link Result} of the publications.
+     */
+    public Result getResult() {
+        return this.result;
+    }
+
+    /**
+     * @return The {@link UploadRecord}s of the files that were published.
+     */
+    public List<UploadRecord> getRecords() {
+        return this.records;
+    }
+
+    /**
+     * @return The UUIDs of the files of the versions that were deleted, e.g. because they were
+     * replaced by a published version.
+     */
+    public List<String> getDeletedAssets() {
+        return this.deletedAssets;
+    }
+
+    /**
+     * @return The artifact paths of the publications that failed, e.g. because a file could not
+     * be uploaded or no files were found. The result of the build does not affect this list.
+     */
+    public List<String> getFailedPublications() {
+        return this.failedPublications;
+    }
+
+    /**
+     * @return The {@link ServerVersion} of the store, as reported to the node that executed the
+     * upload, or {@code null} if the version is unknown.
+     */
+    public ServerVersion getServerVersion() {
+        return this.serverVersion;
+    }
+
+    /**
+     * Sets the {@link ServerVersion} of the store, as reported to the node that executed the
+     * upload.
+     * @param serverVersion The {@link ServerVersion} of the store, can be {@code null}.
+     */
+    public void setServerVersion(final ServerVersion serverVersion) {
+        this.serverVersion = serverVersion;
+    }
+
+    /**
+     * @return {@code true} if every publication published its files, or found them already
+     * published; otherwise, {@code false}.
+     */
+    public boolean isComplete() {
+        return this.failedPublications.isEmpty();
+    }
+}
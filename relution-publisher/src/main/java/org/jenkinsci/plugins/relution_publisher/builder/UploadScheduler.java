@@ -0,0 +1,363 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jenkinsci.plugins.relution_publisher.builder;
+
+import org.jenkinsci.plugins.relution_publisher.configuration.global.Store;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Limits the number of builds that publish to the same store at the same time, and the total
+ * size of the artifacts they publish, for all builds executed by the Jenkins controller.
+ * <p>
+ * Builds that exceed a store's limits wait in a queue. Builds that publish to
+ * {@code Release} are always started before builds that publish to other release statuses.
+ * Otherwise, builds of jobs that currently have fewer publications in progress, to any store,
+ * are started first, so a job that finishes many builds at once does not delay the builds of
+ * other jobs. The order in which builds were queued breaks ties.
+ * <p>
+ * Publications may be assigned to a group. A publication that is queued replaces all waiting
+ * publications of older builds of the same job and group, which then return without publishing.
+ * If a newer build of the same job and group is already waiting, e.g. because builds finished
+ * out of order, the queued publication returns without publishing instead.
+ */
+public final class UploadScheduler {
+
+    private final static long             MEGABYTE     = 1024 * 1024;
+
+    private final static UploadScheduler  INSTANCE     = new UploadScheduler();
+
+    private final Map<String, StoreQueue> queues       = new HashMap<>();
+    private final Map<String, Integer>    runningByJob = new HashMap<>();
+    private long                          sequence;
+
+    UploadScheduler() {
+    }
+
+    /**
+     * @return The {@link UploadScheduler} of the current JVM.
+     */
+    public static UploadScheduler getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Waits until the store's limits allow another publication and returns a permit for it. The
+     * permit must be returned using {@link #release(Permit)} once the publication has completed.
+     * @param store The {@link Store} to publish to.
+     * @param job The name of the job that wants to publish.
+     * @param release {@code true} if the publication uploads to {@code Release}; otherwise,
+     * {@code false}.
+     * @param bytes The total size, in bytes, of the artifacts to publish.
+     * @return A {@link Permit} for the publication.
+     * @throws InterruptedException The thread was interrupted while waiting.
+     */
+    public Permit acquire(final Store store, final String job, final boolean release, final long bytes)
+            throws InterruptedException {
+        return this.acquire(store, job, 0, null, release, bytes);
+    }
+
+    /**
+     * Waits until the store's limits allow another publication and returns a permit for it,
+     * unless the publication is superseded by a newer build of the same job and group, either
+     * while it waits or because the newer build is already waiting. The permit must be returned
+     * using {@link #release(Permit)} once the publication has completed.
+     * @param store The {@link Store} to publish to.
+     * @param job The name of the job that wants to publish.
+     * @param buildNumber The number of the build that wants to publish.
+     * @param group The group of the publication, or {@code null} if the publication cannot be
+     * superseded.
+     * @param release {@code true} if the publication uploads to {@code Release}; otherwise,
+     * {@code false}.
+     * @param bytes The total size, in bytes, of the artifacts to publish.
+     * @return A {@link Permit} for the publication, which is {@link Permit#isSuperseded()
+     * superseded} if the publication should be skipped.
+     * @throws InterruptedException The thread was interrupted while waiting.
+     */
+    public Permit acquire(
+            final Store store,
+            final String job,
+            final int buildNumber,
+            final String group,
+            final boolean release,
+            final long bytes) throws InterruptedException {
+
+        final long started = System.currentTimeMillis();
+        final int maxPublications = store.getMaxConcurrentPublications();
+        final long maxBytes = store.getMaxInFlightMegabytes() * MEGABYTE;
+
+        synchronized (this) {
+            final StoreQueue queue = this.getQueue(store.getId());
+            final Request request = new Request(job, buildNumber, group, release, bytes, this.sequence++);
+
+            if (queue.supersede(request)) {
+                this.notifyAll();
+            }
+
+            if (request.superseded) {
+                this.removeIfIdle(store.getId(), queue);
+                return new Permit(store.getId(), null, System.currentTimeMillis() - started);
+            }
+
+            queue.waiting.add(request);
+
+            try {
+                while (!request.superseded && !queue.canStart(request, maxPublications, maxBytes)) {
+                    this.wait();
+                }
+
+            } catch (final InterruptedException e) {
+                queue.waiting.remove(request);
+                this.removeIfIdle(store.getId(), queue);
+                this.notifyAll();
+                throw e;
+
+            }
+
+            if (request.superseded) {
+                this.removeIfIdle(store.getId(), queue);
+                this.notifyAll();
+                return new Permit(store.getId(), null, System.currentTimeMillis() - started);
+            }
+
+            queue.start(request);
+            this.notifyAll();
+
+            return new Permit(store.getId(), request, System.currentTimeMillis() - started);
+        }
+    }
+
+    /**
+     * Returns a permit that was acquired using {@link #acquire(Store, String, boolean, long)}.
+     * @param permit The {@link Permit} to return, can be {@code null}.
+     */
+    public synchronized void release(final Permit permit) {
+        if (permit == null || permit.request == null) {
+            return;
+        }
+
+        final StoreQueue queue = this.queues.get(permit.storeId);
+
+        if (queue == null) {
+            return;
+        }
+
+        queue.finish(permit.request);
+        this.removeIfIdle(permit.storeId, queue);
+        this.notifyAll();
+    }
+
+    /**
+     * @param store A {@link Store}.
+     * @return The number of publications that wait for the specified store.
+     */
+    public synchronized int getQueueLength(final Store store) {
+        final StoreQueue queue = this.queues.get(store.getId());
+        return (queue != null) ? queue.waiting.size() : 0;
+    }
+
+    private StoreQueue getQueue(final String storeId) {
+        StoreQueue queue = this.queues.get(storeId);
+
+        if (queue == null) {
+            queue = new StoreQueue();
+            this.queues.put(storeId, queue);
+        }
+        return queue;
+    }
+
+    private void removeIfIdle(final String storeId, final StoreQueue queue) {
+        if (queue.waiting.isEmpty() && queue.running == 0) {
+            this.queues.remove(storeId);
+        }
+    }
+
+    /**
+     * @param job The name of a job.
+     * @return The number of publications of the job that are in progress, to any store.
+     */
+    private int getRunning(final String job) {
+        final Integer running = this.runningByJob.get(job);
+        return (running != null) ? running : 0;
+    }
+
+    private void setRunning(final String job, final int running) {
+        if (running > 0) {
+            this.runningByJob.put(job, running);
+        } else {
+            this.runningByJob.remove(job);
+        }
+    }
+
+    /**
+     * Permission to publish to a store, which is returned by
+     * {@link UploadScheduler#acquire(Store, String, boolean, long)}.
+     */
+    public static final class Permit {
+
+        private final String  storeId;
+        private final Request request;
+        private final long    waitTime;
+
+        private Permit(final String storeId, final Request request, final long waitTime) {
+            this.storeId = storeId;
+            this.request = request;
+            this.waitTime = waitTime;
+        }
+
+        /**
+         * @return The time, in milliseconds, the publication waited for this permit.
+         */
+        public long getWaitTime() {
+            return this.waitTime;
+        }
+
+        /**
+         * @return {@code true} if the publication was superseded by a newer publication of the
+         * same job while it waited, and should be skipped; otherwise, {@code false}.
+         */
+        public boolean isSuperseded() {
+            return this.request == null;
+        }
+    }
+
+    private static final class Request {
+
+        private final String  job;
+        private final int     buildNumber;
+        private final String  group;
+        private final boolean release;
+        private final long    bytes;
+        private final long    sequence;
+
+        private boolean       superseded;
+
+        public Request(
+                final String job,
+                final int buildNumber,
+                final String group,
+                final boolean release,
+                final long bytes,
+                final long sequence) {
+
+            this.job = job;
+            this.buildNumber = buildNumber;
+            this.group = group;
+            this.release = release;
+            this.bytes = bytes;
+            this.sequence = sequence;
+        }
+    }
+
+    private final class StoreQueue {
+
+        private final List<Request> waiting = new ArrayList<>();
+
+        private int                 running;
+        private long                bytes;
+
+        public boolean canStart(final Request request, final int maxPublications, final long maxBytes) {
+            if (this.next() != request) {
+                return false;
+            }
+
+            if (maxPublications > 0 && this.running >= maxPublications) {
+                return false;
+            }
+
+            // A publication that exceeds the limit on its own may start if the store is idle
+            return maxBytes <= 0 || this.running == 0 || this.bytes + request.bytes <= maxBytes;
+        }
+
+        /**
+         * Removes all waiting requests of older builds that are superseded by the specified
+         * request. If a request of a newer build is already waiting, the specified request is
+         * marked as superseded instead.
+         * @return {@code true} if a waiting request was superseded; otherwise, {@code false}.
+         */
+        public boolean supersede(final Request request) {
+            if (request.group == null) {
+                return false;
+            }
+
+            boolean superseded = false;
+            final Iterator<Request> iterator = this.waiting.iterator();
+
+            while (iterator.hasNext()) {
+                final Request other = iterator.next();
+
+                if (!request.job.equals(other.job) || !request.group.equals(other.group)) {
+                    continue;
+                }
+
+                if (other.buildNumber < request.buildNumber) {
+                    other.superseded = true;
+                    iterator.remove();
+                    superseded = true;
+
+                } else if (other.buildNumber > request.buildNumber) {
+                    request.superseded = true;
+
+                }
+            }
+            return superseded;
+        }
+
+        public void start(final Request request) {
+            this.waiting.remove(request);
+            this.running++;
+            this.bytes += request.bytes;
+            UploadScheduler.this.setRunning(request.job, UploadScheduler.this.getRunning(request.job) + 1);
+        }
+
+        public void finish(final Request request) {
+            this.running--;
+            this.bytes -= request.bytes;
+            UploadScheduler.this.setRunning(request.job, UploadScheduler.this.getRunning(request.job) - 1);
+        }
+
+        private Request next() {
+            Request next = null;
+
+            for (final Request request : this.waiting) {
+                if (next == null || this.precedes(request, next)) {
+                    next = request;
+                }
+            }
+            return next;
+        }
+
+        private boolean precedes(final Request request, final Request other) {
+            if (request.release != other.release) {
+                return request.release;
+            }
+
+            final int running = UploadScheduler.this.getRunning(request.job);
+            final int otherRunning = UploadScheduler.this.getRunning(other.job);
+
+            if (running != otherRunning) {
+                return running < otherRunning;
+            }
+            return request.sequence < other.sequence;
+        }
+    }
+}
@@ -0,0 +1,418 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jenkinsci.plugins.relution_publisher.builder;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.tools.ant.types.FileSet;
+import org.jenkinsci.plugins.relution_publisher.configuration.global.Store;
+import org.jenkinsci.plugins.relution_publisher.configuration.jobs.Publication;
+import org.jenkinsci.plugins.relution_publisher.util.Bundles;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import hudson.FilePath;
+import hudson.Util;
+import hudson.XmlFile;
+import hudson.model.AbstractBuild;
+import hudson.model.Result;
+import jenkins.model.Jenkins;
+
+
+/**
+ * A durable queue of publications, kept on the Jenkins controller, which allows builds to finish
+ * without waiting for the store to accept their artifacts.
+ * <p>
+ * Each entry is kept in a separate directory in {@code $JENKINS_HOME/relution-publisher/spool},
+ * which contains the spooled files and a manifest that describes the publications. Files are
+ * hard-linked if the workspace is on the controller and on the same file system, otherwise they
+ * are copied. The manifest is written after all files have been spooled and serves as the commit
+ * record of the entry; directories without a manifest are left over from an interrupted spool
+ * and are discarded. Entries whose manifest cannot be read, e.g. because it was written by an
+ * incompatible version of the plugin, are moved to
+ * {@code $JENKINS_HOME/relution-publisher/quarantine}, so their artifacts can be recovered
+ * manually. Entries are published by the {@link UploadSpoolWork}.
+ * <p>
+ * An entry that has not been started yet can be superseded by an entry of a newer build of the
+ * same job, if both entries belong to the same group. An entry of an older build is never queued
+ * behind an entry of a newer build.
+ */
+public final class UploadSpool {
+
+    private final static String MANIFEST   = "manifest.xml";
+    private final static String FILES      = "files";
+    private final static String QUARANTINE = "quarantine";
+
+    private static UploadSpool  instance;
+
+    private final File          directory;
+    private final File          quarantine;
+    private final Set<String>   pending    = new HashSet<>();
+    private final Set<String>   running    = new HashSet<>();
+
+    /**
+     * Initializes a new instance of the {@link UploadSpool} class.
+     * @param directory The directory that contains the spooled entries. Unreadable entries are
+     * moved to a sibling of this directory.
+     */
+    UploadSpool(final File directory) {
+        this.directory = directory;
+        this.quarantine = new File(directory.getParentFile(), QUARANTINE);
+    }
+
+    /**
+     * @return The {@link UploadSpool} of the Jenkins controller.
+     */
+    public static synchronized UploadSpool getInstance() {
+        if (instance == null) {
+            final File rootDir = Jenkins.getInstance().getRootDir();
+            instance = new UploadSpool(new File(rootDir, "relution-publisher/spool"));
+        }
+        return instance;
+    }
+
+    private static long getSize(final File file) {
+        if (file.isFile()) {
+            return file.length();
+        }
+
+        long size = 0;
+        final File[] children = file.listFiles();
+
+        if (children != null) {
+            for (final File child : children) {
+                size += getSize(child);
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Copies the artifacts of the specified publications to the spool and adds an entry that
+     * publishes them to the specified store.
+     * @param build The build that produced the artifacts.
+     * @param workspace The workspace that contains the artifacts.
+     * @param store The {@link Store} to publish to.
+     * @param publications The {@link Publication}s to publish.
+     * @param result The result of the build.
+     * @param group The group of the publications, or {@code null} if the entry cannot be
+     * superseded by newer builds.
+     * @param release {@code true} if a publication uploads to {@code Release}; otherwise,
+     * {@code false}.
+     * @return The {@link SpoolEntry} that was added.
+     * @throws IOException The artifacts could not be spooled.
+     * @throws InterruptedException The thread was interrupted while the artifacts were copied.
+     */
+    public SpoolEntry enqueue(
+            final AbstractBuild<?, ?> build,
+            final FilePath workspace,
+            final Store store,
+            final List<Publication> publications,
+            final Result result,
+            final String group,
+            final boolean release) throws IOException, InterruptedException {
+
+        return this.enqueue(build.getParent().getFullName(), build.getNumber(), workspace, store, publications, result, group, release);
+    }
+
+    SpoolEntry enqueue(
+            final String job,
+            final int buildNumber,
+            final FilePath workspace,
+            final Store store,
+            final List<Publication> publications,
+            final Result result,
+            final String group,
+            final boolean release) throws IOException, InterruptedException {
+
+        final String id = UUID.randomUUID().toString();
+        final File entryDirectory = new File(this.directory, id);
+        final File files = new File(entryDirectory, FILES);
+        boolean committed = false;
+
+        synchronized (this) {
+            this.pending.add(id);
+        }
+
+        try {
+            for (final Publication publication : publications) {
+                this.spool(workspace, publication.getArtifactPath(), publication.getArtifactExcludePath(), files);
+                this.spool(workspace, publication.getIconPath(), null, files);
+                this.spool(workspace, publication.getChangeLogPath(), null, files);
+                this.spool(workspace, publication.getDescriptionPath(), null, files);
+            }
+
+            final SpoolEntry entry = new SpoolEntry(
+                    id,
+                    store.getId(),
+                    job,
+                    buildNumber,
+                    result,
+                    publications,
+                    group,
+                    release,
+                    getSize(files));
+
+            this.update(entry);
+            committed = true;
+            return entry;
+
+        } finally {
+            if (!committed) {
+                Util.deleteRecursive(entryDirectory);
+            }
+
+            synchronized (this) {
+                this.pending.remove(id);
+            }
+        }
+    }
+
+    private void spool(final FilePath workspace, final String includes, final String excludes, final File target)
+            throws IOException, InterruptedException {
+        if (StringUtils.isBlank(includes)) {
+            return;
+        }
+
+        if (workspace.isRemote()) {
+            workspace.copyRecursiveTo(withContents(includes), excludes, new FilePath(target));
+            return;
+        }
+
+        final File basePath = new File(workspace.getRemote());
+        final FileSet fileSet = Util.createFileSet(basePath, includes, excludes);
+
+        for (final String fileName : Bundles.getIncludedArtifacts(fileSet.getDirectoryScanner())) {
+            final File source = new File(basePath, fileName);
+            final File link = new File(target, fileName);
+
+            if (link.exists()) {
+                continue;
+            }
+
+            if (source.isDirectory()) {
+                new FilePath(source).copyRecursiveTo(new FilePath(link));
+                continue;
+            }
+
+            Files.createDirectories(link.getParentFile().toPath());
+
+            try {
+                Files.createLink(link.toPath(), source.toPath());
+
+            } catch (final IOException e) {
+                // The workspace is most likely on another file system
+                Files.copy(source.toPath(), link.toPath());
+
+            } catch (final UnsupportedOperationException e) {
+                Files.copy(source.toPath(), link.toPath());
+
+            }
+        }
+    }
+
+    /**
+     * Extends the specified patterns to also match the content of matching directories, so
+     * bundles are copied completely from a remote workspace.
+     */
+    static String withContents(final String includes) {
+        final StringBuilder sb = new StringBuilder();
+
+        for (final String include : includes.split(",")) {
+            final String pattern = include.trim();
+
+            if (pattern.isEmpty()) {
+                continue;
+            }
+
+            if (sb.length() > 0) {
+                sb.append(",");
+            }
+            sb.append(pattern).append(",").append(pattern).append("/**");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Returns all entries in the spool, in the order in which they were added. Directories that
+     * do not contain a manifest, and are not currently being spooled, are deleted. Entries whose
+     * manifest cannot be read are quarantined.
+     * @return A list of {@link SpoolEntry} objects.
+     */
+    public synchronized List<SpoolEntry> getEntries() {
+        final List<SpoolEntry> entries = new ArrayList<>();
+        final File[] directories = this.directory.listFiles();
+
+        if (directories == null) {
+            return entries;
+        }
+
+        for (final File entryDirectory : directories) {
+            if (!entryDirectory.isDirectory() || this.pending.contains(entryDirectory.getName())) {
+                continue;
+            }
+
+            final XmlFile manifest = this.getManifest(entryDirectory.getName());
+
+            if (!manifest.exists()) {
+                this.delete(entryDirectory);
+                continue;
+            }
+
+            try {
+                entries.add((SpoolEntry) manifest.read());
+
+            } catch (final IOException e) {
+                // The manifest is written atomically, but may have been written by another version
+                this.quarantine(entryDirectory);
+
+            } catch (final ClassCastException e) {
+                // The manifest does not describe a spooled entry
+                this.quarantine(entryDirectory);
+
+            }
+        }
+
+        Collections.sort(entries, new Comparator<SpoolEntry>() {
+
+            @Override
+            public int compare(final SpoolEntry lhs, final SpoolEntry rhs) {
+                return Long.compare(lhs.getCreated(), rhs.getCreated());
+            }
+        });
+        return entries;
+    }
+
+    /**
+     * Removes all entries of older builds that are superseded by the specified entry and have not
+     * been started yet. If an entry of a newer build is already waiting, e.g. because builds
+     * finished out of order, the specified entry is removed instead.
+     * @param entry The {@link SpoolEntry} that supersedes older entries.
+     * @return The number of entries that were removed, or {@code -1} if the specified entry was
+     * removed because it is superseded by a newer build.
+     */
+    public synchronized int supersede(final SpoolEntry entry) {
+        if (entry.getGroup() == null) {
+            return 0;
+        }
+
+        final List<SpoolEntry> older = new ArrayList<>();
+
+        for (final SpoolEntry other : this.getEntries()) {
+            if (this.running.contains(other.getId())
+                    || other.getBuildNumber() == entry.getBuildNumber()
+                    || !entry.getStoreId().equals(other.getStoreId())
+                    || !entry.getJob().equals(other.getJob())
+                    || !entry.getGroup().equals(other.getGroup())) {
+                continue;
+            }
+
+            if (other.getBuildNumber() > entry.getBuildNumber()) {
+                this.remove(entry);
+                return -1;
+            }
+            older.add(other);
+        }
+
+        for (final SpoolEntry other : older) {
+            this.remove(other);
+        }
+        return older.size();
+    }
+
+    /**
+     * Marks the specified entry as started, so it can no longer be superseded.
+     * @param entry The {@link SpoolEntry} that is about to be published.
+     * @return {@code true} if the entry was started; {@code false} if it has been removed from
+     * the spool in the meantime.
+     */
+    public synchronized boolean start(final SpoolEntry entry) {
+        if (!this.getManifest(entry.getId()).exists()) {
+            return false;
+        }
+
+        this.running.add(entry.getId());
+        return true;
+    }
+
+    /**
+     * Marks the specified entry as no longer started, after it has been published or has failed.
+     * @param entry The {@link SpoolEntry} that was published.
+     */
+    public synchronized void finish(final SpoolEntry entry) {
+        this.running.remove(entry.getId());
+    }
+
+    /**
+     * @param entry A {@link SpoolEntry}.
+     * @return The directory that contains the spooled files of the entry.
+     */
+    public File getFiles(final SpoolEntry entry) {
+        return new File(new File(this.directory, entry.getId()), FILES);
+    }
+
+    /**
+     * Writes the manifest of the specified entry. The manifest is replaced atomically, so it is
+     * either updated completely or not at all.
+     * @param entry The {@link SpoolEntry} to write.
+     * @throws IOException The manifest could not be written.
+     */
+    public void update(final SpoolEntry entry) throws IOException {
+        this.getManifest(entry.getId()).write(entry);
+    }
+
+    /**
+     * Removes the specified entry and its spooled files from the spool.
+     * @param entry The {@link SpoolEntry} to remove.
+     */
+    public synchronized void remove(final SpoolEntry entry) {
+        this.delete(new File(this.directory, entry.getId()));
+    }
+
+    private XmlFile getManifest(final String id) {
+        return new XmlFile(Jenkins.XSTREAM2, new File(new File(this.directory, id), MANIFEST));
+    }
+
+    private void quarantine(final File entryDirectory) {
+        final File target = new File(this.quarantine, entryDirectory.getName());
+
+        try {
+            Files.createDirectories(this.quarantine.toPath());
+            Files.move(entryDirectory.toPath(), target.toPath());
+
+        } catch (final IOException e) {
+            // Moved again the next time the spool is read
+        }
+    }
+
+    private void delete(final File entryDirectory) {
+        try {
+            Util.deleteRecursive(entryDirectory);
+
+        } catch (final IOException e) {
+            // Deleted again the next time the spool is read
+        }
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jenkinsci.plugins.relution_publisher.builder;
+
+import org.jenkinsci.plugins.relution_publisher.builder.UploadScheduler.Permit;
+import org.jenkinsci.plugins.relution_publisher.configuration.global.Store;
+import org.jenkinsci.plugins.relution_publisher.configuration.global.StoreConfiguration;
+import org.jenkinsci.plugins.relution_publisher.logging.BuildLog;
+import org.jenkinsci.plugins.relution_publisher.logging.Log;
+import org.jenkinsci.plugins.relution_publisher.logging.PrefixedLog;
+import org.jenkinsci.plugins.relution_publisher.model.FileDigests;
+import org.jenkinsci.plugins.relution_publisher.model.UploadRecord;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+
+import hudson.Extension;
+import hudson.FilePath;
+import hudson.model.AsyncPeriodicWork;
+import hudson.model.TaskListener;
+
+
+/**
+ * Publishes the entries of the {@link UploadSpool} in the background.
+ * <p>
+ * Entries are published in the order in which they were spooled, using the
+ * {@link UploadScheduler} like any other publication. If an entry cannot be published, it is
+ * retried with exponential backoff, starting at {@link #MIN_BACKOFF} and up to
+ * {@link #MAX_BACKOFF}, until it has failed {@link #MAX_ATTEMPTS} times. Since the spool is kept
+ * on disk, pending entries are published after Jenkins restarts. Files that have already been
+ * published by a previous attempt are skipped based on the {@link UploadLedger}. The output of
+ * the task is written to the Jenkins task log.
+ */
+@Extension
+public class UploadSpoolWork extends AsyncPeriodicWork {
+
+    /**
+     * The interval, in milliseconds, at which the spool is checked for entries to publish.
+     */
+    private static final long  RECURRENCE_PERIOD = TimeUnit.MINUTES.toMillis(1);
+
+    /**
+     * The time, in milliseconds, to wait before an entry is published again after it failed for
+     * the first time.
+     */
+    static final long          MIN_BACKOFF       = TimeUnit.MINUTES.toMillis(1);
+
+    /**
+     * The maximum time, in milliseconds, to wait before an entry is published again.
+     */
+    private static final long  MAX_BACKOFF       = TimeUnit.HOURS.toMillis(1);
+
+    /**
+     * The number of failed attempts after which an entry is discarded.
+     */
+    static final int           MAX_ATTEMPTS      = 48;
+
+    @Inject
+    private StoreConfiguration globalConfiguration;
+
+    public UploadSpoolWork() {
+        super("Relution upload spool");
+    }
+
+    private static long getBackoff(final int attempts) {
+        final int exponent = Math.min(attempts, 16);
+        return Math.min(MIN_BACKOFF << exponent, MAX_BACKOFF);
+    }
+
+    @Override
+    public long getRecurrencePeriod() {
+        return RECURRENCE_PERIOD;
+    }
+
+    @Override
+    protected void execute(final TaskListener listener) throws IOException, InterruptedException {
+        if (this.globalConfiguration == null) {
+            return;
+        }
+
+        final Log log = new BuildLog(listener);
+        final UploadSpool spool = UploadSpool.getInstance();
+
+        for (final SpoolEntry entry : spool.getEntries()) {
+            if (entry.getNextAttempt() > System.currentTimeMillis()) {
+                continue;
+            }
+
+            final Store store = this.globalConfiguration.getStore(entry.getStoreId());
+
+            if (store == null) {
+                log.write(this, "The store of '%s' no longer exists, discarding spooled publication.", entry);
+                spool.remove(entry);
+                continue;
+            }
+
+            if (!spool.start(entry)) {
+                // Superseded by a newer build since the spool was read
+                continue;
+            }
+
+            try {
+                this.publish(spool, entry, store, new PrefixedLog(log, String.format("<%s>", entry)));
+
+            } finally {
+                spool.finish(entry);
+
+            }
+            log.write();
+        }
+    }
+
+    private void publish(final UploadSpool spool, final SpoolEntry entry, final Store store, final Log log)
+            throws IOException, InterruptedException {
+
+        log.write(this, "Publishing spooled artifacts to '%s' (attempt %d)…", store, entry.getAttempts() + 1);
+
+        final UploadLedger ledger = UploadLedger.getInstance();
+        final FilePath files = new FilePath(spool.getFiles(entry));
+        final FileDigests digests = ledger.getDigests(files, entry.getPublications(), log);
+        final List<UploadRecord> published = ledger.getPublishedRecords(store, digests, log);
+        final ArtifactFileUploader uploader = new ArtifactFileUploader(entry.getResult(), entry.getPublications(), store, published, log);
+        uploader.setDigests(digests);
+
+        final Permit permit = UploadScheduler.getInstance().acquire(store, entry.getJob(), entry.isRelease(), entry.getBytes());
+        final UploadReport report;
+
+        try {
+            report = uploader.invoke(spool.getFiles(entry), null);
+
+        } finally {
+            UploadScheduler.getInstance().release(permit);
+
+        }
+
+        try {
+            ledger.append(store, report.getRecords());
+            ledger.removeAssets(store, report.getDeletedAssets());
+
+        } catch (final IOException e) {
+            log.write(this, "Unable to update upload ledger.\n\n%s\n", e);
+
+        }
+
+        this.complete(spool, entry, report, System.currentTimeMillis(), log);
+    }
+
+    /**
+     * Removes the specified entry from the spool if all of its publications succeeded. Otherwise,
+     * the entry is retried after a backoff, unless it has failed {@link #MAX_ATTEMPTS} times, in
+     * which case it is discarded.
+     * <p>
+     * Success is decided from the publications in the report rather than from its result, which
+     * includes the result of the build.
+     * @param spool The {@link UploadSpool} that contains the entry.
+     * @param entry The {@link SpoolEntry} that was published.
+     * @param report The {@link UploadReport} of the publication.
+     * @param now The current time, in milliseconds since the epoch.
+     * @param log The {@link Log} to write to.
+     * @return {@code true} if the entry was removed from the spool; otherwise, {@code false}.
+     * @throws IOException The manifest of the entry could not be updated.
+     */
+    boolean complete(final UploadSpool spool, final SpoolEntry entry, final UploadReport report, final long now, final Log log)
+            throws IOException {
+
+        if (report.isComplete()) {
+            log.write(this, "Spooled artifacts published.");
+            spool.remove(entry);
+            return true;
+        }
+
+        if (entry.getAttempts() + 1 >= MAX_ATTEMPTS) {
+            log.write(this, "Publication failed %d times, discarding spooled artifacts.", MAX_ATTEMPTS);
+            spool.remove(entry);
+            return true;
+        }
+
+        final long backoff = getBackoff(entry.getAttempts());
+        entry.setFailed(now + backoff, String.format("Publication of %s failed", report.getFailedPublications()));
+        spool.update(entry);
+
+        log.write(this, "Publication failed, retrying in %d minute(s).", TimeUnit.MILLISECONDS.toMinutes(backoff));
+        return false;
+    }
+}
@@ -79,35 +79,85 @@ public class Store extends AbstractDescribableImpl<Store> implements Serializabl
      * <a href="http://docs.oracle.com/javase/6/docs/platform/serialization/spec/version.html">
      * Versioning of Serializable Objects</a>.
      */
-    private static final long     serialVersionUID   = 1L;
+    private static final long     serialVersionUID                  = 1L;
+
+    public final static String    KEY_ID                            = "id";
+    public final static String    KEY_URL                           = "url";
+
+    public final static String    KEY_USERNAME                      = "username";
+    public final static String    KEY_PASSWORD                      = "password";
+    public final static String    KEY_API_TOKEN                     = "apiToken";
+
+    public final static String    KEY_RELEASE_STATUS                = "releaseStatus";
+    public final static String    KEY_ARCHIVE_MODE                  = "archiveMode";
+    public final static String    KEY_UPLOAD_MODE                   = "uploadMode";
+    public final static String    KEY_UPLOAD_CONCURRENCY            = "uploadConcurrency";
+    public final static String    KEY_DELETE_CONCURRENCY            = "deleteConcurrency";
+    public final static String    KEY_DELETE_RATE_LIMIT             = "deleteRateLimit";
+    public final static String    KEY_RETENTION_KEEP_LAST           = "retentionKeepLast";
+    public final static String    KEY_RETENTION_MAX_AGE             = "retentionMaxAge";
+    public final static String    KEY_VERIFY_CHECKSUMS              = "verifyChecksums";
+    public final static String    KEY_BATCH_UPLOADS                 = "batchUploads";
+    public final static String    KEY_MAX_CONCURRENT_PUBLICATIONS   = "maxConcurrentPublications";
+    public final static String    KEY_MAX_IN_FLIGHT_MEGABYTES       = "maxInFlightMegabytes";
+    public final static String    KEY_COALESCE_PUBLICATIONS         = "coalescePublications";
+
+    public final static String    KEY_PROXY_HOST                    = "proxyHost";
+    public final static String    KEY_PROXY_PORT                    = "proxyPort";
+
+    public final static String    KEY_PROXY_USERNAME                = "proxyUsername";
+    public final static String    KEY_PROXY_PASSWORD                = "proxyPassword";
+
+    public final static String    KEY_MAX_CONNECTIONS               = "maxConnections";
+    public final static String    KEY_MAX_CONNECTIONS_PER_ROUTE     = "maxConnectionsPerRoute";
+    public final static String    KEY_IO_THREAD_COUNT               = "ioThreadCount";
+    public final static String    KEY_CONNECTION_TIME_TO_LIVE       = "connectionTimeToLive";
+    public final static String    KEY_SESSION_REUSE                 = "sessionReuse";
+    public final static String    KEY_PIPELINING                    = "pipelining";
 
-    public final static String    KEY_ID             = "id";
-    public final static String    KEY_URL            = "url";
-
-    public final static String    KEY_USERNAME       = "username";
-    public final static String    KEY_PASSWORD       = "password";
+    /**
+     * The default maximum number of connections kept in the connection pool of the store.
+     */
+    public final static int       DEFAULT_MAX_CONNECTIONS           = 20;
 
-    public final static String    KEY_RELEASE_STATUS = "releaseStatus";
-    public final static String    KEY_ARCHIVE_MODE   = "archiveMode";
-    public final static String    KEY_UPLOAD_MODE    = "uploadMode";
+    /**
+     * The default maximum number of connections per route kept in the connection pool of the
+     * store.
+     */
+    public final static int       DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 2;
 
-    public final static String    KEY_PROXY_HOST     = "proxyHost";
-    public final static String    KEY_PROXY_PORT     = "proxyPort";
+    /**
+     * The default maximum number of files uploaded to the store concurrently.
+     */
+    public final static int       DEFAULT_UPLOAD_CONCURRENCY        = 1;
 
-    public final static String    KEY_PROXY_USERNAME = "proxyUsername";
-    public final static String    KEY_PROXY_PASSWORD = "proxyPassword";
+    /**
+     * The default maximum number of archived versions deleted from the store concurrently.
+     */
+    public final static int       DEFAULT_DELETE_CONCURRENCY        = 1;
 
-    private final static String[] URL_SCHEMES        = {"http", "https"};
+    private final static String[] URL_SCHEMES                       = {"http", "https"};
 
     private String                mId;
     private String                mUrl;
 
     private String                mUsername;
     private String                mPassword;
+    private String                mApiToken;
 
     private String                mReleaseStatus;
     private String                mArchiveMode;
     private String                mUploadMode;
+    private int                   mUploadConcurrency;
+    private int                   mDeleteConcurrency;
+    private int                   mDeleteRateLimit;
+    private int                   mRetentionKeepLast;
+    private int                   mRetentionMaxAge;
+    private boolean               mVerifyChecksums;
+    private boolean               mBatchUploads;
+    private int                   mMaxConcurrentPublications;
+    private int                   mMaxInFlightMegabytes;
+    private boolean               mCoalescePublications;
 
     private String                mProxyHost;
     private int                   mProxyPort;
@@ -115,6 +165,13 @@ public class Store extends AbstractDescribableImpl<Store> implements Serializabl
     private String                mProxyUsername;
     private String                mProxyPassword;
 
+    private int                   mMaxConnections;
+    private int                   mMaxConnectionsPerRoute;
+    private int                   mIoThreadCount;
+    private int                   mConnectionTimeToLive;
+    private boolean               mSessionReuse;
+    private boolean               mPipelining;
+
     /**
      * Creates a new instance of the {@link Store} class initialized with the values in
      * the specified JSON string.
@@ -202,16 +259,34 @@ public class Store extends AbstractDescribableImpl<Store> implements Serializabl
 
         this.setUsername(storeJsonObject.getString(KEY_USERNAME));
         this.setPassword(storeJsonObject.getString(KEY_PASSWORD));
+        this.setApiToken(storeJsonObject.optString(KEY_API_TOKEN, null));
 
         this.setReleaseStatus(storeJsonObject.getString(KEY_RELEASE_STATUS));
         this.setArchiveMode(storeJsonObject.getString(KEY_ARCHIVE_MODE));
         this.setUploadMode(storeJsonObject.getString(KEY_UPLOAD_MODE));
+        this.setUploadConcurrency(storeJsonObject.optInt(KEY_UPLOAD_CONCURRENCY, 0));
+        this.setDeleteConcurrency(storeJsonObject.optInt(KEY_DELETE_CONCURRENCY, 0));
+        this.setDeleteRateLimit(storeJsonObject.optInt(KEY_DELETE_RATE_LIMIT, 0));
+        this.setRetentionKeepLast(storeJsonObject.optInt(KEY_RETENTION_KEEP_LAST, 0));
+        this.setRetentionMaxAge(storeJsonObject.optInt(KEY_RETENTION_MAX_AGE, 0));
+        this.setVerifyChecksums(storeJsonObject.optBoolean(KEY_VERIFY_CHECKSUMS, false));
+        this.setBatchUploads(storeJsonObject.optBoolean(KEY_BATCH_UPLOADS, false));
+        this.setMaxConcurrentPublications(storeJsonObject.optInt(KEY_MAX_CONCURRENT_PUBLICATIONS, 0));
+        this.setMaxInFlightMegabytes(storeJsonObject.optInt(KEY_MAX_IN_FLIGHT_MEGABYTES, 0));
+        this.setCoalescePublications(storeJsonObject.optBoolean(KEY_COALESCE_PUBLICATIONS, false));
 
         this.setProxyHost(storeJsonObject.getString(KEY_PROXY_HOST));
         this.setProxyPort(storeJsonObject.optInt(KEY_PROXY_PORT, 0));
 
         this.setProxyUsername(storeJsonObject.getString(KEY_PROXY_USERNAME));
         this.setProxyPassword(storeJsonObject.getString(KEY_PROXY_PASSWORD));
+
+        this.setMaxConnections(storeJsonObject.optInt(KEY_MAX_CONNECTIONS, 0));
+        this.setMaxConnectionsPerRoute(storeJsonObject.optInt(KEY_MAX_CONNECTIONS_PER_ROUTE, 0));
+        this.setIoThreadCount(storeJsonObject.optInt(KEY_IO_THREAD_COUNT, 0));
+        this.setConnectionTimeToLive(storeJsonObject.optInt(KEY_CONNECTION_TIME_TO_LIVE, 0));
+        this.setSessionReuse(storeJsonObject.optBoolean(KEY_SESSION_REUSE, false));
+        this.setPipelining(storeJsonObject.optBoolean(KEY_PIPELINING, false));
     }
 
     private String getId(final String id) {
@@ -281,6 +356,31 @@ public class Store extends AbstractDescribableImpl<Store> implements Serializabl
         this.mPassword = password;
     }
 
+    /**
+     * @return The API token to use when connecting to the store, or {@code null} if the store
+     * uses the user name and password for authentication.
+     */
+    public String getApiToken() {
+        return this.mApiToken;
+    }
+
+    /**
+     * Sets the API token to use when connecting to the store. If an API token is set it is used
+     * instead of the user name and password to authenticate requests.
+     * @param apiToken The API token to use.
+     */
+    public void setApiToken(final String apiToken) {
+        this.mApiToken = apiToken;
+    }
+
+    /**
+     * @return {@code true} if requests to the store are authenticated using an API token;
+     * {@code false} if a session is created using the user name and password.
+     */
+    public boolean usesTokenAuthentication() {
+        return !StringUtils.isBlank(this.mApiToken);
+    }
+
     /**
      * @return The key of the default {@link ReleaseStatus} to use when uploading a version to the
      * store.
@@ -332,6 +432,184 @@ public class Store extends AbstractDescribableImpl<Store> implements Serializabl
         this.mUploadMode = uploadMode;
     }
 
+    /**
+     * @return The maximum number of files of a single publication that are uploaded to the store
+     * concurrently.
+     */
+    public int getUploadConcurrency() {
+        return (this.mUploadConcurrency > 0) ? this.mUploadConcurrency : DEFAULT_UPLOAD_CONCURRENCY;
+    }
+
+    /**
+     * Sets the maximum number of files of a single publication that are uploaded to the store
+     * concurrently.
+     * @param uploadConcurrency The maximum number of concurrent uploads, or zero to use the
+     * default.
+     */
+    public void setUploadConcurrency(final int uploadConcurrency) {
+        this.mUploadConcurrency = uploadConcurrency;
+    }
+
+    /**
+     * @return The maximum number of archived versions that are deleted from the store
+     * concurrently.
+     */
+    public int getDeleteConcurrency() {
+        return (this.mDeleteConcurrency > 0) ? this.mDeleteConcurrency : DEFAULT_DELETE_CONCURRENCY;
+    }
+
+    /**
+     * Sets the maximum number of archived versions that are deleted from the store concurrently.
+     * @param deleteConcurrency The maximum number of concurrent deletions, or zero to use the
+     * default.
+     */
+    public void setDeleteConcurrency(final int deleteConcurrency) {
+        this.mDeleteConcurrency = deleteConcurrency;
+    }
+
+    /**
+     * @return The maximum number of delete requests per second sent to the store, or zero if the
+     * number of requests is not limited.
+     */
+    public int getDeleteRateLimit() {
+        return this.mDeleteRateLimit;
+    }
+
+    /**
+     * Sets the maximum number of delete requests per second sent to the store.
+     * @param deleteRateLimit The maximum number of requests per second, or zero to not limit the
+     * number of requests.
+     */
+    public void setDeleteRateLimit(final int deleteRateLimit) {
+        this.mDeleteRateLimit = deleteRateLimit;
+    }
+
+    /**
+     * @return The number of versions per app and release status that are kept when previous
+     * versions are removed in the background, or zero if versions are not removed by count.
+     */
+    public int getRetentionKeepLast() {
+        return this.mRetentionKeepLast;
+    }
+
+    /**
+     * Sets the number of versions per app and release status that are kept when previous
+     * versions are removed in the background.
+     * @param retentionKeepLast The number of versions to keep, or zero to not remove versions by
+     * count.
+     */
+    public void setRetentionKeepLast(final int retentionKeepLast) {
+        this.mRetentionKeepLast = retentionKeepLast;
+    }
+
+    /**
+     * @return The age, in days, after which archived versions are removed in the background, or
+     * zero if archived versions are not removed by age.
+     */
+    public int getRetentionMaxAge() {
+        return this.mRetentionMaxAge;
+    }
+
+    /**
+     * Sets the age, in days, after which archived versions are removed in the background.
+     * @param retentionMaxAge The maximum age of archived versions in days, or zero to not remove
+     * archived versions by age.
+     */
+    public void setRetentionMaxAge(final int retentionMaxAge) {
+        this.mRetentionMaxAge = retentionMaxAge;
+    }
+
+    /**
+     * @return {@code true} if the checksums of uploaded files are computed while the files are
+     * sent and compared with the checksums reported by the store; otherwise, {@code false}.
+     */
+    public boolean isVerifyChecksums() {
+        return this.mVerifyChecksums;
+    }
+
+    /**
+     * Sets a value indicating whether the checksums of uploaded files are computed while the
+     * files are sent and compared with the checksums reported by the store.
+     * @param verifyChecksums {@code true} to verify checksums; otherwise, {@code false}.
+     */
+    public void setVerifyChecksums(final boolean verifyChecksums) {
+        this.mVerifyChecksums = verifyChecksums;
+    }
+
+    /**
+     * @return {@code true} if all files matched by a publication are uploaded using a single
+     * request; otherwise, {@code false}.
+     */
+    public boolean isBatchUploads() {
+        return this.mBatchUploads;
+    }
+
+    /**
+     * Sets a value indicating whether all files matched by a publication are uploaded using a
+     * single request, which contains one part per file and a single change log. This requires a
+     * server that accepts more than one app per request.
+     * @param batchUploads {@code true} to upload files in a single request; otherwise,
+     * {@code false}.
+     */
+    public void setBatchUploads(final boolean batchUploads) {
+        this.mBatchUploads = batchUploads;
+    }
+
+    /**
+     * @return The maximum number of builds that publish to this store at the same time, or zero
+     * if the number of builds is not limited.
+     */
+    public int getMaxConcurrentPublications() {
+        return this.mMaxConcurrentPublications;
+    }
+
+    /**
+     * Sets the maximum number of builds that publish to this store at the same time. Builds that
+     * exceed this limit wait until another build has finished publishing.
+     * @param maxConcurrentPublications The maximum number of builds, or zero to not limit the
+     * number of builds.
+     */
+    public void setMaxConcurrentPublications(final int maxConcurrentPublications) {
+        this.mMaxConcurrentPublications = maxConcurrentPublications;
+    }
+
+    /**
+     * @return The maximum size, in megabytes, of the artifacts that are published to this store
+     * at the same time, or zero if the size is not limited.
+     */
+    public int getMaxInFlightMegabytes() {
+        return this.mMaxInFlightMegabytes;
+    }
+
+    /**
+     * Sets the maximum size, in megabytes, of the artifacts that are published to this store at
+     * the same time. A build whose artifacts exceed this limit on their own is still published,
+     * but only while no other build publishes to the store.
+     * @param maxInFlightMegabytes The maximum size in megabytes, or zero to not limit the size.
+     */
+    public void setMaxInFlightMegabytes(final int maxInFlightMegabytes) {
+        this.mMaxInFlightMegabytes = maxInFlightMegabytes;
+    }
+
+    /**
+     * @return {@code true} if a queued publication is skipped when a newer build of the same job
+     * publishes to the same release status; otherwise, {@code false}.
+     */
+    public boolean isCoalescePublications() {
+        return this.mCoalescePublications;
+    }
+
+    /**
+     * Sets a value indicating whether a publication that waits for this store, or that has been
+     * spooled but not yet started, is skipped when a newer build of the same job publishes to
+     * the same release status.
+     * @param coalescePublications {@code true} to skip superseded publications; otherwise,
+     * {@code false}.
+     */
+    public void setCoalescePublications(final boolean coalescePublications) {
+        this.mCoalescePublications = coalescePublications;
+    }
+
     /**
      * @return The host name of the proxy server to use.
      */
@@ -392,6 +670,106 @@ public class Store extends AbstractDescribableImpl<Store> implements Serializabl
         this.mProxyPassword = proxyPassword;
     }
 
+    /**
+     * @return The maximum number of connections kept in the connection pool of the store.
+     */
+    public int getMaxConnections() {
+        return (this.mMaxConnections > 0) ? this.mMaxConnections : DEFAULT_MAX_CONNECTIONS;
+    }
+
+    /**
+     * Sets the maximum number of connections kept in the connection pool of the store.
+     * @param maxConnections The maximum number of connections, or zero to use the default.
+     */
+    public void setMaxConnections(final int maxConnections) {
+        this.mMaxConnections = maxConnections;
+    }
+
+    /**
+     * @return The maximum number of connections per route kept in the connection pool of the
+     * store.
+     */
+    public int getMaxConnectionsPerRoute() {
+        return (this.mMaxConnectionsPerRoute > 0) ? this.mMaxConnectionsPerRoute : DEFAULT_MAX_CONNECTIONS_PER_ROUTE;
+    }
+
+    /**
+     * Sets the maximum number of connections per route kept in the connection pool of the store.
+     * @param maxConnectionsPerRoute The maximum number of connections per route, or zero to use
+     * the default.
+     */
+    public void setMaxConnectionsPerRoute(final int maxConnectionsPerRoute) {
+        this.mMaxConnectionsPerRoute = maxConnectionsPerRoute;
+    }
+
+    /**
+     * @return The number of I/O dispatcher threads used to communicate with the store, or zero
+     * if the number of available processors is used.
+     */
+    public int getIoThreadCount() {
+        return this.mIoThreadCount;
+    }
+
+    /**
+     * Sets the number of I/O dispatcher threads used to communicate with the store.
+     * @param ioThreadCount The number of threads, or zero to use the number of available
+     * processors.
+     */
+    public void setIoThreadCount(final int ioThreadCount) {
+        this.mIoThreadCount = ioThreadCount;
+    }
+
+    /**
+     * @return The maximum time, in seconds, a connection to the store is kept alive, or zero if
+     * connections are kept alive indefinitely.
+     */
+    public int getConnectionTimeToLive() {
+        return this.mConnectionTimeToLive;
+    }
+
+    /**
+     * Sets the maximum time, in seconds, a connection to the store is kept alive.
+     * @param connectionTimeToLive The time to live, or zero to keep connections alive
+     * indefinitely.
+     */
+    public void setConnectionTimeToLive(final int connectionTimeToLive) {
+        this.mConnectionTimeToLive = connectionTimeToLive;
+    }
+
+    /**
+     * @return {@code true} if sessions with the store are kept alive and reused by subsequent
+     * builds; otherwise, {@code false}.
+     */
+    public boolean isSessionReuse() {
+        return this.mSessionReuse;
+    }
+
+    /**
+     * Sets a value indicating whether sessions with the store are kept alive and reused by
+     * subsequent builds.
+     * @param sessionReuse {@code true} to reuse sessions; otherwise, {@code false}.
+     */
+    public void setSessionReuse(final boolean sessionReuse) {
+        this.mSessionReuse = sessionReuse;
+    }
+
+    /**
+     * @return {@code true} if independent requests to the store are pipelined on a single
+     * connection; otherwise, {@code false}.
+     */
+    public boolean isPipelining() {
+        return this.mPipelining;
+    }
+
+    /**
+     * Sets a value indicating whether independent requests to the store are pipelined on a
+     * single connection.
+     * @param pipelining {@code true} to pipeline requests; otherwise, {@code false}.
+     */
+    public void setPipelining(final boolean pipelining) {
+        this.mPipelining = pipelining;
+    }
+
     /**
      * @return The host component of the store's {@link #getUrl() URL}.
      */
@@ -419,10 +797,21 @@ public class Store extends AbstractDescribableImpl<Store> implements Serializabl
 
         json.put(KEY_USERNAME, this.mUsername);
         json.put(KEY_PASSWORD, this.mPassword);
+        json.put(KEY_API_TOKEN, this.mApiToken);
 
         json.put(KEY_RELEASE_STATUS, this.mReleaseStatus);
         json.put(KEY_ARCHIVE_MODE, this.mArchiveMode);
         json.put(KEY_UPLOAD_MODE, this.mUploadMode);
+        json.put(KEY_UPLOAD_CONCURRENCY, this.mUploadConcurrency);
+        json.put(KEY_DELETE_CONCURRENCY, this.mDeleteConcurrency);
+        json.put(KEY_DELETE_RATE_LIMIT, this.mDeleteRateLimit);
+        json.put(KEY_RETENTION_KEEP_LAST, this.mRetentionKeepLast);
+        json.put(KEY_RETENTION_MAX_AGE, this.mRetentionMaxAge);
+        json.put(KEY_VERIFY_CHECKSUMS, this.mVerifyChecksums);
+        json.put(KEY_BATCH_UPLOADS, this.mBatchUploads);
+        json.put(KEY_MAX_CONCURRENT_PUBLICATIONS, this.mMaxConcurrentPublications);
+        json.put(KEY_MAX_IN_FLIGHT_MEGABYTES, this.mMaxInFlightMegabytes);
+        json.put(KEY_COALESCE_PUBLICATIONS, this.mCoalescePublications);
 
         json.put(KEY_PROXY_HOST, this.mProxyHost);
         json.put(KEY_PROXY_PORT, this.mProxyPort);
@@ -430,6 +819,13 @@ public class Store extends AbstractDescribableImpl<Store> implements Serializabl
         json.put(KEY_PROXY_USERNAME, this.mProxyUsername);
         json.put(KEY_PROXY_PASSWORD, this.mProxyPassword);
 
+        json.put(KEY_MAX_CONNECTIONS, this.mMaxConnections);
+        json.put(KEY_MAX_CONNECTIONS_PER_ROUTE, this.mMaxConnectionsPerRoute);
+        json.put(KEY_IO_THREAD_COUNT, this.mIoThreadCount);
+        json.put(KEY_CONNECTION_TIME_TO_LIVE, this.mConnectionTimeToLive);
+        json.put(KEY_SESSION_REUSE, this.mSessionReuse);
+        json.put(KEY_PIPELINING, this.mPipelining);
+
         return json;
     }
 
@@ -530,10 +926,72 @@ public class Store extends AbstractDescribableImpl<Store> implements Serializabl
             return FormValidation.ok();
         }
 
+        public FormValidation doCheckUploadConcurrency(@QueryParameter final String value) {
+            return this.checkNonNegativeInteger(value, "Number of concurrent uploads");
+        }
+
+        public FormValidation doCheckDeleteConcurrency(@QueryParameter final String value) {
+            return this.checkNonNegativeInteger(value, "Number of concurrent deletions");
+        }
+
+        public FormValidation doCheckDeleteRateLimit(@QueryParameter final String value) {
+            return this.checkNonNegativeInteger(value, "Deletions per second");
+        }
+
+        public FormValidation doCheckRetentionKeepLast(@QueryParameter final String value) {
+            return this.checkNonNegativeInteger(value, "Number of versions to keep");
+        }
+
+        public FormValidation doCheckRetentionMaxAge(@QueryParameter final String value) {
+            return this.checkNonNegativeInteger(value, "Maximum age of archived versions");
+        }
+
+        public FormValidation doCheckMaxConcurrentPublications(@QueryParameter final String value) {
+            return this.checkNonNegativeInteger(value, "Maximum number of concurrent publications");
+        }
+
+        public FormValidation doCheckMaxInFlightMegabytes(@QueryParameter final String value) {
+            return this.checkNonNegativeInteger(value, "Maximum size of concurrent publications");
+        }
+
+        public FormValidation doCheckMaxConnections(@QueryParameter final String value) {
+            return this.checkNonNegativeInteger(value, "Maximum number of connections");
+        }
+
+        public FormValidation doCheckMaxConnectionsPerRoute(@QueryParameter final String value) {
+            return this.checkNonNegativeInteger(value, "Maximum number of connections per route");
+        }
+
+        public FormValidation doCheckIoThreadCount(@QueryParameter final String value) {
+            return this.checkNonNegativeInteger(value, "Number of I/O threads");
+        }
+
+        public FormValidation doCheckConnectionTimeToLive(@QueryParameter final String value) {
+            return this.checkNonNegativeInteger(value, "Connection time to live");
+        }
+
+        private FormValidation checkNonNegativeInteger(final String value, final String name) {
+
+            if (StringUtils.isBlank(value)) {
+                return FormValidation.ok();
+            }
+
+            try {
+                if (Integer.parseInt(value.trim()) < 0) {
+                    return FormValidation.error("%s must not be negative", name);
+                }
+            } catch (final NumberFormatException e) {
+                return FormValidation.error("%s must be a number", name);
+            }
+
+            return FormValidation.ok();
+        }
+
         public FormValidation doTestConnection(
                 @QueryParameter(Store.KEY_URL) final String url,
                 @QueryParameter(Store.KEY_USERNAME) final String username,
                 @QueryParameter(Store.KEY_PASSWORD) final String password,
+                @QueryParameter(Store.KEY_API_TOKEN) final String apiToken,
                 @QueryParameter(Store.KEY_PROXY_HOST) final String proxyHost,
                 @QueryParameter(Store.KEY_PROXY_PORT) final int proxyPort,
                 @QueryParameter(Store.KEY_PROXY_USERNAME) final String proxyUsername,
@@ -552,6 +1010,7 @@ public class Store extends AbstractDescribableImpl<Store> implements Serializabl
             final AuthenticatedNetwork network = new SessionManager(requestFactory);
             try {
                 final Store store = new Store(url, username, password, proxyHost, proxyPort, proxyUsername, proxyPassword);
+                store.setApiToken(apiToken);
                 final BaseRequest request = requestFactory.createAppStoreItemsRequest(store);
 
                 network.setProxy(proxyHost, proxyPort);
@@ -565,6 +1024,7 @@ public class Store extends AbstractDescribableImpl<Store> implements Serializabl
                         final ServerVersion serverVersion = network.getServerVersion();
                         return FormValidation.ok("Connection attempt successful (Relution %s)", serverVersion);
 
+                    case HttpStatus.SC_UNAUTHORIZED:
                     case HttpStatus.SC_FORBIDDEN:
                         return FormValidation.error(
                                 "Connection attempt failed, authentication error, please verify credentials (%d)",
@@ -18,20 +18,52 @@ package org.jenkinsci.plugins.relution_publisher.configuration.jobs;
 
 import org.apache.commons.lang.StringUtils;
 import org.jenkinsci.plugins.relution_publisher.builder.ArtifactFileUploader;
+import org.jenkinsci.plugins.relution_publisher.builder.ArtifactSizeCalculator;
+import org.jenkinsci.plugins.relution_publisher.builder.FanOutUploader;
+import org.jenkinsci.plugins.relution_publisher.builder.SpoolEntry;
+import org.jenkinsci.plugins.relution_publisher.builder.UploadLedger;
+import org.jenkinsci.plugins.relution_publisher.builder.UploadQueueAction;
+import org.jenkinsci.plugins.relution_publisher.builder.UploadReport;
+import org.jenkinsci.plugins.relution_publisher.builder.UploadScheduler;
+import org.jenkinsci.plugins.relution_publisher.builder.UploadScheduler.Permit;
+import org.jenkinsci.plugins.relution_publisher.builder.UploadSpool;
 import org.jenkinsci.plugins.relution_publisher.configuration.global.Store;
 import org.jenkinsci.plugins.relution_publisher.configuration.global.StoreConfiguration;
 import org.jenkinsci.plugins.relution_publisher.logging.BuildLog;
 import org.jenkinsci.plugins.relution_publisher.logging.Log;
+import org.jenkinsci.plugins.relution_publisher.logging.PrefixedLog;
+import org.jenkinsci.plugins.relution_publisher.model.FileDigests;
+import org.jenkinsci.plugins.relution_publisher.model.ReleaseStatus;
 import org.jenkinsci.plugins.relution_publisher.model.UploadMode;
+import org.jenkinsci.plugins.relution_publisher.model.UploadRecord;
+import org.jenkinsci.plugins.relution_publisher.net.CapabilityCache;
 import org.jenkinsci.plugins.relution_publisher.util.Builds;
+import org.jenkinsci.plugins.relution_publisher.util.DaemonThreadFactory;
+import org.jenkinsci.plugins.relution_publisher.util.Metrics;
 import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+import org.kohsuke.stapler.QueryParameter;
 
 import java.io.IOException;
 import java.security.AlgorithmParameterGenerator;
 import java.security.NoSuchAlgorithmException;
 import java.security.Provider;
 import java.security.Security;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.crypto.Cipher;
 import javax.inject.Inject;
@@ -47,6 +79,7 @@ import hudson.tasks.BuildStepDescriptor;
 import hudson.tasks.BuildStepMonitor;
 import hudson.tasks.Publisher;
 import hudson.tasks.Recorder;
+import hudson.util.FormValidation;
 
 
 /**
@@ -56,17 +89,71 @@ import hudson.tasks.Recorder;
 public class ArtifactPublisher extends Recorder {
 
     private final List<Publication> publications;
+    private final int               publicationConcurrency;
+    private boolean                 fanOut;
+    private boolean                 spool;
 
     @DataBoundConstructor
-    public ArtifactPublisher(final List<Publication> publications) {
+    public ArtifactPublisher(final List<Publication> publications, final int publicationConcurrency) {
         this.getDescriptor().setPublications(publications);
         this.publications = publications;
+        this.publicationConcurrency = publicationConcurrency;
+    }
+
+    public ArtifactPublisher(final List<Publication> publications) {
+        this(publications, 1);
     }
 
     public List<Publication> getPublications() {
         return this.publications;
     }
 
+    /**
+     * @return The maximum number of stores that are published to concurrently.
+     */
+    public int getPublicationConcurrency() {
+        return Math.max(this.publicationConcurrency, 1);
+    }
+
+    /**
+     * @return {@code true} if all stores are published to at the same time, reading each
+     * artifact only once; otherwise, {@code false}.
+     */
+    public boolean isFanOut() {
+        return this.fanOut;
+    }
+
+    /**
+     * Sets a value indicating whether all stores are published to at the same time, in a single
+     * pass over the artifacts. This overrides the {@link #getPublicationConcurrency() number of
+     * concurrent stores}.
+     * @param fanOut {@code true} to read each artifact once for all stores; otherwise,
+     * {@code false}.
+     */
+    @DataBoundSetter
+    public void setFanOut(final boolean fanOut) {
+        this.fanOut = fanOut;
+    }
+
+    /**
+     * @return {@code true} if artifacts are handed to the {@link UploadSpool} and published in
+     * the background; otherwise, {@code false}.
+     */
+    public boolean isSpool() {
+        return this.spool;
+    }
+
+    /**
+     * Sets a value indicating whether artifacts are handed to the {@link UploadSpool} and
+     * published in the background, so the build does not wait for the upload to complete and
+     * artifacts are published even if the store is currently unavailable.
+     * @param spool {@code true} to publish artifacts in the background; otherwise, {@code false}.
+     */
+    @DataBoundSetter
+    public void setSpool(final boolean spool) {
+        this.spool = spool;
+    }
+
     @Override
     public ArtifactPublisherDescriptor getDescriptor() {
         return (ArtifactPublisherDescriptor) super.getDescriptor();
@@ -95,17 +182,291 @@ public class ArtifactPublisher extends Recorder {
             this.logRuntimeInformation(log);
             this.logProviderInformation(log);
             this.logKeyLengthInformation(log);
+            this.logMetrics(log);
         }
 
-        for (final Publication publication : this.publications) {
-            final Store store = configuration.getStore(publication.getStoreId());
-            this.publish(build, publication, store, log);
+        final Result buildResult = build.getResult();
+        final Map<Store, List<Publication>> publicationsByStore = this.groupByStore(build, buildResult, configuration, log);
+        final int concurrency = Math.min(this.getPublicationConcurrency(), publicationsByStore.size());
+
+        if (this.spool) {
+            this.publishSpooled(build, buildResult, publicationsByStore, log);
+            return true;
+        }
+
+        if (this.fanOut && publicationsByStore.size() > 1) {
+            this.publishFanOut(build, buildResult, publicationsByStore, log);
+            return true;
+        }
+
+        if (concurrency > 1) {
+            this.publishConcurrently(build, buildResult, publicationsByStore, concurrency, log);
+            return true;
+        }
+
+        for (final Entry<Store, List<Publication>> entry : publicationsByStore.entrySet()) {
+            final Result result = this.publish(build, build.getResult(), entry.getKey(), entry.getValue(), log);
+            this.mergeResult(build, result, log);
             log.write();
         }
 
         return true;
     }
 
+    /**
+     * Groups the publications that should be published by the store they target, so all
+     * publications for a store can be published using a single session. Publications whose store
+     * no longer exists, or that should not be published due to the build's result, are skipped.
+     */
+    private Map<Store, List<Publication>> groupByStore(
+            final AbstractBuild<?, ?> build,
+            final Result result,
+            final StoreConfiguration configuration,
+            final Log log) {
+
+        final Map<Store, List<Publication>> publicationsByStore = new LinkedHashMap<>();
+
+        for (final Publication publication : this.publications) {
+            final Store store = configuration.getStore(publication.getStoreId());
+
+            if (store == null) {
+                log.write(
+                        this,
+                        "The store configured for '%s' no longer exists, please verify your configuration.",
+                        publication.getArtifactPath());
+
+                Builds.setResult(build, Result.UNSTABLE, log);
+                continue;
+            }
+
+            if (!this.shouldPublish(result, publication, store, log)) {
+                log.write(this, "Not publishing '%s' to '%s' because result of build was %s.", publication.getArtifactPath(), store, result);
+                continue;
+            }
+
+            List<Publication> publications = publicationsByStore.get(store);
+
+            if (publications == null) {
+                publications = new ArrayList<>();
+                publicationsByStore.put(store, publications);
+            }
+            publications.add(publication);
+        }
+
+        return publicationsByStore;
+    }
+
+    /**
+     * Publishes to all stores using a bounded number of concurrent tasks. All publications are
+     * published based on the result of the build at the time publishing started. The result of
+     * each store is merged into the build's result in the order the stores are first referenced
+     * by a publication, once all stores have completed.
+     */
+    private void publishConcurrently(
+            final AbstractBuild<?, ?> build,
+            final Result buildResult,
+            final Map<Store, List<Publication>> publicationsByStore,
+            final int concurrency,
+            final Log log) throws InterruptedException {
+
+        log.write(this, "Publishing to %d stores, %d at a time…", publicationsByStore.size(), concurrency);
+        log.write();
+
+        final ExecutorService executor = Executors.newFixedThreadPool(concurrency, new DaemonThreadFactory("Relution publisher"));
+        final List<Future<Result>> futures = new ArrayList<>();
+        final List<Store> stores = new ArrayList<>();
+
+        try {
+            for (final Entry<Store, List<Publication>> entry : publicationsByStore.entrySet()) {
+                final Store store = entry.getKey();
+                final List<Publication> publications = entry.getValue();
+                final Log storeLog = new PrefixedLog(log, String.format("<%d>", stores.size() + 1));
+
+                final Future<Result> future = executor.submit(new Callable<Result>() {
+
+                    @Override
+                    public Result call() throws Exception {
+                        return ArtifactPublisher.this.publish(build, buildResult, store, publications, storeLog);
+                    }
+                });
+                futures.add(future);
+                stores.add(store);
+            }
+
+            for (int index = 0; index < futures.size(); index++) {
+                final Result result = this.await(futures.get(index), stores.get(index), log);
+                this.mergeResult(build, result, log);
+            }
+
+        } finally {
+            executor.shutdownNow();
+
+        }
+        log.write();
+    }
+
+    /**
+     * Publishes to all stores at the same time, using a single task on the node that contains
+     * the artifacts. The artifacts of all publications are digested once and the digests are
+     * shared by the uploaders of all stores. The result of each store is merged into the build's
+     * result in the order the stores are first referenced by a publication.
+     */
+    private void publishFanOut(
+            final AbstractBuild<?, ?> build,
+            final Result buildResult,
+            final Map<Store, List<Publication>> publicationsByStore,
+            final Log log) throws IOException, InterruptedException {
+
+        final FilePath workspace = build.getWorkspace();
+
+        if (workspace == null) {
+            log.write(this, "Unable to publish, workspace of build is undefined.");
+            return;
+        }
+
+        log.write(this, "Publishing to %d stores in a single pass…", publicationsByStore.size());
+        log.write();
+
+        // Permits are acquired in the order of the store identifiers, so two builds that fan out
+        // to the same stores cannot wait for each other
+        final List<Store> sortedStores = new ArrayList<>(publicationsByStore.keySet());
+        Collections.sort(sortedStores, new Comparator<Store>() {
+
+            @Override
+            public int compare(final Store lhs, final Store rhs) {
+                return lhs.getId().compareTo(rhs.getId());
+            }
+        });
+
+        final UploadLedger ledger = UploadLedger.getInstance();
+        final Map<Store, Permit> permits = new HashMap<>();
+
+        try {
+            for (final Store store : sortedStores) {
+                permits.put(store, this.acquirePermit(build, workspace, store, publicationsByStore.get(store), log));
+            }
+
+            final List<Publication> publications = new ArrayList<>();
+
+            for (final Entry<Store, List<Publication>> entry : publicationsByStore.entrySet()) {
+                if (!permits.get(entry.getKey()).isSuperseded()) {
+                    publications.addAll(entry.getValue());
+                }
+            }
+
+            if (publications.isEmpty()) {
+                return;
+            }
+
+            // The digests are shared, the uploaders of all stores receive the same instance
+            final FileDigests digests = ledger.getDigests(workspace, publications, log);
+
+            final List<ArtifactFileUploader> uploaders = new ArrayList<>();
+            final List<Store> stores = new ArrayList<>();
+            int number = 0;
+
+            for (final Entry<Store, List<Publication>> entry : publicationsByStore.entrySet()) {
+                final Store store = entry.getKey();
+                final Log storeLog = new PrefixedLog(log, String.format("<%d>", ++number));
+
+                if (!permits.get(store).isSuperseded()) {
+                    uploaders.add(this.createUploader(buildResult, store, entry.getValue(), digests, ledger, storeLog));
+                    stores.add(store);
+                }
+            }
+
+            final List<UploadReport> reports = workspace.act(new FanOutUploader(uploaders));
+
+            for (int index = 0; index < reports.size(); index++) {
+                final UploadReport report = reports.get(index);
+                this.recordUploads(ledger, stores.get(index), report, log);
+                this.mergeResult(build, report.getResult(), log);
+            }
+
+        } finally {
+            for (final Permit permit : permits.values()) {
+                UploadScheduler.getInstance().release(permit);
+            }
+
+        }
+        log.write();
+    }
+
+    /**
+     * Hands the artifacts of all publications to the {@link UploadSpool}, which publishes them in
+     * the background. The build is marked as unstable if the artifacts of a store could not be
+     * spooled.
+     */
+    private void publishSpooled(
+            final AbstractBuild<?, ?> build,
+            final Result buildResult,
+            final Map<Store, List<Publication>> publicationsByStore,
+            final Log log) throws InterruptedException {
+
+        final FilePath workspace = build.getWorkspace();
+
+        if (workspace == null) {
+            log.write(this, "Unable to publish, workspace of build is undefined.");
+            return;
+        }
+
+        final UploadSpool spool = UploadSpool.getInstance();
+
+        for (final Entry<Store, List<Publication>> entry : publicationsByStore.entrySet()) {
+            final Store store = entry.getKey();
+            final List<Publication> publications = entry.getValue();
+
+            for (final Publication publication : publications) {
+                log.write(this, "Spooling '%s' for '%s'", publication.getArtifactPath(), store.toString());
+            }
+
+            try {
+                final SpoolEntry spooled = spool.enqueue(
+                        build,
+                        workspace,
+                        store,
+                        publications,
+                        buildResult,
+                        this.getCoalescingGroup(store, publications),
+                        this.isRelease(store, publications));
+
+                final int superseded = spool.supersede(spooled);
+
+                if (superseded < 0) {
+                    log.write(this, "Not spooling for '%s', superseded by a newer build of this job.", store);
+
+                } else if (superseded > 0) {
+                    log.write(this, "Replaced %d spooled publication(s) of older builds for '%s'", superseded, store);
+                }
+
+            } catch (final IOException e) {
+                log.write(this, "Unable to spool artifacts for '%s'.\n\n%s\n", store, e);
+                Builds.setResult(build, Result.UNSTABLE, log);
+
+            }
+        }
+
+        log.write(this, "Spooled artifacts will be published in the background.");
+        log.write();
+    }
+
+    private Result await(final Future<Result> future, final Store store, final Log log) throws InterruptedException {
+        try {
+            return future.get();
+
+        } catch (final ExecutionException e) {
+            log.write(this, "Publishing to '%s' failed, error during execution:\n\n%s\n", store, e.getCause());
+            return Result.FAILURE;
+
+        }
+    }
+
+    private void mergeResult(final AbstractBuild<?, ?> build, final Result result, final Log log) {
+        if (result != null) {
+            Builds.setResult(build, result, log);
+        }
+    }
+
     private void logRuntimeInformation(final Log log) {
         log.write(this, "Java VM     : %s, %s", System.getProperty("java.vm.name"), System.getProperty("java.version"));
         log.write(this, "Java home   : %s", System.getProperty("java.home"));
@@ -127,6 +488,15 @@ public class ArtifactPublisher extends Recorder {
         log.write();
     }
 
+    private void logMetrics(final Log log) {
+        log.write(this, "Metrics (controller):");
+
+        for (final Entry<String, Long> entry : Metrics.snapshot().entrySet()) {
+            log.write(this, "%s: %d", entry.getKey(), entry.getValue());
+        }
+        log.write();
+    }
+
     private void logKeyLengthInformation(final Log log) {
         try {
             final int maxKeyLength = Cipher.getMaxAllowedKeyLength("AES");
@@ -156,48 +526,174 @@ public class ArtifactPublisher extends Recorder {
         }
     }
 
-    private void publish(final AbstractBuild<?, ?> build, final Publication publication, final Store store, final Log log)
-            throws IOException, InterruptedException {
+    /**
+     * Publishes the specified publications to the specified store, using a single session.
+     * @return The {@link Result} of the publications, or {@code null} if nothing was published.
+     */
+    private Result publish(
+            final AbstractBuild<?, ?> build,
+            final Result result,
+            final Store store,
+            final List<Publication> publications,
+            final Log log) throws IOException, InterruptedException {
 
-        if (store == null) {
-            log.write(
-                    this,
-                    "The store configured for '%s' no longer exists, please verify your configuration.",
-                    publication.getArtifactPath());
+        final FilePath workspace = build.getWorkspace();
 
-            Builds.setResult(build, Result.UNSTABLE, log);
-            return;
+        if (workspace == null) {
+            log.write(this, "Unable to publish, workspace of build is undefined.");
+            return null;
         }
 
-        if (!this.shouldPublish(build, publication, store, log)) {
-            log.write(this, "Not publishing to '%s' because result of build was %s.", store, build.getResult());
-            return;
+        final Permit permit = this.acquirePermit(build, workspace, store, publications, log);
+
+        try {
+            if (permit.isSuperseded()) {
+                return null;
+            }
+
+            // Digest the artifacts only once the build may publish, the files can change while
+            // it waits and a superseded build does not need the digests at all
+            final UploadLedger ledger = UploadLedger.getInstance();
+            final FileDigests digests = ledger.getDigests(workspace, publications, log);
+            final ArtifactFileUploader publisher = this.createUploader(result, store, publications, digests, ledger, log);
+
+            final UploadReport report = workspace.act(publisher);
+            this.recordUploads(ledger, store, report, log);
+            return report.getResult();
+
+        } finally {
+            UploadScheduler.getInstance().release(permit);
+
+        }
+    }
+
+    /**
+     * Waits until the {@link UploadScheduler} allows the build to publish to the specified store
+     * and records the time the build waited.
+     */
+    private Permit acquirePermit(
+            final AbstractBuild<?, ?> build,
+            final FilePath workspace,
+            final Store store,
+            final List<Publication> publications,
+            final Log log) throws IOException, InterruptedException {
+
+        final long bytes = (store.getMaxInFlightMegabytes() > 0)
+                ? workspace.act(new ArtifactSizeCalculator(publications))
+                : 0;
+
+        final String job = build.getParent().getFullName();
+        final String group = this.getCoalescingGroup(store, publications);
+        final Permit permit = UploadScheduler.getInstance().acquire(
+                store,
+                job,
+                build.getNumber(),
+                group,
+                this.isRelease(store, publications),
+                bytes);
+
+        if (permit.getWaitTime() > 0) {
+            log.write(this, "Waited %,d ms for other builds to finish publishing to '%s'", permit.getWaitTime(), store);
         }
 
-        final Result result = build.getResult();
-        final ArtifactFileUploader publisher = new ArtifactFileUploader(result, publication, store, log);
+        if (permit.isSuperseded()) {
+            log.write(this, "Not publishing to '%s', superseded by a newer build of this job.", store);
+        }
+
+        synchronized (build) {
+            UploadQueueAction action = build.getAction(UploadQueueAction.class);
 
-        log.write(this, "Publishing '%s' to '%s'", publication.getArtifactPath(), store.toString());
+            if (action == null) {
+                action = new UploadQueueAction();
+                build.addAction(action);
+            }
+            action.add(store.getId(), permit.getWaitTime());
+        }
+        return permit;
+    }
+
+    /**
+     * Returns the group of publications that supersede each other if the store coalesces
+     * publications. Publications of the same job are in the same group if they upload to the
+     * same release statuses.
+     * @return The group of the publications, or {@code null} if the store does not coalesce
+     * publications.
+     */
+    private String getCoalescingGroup(final Store store, final List<Publication> publications) {
+        if (!store.isCoalescePublications()) {
+            return null;
+        }
+
+        final Set<String> releaseStatuses = new TreeSet<>();
+
+        for (final Publication publication : publications) {
+            releaseStatuses.add(!publication.usesDefaultReleaseStatus()
+                    ? publication.getReleaseStatus()
+                    : store.getReleaseStatus());
+        }
+        return StringUtils.join(releaseStatuses, ",");
+    }
+
+    private boolean isRelease(final Store store, final List<Publication> publications) {
+        for (final Publication publication : publications) {
+            final String releaseStatus = !publication.usesDefaultReleaseStatus()
+                    ? publication.getReleaseStatus()
+                    : store.getReleaseStatus();
+
+            if (StringUtils.equals(releaseStatus, ReleaseStatus.RELEASE.key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Creates the {@link ArtifactFileUploader} that publishes the specified publications to the
+     * specified store, skipping files the ledger records as already published. The files must
+     * have been digested, see {@link UploadLedger#getDigests(FilePath, List, Log)}.
+     */
+    private ArtifactFileUploader createUploader(
+            final Result result,
+            final Store store,
+            final List<Publication> publications,
+            final FileDigests digests,
+            final UploadLedger ledger,
+            final Log log) {
+
+        final List<UploadRecord> published = ledger.getPublishedRecords(store, digests, log);
+
+        for (final Publication publication : publications) {
+            log.write(this, "Publishing '%s' to '%s'", publication.getArtifactPath(), store.toString());
+        }
         if (!StringUtils.isEmpty(store.getProxyHost()) && store.getProxyPort() > 0) {
             log.write(this, "…via proxy %s:%d", store.getProxyHost(), store.getProxyPort());
         }
         if (!StringUtils.isEmpty(store.getProxyUsername())) {
             log.write(this, "…using proxy authentication");
         }
-        final FilePath workspace = build.getWorkspace();
+        final ArtifactFileUploader uploader = new ArtifactFileUploader(result, publications, store, published, log);
+        uploader.setDigests(digests);
+        uploader.setLogMetrics(this.getDescriptor().getGlobalConfiguration().isDebugEnabled());
+        return uploader;
+    }
 
-        if (workspace == null) {
-            log.write(this, "Unable to publish, workspace of build is undefined.");
-            return;
-        }
+    private void recordUploads(final UploadLedger ledger, final Store store, final UploadReport report, final Log log) {
+        // The upload ran on the node, keep the controller's capabilities of the store current
+        CapabilityCache.getInstance().put(store, report.getServerVersion());
 
-        final Result newResult = workspace.act(publisher);
-        Builds.setResult(build, newResult, log);
+        try {
+            ledger.append(store, report.getRecords());
+            ledger.removeAssets(store, report.getDeletedAssets());
+
+        } catch (final IOException e) {
+            log.write(this, "Unable to update upload ledger.\n\n%s\n", e);
+
+        }
     }
 
-    private boolean shouldPublish(final AbstractBuild<?, ?> build, final Publication publication, final Store store, final Log log) {
+    private boolean shouldPublish(final Result result, final Publication publication, final Store store, final Log log) {
 
-        if (build.getResult() == Result.SUCCESS) {
+        if (result == Result.SUCCESS) {
             return true;
         }
 
@@ -205,8 +701,8 @@ public class ArtifactPublisher extends Recorder {
                 ? publication.getUploadMode()
                 : store.getUploadMode();
 
-        if (build.getResult() == Result.UNSTABLE && StringUtils.equals(key, UploadMode.UNSTABLE.key)) {
-            log.write(this, "Will upload build with result %s, as configured", build.getResult());
+        if (result == Result.UNSTABLE && StringUtils.equals(key, UploadMode.UNSTABLE.key)) {
+            log.write(this, "Will upload build with result %s, as configured", result);
             return true;
         }
 
@@ -247,6 +743,23 @@ public class ArtifactPublisher extends Recorder {
             this.publications = publications;
         }
 
+        public FormValidation doCheckPublicationConcurrency(@QueryParameter final String value) {
+
+            if (StringUtils.isBlank(value)) {
+                return FormValidation.ok();
+            }
+
+            try {
+                if (Integer.parseInt(value.trim()) < 0) {
+                    return FormValidation.error("Number of concurrent publications must not be negative");
+                }
+            } catch (final NumberFormatException e) {
+                return FormValidation.error("Number of concurrent publications must be a number");
+            }
+
+            return FormValidation.ok();
+        }
+
         @Override
         @SuppressWarnings("rawtypes")
         public boolean isApplicable(final Class<? extends AbstractProject> clazz) {
@@ -20,7 +20,7 @@ import org.jenkinsci.plugins.relution_publisher.builder.MultiRequestUploader;
 import org.jenkinsci.plugins.relution_publisher.builder.SingleRequestUploader;
 import org.jenkinsci.plugins.relution_publisher.builder.Uploader;
 import org.jenkinsci.plugins.relution_publisher.logging.Log;
-import org.jenkinsci.plugins.relution_publisher.model.ServerVersion;
+import org.jenkinsci.plugins.relution_publisher.model.ServerCapabilities;
 import org.jenkinsci.plugins.relution_publisher.net.Network;
 import org.jenkinsci.plugins.relution_publisher.net.RequestFactory;
 
@@ -41,13 +41,11 @@ public class UploaderFactory implements Serializable {
      * <a href="http://docs.oracle.com/javase/6/docs/platform/serialization/spec/version.html">
      * Versioning of Serializable Objects</a>.
      */
-    private static final long          serialVersionUID = 1L;
+    private static final long    serialVersionUID = 1L;
 
-    private static final ServerVersion RELUTION_3_36    = new ServerVersion("3.36");
-
-    private final RequestFactory       requestFactory;
-    private final Network              network;
-    private final Log                  log;
+    private final RequestFactory requestFactory;
+    private final Network        network;
+    private final Log            log;
 
     public UploaderFactory(final RequestFactory requestFactory, final Network network, final Log log) {
         this.requestFactory = requestFactory;
@@ -55,8 +53,8 @@ public class UploaderFactory implements Serializable {
         this.log = log;
     }
 
-    public Uploader createUploader(final ServerVersion version) {
-        if (version.compareTo(RELUTION_3_36) >= 0) {
+    public Uploader createUploader(final ServerCapabilities capabilities) {
+        if (capabilities.supportsSingleRequestUpload()) {
             return new SingleRequestUploader(
                     this.requestFactory,
                     this.network,
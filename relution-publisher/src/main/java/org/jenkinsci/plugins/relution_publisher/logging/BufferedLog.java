@@ -0,0 +1,117 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jenkinsci.plugins.relution_publisher.logging;
+
+import java.io.PrintWriter;
+import java.io.Serializable;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * A {@link Log} that buffers messages in memory until they are {@link #flush() flushed} to
+ * another log.
+ * <p>
+ * This is used by tasks that run concurrently, so the messages of each task appear as one
+ * contiguous block in the build log instead of being interleaved with the messages of other
+ * tasks.
+ */
+public class BufferedLog implements Log {
+
+    /**
+     * The serial version number of this class.
+     * <p>
+     * This version number is used to determine whether a serialized representation of this class
+     * is compatible with the current implementation of the class.
+     * <p>
+     * <b>Note</b> Maintainers must change this value <b>if and only if</b> the new version of this
+     * class is not compatible with old versions.
+     * @see
+     * <a href="http://docs.oracle.com/javase/6/docs/platform/serialization/spec/version.html">
+     * Versioning of Serializable Objects</a>.
+     */
+    private static final long   serialVersionUID = 1L;
+
+    private final Log           log;
+    private final List<Message> messages         = new ArrayList<>();
+
+    /**
+     * Initializes a new instance of the {@link BufferedLog} class.
+     * @param log The {@link Log} to which buffered messages are written when the log is flushed.
+     */
+    public BufferedLog(final Log log) {
+        this.log = log;
+    }
+
+    private static String valueOf(final Throwable t) {
+        final StringWriter sw = new StringWriter();
+        final PrintWriter pw = new PrintWriter(sw);
+
+        t.printStackTrace(pw);
+
+        return sw.toString();
+    }
+
+    @Override
+    public synchronized void write() {
+        this.messages.add(new Message(null, null));
+    }
+
+    @Override
+    public synchronized void write(final Class<?> source, final String format, final Object... args) {
+        this.messages.add(new Message(source, String.format(format, args)));
+    }
+
+    @Override
+    public void write(final Object source, final String format, final Object... args) {
+        this.write(source.getClass(), format, args);
+    }
+
+    @Override
+    public void write(final Object source, final String format, final Throwable t) {
+        this.write(source.getClass(), format, valueOf(t));
+    }
+
+    /**
+     * Writes all buffered messages to the underlying log, in the order in which they were
+     * written, and clears the buffer.
+     */
+    public synchronized void flush() {
+        for (final Message message : this.messages) {
+            if (message.source == null) {
+                this.log.write();
+            } else {
+                this.log.write(message.source, "%s", message.text);
+            }
+        }
+        this.messages.clear();
+    }
+
+    private static class Message implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Class<?>    source;
+        private final String      text;
+
+        public Message(final Class<?> source, final String text) {
+            this.source = source;
+            this.text = text;
+        }
+    }
+}
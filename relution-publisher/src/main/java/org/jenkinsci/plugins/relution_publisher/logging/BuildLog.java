@@ -19,7 +19,7 @@ package org.jenkinsci.plugins.relution_publisher.logging;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 
-import hudson.model.BuildListener;
+import hudson.model.TaskListener;
 
 
 public class BuildLog implements Log {
@@ -38,9 +38,9 @@ public class BuildLog implements Log {
      */
     private static final long   serialVersionUID = 1L;
 
-    private final BuildListener listener;
+    private final TaskListener  listener;
 
-    public BuildLog(final BuildListener listener) {
+    public BuildLog(final TaskListener listener) {
         this.listener = listener;
     }
 
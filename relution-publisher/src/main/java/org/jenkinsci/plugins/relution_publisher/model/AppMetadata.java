@@ -0,0 +1,60 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jenkinsci.plugins.relution_publisher.model;
+
+/**
+ * The identity and version of an app, as declared by the app's package file.
+ */
+public class AppMetadata {
+
+    private final String  identifier;
+    private final Integer versionCode;
+    private final String  versionName;
+
+    /**
+     * Initializes a new instance of the {@link AppMetadata} class.
+     * @param identifier The package name or bundle identifier of the app.
+     * @param versionCode The version code of the app, or {@code null} if it is unknown.
+     * @param versionName The version name of the app, or {@code null} if it is unknown.
+     */
+    public AppMetadata(final String identifier, final Integer versionCode, final String versionName) {
+        this.identifier = identifier;
+        this.versionCode = versionCode;
+        this.versionName = versionName;
+    }
+
+    /**
+     * @return The package name (Android) or bundle identifier (iOS) of the app.
+     */
+    public String getIdentifier() {
+        return this.identifier;
+    }
+
+    /**
+     * @return The version code of the app, or {@code null} if it is unknown.
+     */
+    public Integer getVersionCode() {
+        return this.versionCode;
+    }
+
+    /**
+     * @return The version name of the app, or {@code null} if it is unknown.
+     */
+    public String getVersionName() {
+        return this.versionName;
+    }
+}
@@ -21,6 +21,8 @@ import org.jenkinsci.plugins.relution_publisher.configuration.jobs.Publication;
 
 import java.io.File;
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
 
 import hudson.model.Result;
 
@@ -42,13 +44,17 @@ public class Artifact implements Serializable, ResultHolder {
      * <a href="http://docs.oracle.com/javase/6/docs/platform/serialization/spec/version.html">
      * Versioning of Serializable Objects</a>.
      */
-    private static final long serialVersionUID = 1L;
+    private static final long        serialVersionUID = 1L;
 
-    private final Store       store;
-    private final File        basePath;
-    private final Publication publication;
+    private final Store              store;
+    private final File               basePath;
+    private final Publication        publication;
+    private final FileDigests        digests;
 
-    private Result            result;
+    private final List<UploadRecord> records          = new ArrayList<>();
+    private final List<String>       deletedAssets    = new ArrayList<>();
+
+    private Result                   result;
 
     /**
      * Creates a new instance of the {@link Artifact} class.
@@ -58,9 +64,22 @@ public class Artifact implements Serializable, ResultHolder {
      * @param result The {@link Result} of the build.
      */
     public Artifact(final Store store, final File basePath, final Publication publication, final Result result) {
+        this(store, basePath, publication, result, new FileDigests());
+    }
+
+    /**
+     * Creates a new instance of the {@link Artifact} class.
+     * @param store The {@link Store} to which the artifact should be published.
+     * @param basePath The base path of the workspace that contains the artifact.
+     * @param publication The {@link Publication} that describes the file(s) to be published.
+     * @param result The {@link Result} of the build.
+     * @param digests The {@link FileDigests} of files that have already been digested.
+     */
+    public Artifact(final Store store, final File basePath, final Publication publication, final Result result, final FileDigests digests) {
         this.store = store;
         this.basePath = basePath;
         this.publication = publication;
+        this.digests = digests;
 
         this.result = result;
     }
@@ -96,6 +115,47 @@ public class Artifact implements Serializable, ResultHolder {
         return this.publication;
     }
 
+    /**
+     * @return The {@link FileDigests} used to digest the files of the artifact, which contains
+     * the digests computed before the upload.
+     */
+    public FileDigests getDigests() {
+        return this.digests;
+    }
+
+    /**
+     * Records that a file of the artifact has been published successfully.
+     * @param record The {@link UploadRecord} that describes the published file.
+     */
+    public synchronized void addRecord(final UploadRecord record) {
+        this.records.add(record);
+    }
+
+    /**
+     * @return The {@link UploadRecord}s of the files of the artifact that have been published.
+     */
+    public synchronized List<UploadRecord> getRecords() {
+        return new ArrayList<>(this.records);
+    }
+
+    /**
+     * Records that a version has been deleted from the artifact's store.
+     * @param assetUuid The UUID of the version's file on the server.
+     */
+    public synchronized void addDeletedAsset(final String assetUuid) {
+        if (assetUuid != null) {
+            this.deletedAssets.add(assetUuid);
+        }
+    }
+
+    /**
+     * @return The UUIDs of the files of the versions that have been deleted from the artifact's
+     * store.
+     */
+    public synchronized List<String> getDeletedAssets() {
+        return new ArrayList<>(this.deletedAssets);
+    }
+
     /**
      * @return The {@link Result} of the build that produced the artifact.
      */
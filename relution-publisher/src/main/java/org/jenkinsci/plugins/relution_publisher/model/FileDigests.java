@@ -0,0 +1,152 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jenkinsci.plugins.relution_publisher.model;
+
+import org.jenkinsci.plugins.relution_publisher.util.Digests;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import javax.xml.bind.DatatypeConverter;
+
+
+/**
+ * Holds the SHA-256 digests of the files of one or more publications, so each file is digested
+ * once per upload. The digests are computed on the node that contains the files, before the
+ * upload index is looked up, and are sent back to the node along with the uploader.
+ * <p>
+ * The MD5 checksum of a file is computed in the same pass, so the checksums that are sent along
+ * with the file do not require the file to be read again. Directories have no MD5 checksum, the
+ * checksums of the zip archive are computed while it is sent.
+ * <p>
+ * A digest is only reused if the size and modification time of its file are unchanged,
+ * otherwise the file is digested again.
+ */
+public class FileDigests implements Serializable {
+
+    /**
+     * The serial version number of this class.
+     * <p>
+     * This version number is used to determine whether a serialized representation of this class
+     * is compatible with the current implementation of the class.
+     * <p>
+     * <b>Note</b> Maintainers must change this value <b>if and only if</b> the new version of this
+     * class is not compatible with old versions.
+     * @see
+     * <a href="http://docs.oracle.com/javase/6/docs/platform/serialization/spec/version.html">
+     * Versioning of Serializable Objects</a>.
+     */
+    private static final long        serialVersionUID = 1L;
+
+    private final Map<String, Entry> entries          = new HashMap<>();
+
+    /**
+     * Returns the SHA-256 digest of the specified file, which is computed if the file has not
+     * been digested yet or has changed since.
+     * @param file The {@link File} to digest, can be a directory.
+     * @return The digest, as a lower case hexadecimal string.
+     * @throws IOException The file could not be read.
+     * @see Digests#sha256(File)
+     */
+    public String sha256(final File file) throws IOException {
+        return this.getEntry(file).sha256;
+    }
+
+    /**
+     * Returns the MD5 checksum of the specified file, which is computed along with its SHA-256
+     * digest.
+     * @param file The {@link File} to digest.
+     * @return The checksum, Base64 encoded, or {@code null} if the file is a directory.
+     * @throws IOException The file could not be read.
+     */
+    public String md5(final File file) throws IOException {
+        return this.getEntry(file).md5;
+    }
+
+    private Entry getEntry(final File file) throws IOException {
+        final String key = file.getAbsolutePath();
+
+        synchronized (this) {
+            final Entry entry = this.entries.get(key);
+
+            if (entry != null && entry.isCurrent(file)) {
+                return entry;
+            }
+        }
+
+        // Files are digested concurrently by some uploaders, do not hold the lock while reading
+        final Entry entry = new Entry(file);
+
+        if (file.isDirectory()) {
+            entry.sha256 = Digests.sha256(file);
+        } else {
+            final MessageDigest sha256 = Digests.newSha256();
+            final MessageDigest md5 = Digests.newMd5();
+            Digests.update(file, sha256, md5);
+
+            entry.sha256 = Digests.toHex(sha256.digest());
+            entry.md5 = DatatypeConverter.printBase64Binary(md5.digest());
+        }
+
+        synchronized (this) {
+            this.entries.put(key, entry);
+        }
+        return entry;
+    }
+
+    /**
+     * @return The SHA-256 digests of all files that have been digested.
+     */
+    public synchronized Set<String> getSha256s() {
+        final Set<String> digests = new HashSet<>();
+
+        for (final Entry entry : this.entries.values()) {
+            digests.add(entry.sha256);
+        }
+        return digests;
+    }
+
+    private static class Entry implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final long        length;
+        private final long        lastModified;
+
+        private String            sha256;
+        private String            md5;
+
+        /**
+         * Captures the size and modification time of the file before it is read, so a change
+         * made while the file is read invalidates the digest.
+         */
+        Entry(final File file) {
+            this.length = file.length();
+            this.lastModified = file.lastModified();
+        }
+
+        boolean isCurrent(final File file) {
+            return this.length == file.length() && this.lastModified == file.lastModified();
+        }
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jenkinsci.plugins.relution_publisher.model;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import org.jenkinsci.plugins.relution_publisher.configuration.global.Store;
+import org.jenkinsci.plugins.relution_publisher.model.entities.App;
+import org.jenkinsci.plugins.relution_publisher.model.entities.Version;
+import org.jenkinsci.plugins.relution_publisher.util.Json;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Determines which versions of an app are no longer retained by a store.
+ * <p>
+ * A version is expired if at least {@link Store#getRetentionKeepLast()} newer versions with the
+ * same release status exist, or if it is archived and older than
+ * {@link Store#getRetentionMaxAge()} days. Versions without a creation date are never expired,
+ * since their age is unknown, and do not count towards the versions to keep.
+ */
+public class RetentionPolicy {
+
+    /**
+     * The release status of versions that have been moved to the archive.
+     */
+    public final static String                  RELEASE_STATUS_ARCHIVE = "ARCHIVE";
+
+    /**
+     * Orders versions by creation date, newest first. Versions created at the same time are
+     * ordered by version code.
+     */
+    private final static Comparator<JsonObject> NEWEST_FIRST           = new Comparator<JsonObject>() {
+
+        @Override
+        public int compare(final JsonObject lhs, final JsonObject rhs) {
+            final long lhsDate = Json.getLong(lhs, Version.CREATION_DATE);
+            final long rhsDate = Json.getLong(rhs, Version.CREATION_DATE);
+
+            if (lhsDate != rhsDate) {
+                return (lhsDate > rhsDate) ? -1 : 1;
+            }
+
+            final int lhsCode = Json.getInt(lhs, Version.VERSION_CODE);
+            final int rhsCode = Json.getInt(rhs, Version.VERSION_CODE);
+            return (lhsCode > rhsCode) ? -1 : (lhsCode == rhsCode) ? 0 : 1;
+        }
+    };
+
+    private final int                           keepLast;
+    private final int                           maxAge;
+
+    /**
+     * Initializes a new instance of the {@link RetentionPolicy} class.
+     * @param keepLast The number of versions to keep per release status, or zero to not expire
+     * versions by count.
+     * @param maxAge The maximum age of archived versions in days, or zero to not expire archived
+     * versions by age.
+     */
+    public RetentionPolicy(final int keepLast, final int maxAge) {
+        this.keepLast = keepLast;
+        this.maxAge = maxAge;
+    }
+
+    /**
+     * Initializes a new instance of the {@link RetentionPolicy} class.
+     * @param store The {@link Store} whose retention settings to use.
+     */
+    public RetentionPolicy(final Store store) {
+        this(store.getRetentionKeepLast(), store.getRetentionMaxAge());
+    }
+
+    /**
+     * @return {@code true} if the policy expires any versions; otherwise, {@code false}.
+     */
+    public boolean isEnabled() {
+        return this.keepLast > 0 || this.maxAge > 0;
+    }
+
+    /**
+     * Returns the versions of the specified app that are expired according to this policy.
+     * @param app The app whose versions to check.
+     * @param now The current time, in milliseconds since the epoch.
+     * @return The expired versions, newest first within each release status.
+     */
+    public List<JsonObject> getExpiredVersions(final JsonObject app, final long now) {
+        final List<JsonObject> expired = new ArrayList<>();
+
+        if (!this.isEnabled()) {
+            return expired;
+        }
+
+        final long maxAgeMillis = TimeUnit.DAYS.toMillis(this.maxAge);
+
+        for (final List<JsonObject> versions : this.groupByReleaseStatus(app).values()) {
+            Collections.sort(versions, NEWEST_FIRST);
+
+            for (int index = 0; index < versions.size(); index++) {
+                final JsonObject version = versions.get(index);
+
+                if (this.keepLast > 0 && index >= this.keepLast) {
+                    expired.add(version);
+
+                } else if (this.maxAge > 0 && this.isArchived(version) && now - Json.getLong(version, Version.CREATION_DATE) > maxAgeMillis) {
+                    expired.add(version);
+
+                }
+            }
+        }
+        return expired;
+    }
+
+    private Map<String, List<JsonObject>> groupByReleaseStatus(final JsonObject app) {
+        final Map<String, List<JsonObject>> versionsByStatus = new LinkedHashMap<>();
+        final JsonArray versions = Json.getArray(app, App.VERSIONS);
+
+        for (final JsonElement element : versions) {
+            final JsonObject version = element.getAsJsonObject();
+
+            if (Json.isNull(version, Version.CREATION_DATE)) {
+                continue;
+            }
+
+            final String releaseStatus = Json.getString(version, Version.RELEASE_STATUS);
+
+            List<JsonObject> group = versionsByStatus.get(releaseStatus);
+
+            if (group == null) {
+                group = new ArrayList<>();
+                versionsByStatus.put(releaseStatus, group);
+            }
+            group.add(version);
+        }
+        return versionsByStatus;
+    }
+
+    private boolean isArchived(final JsonObject version) {
+        return RELEASE_STATUS_ARCHIVE.equals(Json.getString(version, Version.RELEASE_STATUS));
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jenkinsci.plugins.relution_publisher.model;
+
+import java.io.Serializable;
+
+
+/**
+ * Describes the features supported by a Relution server, derived from its {@link ServerVersion}.
+ */
+public class ServerCapabilities implements Serializable {
+
+    /**
+     * The serial version number of this class.
+     * <p>
+     * This version number is used to determine whether a serialized representation of this class
+     * is compatible with the current implementation of the class.
+     * <p>
+     * <b>Note</b> Maintainers must change this value <b>if and only if</b> the new version of this
+     * class is not compatible with old versions.
+     * @see
+     * <a href="http://docs.oracle.com/javase/6/docs/platform/serialization/spec/version.html">
+     * Versioning of Serializable Objects</a>.
+     */
+    private static final long          serialVersionUID = 1L;
+
+    /**
+     * The first version that supports uploading an app using a single request.
+     */
+    private static final ServerVersion RELUTION_3_36    = new ServerVersion("3.36");
+
+    private final ServerVersion        version;
+    private final boolean              singleRequestUpload;
+
+    /**
+     * Initializes a new instance of the {@link ServerCapabilities} class.
+     * @param version The {@link ServerVersion} of the server.
+     */
+    public ServerCapabilities(final ServerVersion version) {
+        this.version = version;
+        this.singleRequestUpload = version.compareTo(RELUTION_3_36) >= 0;
+    }
+
+    /**
+     * @return The {@link ServerVersion} of the server.
+     */
+    public ServerVersion getVersion() {
+        return this.version;
+    }
+
+    /**
+     * @return {@code true} if the server supports uploading an app, including its change log,
+     * using a single request; {@code false} if the app must be uploaded as an asset first.
+     */
+    public boolean supportsSingleRequestUpload() {
+        return this.singleRequestUpload;
+    }
+
+    @Override
+    public String toString() {
+        return String.valueOf(this.version);
+    }
+}
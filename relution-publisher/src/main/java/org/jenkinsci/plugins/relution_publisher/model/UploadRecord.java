@@ -0,0 +1,154 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jenkinsci.plugins.relution_publisher.model;
+
+import com.google.gson.JsonObject;
+
+import org.jenkinsci.plugins.relution_publisher.configuration.global.Store;
+import org.jenkinsci.plugins.relution_publisher.model.entities.ApiObject;
+import org.jenkinsci.plugins.relution_publisher.model.entities.App;
+import org.jenkinsci.plugins.relution_publisher.model.entities.Version;
+import org.jenkinsci.plugins.relution_publisher.util.Json;
+
+import java.io.Serializable;
+
+
+/**
+ * Describes a file that has been published to a store successfully.
+ */
+public class UploadRecord implements Serializable {
+
+    /**
+     * The serial version number of this class.
+     * <p>
+     * This version number is used to determine whether a serialized representation of this class
+     * is compatible with the current implementation of the class.
+     * <p>
+     * <b>Note</b> Maintainers must change this value <b>if and only if</b> the new version of this
+     * class is not compatible with old versions.
+     * @see
+     * <a href="http://docs.oracle.com/javase/6/docs/platform/serialization/spec/version.html">
+     * Versioning of Serializable Objects</a>.
+     */
+    private static final long serialVersionUID = 1L;
+
+    private final String      storeId;
+    private final String      appId;
+    private final int         versionCode;
+    private final String      releaseStatus;
+    private final String      digest;
+    private final String      assetUuid;
+    private final long        uploadedAt;
+
+    /**
+     * Initializes a new instance of the {@link UploadRecord} class.
+     * @param storeId The identifier of the store to which the file was published.
+     * @param appId The internal name of the app, e.g. its package name or bundle identifier.
+     * @param versionCode The version code of the published app version.
+     * @param releaseStatus The release status to which the file was published.
+     * @param digest The SHA-256 digest of the published file.
+     * @param assetUuid The UUID of the file on the server.
+     * @param uploadedAt The time of the upload, in milliseconds since the epoch.
+     */
+    public UploadRecord(
+            final String storeId,
+            final String appId,
+            final int versionCode,
+            final String releaseStatus,
+            final String digest,
+            final String assetUuid,
+            final long uploadedAt) {
+
+        this.storeId = storeId;
+        this.appId = appId;
+        this.versionCode = versionCode;
+        this.releaseStatus = releaseStatus;
+        this.digest = digest;
+        this.assetUuid = assetUuid;
+        this.uploadedAt = uploadedAt;
+    }
+
+    /**
+     * Creates a record for the specified app version, which was published at the current time.
+     * @param store The {@link Store} to which the file was published.
+     * @param digest The SHA-256 digest of the published file.
+     * @param app The app to which the version belongs.
+     * @param version The published app version.
+     * @return A new {@link UploadRecord}.
+     */
+    public static UploadRecord create(final Store store, final String digest, final JsonObject app, final JsonObject version) {
+        final JsonObject file = Json.getObject(version, Version.FILE);
+
+        return new UploadRecord(
+                store.getId(),
+                Json.getString(app, App.INTERNAL_NAME),
+                Json.getInt(version, Version.VERSION_CODE),
+                Json.getString(version, Version.RELEASE_STATUS),
+                digest,
+                Json.isNull(file) ? null : Json.getString(file, ApiObject.UUID),
+                System.currentTimeMillis());
+    }
+
+    /**
+     * @return The identifier of the store to which the file was published.
+     */
+    public String getStoreId() {
+        return this.storeId;
+    }
+
+    /**
+     * @return The internal name of the app, e.g. its package name or bundle identifier.
+     */
+    public String getAppId() {
+        return this.appId;
+    }
+
+    /**
+     * @return The version code of the published app version.
+     */
+    public int getVersionCode() {
+        return this.versionCode;
+    }
+
+    /**
+     * @return The release status to which the file was published.
+     */
+    public String getReleaseStatus() {
+        return this.releaseStatus;
+    }
+
+    /**
+     * @return The SHA-256 digest of the published file.
+     */
+    public String getDigest() {
+        return this.digest;
+    }
+
+    /**
+     * @return The UUID of the file on the server, or {@code null} if it is unknown.
+     */
+    public String getAssetUuid() {
+        return this.assetUuid;
+    }
+
+    /**
+     * @return The time of the upload, in milliseconds since the epoch.
+     */
+    public long getUploadedAt() {
+        return this.uploadedAt;
+    }
+}
@@ -24,6 +24,8 @@ public final class Version extends ApiObject {
 
     public static final String FILE = "file";
 
+    public static final String ICON = "icon";
+
     public static final String VERSION_NAME = "versionName";
 
     public static final String VERSION_CODE = "versionCode";
@@ -34,6 +36,8 @@ public final class Version extends ApiObject {
 
     public static final String CHANGE_LOG = "changelog";
 
+    public static final String CREATION_DATE = "creationDate";
+
     private Version() {
     }
 }
@@ -17,6 +17,7 @@
 package org.jenkinsci.plugins.relution_publisher.net;
 
 import org.jenkinsci.plugins.relution_publisher.configuration.global.Store;
+import org.jenkinsci.plugins.relution_publisher.model.ServerCapabilities;
 import org.jenkinsci.plugins.relution_publisher.model.ServerVersion;
 
 import java.io.IOException;
@@ -25,9 +26,13 @@ import java.util.concurrent.ExecutionException;
 
 public interface AuthenticatedNetwork extends Network {
 
+    void setSessionReuse(boolean enabled);
+
     void logIn(Store store) throws InterruptedException, ExecutionException, IOException;
 
     boolean logOut();
 
     ServerVersion getServerVersion();
+
+    ServerCapabilities getServerCapabilities();
 }
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jenkinsci.plugins.relution_publisher.net;
+
+import org.apache.commons.lang.StringUtils;
+import org.jenkinsci.plugins.relution_publisher.configuration.global.Store;
+import org.jenkinsci.plugins.relution_publisher.model.ServerCapabilities;
+import org.jenkinsci.plugins.relution_publisher.model.ServerVersion;
+import org.jenkinsci.plugins.relution_publisher.util.UrlUtils;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Caches the {@link ServerCapabilities} of the servers used within the current JVM.
+ * <p>
+ * The {@link SessionManager} updates the entry of a server whenever a response carries the
+ * server's version. On the Jenkins controller, the entries of all configured stores are also
+ * refreshed in the background, see
+ * {@link org.jenkinsci.plugins.relution_publisher.builder.CapabilityRefreshWork}. Uploads that run
+ * on an agent receive the controller's entry, see {@link #seed(Store, ServerCapabilities)}.
+ * Entries that have not been refreshed for {@link #TIME_TO_LIVE} milliseconds are ignored, in
+ * case the server has been updated in the meantime.
+ */
+public final class CapabilityCache {
+
+    /**
+     * The maximum amount of time, in milliseconds, an entry is considered valid.
+     */
+    private final static long            TIME_TO_LIVE = TimeUnit.HOURS.toMillis(1);
+
+    private final static CapabilityCache INSTANCE     = new CapabilityCache();
+
+    private final Map<String, Entry>     entries      = new HashMap<>();
+
+    private CapabilityCache() {
+    }
+
+    /**
+     * @return The {@link CapabilityCache} of the current JVM.
+     */
+    public static CapabilityCache getInstance() {
+        return INSTANCE;
+    }
+
+    private static String getKey(final Store store) {
+        return UrlUtils.toBaseUrl(store.getUrl());
+    }
+
+    /**
+     * Returns the cached capabilities of the specified store.
+     * @param store The {@link Store} for which to return the capabilities.
+     * @return The {@link ServerCapabilities} of the store, or {@code null} if the capabilities of
+     * the store are unknown or have expired.
+     */
+    public synchronized ServerCapabilities get(final Store store) {
+        final String key = getKey(store);
+        final Entry entry = this.entries.get(key);
+
+        if (entry == null) {
+            return null;
+        }
+
+        if (System.currentTimeMillis() - entry.updated > TIME_TO_LIVE) {
+            this.entries.remove(key);
+            return null;
+        }
+
+        return entry.capabilities;
+    }
+
+    /**
+     * Updates the cached capabilities of the specified store. Versions that are unknown, i.e.
+     * because the server's response did not contain a version, are ignored.
+     * @param store The {@link Store} for which to update the capabilities.
+     * @param version The {@link ServerVersion} reported by the store.
+     */
+    public synchronized void put(final Store store, final ServerVersion version) {
+        if (version == null || StringUtils.isBlank(version.toString())) {
+            return;
+        }
+
+        final String key = getKey(store);
+
+        if (key == null) {
+            return;
+        }
+
+        final Entry entry = this.entries.get(key);
+
+        if (entry != null && version.equals(entry.capabilities.getVersion())) {
+            entry.updated = System.currentTimeMillis();
+            return;
+        }
+
+        this.entries.put(key, new Entry(new ServerCapabilities(version)));
+    }
+
+    /**
+     * Adds the capabilities of the specified store, as known by another JVM, unless the cache
+     * already contains an entry for the store.
+     * @param store The {@link Store} for which to add the capabilities.
+     * @param capabilities The {@link ServerCapabilities} of the store, can be {@code null}.
+     */
+    public synchronized void seed(final Store store, final ServerCapabilities capabilities) {
+        if (capabilities == null || this.get(store) != null) {
+            return;
+        }
+        this.put(store, capabilities.getVersion());
+    }
+
+    private static class Entry {
+
+        private final ServerCapabilities capabilities;
+        private long                     updated;
+
+        public Entry(final ServerCapabilities capabilities) {
+            this.capabilities = capabilities;
+            this.updated = System.currentTimeMillis();
+        }
+    }
+}
@@ -0,0 +1,513 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jenkinsci.plugins.relution_publisher.net;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
+import org.apache.http.HttpHost;
+import org.apache.http.auth.AuthScope;
+import org.apache.http.auth.Credentials;
+import org.apache.http.auth.UsernamePasswordCredentials;
+import org.apache.http.client.CredentialsProvider;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.impl.client.BasicCredentialsProvider;
+import org.apache.http.impl.conn.DefaultSchemePortResolver;
+import org.apache.http.impl.conn.SystemDefaultDnsResolver;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.CloseableHttpPipeliningClient;
+import org.apache.http.impl.nio.client.HttpAsyncClientBuilder;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.conn.ManagedNHttpClientConnectionFactory;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.conn.NoopIOSessionStrategy;
+import org.apache.http.nio.conn.SchemeIOSessionStrategy;
+import org.apache.http.nio.conn.ssl.SSLIOSessionStrategy;
+import org.apache.http.nio.reactor.ConnectingIOReactor;
+import org.jenkinsci.plugins.relution_publisher.util.DaemonThreadFactory;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import hudson.init.Terminator;
+
+
+/**
+ * Maintains the HTTP clients shared by all {@link RequestManager}s within the current JVM.
+ * <p>
+ * Starting an asynchronous HTTP client is expensive: every client starts its own I/O reactor
+ * threads and every new connection requires a TCP and TLS handshake. Clients are therefore
+ * shared by all requests that target the same host using the same proxy settings and are kept
+ * alive after a build completes, so subsequent builds can reuse warm connections. The size of a
+ * client's connection pool and the number of its I/O dispatcher threads are part of the key, so
+ * stores with different connection settings never share a client.
+ * <p>
+ * Clients that are no longer in use are shut down after {@link #IDLE_CLIENT_TIMEOUT}
+ * milliseconds. If more than {@link #MAX_CLIENTS} clients exist the least recently used idle
+ * client is shut down. All clients are shut down when Jenkins terminates.
+ * <p>
+ * The I/O threads of all clients are daemon threads, so idle clients kept by an agent never
+ * prevent the agent's JVM from shutting down.
+ */
+public final class HttpClientRegistry {
+
+    /**
+     * The maximum amount of time, in milliseconds, to wait for the connection manager to return
+     * a connection from the connection pool.
+     */
+    private final static int                TIMEOUT_CONNECTION_REQUEST = 10000;
+
+    /**
+     * The connection attempt will time out if a connection cannot be established within the
+     * specified amount of time, in milliseconds.
+     */
+    private final static int                TIMEOUT_CONNECT            = 60000;
+
+    /**
+     * The connection will time out if the period of inactivity after receiving or sending a data
+     * packet exceeds the specified value, in milliseconds.
+     */
+    private final static int                TIMEOUT_SOCKET             = 600000;
+
+    /**
+     * The maximum number of clients to keep. Clients that are in use are never shut down, so this
+     * limit may temporarily be exceeded.
+     */
+    private final static int                MAX_CLIENTS                = 16;
+
+    /**
+     * The amount of time, in milliseconds, after which a client that is no longer in use is
+     * shut down.
+     */
+    private final static long               IDLE_CLIENT_TIMEOUT        = TimeUnit.MINUTES.toMillis(10);
+
+    /**
+     * The amount of time, in milliseconds, after which a pooled connection that has not been
+     * used is closed.
+     */
+    private final static long               IDLE_CONNECTION_TIMEOUT    = TimeUnit.MINUTES.toMillis(1);
+
+    /**
+     * The interval, in milliseconds, at which idle clients and connections are evicted.
+     */
+    private final static long               EVICTION_INTERVAL          = TimeUnit.SECONDS.toMillis(30);
+
+    private final static HttpClientRegistry INSTANCE                   = new HttpClientRegistry();
+
+    private final Map<Key, Entry>           entries                    = new LinkedHashMap<Key, Entry>(16, 0.75f, true);
+
+    private ScheduledExecutorService        evictor;
+
+    private HttpClientRegistry() {
+    }
+
+    /**
+     * @return The registry shared by all {@link RequestManager}s within the current JVM.
+     */
+    public static HttpClientRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Shuts down all clients when Jenkins terminates.
+     */
+    @Terminator
+    public static void terminate() {
+        INSTANCE.shutdown();
+    }
+
+    /**
+     * Returns a started client for the specified key, creating the client if necessary. Every
+     * call to this method must be followed by a call to {@link #release(Key)} once the caller no
+     * longer uses the client.
+     * @param key The {@link Key} that identifies the client.
+     * @return A started {@link CloseableHttpAsyncClient}.
+     * @throws IOException The client's I/O reactor could not be started.
+     */
+    public synchronized CloseableHttpAsyncClient acquire(final Key key) throws IOException {
+        Entry entry = this.entries.get(key);
+
+        if (entry == null || !entry.client.isRunning()) {
+            final int references = (entry != null) ? entry.references : 0;
+
+            if (entry != null) {
+                // The client has stopped, e.g. due to an I/O reactor error, release its resources
+                IOUtils.closeQuietly(entry.client);
+            }
+
+            entry = this.createEntry(key);
+            entry.references = references;
+            this.entries.put(key, entry);
+            this.evictLeastRecentlyUsed();
+            this.scheduleEviction();
+        }
+
+        entry.references++;
+        return entry.client;
+    }
+
+    /**
+     * Releases a client previously obtained by a call to {@link #acquire(Key)}. The client is
+     * kept alive, so it can be reused by subsequent requests.
+     * @param key The {@link Key} that identifies the client.
+     */
+    public synchronized void release(final Key key) {
+        final Entry entry = this.entries.get(key);
+
+        if (entry == null || entry.references == 0) {
+            return;
+        }
+
+        entry.references--;
+        entry.lastReleased = System.currentTimeMillis();
+    }
+
+    /**
+     * Shuts down all clients, regardless of whether they are still in use.
+     */
+    public synchronized void shutdown() {
+        for (final Entry entry : this.entries.values()) {
+            IOUtils.closeQuietly(entry.client);
+        }
+        this.entries.clear();
+
+        if (this.evictor != null) {
+            this.evictor.shutdownNow();
+            this.evictor = null;
+        }
+    }
+
+    private ConnectingIOReactor createIoReactor(final Key key) throws IOException {
+        final IOReactorConfig.Builder ioReactorConfigBuilder = IOReactorConfig.custom();
+
+        if (key.ioThreadCount > 0) {
+            ioReactorConfigBuilder.setIoThreadCount(key.ioThreadCount);
+        }
+
+        final IOReactorConfig ioReactorConfig = ioReactorConfigBuilder.build();
+        return new DefaultConnectingIOReactor(ioReactorConfig, new DaemonThreadFactory("Relution I/O dispatcher"));
+    }
+
+    private PoolingNHttpClientConnectionManager createConnectionManager(final Key key) throws IOException {
+        final ConnectingIOReactor ioReactor = this.createIoReactor(key);
+
+        final Registry<SchemeIOSessionStrategy> ioSessionFactoryRegistry = RegistryBuilder.<SchemeIOSessionStrategy> create()
+                .register("http", NoopIOSessionStrategy.INSTANCE)
+                .register("https", SSLIOSessionStrategy.getDefaultStrategy())
+                .build();
+
+        final long timeToLive = (key.connectionTimeToLive > 0) ? key.connectionTimeToLive : -1;
+
+        final PoolingNHttpClientConnectionManager connectionManager = new PoolingNHttpClientConnectionManager(
+                ioReactor,
+                ManagedNHttpClientConnectionFactory.INSTANCE,
+                ioSessionFactoryRegistry,
+                DefaultSchemePortResolver.INSTANCE,
+                SystemDefaultDnsResolver.INSTANCE,
+                timeToLive,
+                TimeUnit.SECONDS);
+
+        if (key.maxConnections > 0) {
+            connectionManager.setMaxTotal(key.maxConnections);
+        }
+
+        if (key.maxConnectionsPerRoute > 0) {
+            connectionManager.setDefaultMaxPerRoute(key.maxConnectionsPerRoute);
+        }
+
+        return connectionManager;
+    }
+
+    /**
+     * Creates the configuration used by requests that are sent through the specified proxy.
+     * <p>
+     * Pipelining clients do not apply a default request configuration, so the configuration
+     * must be set on the context of each pipelined request.
+     * @param proxyHost The proxy to use, can be {@code null}.
+     * @return A {@link RequestConfig}.
+     */
+    public static RequestConfig createRequestConfig(final HttpHost proxyHost) {
+        final RequestConfig.Builder requestConfigBuilder = RequestConfig.custom();
+        requestConfigBuilder.setConnectionRequestTimeout(TIMEOUT_CONNECTION_REQUEST);
+        requestConfigBuilder.setConnectTimeout(TIMEOUT_CONNECT);
+        requestConfigBuilder.setSocketTimeout(TIMEOUT_SOCKET);
+
+        if (proxyHost != null) {
+            requestConfigBuilder.setProxy(proxyHost);
+        }
+
+        return requestConfigBuilder.build();
+    }
+
+    private Entry createEntry(final Key key) throws IOException {
+        final PoolingNHttpClientConnectionManager connectionManager = this.createConnectionManager(key);
+
+        if (key.pipelining) {
+            final CloseableHttpPipeliningClient client = HttpAsyncClients.createPipelining(connectionManager);
+
+            try {
+                useDaemonThread(client, new DaemonThreadFactory("Relution I/O reactor"));
+
+            } catch (final IOException e) {
+                IOUtils.closeQuietly(client);
+                throw e;
+
+            }
+
+            client.start();
+
+            return new Entry(client, connectionManager);
+        }
+
+        final HttpAsyncClientBuilder clientBuilder = HttpAsyncClients.custom();
+        clientBuilder.setConnectionManager(connectionManager);
+        clientBuilder.setThreadFactory(new DaemonThreadFactory("Relution I/O reactor"));
+
+        final RequestConfig requestConfig = createRequestConfig(key.proxyHost);
+        clientBuilder.setDefaultRequestConfig(requestConfig);
+
+        if (key.proxyHost != null && !StringUtils.isEmpty(key.proxyUsername)) {
+            final AuthScope authScope = new AuthScope(key.proxyHost);
+            final CredentialsProvider credentialsProvider = new BasicCredentialsProvider();
+            final Credentials credentials = new UsernamePasswordCredentials(key.proxyUsername, key.proxyPassword);
+            credentialsProvider.setCredentials(authScope, credentials);
+            clientBuilder.setDefaultCredentialsProvider(credentialsProvider);
+        }
+
+        final CloseableHttpAsyncClient client = clientBuilder.build();
+        client.start();
+
+        return new Entry(client, connectionManager);
+    }
+
+    /**
+     * Replaces the I/O reactor thread of a client that has not been started yet with a thread
+     * created by the specified factory. Pipelining clients cannot be built with a thread factory,
+     * so their I/O reactor would otherwise run on a thread that is not a daemon.
+     * @throws IOException The I/O reactor thread of the client could not be replaced.
+     */
+    private static void useDaemonThread(final CloseableHttpAsyncClient client, final ThreadFactory threadFactory)
+            throws IOException {
+        for (Class<?> type = client.getClass(); type != null; type = type.getSuperclass()) {
+            for (final Field field : type.getDeclaredFields()) {
+                if (!Thread.class.equals(field.getType()) || Modifier.isStatic(field.getModifiers())) {
+                    continue;
+                }
+
+                try {
+                    field.setAccessible(true);
+                    final Thread thread = (Thread) field.get(client);
+
+                    if (thread != null) {
+                        // The original thread is never started, it only runs the I/O reactor
+                        field.set(client, threadFactory.newThread(thread));
+                        return;
+                    }
+
+                } catch (final IllegalAccessException e) {
+                    throw new IOException("Unable to replace I/O reactor thread of pipelining client", e);
+
+                } catch (final SecurityException e) {
+                    throw new IOException("Unable to replace I/O reactor thread of pipelining client", e);
+
+                }
+            }
+        }
+        throw new IOException("Pipelining client has no I/O reactor thread");
+    }
+
+    private void evictLeastRecentlyUsed() {
+        final Iterator<Entry> iterator = this.entries.values().iterator();
+
+        while (this.entries.size() > MAX_CLIENTS && iterator.hasNext()) {
+            final Entry entry = iterator.next();
+
+            if (entry.references == 0) {
+                IOUtils.closeQuietly(entry.client);
+                iterator.remove();
+            }
+        }
+    }
+
+    private synchronized void evictIdle() {
+        final long now = System.currentTimeMillis();
+        final Iterator<Entry> iterator = this.entries.values().iterator();
+
+        while (iterator.hasNext()) {
+            final Entry entry = iterator.next();
+
+            if (entry.references == 0 && now - entry.lastReleased > IDLE_CLIENT_TIMEOUT) {
+                IOUtils.closeQuietly(entry.client);
+                iterator.remove();
+
+            } else {
+                entry.connectionManager.closeExpiredConnections();
+                entry.connectionManager.closeIdleConnections(IDLE_CONNECTION_TIMEOUT, TimeUnit.MILLISECONDS);
+
+            }
+        }
+
+        if (this.entries.isEmpty() && this.evictor != null) {
+            this.evictor.shutdown();
+            this.evictor = null;
+        }
+    }
+
+    private void scheduleEviction() {
+        if (this.evictor != null) {
+            return;
+        }
+
+        this.evictor = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("Relution HTTP client evictor"));
+        this.evictor.scheduleWithFixedDelay(new Runnable() {
+
+            @Override
+            public void run() {
+                HttpClientRegistry.this.evictIdle();
+            }
+        }, EVICTION_INTERVAL, EVICTION_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Identifies a shared client. Requests that have equal keys share the same client and
+     * therefore the same connection pool.
+     */
+    public static final class Key {
+
+        private final HttpHost targetHost;
+
+        private final HttpHost proxyHost;
+        private final String   proxyUsername;
+        private final String   proxyPassword;
+
+        private final int      maxConnections;
+        private final int      maxConnectionsPerRoute;
+        private final int      ioThreadCount;
+        private final int      connectionTimeToLive;
+
+        private final boolean  pipelining;
+
+        /**
+         * Initializes a new instance of the {@link Key} class.
+         * @param targetHost The host the client connects to.
+         * @param proxyHost The proxy to use, can be {@code null}.
+         * @param proxyUsername The username to use for proxy authentication, can be {@code null}.
+         * @param proxyPassword The password to use for proxy authentication, can be {@code null}.
+         * @param maxConnections The maximum number of connections in the client's pool, or zero
+         * to use the default.
+         * @param maxConnectionsPerRoute The maximum number of connections per route, or zero to
+         * use the default.
+         * @param ioThreadCount The number of I/O dispatcher threads, or zero to use the default.
+         * @param connectionTimeToLive The maximum time, in seconds, a connection is kept alive, or
+         * zero to keep connections alive indefinitely.
+         * @param pipelining {@code true} if the client pipelines requests; otherwise,
+         * {@code false}. Pipelining clients do not support proxies, cookies or authentication.
+         */
+        public Key(
+                final HttpHost targetHost,
+                final HttpHost proxyHost,
+                final String proxyUsername,
+                final String proxyPassword,
+                final int maxConnections,
+                final int maxConnectionsPerRoute,
+                final int ioThreadCount,
+                final int connectionTimeToLive,
+                final boolean pipelining) {
+            this.targetHost = targetHost;
+
+            this.proxyHost = proxyHost;
+            this.proxyUsername = proxyUsername;
+            this.proxyPassword = proxyPassword;
+
+            this.maxConnections = maxConnections;
+            this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+            this.ioThreadCount = ioThreadCount;
+            this.connectionTimeToLive = connectionTimeToLive;
+
+            this.pipelining = pipelining;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(
+                    this.targetHost,
+                    this.proxyHost,
+                    this.proxyUsername,
+                    this.proxyPassword,
+                    this.maxConnections,
+                    this.maxConnectionsPerRoute,
+                    this.ioThreadCount,
+                    this.connectionTimeToLive,
+                    this.pipelining);
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (obj == this) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) obj;
+            return Objects.equals(this.targetHost, other.targetHost)
+                    && Objects.equals(this.proxyHost, other.proxyHost)
+                    && StringUtils.equals(this.proxyUsername, other.proxyUsername)
+                    && StringUtils.equals(this.proxyPassword, other.proxyPassword)
+                    && this.maxConnections == other.maxConnections
+                    && this.maxConnectionsPerRoute == other.maxConnectionsPerRoute
+                    && this.ioThreadCount == other.ioThreadCount
+                    && this.connectionTimeToLive == other.connectionTimeToLive
+                    && this.pipelining == other.pipelining;
+        }
+
+        @Override
+        public String toString() {
+            if (this.proxyHost == null) {
+                return String.valueOf(this.targetHost);
+            }
+            return String.format("%s via %s", this.targetHost, this.proxyHost);
+        }
+    }
+
+    private static final class Entry {
+
+        private final CloseableHttpAsyncClient            client;
+        private final PoolingNHttpClientConnectionManager connectionManager;
+
+        private int                                       references;
+        private long                                      lastReleased;
+
+        private Entry(final CloseableHttpAsyncClient client, final PoolingNHttpClientConnectionManager connectionManager) {
+            this.client = client;
+            this.connectionManager = connectionManager;
+            this.lastReleased = System.currentTimeMillis();
+        }
+    }
+}
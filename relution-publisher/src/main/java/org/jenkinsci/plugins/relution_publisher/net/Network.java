@@ -16,6 +16,8 @@
 
 package org.jenkinsci.plugins.relution_publisher.net;
 
+import com.google.common.util.concurrent.ListenableFuture;
+
 import org.jenkinsci.plugins.relution_publisher.logging.Log;
 import org.jenkinsci.plugins.relution_publisher.net.requests.ApiRequest;
 import org.jenkinsci.plugins.relution_publisher.net.responses.ApiResponse;
@@ -23,6 +25,7 @@ import org.jenkinsci.plugins.relution_publisher.net.responses.ApiResponse;
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.Serializable;
+import java.util.List;
 import java.util.concurrent.ExecutionException;
 
 
@@ -32,7 +35,36 @@ public interface Network extends Closeable, Serializable {
 
     void setProxyCredentials(String username, String password);
 
+    void setConnectionLimits(int maxConnections, int maxConnectionsPerRoute);
+
+    void setIoThreadCount(int ioThreadCount);
+
+    void setConnectionTimeToLive(int seconds);
+
+    void setPipelining(boolean enabled);
+
     ApiResponse execute(ApiRequest request, Log log) throws IOException, InterruptedException, ExecutionException;
 
     ApiResponse execute(ApiRequest request) throws InterruptedException, ExecutionException, IOException;
+
+    /**
+     * Executes the specified independent requests. If pipelining is enabled the requests are
+     * sent back-to-back on a single connection; otherwise, they are executed one at a time.
+     * @param requests The {@link ApiRequest}s to execute.
+     * @param log The {@link Log} to which retries are reported, may be {@code null}.
+     * @return The server's responses, in the order of the requests.
+     */
+    List<ApiResponse> executePipelined(List<? extends ApiRequest> requests, Log log) throws IOException, InterruptedException, ExecutionException;
+
+    /**
+     * Sends the specified request without blocking the calling thread.
+     * @param request The {@link ApiRequest} to send.
+     * @param log The {@link Log} to which retries are reported, may be {@code null}.
+     * @return A {@link ListenableFuture} that completes with the server's parsed response, or
+     * fails with the error that prevented the request from completing.
+     * @throws IOException The request could not be sent.
+     */
+    ListenableFuture<ApiResponse> executeAsync(ApiRequest request, Log log) throws IOException;
+
+    ListenableFuture<ApiResponse> executeAsync(ApiRequest request) throws IOException;
 }
\ No newline at end of file
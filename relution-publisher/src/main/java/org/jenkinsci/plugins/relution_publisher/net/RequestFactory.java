@@ -54,11 +54,13 @@ public final class RequestFactory implements Serializable {
      * <a href="http://docs.oracle.com/javase/6/docs/platform/serialization/spec/version.html">
      * Versioning of Serializable Objects</a>.
      */
-    private static final long    serialVersionUID   = 1L;
+    private static final long    serialVersionUID     = 1L;
 
-    private static final String  APPLICATION_JSON   = "application/json";
+    private static final String  APPLICATION_JSON     = "application/json";
 
-    private final static Charset CHARSET            = Charset.forName("UTF-8");
+    private static final String  AUTHORIZATION_BEARER = "Bearer";
+
+    private final static Charset CHARSET              = Charset.forName("UTF-8");
 
     //
     // Relution core paths
@@ -66,12 +68,12 @@ public final class RequestFactory implements Serializable {
     /**
      * The URL used to authenticate the user and start a session.
      */
-    private static final String  URL_AUTH_LOGIN     = "gofer/security/rest/auth/login";
+    private static final String  URL_AUTH_LOGIN       = "gofer/security/rest/auth/login";
 
     /**
      * The URL used to close an existing session.
      */
-    private static final String  URL_AUTH_LOGOUT    = "gofer/security/rest/auth/logout";
+    private static final String  URL_AUTH_LOGOUT      = "gofer/security/rest/auth/logout";
 
     //
     // Relution paths
@@ -79,28 +81,28 @@ public final class RequestFactory implements Serializable {
     /**
      * The base API URL.
      */
-    private final static String  URL_API_V1         = "relution/api/v1";
+    private final static String  URL_API_V1           = "relution/api/v1";
 
     /**
      * The URL used to request the languages configured on the server.
      */
-    private final static String  URL_LANGUAGES      = URL_API_V1 + "/languages";
+    private final static String  URL_LANGUAGES        = URL_API_V1 + "/languages";
 
     /**
      * The URL used to request or persist application objects.
      */
-    private final static String  URL_APPS           = URL_API_V1 + "/apps";
+    private final static String  URL_APPS             = URL_API_V1 + "/apps";
 
     /**
      * The URL used to request or persist asset objects.
      */
-    private final static String  URL_FILES          = URL_API_V1 + "/files";
+    private final static String  URL_FILES            = URL_API_V1 + "/files";
 
     /**
      * The URL used to request the unpersisted application object associated with a previously
      * uploaded asset.
      */
-    private final static String  URL_APPS_FROM_FILE = URL_API_V1 + "/apps/fromFile";
+    private final static String  URL_APPS_FROM_FILE   = URL_API_V1 + "/apps/fromFile";
 
     //
     // Path parts
@@ -108,7 +110,7 @@ public final class RequestFactory implements Serializable {
     /**
      * The path used to request or persist application version objects.
      */
-    private final static String  VERSIONS           = "versions";
+    private final static String  VERSIONS             = "versions";
 
     public RequestFactory() {
     }
@@ -119,6 +121,20 @@ public final class RequestFactory implements Serializable {
         return UrlUtils.combine(baseUrl, path);
     }
 
+    /**
+     * Adds the authorization header to the specified request, if the store uses token based
+     * authentication.
+     * @param store The {@link Store} the request should be executed against.
+     * @param request The request to authorize.
+     * @return The specified request.
+     */
+    private <T extends BaseRequest> T authorize(final Store store, final T request) {
+        if (store.usesTokenAuthentication()) {
+            request.setHeader(Headers.AUTHORIZATION, "%s %s", AUTHORIZATION_BEARER, store.getApiToken());
+        }
+        return request;
+    }
+
     /**
      * Creates a {@link EntityRequest} that can be used to authenticate the user against the server.
      * @param store The {@link Store} this request should be executed against.
@@ -167,7 +183,7 @@ public final class RequestFactory implements Serializable {
                 Method.GET,
                 this.getUrl(store, URL_LANGUAGES));
 
-        return request;
+        return this.authorize(store, request);
     }
 
     /**
@@ -183,7 +199,7 @@ public final class RequestFactory implements Serializable {
                 this.getUrl(store, URL_APPS));
 
         request.queryFields().add("locale", "de");
-        return request;
+        return this.authorize(store, request);
     }
 
     /**
@@ -197,8 +213,9 @@ public final class RequestFactory implements Serializable {
                 this.getUrl(store, URL_FILES));
 
         request.addItem("file", file);
+        request.setComputeChecksums(store.isVerifyChecksums());
 
-        return request;
+        return this.authorize(store, request);
     }
 
     /**
@@ -225,8 +242,9 @@ public final class RequestFactory implements Serializable {
         request.queryFields().add("releaseStatus", releaseStatus);
         request.queryFields().add("archiveFormerVersion", archivePreviousVersion);
         request.queryFields().add("environmentUuid", environmentUuid);
+        request.setComputeChecksums(store.isVerifyChecksums());
 
-        return request;
+        return this.authorize(store, request);
     }
 
     /**
@@ -243,7 +261,7 @@ public final class RequestFactory implements Serializable {
                 Method.POST,
                 this.getUrl(store, URL_APPS_FROM_FILE, uuid));
 
-        return request;
+        return this.authorize(store, request);
     }
 
     /**
@@ -265,7 +283,7 @@ public final class RequestFactory implements Serializable {
         request.setEntity(entity);
 
         request.setHeader(Headers.CONTENT_TYPE, APPLICATION_JSON);
-        return request;
+        return this.authorize(store, request);
     }
 
     /**
@@ -291,7 +309,7 @@ public final class RequestFactory implements Serializable {
         request.setEntity(entity);
 
         request.setHeader(Headers.CONTENT_TYPE, APPLICATION_JSON);
-        return request;
+        return this.authorize(store, request);
     }
 
     public EntityRequest createDeleteVersionRequest(final Store store, final JsonObject version) {
@@ -302,6 +320,6 @@ public final class RequestFactory implements Serializable {
                 Method.DELETE,
                 this.getUrl(store, URL_APPS, appUuid, VERSIONS, uuid));
 
-        return request;
+        return this.authorize(store, request);
     }
 }
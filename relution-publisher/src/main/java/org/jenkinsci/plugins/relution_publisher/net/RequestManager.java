@@ -16,32 +16,47 @@
 
 package org.jenkinsci.plugins.relution_publisher.net;
 
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+
 import org.apache.commons.lang.StringUtils;
 import org.apache.http.HttpEntity;
+import org.apache.http.HttpException;
 import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
 import org.apache.http.HttpResponse;
-import org.apache.http.auth.AuthScope;
-import org.apache.http.auth.Credentials;
-import org.apache.http.auth.UsernamePasswordCredentials;
-import org.apache.http.client.CredentialsProvider;
-import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.CookieStore;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.client.protocol.RequestAddCookies;
+import org.apache.http.client.protocol.ResponseProcessCookies;
+import org.apache.http.client.utils.URIUtils;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.config.Lookup;
 import org.apache.http.conn.ConnectTimeoutException;
-import org.apache.http.impl.client.BasicCredentialsProvider;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.cookie.CookieSpecProvider;
+import org.apache.http.impl.client.BasicCookieStore;
+import org.apache.http.impl.client.CookieSpecRegistries;
 import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
-import org.apache.http.impl.nio.client.HttpAsyncClientBuilder;
-import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.client.CloseableHttpPipeliningClient;
 import org.apache.http.util.EntityUtils;
 import org.jenkinsci.plugins.relution_publisher.logging.Log;
 import org.jenkinsci.plugins.relution_publisher.net.requests.ApiRequest;
+import org.jenkinsci.plugins.relution_publisher.net.requests.EntityRequest;
 import org.jenkinsci.plugins.relution_publisher.net.responses.ApiResponse;
 import org.jenkinsci.plugins.relution_publisher.util.ErrorType;
 
 import java.io.IOException;
 import java.net.SocketException;
 import java.net.SocketTimeoutException;
+import java.net.URI;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 
 public class RequestManager implements Network {
@@ -58,94 +73,279 @@ public class RequestManager implements Network {
      * <a href="http://docs.oracle.com/javase/6/docs/platform/serialization/spec/version.html">
      * Versioning of Serializable Objects</a>.
      */
-    private static final long                  serialVersionUID           = 1L;
+    private static final long                       serialVersionUID    = 1L;
 
     /**
-     * The maximum amount of time, in milliseconds, to wait for the connection manager to return
-     * a connection from the connection pool.
+     * The maximum number of times a request is retried in case a time out occurs.
      */
-    private final static int                   TIMEOUT_CONNECTION_REQUEST = 10000;
+    private final static int                        MAX_REQUEST_RETRIES = 3;
 
     /**
-     * The connection attempt will time out if a connection cannot be established within the
-     * specified amount of time, in milliseconds.
+     * The maximum amount of time, in milliseconds, to wait for the responses to pipelined
+     * requests before the requests are sent one at a time.
      */
-    private final static int                   TIMEOUT_CONNECT            = 60000;
+    private final static long                       PIPELINE_TIMEOUT    = TimeUnit.MINUTES.toMillis(1);
 
-    /**
-     * The connection will time out if the period of inactivity after receiving or sending a data
-     * packet exceeds the specified value, in milliseconds.
-     */
-    private final static int                   TIMEOUT_SOCKET             = 600000;
+    private final static Charset                    CHARSET             = Charset.forName("UTF-8");
 
-    /**
-     * The maximum number of times a request is retried in case a time out occurs.
-     */
-    private final static int                   MAX_REQUEST_RETRIES        = 3;
+    private final static Lookup<CookieSpecProvider> COOKIE_SPECS        = CookieSpecRegistries.createDefault();
+
+    private final static RequestAddCookies          REQUEST_COOKIES     = new RequestAddCookies();
+    private final static ResponseProcessCookies     RESPONSE_COOKIES    = new ResponseProcessCookies();
+
+    private transient HttpClientRegistry.Key        mHttpClientKey;
+    private transient CloseableHttpAsyncClient      mHttpClient;
+    private transient CookieStore                   mCookieStore;
 
-    private final static Charset               CHARSET                    = Charset.forName("UTF-8");
+    private transient HttpClientRegistry.Key        mPipeliningClientKey;
+    private transient CloseableHttpAsyncClient      mPipeliningClient;
 
-    private transient CloseableHttpAsyncClient mHttpClient;
+    private HttpHost                                mProxyHost;
+    private String                                  mProxyUsername;
+    private String                                  mProxyPassword;
 
-    private HttpHost                           mProxyHost;
-    private String                             mProxyUsername;
-    private String                             mProxyPassword;
+    private int                                     mMaxConnections;
+    private int                                     mMaxConnectionsPerRoute;
+    private int                                     mIoThreadCount;
+    private int                                     mConnectionTimeToLive;
 
-    private CloseableHttpAsyncClient createHttpClient() {
+    private boolean                                 mPipelining;
 
-        final RequestConfig.Builder requestConfigBuilder = RequestConfig.custom();
-        requestConfigBuilder.setConnectionRequestTimeout(TIMEOUT_CONNECTION_REQUEST);
-        requestConfigBuilder.setConnectTimeout(TIMEOUT_CONNECT);
-        requestConfigBuilder.setSocketTimeout(TIMEOUT_SOCKET);
+    private HttpClientRegistry.Key createHttpClientKey(final ApiRequest request, final boolean pipelining) {
+        final URI uri = URI.create(request.getUri());
+        final HttpHost targetHost = URIUtils.extractHost(uri);
 
-        if (this.mProxyHost != null) {
-            requestConfigBuilder.setProxy(this.mProxyHost);
+        return new HttpClientRegistry.Key(
+                targetHost,
+                this.mProxyHost,
+                this.mProxyUsername,
+                this.mProxyPassword,
+                this.mMaxConnections,
+                this.mMaxConnectionsPerRoute,
+                this.mIoThreadCount,
+                this.mConnectionTimeToLive,
+                pipelining);
+    }
+
+    private synchronized CloseableHttpAsyncClient getHttpClient(final ApiRequest request) throws IOException {
+        final HttpClientRegistry.Key key = this.createHttpClientKey(request, false);
+
+        if (this.mHttpClient != null && key.equals(this.mHttpClientKey)) {
+            return this.mHttpClient;
         }
 
-        final HttpAsyncClientBuilder clientBuilder = HttpAsyncClients.custom();
+        this.releaseHttpClient();
+        this.mHttpClient = HttpClientRegistry.getInstance().acquire(key);
+        this.mHttpClientKey = key;
+        return this.mHttpClient;
+    }
 
-        final RequestConfig requestConfig = requestConfigBuilder.build();
-        clientBuilder.setDefaultRequestConfig(requestConfig);
+    private synchronized CloseableHttpPipeliningClient getPipeliningClient(final ApiRequest request) throws IOException {
+        final HttpClientRegistry.Key key = this.createHttpClientKey(request, true);
 
-        if (this.mProxyHost != null && !StringUtils.isEmpty(this.mProxyUsername)) {
-            final AuthScope authScope = new AuthScope(this.mProxyHost);
-            final CredentialsProvider credentialsProvider = new BasicCredentialsProvider();
-            final Credentials credentials = new UsernamePasswordCredentials(this.mProxyUsername, this.mProxyPassword);
-            credentialsProvider.setCredentials(authScope, credentials);
-            clientBuilder.setDefaultCredentialsProvider(credentialsProvider);
+        if (this.mPipeliningClient == null || !key.equals(this.mPipeliningClientKey)) {
+            this.releasePipeliningClient();
+            this.mPipeliningClient = HttpClientRegistry.getInstance().acquire(key);
+            this.mPipeliningClientKey = key;
+        }
+        return (CloseableHttpPipeliningClient) this.mPipeliningClient;
+    }
+
+    private synchronized void releaseHttpClient() {
+        if (this.mHttpClient != null) {
+            HttpClientRegistry.getInstance().release(this.mHttpClientKey);
+            this.mHttpClient = null;
+            this.mHttpClientKey = null;
         }
+    }
 
-        return clientBuilder.build();
+    private synchronized void releasePipeliningClient() {
+        if (this.mPipeliningClient != null) {
+            HttpClientRegistry.getInstance().release(this.mPipeliningClientKey);
+            this.mPipeliningClient = null;
+            this.mPipeliningClientKey = null;
+        }
     }
 
-    private CloseableHttpAsyncClient getHttpClient() {
+    /**
+     * Creates the context used to execute a request. Clients are shared between request managers,
+     * so every request manager uses its own cookie store to keep its cookies, and therefore its
+     * session, separate. A new context is created for each request, since contexts are not safe
+     * to use by concurrent requests.
+     * @return The {@link HttpClientContext} to use.
+     */
+    private HttpClientContext createHttpContext() {
+        final HttpClientContext context = HttpClientContext.create();
+        context.setCookieStore(this.getCookieStore());
+        return context;
+    }
 
-        if (this.mHttpClient == null) {
-            this.mHttpClient = this.createHttpClient();
+    /**
+     * @return The {@link CookieStore} that contains the cookies received by this request manager.
+     */
+    protected synchronized CookieStore getCookieStore() {
+        if (this.mCookieStore == null) {
+            this.mCookieStore = new BasicCookieStore();
         }
-        return this.mHttpClient;
+        return this.mCookieStore;
+    }
+
+    /**
+     * Sets the {@link CookieStore} used to store the cookies received by this request manager.
+     * @param cookieStore The {@link CookieStore} to use, or {@code null} to use a new, empty
+     * cookie store.
+     */
+    protected synchronized void setCookieStore(final CookieStore cookieStore) {
+        this.mCookieStore = cookieStore;
     }
 
     private HttpResponse send(final ApiRequest request, final Log log) throws IOException, InterruptedException, ExecutionException {
 
-        final CloseableHttpAsyncClient client = this.getHttpClient();
+        final CloseableHttpAsyncClient client = this.getHttpClient(request);
+        final HttpClientContext context = this.createHttpContext();
         int retries = MAX_REQUEST_RETRIES;
 
-        if (!client.isRunning()) {
-            client.start();
+        while (true) {
+            try {
+                final Future<HttpResponse> future = request.execute(client, context, null);
+                return future.get();
+
+            } catch (final ExecutionException e) {
+                retries = this.attemptRetryOnException(e, retries, log);
+            }
         }
+    }
+
+    /**
+     * Sends the specified request without waiting for the response. The request is not retried
+     * in case of an error.
+     * @param request The {@link ApiRequest} to send.
+     * @return A {@link Future} that completes once the server's response has been received.
+     * @throws IOException The request could not be sent.
+     */
+    protected Future<HttpResponse> sendAsync(final ApiRequest request) throws IOException {
+        final CloseableHttpAsyncClient client = this.getHttpClient(request);
+        final HttpClientContext context = this.createHttpContext();
+        return request.execute(client, context, null);
+    }
+
+    /**
+     * Sends the specified requests back-to-back on a single connection. The requests are sent
+     * again in case of a transient error.
+     * <p>
+     * Pipelining clients do not manage cookies or apply a default request configuration. The
+     * cookies of this request manager's session are therefore added to each request, and cookies
+     * set by the server are added to the cookie store, using the same cookie specification as
+     * the regular client.
+     */
+    private List<HttpResponse> sendPipelined(final List<? extends ApiRequest> requests, final Log log)
+            throws IOException, InterruptedException, ExecutionException, TimeoutException {
+        final ApiRequest first = requests.get(0);
+        final HttpHost targetHost = URIUtils.extractHost(URI.create(first.getUri()));
+        final CloseableHttpPipeliningClient client = this.getPipeliningClient(first);
+        int retries = MAX_REQUEST_RETRIES;
 
         while (true) {
+            final List<HttpRequest> httpRequests = new ArrayList<>(requests.size());
+            final List<HttpClientContext> contexts = new ArrayList<>(requests.size());
+
+            for (final ApiRequest request : requests) {
+                final HttpRequest httpRequest = ((EntityRequest) request).createPipelinedRequest();
+                final HttpClientContext context = this.createPipelinedContext(targetHost);
+
+                this.processCookies(httpRequest, context);
+                httpRequests.add(httpRequest);
+                contexts.add(context);
+            }
+
+            final Future<List<HttpResponse>> future = client.execute(targetHost, httpRequests, this.createPipelinedContext(targetHost), null);
+
             try {
-                final Future<HttpResponse> future = request.execute(client);
-                return future.get();
+                final List<HttpResponse> httpResponses = future.get(PIPELINE_TIMEOUT, TimeUnit.MILLISECONDS);
+
+                for (int index = 0; index < httpResponses.size(); index++) {
+                    this.processCookies(httpResponses.get(index), contexts.get(index));
+                }
+                return httpResponses;
 
             } catch (final ExecutionException e) {
                 retries = this.attemptRetryOnException(e, retries, log);
+
+            } catch (final TimeoutException e) {
+                future.cancel(true);
+                throw e;
+
             }
         }
     }
 
+    private HttpClientContext createPipelinedContext(final HttpHost targetHost) {
+        final boolean secure = "https".equalsIgnoreCase(targetHost.getSchemeName());
+        final HttpClientContext context = this.createHttpContext();
+
+        context.setRequestConfig(HttpClientRegistry.createRequestConfig(null));
+        context.setCookieSpecRegistry(COOKIE_SPECS);
+        context.setTargetHost(targetHost);
+        context.setAttribute(HttpClientContext.HTTP_ROUTE, new HttpRoute(targetHost, null, secure));
+        return context;
+    }
+
+    private void processCookies(final HttpRequest request, final HttpClientContext context) throws IOException {
+        try {
+            REQUEST_COOKIES.process(request, context);
+        } catch (final HttpException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private void processCookies(final HttpResponse response, final HttpClientContext context) throws IOException {
+        try {
+            RESPONSE_COOKIES.process(response, context);
+        } catch (final HttpException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Returns a value indicating whether the specified requests can be pipelined. Only requests
+     * that do not upload files and that target the same host are pipelined. Pipelining clients
+     * do not support proxies.
+     */
+    private boolean canPipeline(final List<? extends ApiRequest> requests) {
+        if (!this.mPipelining || this.mProxyHost != null || requests.size() < 2) {
+            return false;
+        }
+
+        final String host = URI.create(requests.get(0).getUri()).getAuthority();
+
+        for (final ApiRequest request : requests) {
+            if (!(request instanceof EntityRequest)) {
+                return false;
+            }
+
+            if (!StringUtils.equals(host, URI.create(request.getUri()).getAuthority())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Executes the specified requests one at a time.
+     * @param requests The {@link ApiRequest}s to execute.
+     * @param log The {@link Log} to which retries are reported, may be {@code null}.
+     * @return The server's responses, in the order of the requests.
+     */
+    protected List<ApiResponse> executeSequentially(final List<? extends ApiRequest> requests, final Log log)
+            throws IOException, InterruptedException, ExecutionException {
+        final List<ApiResponse> responses = new ArrayList<>(requests.size());
+
+        for (final ApiRequest request : requests) {
+            responses.add(this.execute(request, log));
+        }
+        return responses;
+    }
+
     private int attemptRetryOnException(final ExecutionException e, final int retries, final Log log) throws ExecutionException {
         final int remainingRetries = retries - 1;
 
@@ -234,6 +434,31 @@ public class RequestManager implements Network {
         }
     }
 
+    @Override
+    public void setConnectionLimits(final int maxConnections, final int maxConnectionsPerRoute) {
+        this.closeQuietly();
+        this.mMaxConnections = maxConnections;
+        this.mMaxConnectionsPerRoute = maxConnectionsPerRoute;
+    }
+
+    @Override
+    public void setIoThreadCount(final int ioThreadCount) {
+        this.closeQuietly();
+        this.mIoThreadCount = ioThreadCount;
+    }
+
+    @Override
+    public void setConnectionTimeToLive(final int seconds) {
+        this.closeQuietly();
+        this.mConnectionTimeToLive = seconds;
+    }
+
+    @Override
+    public void setPipelining(final boolean enabled) {
+        this.closeQuietly();
+        this.mPipelining = enabled;
+    }
+
     @Override
     public ApiResponse execute(final ApiRequest request, final Log log) throws IOException, InterruptedException, ExecutionException {
         final HttpResponse httpResponse = this.send(request, log);
@@ -246,10 +471,105 @@ public class RequestManager implements Network {
     }
 
     @Override
-    public void close() throws IOException {
-        if (this.mHttpClient != null) {
-            this.mHttpClient.close();
-            this.mHttpClient = null;
+    public List<ApiResponse> executePipelined(final List<? extends ApiRequest> requests, final Log log)
+            throws IOException, InterruptedException, ExecutionException {
+
+        if (!this.canPipeline(requests)) {
+            return this.executeSequentially(requests, log);
+        }
+
+        final List<HttpResponse> httpResponses;
+
+        try {
+            httpResponses = this.sendPipelined(requests, log);
+
+        } catch (final ExecutionException e) {
+            this.log(log, "Pipelined requests failed, sending requests one at a time...");
+            return this.executeSequentially(requests, log);
+
+        } catch (final TimeoutException e) {
+            this.log(log, "Pipelined requests timed out, sending requests one at a time...");
+            return this.executeSequentially(requests, log);
+
+        }
+
+        final List<ApiResponse> responses = new ArrayList<>(httpResponses.size());
+
+        for (int index = 0; index < httpResponses.size(); index++) {
+            responses.add(this.parseNetworkResponse(requests.get(index), httpResponses.get(index)));
+        }
+        return responses;
+    }
+
+    @Override
+    public ListenableFuture<ApiResponse> executeAsync(final ApiRequest request, final Log log) throws IOException {
+        final AsyncExecution execution = new AsyncExecution(request, log);
+        execution.start();
+        return execution.getResult();
+    }
+
+    @Override
+    public ListenableFuture<ApiResponse> executeAsync(final ApiRequest request) throws IOException {
+        return this.executeAsync(request, null);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        this.releaseHttpClient();
+        this.releasePipeliningClient();
+        this.mCookieStore = null;
+    }
+
+    /**
+     * Executes a request without blocking the calling thread. The request is retried in case of
+     * a transient error, and the server's response is parsed once the request has completed.
+     */
+    private class AsyncExecution implements FutureCallback<HttpResponse> {
+
+        private final ApiRequest                  request;
+        private final Log                         log;
+        private final SettableFuture<ApiResponse> result  = SettableFuture.create();
+
+        private int                               retries = MAX_REQUEST_RETRIES;
+
+        public AsyncExecution(final ApiRequest request, final Log log) {
+            this.request = request;
+            this.log = log;
+        }
+
+        public ListenableFuture<ApiResponse> getResult() {
+            return this.result;
+        }
+
+        public void start() throws IOException {
+            final CloseableHttpAsyncClient client = RequestManager.this.getHttpClient(this.request);
+            final HttpClientContext context = RequestManager.this.createHttpContext();
+            this.request.execute(client, context, this);
+        }
+
+        @Override
+        public void completed(final HttpResponse httpResponse) {
+            this.result.set(RequestManager.this.parseNetworkResponse(this.request, httpResponse));
+        }
+
+        @Override
+        public void failed(final Exception ex) {
+            try {
+                this.retries = RequestManager.this.attemptRetryOnException(new ExecutionException(ex), this.retries, this.log);
+                this.start();
+
+            } catch (final ExecutionException e) {
+                this.result.setException(ex);
+
+            } catch (final IOException e) {
+                this.result.setException(e);
+
+            }
+        }
+
+        @Override
+        public void cancelled() {
+            this.result.cancel(false);
         }
     }
 }
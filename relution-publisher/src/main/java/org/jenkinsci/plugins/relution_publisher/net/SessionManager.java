@@ -16,17 +16,35 @@
 
 package org.jenkinsci.plugins.relution_publisher.net;
 
+import com.google.common.base.Function;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+
 import org.apache.commons.lang.StringUtils;
 import org.apache.http.Header;
 import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.util.EntityUtils;
 import org.jenkinsci.plugins.relution_publisher.configuration.global.Store;
+import org.jenkinsci.plugins.relution_publisher.logging.Log;
+import org.jenkinsci.plugins.relution_publisher.model.ServerCapabilities;
 import org.jenkinsci.plugins.relution_publisher.model.ServerVersion;
 import org.jenkinsci.plugins.relution_publisher.model.constants.Headers;
 import org.jenkinsci.plugins.relution_publisher.net.requests.ApiRequest;
 import org.jenkinsci.plugins.relution_publisher.net.responses.ApiResponse;
+import org.jenkinsci.plugins.relution_publisher.util.DaemonThreadFactory;
+import org.jenkinsci.plugins.relution_publisher.util.Metrics;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -45,19 +63,64 @@ public class SessionManager extends RequestManager implements AuthenticatedNetwo
      * <a href="http://docs.oracle.com/javase/6/docs/platform/serialization/spec/version.html">
      * Versioning of Serializable Objects</a>.
      */
-    private static final long    serialVersionUID = 1L;
+    private static final long            serialVersionUID = 1L;
+
+    /**
+     * The maximum amount of time, in milliseconds, to wait for the server to respond to a logout
+     * request that is sent in the background.
+     */
+    private static final long            LOGOUT_TIMEOUT   = 10000;
+
+    /**
+     * The executor used to log out in the background, shared by all session managers.
+     */
+    private static final ExecutorService LOGOUT_EXECUTOR  = createLogoutExecutor();
+
+    private final RequestFactory         requestFactory;
 
-    private final RequestFactory requestFactory;
+    private Store                        store;
 
-    private Store                store;
+    private String                       sessionId;
+    private ServerVersion                serverVersion;
 
-    private String               sessionId;
-    private ServerVersion        serverVersion;
+    private boolean                      sessionReuse;
+    private transient volatile boolean   sessionPooled;
 
     public SessionManager(final RequestFactory requestFactory) {
         this.requestFactory = requestFactory;
     }
 
+    /**
+     * Initializes a new instance of the {@link SessionManager} class that uses the connection
+     * settings of the specified store.
+     * @param requestFactory The {@link RequestFactory} used to create requests.
+     * @param store The {@link Store} whose connection settings to use.
+     */
+    public SessionManager(final RequestFactory requestFactory, final Store store) {
+        this(requestFactory);
+
+        this.setProxy(store.getProxyHost(), store.getProxyPort());
+        this.setProxyCredentials(store.getProxyUsername(), store.getProxyPassword());
+        this.setConnectionLimits(store.getMaxConnections(), store.getMaxConnectionsPerRoute());
+        this.setIoThreadCount(store.getIoThreadCount());
+        this.setConnectionTimeToLive(store.getConnectionTimeToLive());
+        this.setPipelining(store.isPipelining());
+        this.setSessionReuse(store.isSessionReuse());
+    }
+
+    private static ExecutorService createLogoutExecutor() {
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                2,
+                2,
+                30,
+                TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(),
+                new DaemonThreadFactory("Relution logout"));
+
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
     private String parseSessionId(final String cookie) {
         if (StringUtils.isBlank(cookie)) {
             return null;
@@ -97,6 +160,187 @@ public class SessionManager extends RequestManager implements AuthenticatedNetwo
         return new ServerVersion(version.getValue());
     }
 
+    /**
+     * Updates the {@link CapabilityCache} with the server version contained in the specified
+     * response, if any.
+     */
+    private ServerVersion updateServerVersion(final Store store, final ApiResponse response) {
+        final ServerVersion version = this.parseServerVersion(response);
+
+        if (store != null) {
+            CapabilityCache.getInstance().put(store, version);
+        }
+        return version;
+    }
+
+    private boolean isKnown(final ServerVersion version) {
+        return version != null && !StringUtils.isBlank(version.toString());
+    }
+
+    private boolean isUnauthorized(final ApiResponse response) {
+        return response.getStatusCode() == HttpStatus.SC_UNAUTHORIZED
+                || response.getStatusCode() == HttpStatus.SC_FORBIDDEN;
+    }
+
+    /**
+     * Prepares the use of an API token to authenticate requests. No session is created in this
+     * case, but a request is sent to determine the version of the server.
+     */
+    private void authenticateWithToken(final Store store) throws InterruptedException, ExecutionException, IOException {
+        final ServerCapabilities capabilities = CapabilityCache.getInstance().get(store);
+
+        this.store = store;
+        this.sessionId = null;
+
+        if (capabilities != null) {
+            this.serverVersion = capabilities.getVersion();
+            return;
+        }
+
+        this.serverVersion = this.refreshServerVersion(store);
+    }
+
+    /**
+     * Requests the version of the specified store without logging in and updates the
+     * {@link CapabilityCache} with it.
+     * @param store The {@link Store} whose version to request.
+     * @return The {@link ServerVersion} of the store, which is unknown if the server's response
+     * did not contain a version.
+     * @throws InterruptedException The current thread was interrupted.
+     * @throws ExecutionException The request failed.
+     * @throws IOException The request could not be sent.
+     */
+    public ServerVersion refreshServerVersion(final Store store) throws InterruptedException, ExecutionException, IOException {
+        final ApiRequest request = this.requestFactory.createLanguageRequest(store);
+        final ApiResponse response = super.execute(request, null);
+        return this.updateServerVersion(store, response);
+    }
+
+    private void authenticate(final Store store) throws InterruptedException, ExecutionException, IOException {
+        final ApiRequest request = this.requestFactory.createLoginRequest(store);
+        final ApiResponse response = super.execute(request, null);
+
+        this.store = store;
+        this.sessionId = this.parseSessionId(response);
+        this.serverVersion = this.updateServerVersion(store, response);
+    }
+
+    /**
+     * Logs in again, after the server rejected a request that was made using a session taken
+     * from the {@link SessionPool}.
+     */
+    private synchronized void renewSession(final Log log) throws InterruptedException, ExecutionException, IOException {
+        if (!this.sessionPooled) {
+            // Session has already been renewed by a concurrent request
+            return;
+        }
+
+        if (log != null) {
+            log.write(this, "Session is no longer valid, logging in again…");
+        }
+
+        this.setCookieStore(null);
+        this.authenticate(this.store);
+        this.sessionPooled = false;
+    }
+
+    /**
+     * Returns the current session to the {@link SessionPool}, if session reuse is enabled.
+     * @return {@code true} if the session was returned to the pool; otherwise, {@code false}.
+     */
+    private boolean releaseSession() {
+        if (!this.sessionReuse || this.store == null || this.sessionId == null) {
+            return false;
+        }
+
+        final SessionPool.Session session = new SessionPool.Session(this.getCookieStore(), this.sessionId, this.serverVersion);
+
+        if (!SessionPool.getInstance().offer(this.store, session)) {
+            return false;
+        }
+
+        this.serverVersion = null;
+        this.sessionId = null;
+        this.store = null;
+        return true;
+    }
+
+    /**
+     * Logs out of the current session in the background and closes the connection once the
+     * server has responded or {@link #LOGOUT_TIMEOUT} has elapsed. The outcome is recorded in the
+     * {@link Metrics} instead of being reported to the caller.
+     */
+    private void logOutAsync() {
+        final ApiRequest request = this.requestFactory.createLogoutRequest(this.store);
+        this.resetSession();
+
+        try {
+            LOGOUT_EXECUTOR.execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    SessionManager.this.completeLogOut(request);
+                }
+            });
+        } catch (final RejectedExecutionException e) {
+            Metrics.increment(Metrics.LOGOUT_FAILED);
+            this.closeConnection();
+        }
+    }
+
+    private void completeLogOut(final ApiRequest request) {
+        Future<HttpResponse> future = null;
+
+        try {
+            future = this.sendAsync(request);
+            final HttpResponse response = future.get(LOGOUT_TIMEOUT, TimeUnit.MILLISECONDS);
+            EntityUtils.consumeQuietly(response.getEntity());
+
+            if (response.getStatusLine().getStatusCode() < HttpStatus.SC_BAD_REQUEST) {
+                Metrics.increment(Metrics.LOGOUT_SUCCEEDED);
+            } else {
+                Metrics.increment(Metrics.LOGOUT_FAILED);
+            }
+
+        } catch (final TimeoutException e) {
+            future.cancel(true);
+            Metrics.increment(Metrics.LOGOUT_TIMED_OUT);
+
+        } catch (final InterruptedException e) {
+            Metrics.increment(Metrics.LOGOUT_FAILED);
+            Thread.currentThread().interrupt();
+
+        } catch (final ExecutionException e) {
+            Metrics.increment(Metrics.LOGOUT_FAILED);
+
+        } catch (final IOException e) {
+            Metrics.increment(Metrics.LOGOUT_FAILED);
+
+        } finally {
+            this.closeConnection();
+
+        }
+    }
+
+    private void closeConnection() {
+        try {
+            super.close();
+        } catch (final IOException e) {
+            // Do nothing
+        }
+    }
+
+    /**
+     * Sets a value indicating whether sessions should be reused. If enabled, {@link #close()}
+     * returns the current session to the {@link SessionPool} instead of logging out, and
+     * {@link #logIn(Store)} uses a session from the pool, if available.
+     * @param enabled {@code true} to reuse sessions; otherwise, {@code false}.
+     */
+    @Override
+    public void setSessionReuse(final boolean enabled) {
+        this.sessionReuse = enabled;
+    }
+
     @Override
     public void logIn(final Store store) throws InterruptedException, ExecutionException, IOException {
         if (store == null) {
@@ -107,23 +351,112 @@ public class SessionManager extends RequestManager implements AuthenticatedNetwo
             throw new IllegalStateException("Already logged in");
         }
 
-        final ApiRequest request = this.requestFactory.createLoginRequest(store);
-        final ApiResponse response = this.execute(request);
+        if (store.usesTokenAuthentication()) {
+            this.authenticateWithToken(store);
+            return;
+        }
 
-        this.store = store;
-        this.sessionId = this.parseSessionId(response);
-        this.serverVersion = this.parseServerVersion(response);
+        if (this.sessionReuse) {
+            final SessionPool.Session session = SessionPool.getInstance().take(store);
+
+            if (session != null) {
+                this.setCookieStore(session.getCookieStore());
+
+                this.store = store;
+                this.sessionId = session.getSessionId();
+                this.serverVersion = session.getServerVersion();
+                this.sessionPooled = true;
+                return;
+            }
+        }
+
+        this.authenticate(store);
+    }
+
+    @Override
+    public ApiResponse execute(final ApiRequest request, final Log log) throws IOException, InterruptedException, ExecutionException {
+        final boolean pooled = this.sessionPooled;
+        final ApiResponse response = super.execute(request, log);
+        this.updateServerVersion(this.store, response);
+
+        if (!pooled) {
+            return response;
+        }
+
+        if (!this.isUnauthorized(response)) {
+            this.sessionPooled = false;
+            return response;
+        }
+
+        this.renewSession(log);
+        final ApiResponse retryResponse = super.execute(request, log);
+        this.updateServerVersion(this.store, retryResponse);
+        return retryResponse;
+    }
+
+    @Override
+    public List<ApiResponse> executePipelined(final List<? extends ApiRequest> requests, final Log log)
+            throws IOException, InterruptedException, ExecutionException {
+
+        if (this.sessionPooled) {
+            // Pooled sessions may have expired, the first request validates the session
+            return this.executeSequentially(requests, log);
+        }
+
+        final List<ApiResponse> responses = super.executePipelined(requests, log);
+
+        for (final ApiResponse response : responses) {
+            this.updateServerVersion(this.store, response);
+        }
+        return responses;
+    }
+
+    @Override
+    public ListenableFuture<ApiResponse> executeAsync(final ApiRequest request, final Log log) throws IOException {
+
+        if (this.sessionPooled) {
+            // Pooled sessions may have expired, validate the session before sending requests
+            // concurrently, so it is renewed at most once
+            return this.executeValidated(request, log);
+        }
+
+        final ListenableFuture<ApiResponse> future = super.executeAsync(request, log);
+
+        return Futures.transform(future, new Function<ApiResponse, ApiResponse>() {
+
+            @Override
+            public ApiResponse apply(final ApiResponse response) {
+                SessionManager.this.updateServerVersion(SessionManager.this.store, response);
+                return response;
+            }
+        });
+    }
+
+    private ListenableFuture<ApiResponse> executeValidated(final ApiRequest request, final Log log) throws IOException {
+        try {
+            return Futures.immediateFuture(this.execute(request, log));
+
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Futures.immediateFailedFuture(e);
+
+        } catch (final ExecutionException e) {
+            return Futures.immediateFailedFuture(e.getCause());
+
+        }
     }
 
     @Override
     public boolean logOut() {
         if (this.store == null || this.sessionId == null) {
+            // Authenticated using a token, there is no session to log out of
+            this.resetSession();
             return false;
         }
 
         try {
             final ApiRequest request = this.requestFactory.createLogoutRequest(this.store);
-            this.execute(request);
+            super.execute(request, null);
             return true;
         } catch (final InterruptedException e) {
             e.printStackTrace();
@@ -135,20 +468,42 @@ public class SessionManager extends RequestManager implements AuthenticatedNetwo
             e.printStackTrace();
             return false;
         } finally {
-            this.serverVersion = null;
-            this.sessionId = null;
-            this.store = null;
+            this.resetSession();
         }
     }
 
+    private void resetSession() {
+        this.serverVersion = null;
+        this.sessionId = null;
+        this.store = null;
+        this.sessionPooled = false;
+    }
+
     @Override
     public ServerVersion getServerVersion() {
         return this.serverVersion;
     }
 
+    @Override
+    public ServerCapabilities getServerCapabilities() {
+        if (!this.isKnown(this.serverVersion) && this.store != null) {
+            final ServerCapabilities capabilities = CapabilityCache.getInstance().get(this.store);
+
+            if (capabilities != null) {
+                return capabilities;
+            }
+        }
+        return new ServerCapabilities(this.serverVersion);
+    }
+
     @Override
     public void close() throws IOException {
-        this.logOut();
-        super.close();
+        if (this.releaseSession() || this.store == null || this.sessionId == null) {
+            super.close();
+            return;
+        }
+
+        // Closes the connection once the server has responded
+        this.logOutAsync();
     }
 }
@@ -0,0 +1,208 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jenkinsci.plugins.relution_publisher.net;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.http.client.CookieStore;
+import org.jenkinsci.plugins.relution_publisher.configuration.global.Store;
+import org.jenkinsci.plugins.relution_publisher.model.ServerVersion;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Keeps authenticated sessions alive between builds, so subsequent builds that publish to the
+ * same store using the same credentials can skip the login.
+ * <p>
+ * Sessions are not validated when they are taken from the pool. Instead, the
+ * {@link SessionManager} logs in again if the server rejects a request made with a pooled
+ * session. Sessions that have not been used for {@link #MAX_IDLE_TIME} milliseconds are
+ * discarded, since the server has most likely expired them already.
+ */
+public final class SessionPool {
+
+    /**
+     * The maximum amount of time, in milliseconds, a session is kept in the pool.
+     */
+    private final static long              MAX_IDLE_TIME = TimeUnit.MINUTES.toMillis(15);
+
+    /**
+     * The maximum number of sessions kept for the same store and credentials.
+     */
+    private final static int               MAX_SESSIONS  = 4;
+
+    private final static SessionPool       INSTANCE      = new SessionPool();
+
+    private final Map<Key, Deque<Session>> sessions      = new HashMap<>();
+
+    private SessionPool() {
+    }
+
+    /**
+     * @return The {@link SessionPool} of the current JVM.
+     */
+    public static SessionPool getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Removes the most recently used session for the specified store from the pool.
+     * @param store The {@link Store} for which to return a session.
+     * @return A {@link Session}, or {@code null} if the pool contains no session for the store.
+     */
+    public synchronized Session take(final Store store) {
+        final Key key = new Key(store);
+        final Deque<Session> sessions = this.sessions.get(key);
+
+        if (sessions == null) {
+            return null;
+        }
+
+        this.evictExpired(sessions);
+        final Session session = sessions.pollFirst();
+
+        if (sessions.isEmpty()) {
+            this.sessions.remove(key);
+        }
+        return session;
+    }
+
+    /**
+     * Returns a session to the pool.
+     * @param store The {@link Store} to which the session belongs.
+     * @param session The {@link Session} to return.
+     * @return {@code true} if the session was added to the pool; {@code false} if the pool is
+     * full, in which case the caller should log out of the session.
+     */
+    public synchronized boolean offer(final Store store, final Session session) {
+        final Key key = new Key(store);
+        Deque<Session> sessions = this.sessions.get(key);
+
+        if (sessions == null) {
+            sessions = new ArrayDeque<>();
+            this.sessions.put(key, sessions);
+        }
+
+        this.evictExpired(sessions);
+
+        if (sessions.size() >= MAX_SESSIONS) {
+            return false;
+        }
+
+        sessions.addFirst(session);
+        return true;
+    }
+
+    private void evictExpired(final Deque<Session> sessions) {
+        final long now = System.currentTimeMillis();
+        final Iterator<Session> iterator = sessions.iterator();
+
+        while (iterator.hasNext()) {
+            final Session session = iterator.next();
+
+            if (now - session.lastUsed > MAX_IDLE_TIME) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * An authenticated session, represented by the cookies that identify it.
+     */
+    public static final class Session {
+
+        private final CookieStore   cookieStore;
+        private final String        sessionId;
+        private final ServerVersion serverVersion;
+        private final long          lastUsed;
+
+        /**
+         * Initializes a new instance of the {@link Session} class.
+         * @param cookieStore The {@link CookieStore} that contains the session's cookies.
+         * @param sessionId The identifier of the session.
+         * @param serverVersion The version of the server that created the session.
+         */
+        public Session(final CookieStore cookieStore, final String sessionId, final ServerVersion serverVersion) {
+            this.cookieStore = cookieStore;
+            this.sessionId = sessionId;
+            this.serverVersion = serverVersion;
+            this.lastUsed = System.currentTimeMillis();
+        }
+
+        /**
+         * @return The {@link CookieStore} that contains the session's cookies.
+         */
+        public CookieStore getCookieStore() {
+            return this.cookieStore;
+        }
+
+        /**
+         * @return The identifier of the session.
+         */
+        public String getSessionId() {
+            return this.sessionId;
+        }
+
+        /**
+         * @return The version of the server that created the session.
+         */
+        public ServerVersion getServerVersion() {
+            return this.serverVersion;
+        }
+    }
+
+    private static final class Key {
+
+        private final String url;
+        private final String username;
+        private final String password;
+
+        public Key(final Store store) {
+            this.url = store.getUrl();
+            this.username = store.getUsername();
+            this.password = store.getPassword();
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(this.url, this.username, this.password);
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+
+            if (obj == this) {
+                return true;
+            }
+
+            if (obj instanceof Key) {
+                final Key other = (Key) obj;
+                return StringUtils.equals(this.url, other.url)
+                        && StringUtils.equals(this.username, other.username)
+                        && StringUtils.equals(this.password, other.password);
+            }
+
+            return false;
+        }
+    }
+}
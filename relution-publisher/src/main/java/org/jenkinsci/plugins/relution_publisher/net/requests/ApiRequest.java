@@ -17,7 +17,9 @@
 package org.jenkinsci.plugins.relution_publisher.net.requests;
 
 import org.apache.http.HttpResponse;
+import org.apache.http.concurrent.FutureCallback;
 import org.apache.http.nio.client.HttpAsyncClient;
+import org.apache.http.protocol.HttpContext;
 
 import java.io.IOException;
 import java.util.concurrent.Future;
@@ -28,7 +30,17 @@ import java.util.concurrent.Future;
  */
 public interface ApiRequest {
 
-    Future<HttpResponse> execute(HttpAsyncClient httpClient) throws IOException;
+    /**
+     * Sends the request using the specified client.
+     * @param httpClient The {@link HttpAsyncClient} used to send the request.
+     * @param httpContext The {@link HttpContext} in which the request is executed.
+     * @param callback The {@link FutureCallback} notified when the request completes, or
+     * {@code null} if the caller waits for the returned future instead.
+     * @return A {@link Future} that completes once the server's response has been received.
+     * @throws IOException The request could not be sent.
+     */
+    Future<HttpResponse> execute(HttpAsyncClient httpClient, HttpContext httpContext, FutureCallback<HttpResponse> callback)
+            throws IOException;
 
     Method getMethod();
 
@@ -78,6 +78,15 @@ public abstract class BaseRequest implements ApiRequest {
         this.mHeaders.put(name, value);
     }
 
+    /**
+     * Gets the value of the header with the specified name.
+     * @param name The name of the header.
+     * @return The value of the header, or {@code null} if the request has no such header.
+     */
+    public String getHeader(final String name) {
+        return this.mHeaders.get(name);
+    }
+
     /**
      * Gets the query parameters to use for the request.
      * @return The {@link RequestQueryFields} to use.
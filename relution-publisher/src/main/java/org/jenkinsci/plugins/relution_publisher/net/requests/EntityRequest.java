@@ -22,9 +22,15 @@ import org.apache.http.client.methods.HttpDelete;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpPut;
+import org.apache.http.client.methods.HttpRequestWrapper;
 import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.utils.URIUtils;
+import org.apache.http.concurrent.FutureCallback;
 import org.apache.http.nio.client.HttpAsyncClient;
+import org.apache.http.protocol.HttpContext;
 
+import java.io.IOException;
+import java.net.URISyntaxException;
 import java.util.concurrent.Future;
 
 
@@ -69,6 +75,23 @@ public class EntityRequest extends BaseRequest {
         return request;
     }
 
+    /**
+     * Creates a request that can be sent by a pipelining client. Pipelining clients send all
+     * requests to the same host, so the URI of the returned request is relative to that host.
+     * @return A new {@link HttpUriRequest} that represents this request.
+     * @throws IOException The URI of the request is invalid.
+     */
+    public HttpUriRequest createPipelinedRequest() throws IOException {
+        final HttpRequestWrapper request = HttpRequestWrapper.wrap(this.createRequest());
+
+        try {
+            request.setURI(URIUtils.rewriteURI(request.getURI(), null, true));
+        } catch (final URISyntaxException e) {
+            throw new IOException(e);
+        }
+        return request;
+    }
+
     public HttpEntity getEntity() {
         return this.mHttpEntity;
     }
@@ -78,9 +101,9 @@ public class EntityRequest extends BaseRequest {
     }
 
     @Override
-    public Future<HttpResponse> execute(final HttpAsyncClient httpClient) {
+    public Future<HttpResponse> execute(final HttpAsyncClient httpClient, final HttpContext httpContext, final FutureCallback<HttpResponse> callback) {
 
         final HttpUriRequest request = this.createRequest();
-        return httpClient.execute(request, null);
+        return httpClient.execute(request, httpContext, callback);
     }
 }
@@ -17,23 +17,32 @@
 package org.jenkinsci.plugins.relution_publisher.net.requests;
 
 import org.apache.http.HttpResponse;
+import org.apache.http.concurrent.FutureCallback;
 import org.apache.http.nio.client.HttpAsyncClient;
 import org.apache.http.nio.protocol.BasicAsyncResponseConsumer;
 import org.apache.http.nio.protocol.HttpAsyncRequestProducer;
 import org.apache.http.nio.protocol.HttpAsyncResponseConsumer;
+import org.apache.http.protocol.HttpContext;
 import org.apache.http.util.Args;
+import org.jenkinsci.plugins.relution_publisher.util.Digests;
+import org.jenkinsci.plugins.relution_publisher.util.Metrics;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.security.MessageDigest;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.Future;
 
+import javax.xml.bind.DatatypeConverter;
+
 
 public class ZeroCopyFileRequest extends BaseRequest {
 
     private final List<Item>            mFiles = new ArrayList<>();
     private ZeroCopyFileRequestProducer mProducer;
+    private boolean                     mComputeChecksums;
 
     public ZeroCopyFileRequest(final String uri) {
         super(Method.POST, uri);
@@ -51,11 +60,86 @@ public class ZeroCopyFileRequest extends BaseRequest {
         return this.mFiles;
     }
 
+    /**
+     * @return {@code true} if the checksums of the request's items are computed; otherwise,
+     * {@code false}.
+     */
+    public boolean isComputeChecksums() {
+        return this.mComputeChecksums;
+    }
+
+    /**
+     * Sets a value indicating whether the checksums of the request's items are computed. If
+     * enabled, the SHA-256 checksum of each item is sent in an additional form field named after
+     * the item, with the suffix {@code .sha256}, after all items.
+     * @param computeChecksums {@code true} to compute checksums; otherwise, {@code false}.
+     * @see #computeChecksums()
+     */
+    public void setComputeChecksums(final boolean computeChecksums) {
+        this.mComputeChecksums = computeChecksums;
+    }
+
+    /**
+     * Sets the checksums of the items of the specified file, if checksums are enabled, e.g.
+     * because the file has already been read to compute its digest. The file is then not read
+     * again by {@link #computeChecksums()}.
+     * @param file The {@link File} whose checksums to set, must not be a directory.
+     * @param sha256 The SHA-256 checksum of the file as a hexadecimal string.
+     * @param md5 The MD5 checksum of the file, Base64 encoded.
+     */
+    public void setChecksums(final File file, final String sha256, final String md5) {
+        if (!this.mComputeChecksums || sha256 == null || md5 == null) {
+            return;
+        }
+
+        for (final Item item : this.mFiles) {
+            if (!item.isDirectory() && item.getFile().equals(file)) {
+                item.setChecksums(sha256, md5);
+            }
+        }
+    }
+
+    /**
+     * Computes the checksums of the request's files, if checksums are enabled and have not been
+     * computed or set yet. Each file is read once, using the calling thread, so the thread that
+     * sends the request is not blocked by disk access. The checksums of directories are computed while
+     * they are compressed and sent, since the archive only exists at that time.
+     * <p>
+     * This method is called when the request is executed, callers may call it earlier.
+     * @throws IOException A file could not be read.
+     */
+    public void computeChecksums() throws IOException {
+        if (!this.mComputeChecksums) {
+            return;
+        }
+
+        for (final Item item : this.mFiles) {
+            if (item.isDirectory() || item.getSha256() != null) {
+                continue;
+            }
+
+            final MessageDigest sha256 = Digests.newSha256();
+            final MessageDigest md5 = Digests.newMd5();
+            Digests.update(item.getFile(), sha256, md5);
+
+            item.setChecksums(
+                    Digests.toHex(sha256.digest()),
+                    DatatypeConverter.printBase64Binary(md5.digest()));
+            Metrics.add(Metrics.CHECKSUM_BYTES, item.getFile().length());
+        }
+    }
+
     @Override
-    public Future<HttpResponse> execute(final HttpAsyncClient httpClient) throws FileNotFoundException {
+    public Future<HttpResponse> execute(final HttpAsyncClient httpClient, final HttpContext httpContext, final FutureCallback<HttpResponse> callback)
+            throws IOException {
         final HttpAsyncResponseConsumer<HttpResponse> consumer = new BasicAsyncResponseConsumer();
         final HttpAsyncRequestProducer producer = this.getProducer();
-        return httpClient.execute(producer, consumer, null);
+
+        this.computeChecksums();
+
+        // The request may be executed more than once, e.g. if it is retried
+        producer.resetRequest();
+        return httpClient.execute(producer, consumer, httpContext, callback);
     }
 
     public long getContentLength() throws FileNotFoundException {
@@ -72,8 +156,13 @@ public class ZeroCopyFileRequest extends BaseRequest {
 
     public static class Item {
 
-        private final String name;
-        private final File   file;
+        private final static String ZIP_EXTENSION = ".zip";
+
+        private final String        name;
+        private final File          file;
+
+        private String              sha256;
+        private String              md5;
 
         public Item(final String name, final File file) {
             this.name = name;
@@ -87,5 +176,44 @@ public class ZeroCopyFileRequest extends BaseRequest {
         public File getFile() {
             return this.file;
         }
+
+        /**
+         * @return The name of the file as it is sent to the server. A directory is sent as a zip
+         * archive and its name is extended accordingly.
+         */
+        public String getFileName() {
+            return this.isDirectory()
+                    ? this.file.getName() + ZIP_EXTENSION
+                    : this.file.getName();
+        }
+
+        /**
+         * @return {@code true} if the item is a directory, e.g. an application bundle, which is
+         * compressed into a zip archive while it is sent; otherwise, {@code false}.
+         */
+        public boolean isDirectory() {
+            return this.file.isDirectory();
+        }
+
+        /**
+         * @return The SHA-256 checksum of the item as a hexadecimal string, or {@code null} if
+         * the checksum was not computed (yet).
+         */
+        public synchronized String getSha256() {
+            return this.sha256;
+        }
+
+        /**
+         * @return The MD5 checksum of the item, Base64 encoded, or {@code null} if the checksum
+         * was not computed.
+         */
+        public synchronized String getMd5() {
+            return this.md5;
+        }
+
+        synchronized void setChecksums(final String sha256, final String md5) {
+            this.sha256 = sha256;
+            this.md5 = md5;
+        }
     }
 }
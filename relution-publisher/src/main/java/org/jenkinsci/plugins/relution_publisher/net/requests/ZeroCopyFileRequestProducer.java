@@ -17,6 +17,7 @@
 package org.jenkinsci.plugins.relution_publisher.net.requests;
 
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpEntityEnclosingRequest;
 import org.apache.http.HttpException;
@@ -34,6 +35,8 @@ import org.apache.http.nio.protocol.HttpAsyncRequestProducer;
 import org.apache.http.protocol.HttpContext;
 import org.apache.tika.Tika;
 import org.jenkinsci.plugins.relution_publisher.net.requests.ZeroCopyFileRequest.Item;
+import org.jenkinsci.plugins.relution_publisher.util.Digests;
+import org.jenkinsci.plugins.relution_publisher.util.Metrics;
 
 import java.io.File;
 import java.io.FileNotFoundException;
@@ -43,12 +46,15 @@ import java.net.URI;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
+import java.security.MessageDigest;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
+import javax.xml.bind.DatatypeConverter;
+
 
 public class ZeroCopyFileRequestProducer implements HttpAsyncRequestProducer {
 
@@ -58,6 +64,18 @@ public class ZeroCopyFileRequestProducer implements HttpAsyncRequestProducer {
     private final static String       CONTENT_TYPE_MULTIPART_FORM_DATA = "multipart/form-data; boundary=%s";
     private final static String       CRLF                             = "\r\n";
 
+    private final static String       CONTENT_TYPE_ZIP                 = "application/zip";
+
+    /**
+     * The size of the buffer that holds data read from a {@link ZipStream} until it is sent.
+     */
+    private final static int          STREAM_BUFFER_SIZE               = 64 * 1024;
+
+    /**
+     * The length of a SHA-256 checksum encoded as hexadecimal string.
+     */
+    private final static int          SHA_256_LENGTH                   = 64;
+
     private final String              mMultipartBoundary               = UUID.randomUUID().toString();
 
     private final Map<Item, byte[]>   mMultipartHeaderMap              = new HashMap<>();
@@ -66,6 +84,9 @@ public class ZeroCopyFileRequestProducer implements HttpAsyncRequestProducer {
     private byte[]                    mMultipartFooter;
     private int                       mMultipartFooterIndex;
 
+    private byte[]                    mMultipartTrailer;
+    private int                       mMultipartTrailerIndex;
+
     private final ZeroCopyFileRequest mRequest;
 
     private final List<Item>          mItems;
@@ -78,9 +99,17 @@ public class ZeroCopyFileRequestProducer implements HttpAsyncRequestProducer {
     private FileChannel               mFileChannel;
     private long                      mFilePosition                    = -1;
 
+    private ZipStream                 mZipStream;
+    private ByteBuffer                mStreamBuffer;
+
+    private final boolean             mComputeChecksums;
+    private MessageDigest             mSha256;
+    private MessageDigest             mMd5;
+
     public ZeroCopyFileRequestProducer(final ZeroCopyFileRequest request) throws FileNotFoundException {
         this.mRequest = request;
         this.mItems = request.getItems();
+        this.mComputeChecksums = request.isComputeChecksums();
     }
 
     private String getContentType(final File file) {
@@ -104,9 +133,11 @@ public class ZeroCopyFileRequestProducer implements HttpAsyncRequestProducer {
             }
 
             this.writeln(sb, "--%s", this.mMultipartBoundary);
-            this.writeln(sb, "Content-Disposition: form-data; name=\"%s\"; filename=\"%s\"", item.getName(), item.getFile().getName());
+            this.writeln(sb, "Content-Disposition: form-data; name=\"%s\"; filename=\"%s\"", item.getName(), item.getFileName());
 
-            final String contentType = this.getContentType(item.getFile());
+            final String contentType = item.isDirectory()
+                    ? CONTENT_TYPE_ZIP
+                    : this.getContentType(item.getFile());
             this.writeln(sb, "Content-Type: %s", contentType);
             this.writeln(sb, "Content-Transfer-Encoding: binary");
             this.writeln(sb);
@@ -133,6 +164,39 @@ public class ZeroCopyFileRequestProducer implements HttpAsyncRequestProducer {
         return this.mMultipartFooter;
     }
 
+    /**
+     * Returns the form fields that contain the SHA-256 checksum of each item. Since the checksums
+     * of directories are computed while they are sent, these fields are sent after all items.
+     * @param placeholder {@code true} to return fields of the correct length that do not contain
+     * the actual checksums, e.g. to compute the length of the request.
+     */
+    private byte[] getTrailer(final boolean placeholder) {
+        if (!this.mComputeChecksums) {
+            return new byte[0];
+        }
+
+        if (!placeholder && this.mMultipartTrailer != null) {
+            return this.mMultipartTrailer;
+        }
+
+        final StringBuilder sb = new StringBuilder();
+
+        for (final Item item : this.mItems) {
+            this.writeln(sb);
+            this.writeln(sb, "--%s", this.mMultipartBoundary);
+            this.writeln(sb, "Content-Disposition: form-data; name=\"%s.sha256\"", item.getName());
+            this.writeln(sb);
+            sb.append(placeholder ? StringUtils.repeat("0", SHA_256_LENGTH) : item.getSha256());
+        }
+
+        final byte[] trailer = sb.toString().getBytes(CHARSET);
+
+        if (!placeholder) {
+            this.mMultipartTrailer = trailer;
+        }
+        return trailer;
+    }
+
     private boolean writeHeader(final ContentEncoder encoder, final IOControl ioctrl, final Item item, final boolean first) throws IOException {
         final byte[] array = this.getHeader(item, first);
 
@@ -147,6 +211,20 @@ public class ZeroCopyFileRequestProducer implements HttpAsyncRequestProducer {
         return this.mMultipartHeaderIndex >= array.length;
     }
 
+    private boolean writeTrailer(final ContentEncoder encoder, final IOControl ioctrl) throws IOException {
+        final byte[] array = this.getTrailer(false);
+
+        if (this.mMultipartTrailerIndex >= array.length) {
+            return true;
+        }
+
+        final int length = array.length - this.mMultipartTrailerIndex;
+        final ByteBuffer buffer = ByteBuffer.wrap(array, this.mMultipartTrailerIndex, length);
+        this.mMultipartTrailerIndex += encoder.write(buffer);
+
+        return this.mMultipartTrailerIndex >= array.length;
+    }
+
     private boolean writeFooter(final ContentEncoder encoder, final IOControl ioctrl) throws IOException {
         final byte[] array = this.getFooter();
 
@@ -186,27 +264,41 @@ public class ZeroCopyFileRequestProducer implements HttpAsyncRequestProducer {
         return String.format(CONTENT_TYPE_MULTIPART_FORM_DATA, this.mMultipartBoundary);
     }
 
+    /**
+     * Returns the length of the request body.
+     * @return The length of the request body, in bytes, or {@code -1} if the length is not
+     * known in advance because the request contains a directory that is compressed while it is
+     * sent.
+     */
     public long getContentLength() {
         long length = 0;
 
         for (int n = 0; n < this.mItems.size(); n++) {
             final Item item = this.mItems.get(n);
+
+            if (item.isDirectory()) {
+                return -1;
+            }
+
             final byte[] header = this.getHeader(item, n == 0);
             length += header.length;
             length += item.getFile().length();
         }
 
+        final byte[] trailer = this.getTrailer(true);
         final byte[] footer = this.getFooter();
-        return length + footer.length;
+        return length + trailer.length + footer.length;
     }
 
     @Override
     public HttpRequest generateRequest() throws IOException, HttpException {
         final BasicHttpEntity entity = new BasicHttpEntity();
 
-        entity.setContentLength(this.getContentLength());
+        final long length = this.getContentLength();
+
+        entity.setContentLength(length);
         entity.setContentType(this.getContentType());
-        entity.setChunked(false);
+        entity.setChunked(length < 0);
 
         return this.createRequest(this.mRequest.getUri(), entity);
     }
@@ -233,38 +325,135 @@ public class ZeroCopyFileRequestProducer implements HttpAsyncRequestProducer {
                 return;
             }
 
-            if (this.mFileChannel == null) {
-                this.mFile = new RandomAccessFile(this.mItem.getFile(), "r");
-                this.mFileChannel = this.mFile.getChannel();
+            if (this.mFileChannel == null && this.mZipStream == null) {
+                this.openFile(this.mItem.getFile());
                 this.mFilePosition = 0;
-            }
 
-            final long transferred;
+                // The checksums of files are computed before the request is sent
+                if (this.mComputeChecksums && this.mItem.isDirectory()) {
+                    this.mSha256 = Digests.newSha256();
+                    this.mMd5 = Digests.newMd5();
+                }
+            }
 
-            if (encoder instanceof FileContentEncoder) {
-                transferred = ((FileContentEncoder) encoder).transfer(this.mFileChannel, this.mFilePosition, Integer.MAX_VALUE);
+            if (this.mZipStream != null) {
+                if (this.writeStream(encoder, ioctrl)) {
+                    this.completeItem();
+                }
 
             } else {
-                transferred = this.mFileChannel.transferTo(this.mFilePosition, Integer.MAX_VALUE, new ContentEncoderChannel(encoder));
+                this.writeFile(encoder);
+
+            }
+        }
+
+        if (this.mItem == null
+                && !this.mItemIterator.hasNext()
+                && this.writeTrailer(encoder, ioctrl)
+                && this.writeFooter(encoder, ioctrl)) {
+            encoder.complete();
+        }
+    }
+
+    private void writeFile(final ContentEncoder encoder) throws IOException {
+        final long transferred;
+
+        if (encoder instanceof FileContentEncoder) {
+            transferred = ((FileContentEncoder) encoder).transfer(this.mFileChannel, this.mFilePosition, Integer.MAX_VALUE);
 
+        } else {
+            transferred = this.mFileChannel.transferTo(this.mFilePosition, Integer.MAX_VALUE, new ContentEncoderChannel(encoder));
+
+        }
+
+        if (transferred > 0) {
+            this.mFilePosition += transferred;
+        }
+
+        if (this.mFilePosition >= this.getFileSize()) {
+            this.completeItem();
+        }
+    }
+
+    /**
+     * Writes the current item from the {@link ZipStream} that compresses it. Data is read from
+     * the stream only after the previously read data has been sent, so the checksums can be
+     * updated as soon as data is read.
+     * @return {@code true} if the archive has been sent completely; otherwise, {@code false}.
+     */
+    private boolean writeStream(final ContentEncoder encoder, final IOControl ioctrl) throws IOException {
+        if (!this.mStreamBuffer.hasRemaining()) {
+            this.mStreamBuffer.clear();
+            final int read = this.mZipStream.read(this.mStreamBuffer, ioctrl);
+            this.mStreamBuffer.flip();
+
+            if (read < 0) {
+                return true;
             }
 
-            if (transferred > 0) {
-                this.mFilePosition += transferred;
+            if (read == 0) {
+                return false;
             }
 
-            if (this.mFilePosition >= this.mFileChannel.size()) {
-                IOUtils.closeQuietly(this.mFileChannel);
-                IOUtils.closeQuietly(this.mFile);
-                this.mFileChannel = null;
-                this.mFile = null;
-                this.mItem = null;
+            if (this.mSha256 != null) {
+                this.mSha256.update(this.mStreamBuffer.duplicate());
+                this.mMd5.update(this.mStreamBuffer.duplicate());
+                Metrics.add(Metrics.CHECKSUM_BYTES, read);
             }
         }
 
-        if (this.mItem == null && !this.mItemIterator.hasNext() && this.writeFooter(encoder, ioctrl)) {
-            encoder.complete();
+        encoder.write(this.mStreamBuffer);
+        return false;
+    }
+
+    private void completeItem() {
+        this.completeChecksums(this.mItem);
+        this.closeFile();
+        this.mItem = null;
+    }
+
+    private void openFile(final File file) throws IOException {
+        if (file.isDirectory()) {
+            this.mZipStream = ZipStream.open(file);
+            this.mStreamBuffer = ByteBuffer.allocate(STREAM_BUFFER_SIZE);
+            this.mStreamBuffer.flip();
+
+        } else {
+            this.mFile = new RandomAccessFile(file, "r");
+            this.mFileChannel = this.mFile.getChannel();
+
+        }
+    }
+
+    private long getFileSize() throws IOException {
+        return this.mFileChannel.size();
+    }
+
+    private void closeFile() {
+        if (this.mZipStream != null) {
+            this.mZipStream.close();
         }
+        IOUtils.closeQuietly(this.mFileChannel);
+        IOUtils.closeQuietly(this.mFile);
+        this.mZipStream = null;
+        this.mStreamBuffer = null;
+        this.mSha256 = null;
+        this.mMd5 = null;
+        this.mFileChannel = null;
+        this.mFile = null;
+    }
+
+    private void completeChecksums(final Item item) {
+        if (this.mSha256 == null) {
+            return;
+        }
+
+        item.setChecksums(
+                Digests.toHex(this.mSha256.digest()),
+                DatatypeConverter.printBase64Binary(this.mMd5.digest()));
+
+        this.mSha256 = null;
+        this.mMd5 = null;
     }
 
     @Override
@@ -282,10 +471,12 @@ public class ZeroCopyFileRequestProducer implements HttpAsyncRequestProducer {
 
     @Override
     public synchronized void resetRequest() throws IOException {
-        IOUtils.closeQuietly(this.mFileChannel);
-        IOUtils.closeQuietly(this.mFile);
+        this.closeFile();
+        this.mItem = null;
         this.mMultipartHeaderIndex = 0;
         this.mMultipartFooterIndex = 0;
+        this.mMultipartTrailer = null;
+        this.mMultipartTrailerIndex = 0;
         this.mItemIterator = null;
         this.mFilePosition = 0;
     }
@@ -298,7 +489,6 @@ public class ZeroCopyFileRequestProducer implements HttpAsyncRequestProducer {
 
     @Override
     public synchronized void close() throws IOException {
-        IOUtils.closeQuietly(this.mFileChannel);
-        IOUtils.closeQuietly(this.mFile);
+        this.closeFile();
     }
 }
@@ -0,0 +1,294 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jenkinsci.plugins.relution_publisher.net.requests;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.http.nio.IOControl;
+import org.apache.tools.zip.UnixStat;
+import org.apache.tools.zip.ZipEntry;
+import org.apache.tools.zip.ZipOutputStream;
+import org.jenkinsci.plugins.relution_publisher.util.Bundles;
+import org.jenkinsci.plugins.relution_publisher.util.DaemonThreadFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ThreadFactory;
+
+
+/**
+ * Compresses a directory into a zip archive on a background thread, so the archive can be sent
+ * while it is created, without writing it to a temporary file first.
+ * <p>
+ * The compressed data is passed to the reader through a bounded buffer. The compressing thread
+ * waits while the buffer is full, so a slow connection never causes more than
+ * {@link #BUFFER_SIZE} bytes to be held in memory. If the buffer is empty, the reader's output
+ * is suspended until the compressing thread has produced more data.
+ * <p>
+ * The directory is walked depth-first and the files of each directory are sorted by name, so the
+ * same directory always results in the same sequence of entries. Each entry records the Unix
+ * mode of its file, so executables in a bundle remain executable. Symbolic links are stored as
+ * links and are never followed.
+ */
+final class ZipStream implements AutoCloseable {
+
+    /**
+     * The maximum number of compressed bytes that are buffered until they are read.
+     */
+    private final static int              BUFFER_SIZE  = 1024 * 1024;
+
+    private final static int              WRITE_BUFFER = 64 * 1024;
+
+    private final static ThreadFactory    THREADS      = new DaemonThreadFactory("Relution zip stream");
+
+    private final static Charset          UTF_8        = Charset.forName("UTF-8");
+
+    /**
+     * Orders files by name. The comparison is case-sensitive, i.e. upper case letters are sorted
+     * before lower case letters on every file system.
+     */
+    private final static Comparator<File> BY_NAME      = new Comparator<File>() {
+
+        @Override
+        public int compare(final File lhs, final File rhs) {
+            return lhs.getName().compareTo(rhs.getName());
+        }
+    };
+
+    private final File                    directory;
+    private final byte[]                  buffer       = new byte[BUFFER_SIZE];
+
+    private int                           readIndex;
+    private int                           available;
+
+    private boolean                       finished;
+    private boolean                       closed;
+    private IOException                   error;
+
+    private IOControl                     ioctrl;
+
+    private ZipStream(final File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Starts to compress the specified directory.
+     * @param directory The directory to compress. The archive contains the directory itself,
+     * i.e. the path of each entry starts with the name of the directory.
+     * @return A {@link ZipStream} from which the compressed data can be read.
+     */
+    public static ZipStream open(final File directory) {
+        final ZipStream stream = new ZipStream(directory);
+
+        final Thread thread = THREADS.newThread(new Runnable() {
+
+            @Override
+            public void run() {
+                stream.compress();
+            }
+        });
+        thread.start();
+        return stream;
+    }
+
+    /**
+     * Reads compressed data into the specified buffer.
+     * @param dst The {@link ByteBuffer} into which data is read.
+     * @param ioctrl The {@link IOControl} of the connection the data is written to. If no data
+     * is available, output on the connection is suspended and requested again as soon as
+     * data becomes available.
+     * @return The number of bytes read, which may be zero, or {@code -1} if the archive is
+     * complete and all data has been read.
+     * @throws IOException The directory could not be compressed.
+     */
+    public synchronized int read(final ByteBuffer dst, final IOControl ioctrl) throws IOException {
+        if (this.available == 0) {
+            if (this.error != null) {
+                throw this.error;
+            }
+
+            if (this.finished) {
+                return -1;
+            }
+
+            this.ioctrl = ioctrl;
+            ioctrl.suspendOutput();
+            return 0;
+        }
+
+        final int length = Math.min(dst.remaining(), Math.min(this.available, BUFFER_SIZE - this.readIndex));
+        dst.put(this.buffer, this.readIndex, length);
+
+        this.readIndex = (this.readIndex + length) % BUFFER_SIZE;
+        this.available -= length;
+        this.notifyAll();
+
+        return length;
+    }
+
+    /**
+     * Stops compressing the directory and discards all data that has not been read.
+     */
+    @Override
+    public synchronized void close() {
+        this.closed = true;
+        this.ioctrl = null;
+        this.notifyAll();
+    }
+
+    private synchronized void write(final byte[] data, final int offset, final int length) throws IOException {
+        int index = offset;
+        int remaining = length;
+
+        while (remaining > 0) {
+            while (this.available == BUFFER_SIZE && !this.closed) {
+                try {
+                    this.wait();
+
+                } catch (final InterruptedException e) {
+                    throw new InterruptedIOException("Compression of directory was interrupted");
+
+                }
+            }
+
+            if (this.closed) {
+                throw new IOException("Stream closed");
+            }
+
+            final int writeIndex = (this.readIndex + this.available) % BUFFER_SIZE;
+            final int count = Math.min(remaining, Math.min(BUFFER_SIZE - this.available, BUFFER_SIZE - writeIndex));
+            System.arraycopy(data, index, this.buffer, writeIndex, count);
+
+            this.available += count;
+            index += count;
+            remaining -= count;
+            this.resumeOutput();
+        }
+    }
+
+    private synchronized void finish(final IOException error) {
+        this.finished = true;
+        this.error = error;
+        this.resumeOutput();
+    }
+
+    private void resumeOutput() {
+        if (this.ioctrl != null) {
+            this.ioctrl.requestOutput();
+            this.ioctrl = null;
+        }
+    }
+
+    private void compress() {
+        final ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(new BufferOutputStream(), WRITE_BUFFER));
+        zip.setEncoding(UTF_8.name());
+
+        try {
+            this.addDirectory(zip, this.directory, this.directory.getName() + "/");
+            zip.finish();
+            zip.flush();
+            this.finish(null);
+
+        } catch (final IOException e) {
+            this.finish(e);
+
+        } catch (final Throwable e) {
+            // The reader must not wait for data that is never written
+            this.finish(new IOException("Compression of directory failed", e));
+
+        } finally {
+            IOUtils.closeQuietly(zip);
+
+        }
+    }
+
+    private void addDirectory(final ZipOutputStream zip, final File directory, final String path) throws IOException {
+        final File[] files = directory.listFiles();
+
+        if (files == null) {
+            throw new IOException(String.format("Unable to list files in \"%s\"", directory));
+        }
+
+        final ZipEntry entry = new ZipEntry(path);
+        entry.setTime(directory.lastModified());
+        entry.setUnixMode(UnixStat.DIR_FLAG | Bundles.getPermissions(directory));
+        zip.putNextEntry(entry);
+        zip.closeEntry();
+
+        Arrays.sort(files, BY_NAME);
+
+        for (final File file : files) {
+            if (Files.isSymbolicLink(file.toPath())) {
+                // Links are not followed, these may point to a parent directory
+                this.addLink(zip, file, path + file.getName());
+
+            } else if (file.isDirectory()) {
+                this.addDirectory(zip, file, path + file.getName() + "/");
+
+            } else {
+                this.addFile(zip, file, path + file.getName());
+
+            }
+        }
+    }
+
+    private void addLink(final ZipOutputStream zip, final File link, final String path) throws IOException {
+        final ZipEntry entry = new ZipEntry(path);
+        entry.setTime(Files.getLastModifiedTime(link.toPath(), LinkOption.NOFOLLOW_LINKS).toMillis());
+        entry.setUnixMode(UnixStat.LINK_FLAG | UnixStat.DEFAULT_LINK_PERM);
+        zip.putNextEntry(entry);
+
+        // The content of a link entry is the path of its target
+        zip.write(Files.readSymbolicLink(link.toPath()).toString().getBytes(UTF_8));
+        zip.closeEntry();
+    }
+
+    private void addFile(final ZipOutputStream zip, final File file, final String path) throws IOException {
+        final ZipEntry entry = new ZipEntry(path);
+        entry.setTime(file.lastModified());
+        entry.setUnixMode(UnixStat.FILE_FLAG | Bundles.getPermissions(file));
+        zip.putNextEntry(entry);
+
+        try (InputStream in = new FileInputStream(file)) {
+            IOUtils.copy(in, zip);
+        }
+        zip.closeEntry();
+    }
+
+    private class BufferOutputStream extends OutputStream {
+
+        @Override
+        public void write(final int b) throws IOException {
+            this.write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) throws IOException {
+            ZipStream.this.write(b, off, len);
+        }
+    }
+}
@@ -0,0 +1,247 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jenkinsci.plugins.relution_publisher.util;
+
+import org.apache.commons.lang.StringUtils;
+import org.jenkinsci.plugins.relution_publisher.model.AppMetadata;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+
+/**
+ * Reads the package name and version of an Android app from its compiled
+ * {@code AndroidManifest.xml}, which is stored in Android's binary XML format.
+ */
+final class AndroidManifestParser {
+
+    private final static int CHUNK_XML          = 0x0003;
+    private final static int CHUNK_STRING_POOL  = 0x0001;
+    private final static int CHUNK_RESOURCE_MAP = 0x0180;
+    private final static int CHUNK_START_TAG    = 0x0102;
+
+    private final static int UTF8_FLAG          = 1 << 8;
+
+    private final static int TYPE_STRING        = 0x03;
+    private final static int TYPE_INT_DEC       = 0x10;
+    private final static int TYPE_INT_HEX       = 0x11;
+
+    /**
+     * The resource identifier of the {@code android:versionCode} attribute.
+     */
+    private final static int ATTR_VERSION_CODE  = 0x0101021b;
+
+    /**
+     * The resource identifier of the {@code android:versionName} attribute.
+     */
+    private final static int ATTR_VERSION_NAME  = 0x0101021c;
+
+    private final ByteBuffer buffer;
+
+    private String[]         strings            = new String[0];
+    private int[]            resourceIds        = new int[0];
+
+    private AndroidManifestParser(final byte[] data) {
+        this.buffer = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Parses the specified binary manifest.
+     * @param data The content of the {@code AndroidManifest.xml} file.
+     * @return The {@link AppMetadata} declared by the manifest's root element.
+     * @throws IOException The data is not a valid binary manifest.
+     */
+    public static AppMetadata parse(final byte[] data) throws IOException {
+        try {
+            return new AndroidManifestParser(data).parse();
+
+        } catch (final IndexOutOfBoundsException e) {
+            throw new IOException("Malformed binary XML document", e);
+
+        }
+    }
+
+    private int u16(final int index) {
+        return this.buffer.getShort(index) & 0xFFFF;
+    }
+
+    private int u8(final int index) {
+        return this.buffer.get(index) & 0xFF;
+    }
+
+    private AppMetadata parse() throws IOException {
+        final int length = this.buffer.capacity();
+
+        if (length < 8 || this.u16(0) != CHUNK_XML) {
+            throw new IOException("Not a binary XML document");
+        }
+
+        int position = this.u16(2);
+
+        while (position + 8 <= length) {
+            final int type = this.u16(position);
+            final int headerSize = this.u16(position + 2);
+            final int size = this.buffer.getInt(position + 4);
+
+            if (size < 8 || position + size > length) {
+                throw new IOException("Invalid chunk in binary XML document");
+            }
+
+            if (type == CHUNK_STRING_POOL) {
+                this.readStringPool(position, headerSize);
+
+            } else if (type == CHUNK_RESOURCE_MAP) {
+                this.readResourceMap(position, headerSize, size);
+
+            } else if (type == CHUNK_START_TAG && "manifest".equals(this.getString(this.buffer.getInt(position + 20)))) {
+                return this.readManifest(position, headerSize);
+
+            }
+            position += size;
+        }
+
+        throw new IOException("Manifest element not found");
+    }
+
+    private void readStringPool(final int position, final int headerSize) {
+        final int count = this.buffer.getInt(position + 8);
+        final boolean utf8 = (this.buffer.getInt(position + 16) & UTF8_FLAG) != 0;
+        final int stringsStart = position + this.buffer.getInt(position + 20);
+
+        this.strings = new String[count];
+
+        for (int index = 0; index < count; index++) {
+            final int offset = stringsStart + this.buffer.getInt(position + headerSize + index * 4);
+            this.strings[index] = utf8 ? this.readUtf8(offset) : this.readUtf16(offset);
+        }
+    }
+
+    private String readUtf8(final int offset) {
+        // The length in characters precedes the length in bytes, each one or two bytes long
+        int position = offset + (((this.u8(offset) & 0x80) != 0) ? 2 : 1);
+        int length = this.u8(position);
+
+        if ((length & 0x80) != 0) {
+            length = ((length & 0x7F) << 8) | this.u8(position + 1);
+            position++;
+        }
+        position++;
+
+        final byte[] bytes = new byte[length];
+
+        for (int index = 0; index < length; index++) {
+            bytes[index] = this.buffer.get(position + index);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private String readUtf16(final int offset) {
+        int position = offset;
+        int length = this.u16(position);
+
+        if ((length & 0x8000) != 0) {
+            length = ((length & 0x7FFF) << 16) | this.u16(position + 2);
+            position += 2;
+        }
+        position += 2;
+
+        final char[] chars = new char[length];
+
+        for (int index = 0; index < length; index++) {
+            chars[index] = this.buffer.getChar(position + index * 2);
+        }
+        return new String(chars);
+    }
+
+    private void readResourceMap(final int position, final int headerSize, final int size) {
+        this.resourceIds = new int[(size - headerSize) / 4];
+
+        for (int index = 0; index < this.resourceIds.length; index++) {
+            this.resourceIds[index] = this.buffer.getInt(position + headerSize + index * 4);
+        }
+    }
+
+    private AppMetadata readManifest(final int position, final int headerSize) throws IOException {
+        final int attributeStart = position + headerSize + this.u16(position + 24);
+        final int attributeSize = this.u16(position + 26);
+        final int attributeCount = this.u16(position + 28);
+
+        String packageName = null;
+        Integer versionCode = null;
+        String versionName = null;
+
+        for (int index = 0; index < attributeCount; index++) {
+            final int attribute = attributeStart + index * attributeSize;
+            final String name = this.getAttributeName(this.buffer.getInt(attribute + 4));
+
+            if ("package".equals(name)) {
+                packageName = this.getStringValue(attribute);
+
+            } else if ("versionCode".equals(name)) {
+                versionCode = this.getIntValue(attribute);
+
+            } else if ("versionName".equals(name)) {
+                versionName = this.getStringValue(attribute);
+
+            }
+        }
+
+        if (StringUtils.isBlank(packageName)) {
+            throw new IOException("Manifest does not declare a package name");
+        }
+        return new AppMetadata(packageName, versionCode, versionName);
+    }
+
+    private String getAttributeName(final int index) {
+        final int resourceId = (index >= 0 && index < this.resourceIds.length) ? this.resourceIds[index] : 0;
+
+        if (resourceId == ATTR_VERSION_CODE) {
+            return "versionCode";
+
+        } else if (resourceId == ATTR_VERSION_NAME) {
+            return "versionName";
+
+        }
+        return this.getString(index);
+    }
+
+    private String getStringValue(final int attribute) {
+        final String raw = this.getString(this.buffer.getInt(attribute + 8));
+
+        if (raw != null || this.u8(attribute + 15) != TYPE_STRING) {
+            return raw;
+        }
+        return this.getString(this.buffer.getInt(attribute + 16));
+    }
+
+    private Integer getIntValue(final int attribute) {
+        final int type = this.u8(attribute + 15);
+
+        if (type == TYPE_INT_DEC || type == TYPE_INT_HEX) {
+            return this.buffer.getInt(attribute + 16);
+        }
+
+        final String raw = this.getStringValue(attribute);
+        return (raw != null && raw.matches("\\d{1,9}")) ? Integer.valueOf(raw) : null;
+    }
+
+    private String getString(final int index) {
+        return (index >= 0 && index < this.strings.length) ? this.strings[index] : null;
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jenkinsci.plugins.relution_publisher.util;
+
+import org.apache.commons.lang.StringUtils;
+import org.jenkinsci.plugins.relution_publisher.model.AppMetadata;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+
+/**
+ * Reads the identity and version of an app from its Android (APK) or iOS (IPA) package file,
+ * without uploading the file to the server.
+ * <p>
+ * Only the entry that contains the metadata is read from the package, see {@link ZipArchive}.
+ */
+public final class AppMetadataReader {
+
+    private final static String  ANDROID_MANIFEST = "AndroidManifest.xml";
+
+    private final static Pattern INFO_PLIST       = Pattern.compile("Payload/[^/]+\\.app/Info\\.plist");
+
+    private final static Pattern VERSION_CODE     = Pattern.compile("\\d{1,9}");
+
+    private AppMetadataReader() {
+    }
+
+    /**
+     * Reads the metadata of the specified app package.
+     * @param file The APK or IPA file to read.
+     * @return The {@link AppMetadata} of the app, or {@code null} if the file is not an APK or
+     * IPA file.
+     * @throws IOException The file could not be read or does not contain the expected metadata.
+     */
+    public static AppMetadata read(final File file) throws IOException {
+        final String name = file.getName().toLowerCase(Locale.ENGLISH);
+
+        if (name.endsWith(".apk")) {
+            return readApk(file);
+
+        } else if (name.endsWith(".ipa")) {
+            return readIpa(file);
+
+        }
+        return null;
+    }
+
+    private static AppMetadata readApk(final File file) throws IOException {
+        try (ZipArchive archive = new ZipArchive(file)) {
+            final byte[] manifest = archive.read(ANDROID_MANIFEST);
+
+            if (manifest == null) {
+                throw new IOException("Package does not contain " + ANDROID_MANIFEST);
+            }
+            return AndroidManifestParser.parse(manifest);
+        }
+    }
+
+    private static AppMetadata readIpa(final File file) throws IOException {
+        try (ZipArchive archive = new ZipArchive(file)) {
+            for (final String entry : archive.getEntryNames()) {
+                if (INFO_PLIST.matcher(entry).matches()) {
+                    return toMetadata(PropertyListParser.parse(archive.read(entry)));
+                }
+            }
+            throw new IOException("Package does not contain an Info.plist");
+        }
+    }
+
+    private static AppMetadata toMetadata(final Map<String, Object> plist) throws IOException {
+        final Object identifier = plist.get("CFBundleIdentifier");
+        final Object bundleVersion = plist.get("CFBundleVersion");
+        final Object shortVersion = plist.get("CFBundleShortVersionString");
+
+        if (!(identifier instanceof String) || StringUtils.isBlank((String) identifier)) {
+            throw new IOException("Info.plist does not declare a bundle identifier");
+        }
+
+        // The bundle version is only used as version code if it is a plain number
+        final String version = (bundleVersion != null) ? String.valueOf(bundleVersion) : null;
+        final Integer versionCode = (version != null && VERSION_CODE.matcher(version).matches())
+                ? Integer.valueOf(version)
+                : null;
+
+        return new AppMetadata(
+                (String) identifier,
+                versionCode,
+                (shortVersion instanceof String) ? (String) shortVersion : null);
+    }
+}
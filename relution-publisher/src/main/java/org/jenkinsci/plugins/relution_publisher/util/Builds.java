@@ -46,9 +46,11 @@ public class Builds {
     }
 
     public static Result setResult(final ResultHolder holder, final Result newResult, final Log log) {
-        final Result result = determineResult(holder.getResult(), newResult, log);
-        holder.setResult(result);
-        return result;
+        synchronized (holder) {
+            final Result result = determineResult(holder.getResult(), newResult, log);
+            holder.setResult(result);
+            return result;
+        }
     }
 
     public static int severity(final Result result) {
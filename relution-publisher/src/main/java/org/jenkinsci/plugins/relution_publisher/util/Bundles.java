@@ -0,0 +1,130 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jenkinsci.plugins.relution_publisher.util;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.tools.ant.DirectoryScanner;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+
+/**
+ * Identifies directories that are published as a single artifact, such as iOS application
+ * bundles and archives. These directories are compressed into a zip archive while they are
+ * uploaded.
+ */
+public final class Bundles {
+
+    private final static String[] EXTENSIONS        = {".app", ".xcarchive", ".dSYM", ".framework"};
+
+    private final static int      DEFAULT_DIR_PERM  = 0755;
+
+    private final static int      DEFAULT_FILE_PERM = 0644;
+
+    private Bundles() {
+    }
+
+    /**
+     * Returns a value indicating whether the specified path denotes a bundle.
+     * @param path The path of a directory.
+     * @return {@code true} if the name of the directory ends with the extension of a bundle;
+     * otherwise, {@code false}.
+     */
+    public static boolean isBundle(final String path) {
+        for (final String extension : EXTENSIONS) {
+            if (StringUtils.endsWithIgnoreCase(path, extension)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the artifacts included by the specified scanner. This includes all included files
+     * and all included directories that are bundles. Files that are located in an included
+     * bundle are not returned, since they are uploaded as part of the bundle.
+     * @param scanner The {@link DirectoryScanner} that matched the artifacts.
+     * @return The paths of the included artifacts, relative to the scanner's base directory.
+     */
+    public static String[] getIncludedArtifacts(final DirectoryScanner scanner) {
+        final List<String> bundles = new ArrayList<String>();
+
+        for (final String directory : scanner.getIncludedDirectories()) {
+            if (isBundle(directory) && !isInBundle(directory, bundles)) {
+                bundles.add(directory);
+            }
+        }
+
+        if (bundles.isEmpty()) {
+            return scanner.getIncludedFiles();
+        }
+
+        final List<String> artifacts = new ArrayList<String>();
+
+        for (final String file : scanner.getIncludedFiles()) {
+            if (!isInBundle(file, bundles)) {
+                artifacts.add(file);
+            }
+        }
+
+        artifacts.addAll(bundles);
+        return artifacts.toArray(new String[artifacts.size()]);
+    }
+
+    /**
+     * Returns the Unix permissions of a file in a bundle. Links are not followed.
+     * @param file The file or directory.
+     * @return The permission bits of the file, or default permissions if the file system does
+     * not support POSIX permissions.
+     * @throws IOException The permissions could not be read.
+     */
+    public static int getPermissions(final File file) throws IOException {
+        final Set<PosixFilePermission> permissions;
+
+        try {
+            permissions = Files.getPosixFilePermissions(file.toPath(), LinkOption.NOFOLLOW_LINKS);
+
+        } catch (final UnsupportedOperationException e) {
+            return file.isDirectory() ? DEFAULT_DIR_PERM : DEFAULT_FILE_PERM;
+
+        }
+
+        int mode = 0;
+
+        for (final PosixFilePermission permission : permissions) {
+            // Declared from OWNER_READ (0400) to OTHERS_EXECUTE (0001)
+            mode |= 0400 >>> permission.ordinal();
+        }
+        return mode;
+    }
+
+    private static boolean isInBundle(final String path, final List<String> bundles) {
+        for (final String bundle : bundles) {
+            if (path.startsWith(bundle + File.separator)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
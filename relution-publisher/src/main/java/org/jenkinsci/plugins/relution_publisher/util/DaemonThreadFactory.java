@@ -0,0 +1,47 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jenkinsci.plugins.relution_publisher.util;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * Creates daemon threads, so that background work performed by the plugin never prevents the
+ * JVM from shutting down.
+ */
+public class DaemonThreadFactory implements ThreadFactory {
+
+    private final String        name;
+    private final AtomicInteger count = new AtomicInteger();
+
+    /**
+     * Initializes a new instance of the {@link DaemonThreadFactory} class.
+     * @param name The name of the threads created by this factory. A sequence number is
+     * appended to the name of each thread.
+     */
+    public DaemonThreadFactory(final String name) {
+        this.name = name;
+    }
+
+    @Override
+    public Thread newThread(final Runnable runnable) {
+        final Thread thread = new Thread(runnable, String.format("%s #%d", this.name, this.count.incrementAndGet()));
+        thread.setDaemon(true);
+        return thread;
+    }
+}
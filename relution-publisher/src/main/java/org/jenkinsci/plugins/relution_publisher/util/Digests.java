@@ -0,0 +1,194 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jenkinsci.plugins.relution_publisher.util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+
+/**
+ * Computes message digests of files.
+ */
+public final class Digests {
+
+    public final static String            SHA_256     = "SHA-256";
+
+    public final static String            MD5         = "MD5";
+
+    private final static int              BUFFER_SIZE = 64 * 1024;
+
+    private final static char[]           HEX_DIGITS  = "0123456789abcdef".toCharArray();
+
+    private final static Charset          UTF_8       = Charset.forName("UTF-8");
+
+    /**
+     * The mode that is digested for a symbolic link, whose own permissions are irrelevant.
+     */
+    private final static int              LINK_MODE   = 0120777;
+
+    /**
+     * Orders files by name. The comparison is case-sensitive, i.e. upper case letters are sorted
+     * before lower case letters on every file system.
+     */
+    private final static Comparator<File> BY_NAME     = new Comparator<File>() {
+
+        @Override
+        public int compare(final File lhs, final File rhs) {
+            return lhs.getName().compareTo(rhs.getName());
+        }
+    };
+
+    private Digests() {
+    }
+
+    /**
+     * Creates a new SHA-256 message digest.
+     * @return A {@link MessageDigest}.
+     */
+    public static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance(SHA_256);
+
+        } catch (final NoSuchAlgorithmException e) {
+            // Every implementation of the Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+
+        }
+    }
+
+    /**
+     * Creates a new MD5 message digest.
+     * @return A {@link MessageDigest}.
+     */
+    public static MessageDigest newMd5() {
+        try {
+            return MessageDigest.getInstance(MD5);
+
+        } catch (final NoSuchAlgorithmException e) {
+            // Every implementation of the Java platform is required to support MD5
+            throw new IllegalStateException(e);
+
+        }
+    }
+
+    /**
+     * Computes the SHA-256 digest of the specified file.
+     * <p>
+     * If the file is a directory, the digest is computed over the relative path, Unix mode and
+     * content of each file in the directory. The directory is walked depth-first and the files of
+     * each directory are sorted by name. Symbolic links are not followed, the path of their target
+     * is digested instead of their content. This digest identifies the content of the directory,
+     * but is not the digest of a zip archive of the directory.
+     * @param file The {@link File} to digest.
+     * @return The digest, as a lower case hexadecimal string.
+     * @throws IOException The file could not be read.
+     */
+    public static String sha256(final File file) throws IOException {
+        final MessageDigest digest = newSha256();
+        final byte[] buffer = new byte[BUFFER_SIZE];
+
+        if (file.isDirectory()) {
+            updateDirectory(digest, buffer, file, "");
+        } else {
+            update(buffer, file, digest);
+        }
+        return toHex(digest.digest());
+    }
+
+    private static void updateDirectory(final MessageDigest digest, final byte[] buffer, final File directory, final String path)
+            throws IOException {
+        final File[] files = directory.listFiles();
+
+        if (files == null) {
+            throw new IOException(String.format("Unable to list files in \"%s\"", directory));
+        }
+
+        Arrays.sort(files, BY_NAME);
+
+        for (final File file : files) {
+            final String name = path + file.getName();
+
+            if (Files.isSymbolicLink(file.toPath())) {
+                // Links are not followed, the same applies when the directory is zipped
+                updateName(digest, name, LINK_MODE);
+                digest.update(Files.readSymbolicLink(file.toPath()).toString().getBytes(UTF_8));
+
+            } else if (file.isDirectory()) {
+                updateDirectory(digest, buffer, file, name + "/");
+
+            } else {
+                updateName(digest, name, Bundles.getPermissions(file));
+                update(buffer, file, digest);
+
+            }
+        }
+    }
+
+    private static void updateName(final MessageDigest digest, final String name, final int mode) {
+        digest.update(name.getBytes(UTF_8));
+        digest.update((byte) 0);
+        digest.update(Integer.toOctalString(mode).getBytes(UTF_8));
+        digest.update((byte) 0);
+    }
+
+    /**
+     * Updates the specified digests with the content of a file. The file is read only once, no
+     * matter how many digests are updated.
+     * @param file The {@link File} to digest, must not be a directory.
+     * @param digests The {@link MessageDigest}s to update.
+     * @throws IOException The file could not be read.
+     */
+    public static void update(final File file, final MessageDigest... digests) throws IOException {
+        update(new byte[BUFFER_SIZE], file, digests);
+    }
+
+    private static void update(final byte[] buffer, final File file, final MessageDigest... digests) throws IOException {
+        try (InputStream in = new FileInputStream(file)) {
+            int read;
+
+            while ((read = in.read(buffer)) != -1) {
+                for (final MessageDigest digest : digests) {
+                    digest.update(buffer, 0, read);
+                }
+            }
+        }
+    }
+
+    /**
+     * Converts the specified bytes to a lower case hexadecimal string.
+     * @param bytes The bytes to convert.
+     * @return A hexadecimal string.
+     */
+    public static String toHex(final byte[] bytes) {
+        final char[] chars = new char[bytes.length * 2];
+
+        for (int index = 0; index < bytes.length; index++) {
+            final int value = bytes[index] & 0xff;
+            chars[index * 2] = HEX_DIGITS[value >>> 4];
+            chars[index * 2 + 1] = HEX_DIGITS[value & 0x0f];
+        }
+        return new String(chars);
+    }
+}
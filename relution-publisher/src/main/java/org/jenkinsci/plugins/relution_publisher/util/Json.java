@@ -72,6 +72,16 @@ public class Json {
         return element.getAsInt();
     }
 
+    public static long getLong(final JsonObject object, final String memberName) {
+        final JsonElement element = object.get(memberName);
+
+        if (element == null || !element.isJsonPrimitive()) {
+            return 0;
+        }
+
+        return element.getAsLong();
+    }
+
     public static Integer getInteger(final JsonObject object, final String memberName) {
         final JsonElement element = object.get(memberName);
 
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jenkinsci.plugins.relution_publisher.util;
+
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Maintains named counters for events that should not affect the result of a build, but that
+ * are worth monitoring, e.g. failed attempts to log out of a session in the background.
+ * <p>
+ * Counters are maintained per JVM, i.e. events that occur on an agent are counted by the agent.
+ */
+public final class Metrics {
+
+    /**
+     * A session was closed successfully.
+     */
+    public static final String                             LOGOUT_SUCCEEDED     = "logout.succeeded";
+
+    /**
+     * The server responded with an error, or an error occurred sending a logout request.
+     */
+    public static final String                             LOGOUT_FAILED        = "logout.failed";
+
+    /**
+     * The server did not respond to a logout request in time.
+     */
+    public static final String                             LOGOUT_TIMED_OUT     = "logout.timedOut";
+
+    /**
+     * The checksum of an uploaded file matched the checksum reported by the server.
+     */
+    public static final String                             CHECKSUM_VERIFIED    = "checksum.verified";
+
+    /**
+     * The checksum of an uploaded file did not match the checksum reported by the server.
+     */
+    public static final String                             CHECKSUM_MISMATCH    = "checksum.mismatch";
+
+    /**
+     * The server did not report a checksum for an uploaded file.
+     */
+    public static final String                             CHECKSUM_UNAVAILABLE = "checksum.unavailable";
+
+    /**
+     * The number of bytes hashed while uploading files.
+     */
+    public static final String                             CHECKSUM_BYTES       = "checksum.bytes";
+
+    private static final ConcurrentMap<String, AtomicLong> COUNTERS             = new ConcurrentHashMap<>();
+
+    private Metrics() {
+    }
+
+    private static AtomicLong getCounter(final String name) {
+        final AtomicLong counter = COUNTERS.get(name);
+
+        if (counter != null) {
+            return counter;
+        }
+
+        final AtomicLong newCounter = new AtomicLong();
+        final AtomicLong existingCounter = COUNTERS.putIfAbsent(name, newCounter);
+        return (existingCounter != null) ? existingCounter : newCounter;
+    }
+
+    /**
+     * Increments the counter with the specified name by one.
+     * @param name The name of the counter to increment.
+     */
+    public static void increment(final String name) {
+        getCounter(name).incrementAndGet();
+    }
+
+    /**
+     * Adds the specified value to the counter with the specified name.
+     * @param name The name of the counter to increase.
+     * @param delta The value to add.
+     */
+    public static void add(final String name, final long delta) {
+        getCounter(name).addAndGet(delta);
+    }
+
+    /**
+     * Returns the current value of the counter with the specified name.
+     * @param name The name of the counter.
+     * @return The value of the counter, or zero if the counter has never been incremented.
+     */
+    public static long get(final String name) {
+        final AtomicLong counter = COUNTERS.get(name);
+        return (counter != null) ? counter.get() : 0;
+    }
+
+    /**
+     * @return The current value of all counters, sorted by name.
+     */
+    public static SortedMap<String, Long> snapshot() {
+        final SortedMap<String, Long> snapshot = new TreeMap<>();
+
+        for (final Map.Entry<String, AtomicLong> entry : COUNTERS.entrySet()) {
+            snapshot.put(entry.getKey(), entry.getValue().get());
+        }
+        return snapshot;
+    }
+}
@@ -0,0 +1,313 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jenkinsci.plugins.relution_publisher.util;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.xml.sax.SAXException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+
+/**
+ * Reads the top-level dictionary of a property list, such as an iOS app's {@code Info.plist},
+ * in either binary or XML format. Only string, integer and boolean values are returned; values
+ * of other types are omitted.
+ * <p>
+ * XML property lists are parsed with document type declarations disallowed, so they cannot
+ * declare entities. The declaration of the property list DTD is blanked out before parsing,
+ * provided it does not contain an internal subset.
+ */
+final class PropertyListParser {
+
+    private final static String BINARY_MAGIC = "bplist00";
+
+    private final static int    TRAILER_SIZE = 32;
+
+    private final static int    TYPE_BOOLEAN = 0x0;
+    private final static int    TYPE_INT     = 0x1;
+    private final static int    TYPE_ASCII   = 0x5;
+    private final static int    TYPE_UTF16   = 0x6;
+    private final static int    TYPE_DICT    = 0xD;
+
+    private final static String DOCTYPE      = "<!DOCTYPE";
+
+    private PropertyListParser() {
+    }
+
+    /**
+     * Parses the specified property list.
+     * @param data The content of the property list file.
+     * @return The entries of the top-level dictionary.
+     * @throws IOException The data is not a valid property list.
+     */
+    public static Map<String, Object> parse(final byte[] data) throws IOException {
+        final String magic = new String(data, 0, Math.min(data.length, BINARY_MAGIC.length()), StandardCharsets.US_ASCII);
+
+        try {
+            return magic.equals(BINARY_MAGIC)
+                    ? new Binary(data).parse()
+                    : parseXml(data);
+
+        } catch (final IndexOutOfBoundsException e) {
+            throw new IOException("Malformed property list", e);
+
+        }
+    }
+
+    private static Map<String, Object> parseXml(final byte[] data) throws IOException {
+        final Document document;
+
+        try {
+            final DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            factory.setFeature("http://xml.org/sax/features/external-general-entities", false);
+            factory.setFeature("http://xml.org/sax/features/external-parameter-entities", false);
+            factory.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
+            factory.setXIncludeAware(false);
+            factory.setExpandEntityReferences(false);
+
+            final DocumentBuilder builder = factory.newDocumentBuilder();
+            document = builder.parse(new ByteArrayInputStream(removeDoctype(data)));
+
+        } catch (final ParserConfigurationException e) {
+            throw new IOException("Unable to create XML parser", e);
+
+        } catch (final SAXException e) {
+            throw new IOException("Malformed property list", e);
+
+        }
+
+        final Element dict = firstElement(document.getDocumentElement().getFirstChild());
+
+        if (dict == null || !"dict".equals(dict.getTagName())) {
+            throw new IOException("Property list does not contain a dictionary");
+        }
+
+        final Map<String, Object> entries = new HashMap<>();
+        Element key = firstElement(dict.getFirstChild());
+
+        while (key != null) {
+            final Element value = firstElement(key.getNextSibling());
+
+            if (value == null) {
+                break;
+            }
+
+            final Object object = toValue(value);
+
+            if ("key".equals(key.getTagName()) && object != null) {
+                entries.put(key.getTextContent(), object);
+            }
+            key = firstElement(value.getNextSibling());
+        }
+        return entries;
+    }
+
+    /**
+     * Returns a copy of the specified XML document in which the document type declaration is
+     * replaced by spaces. A declaration with an internal subset is kept, so the parser rejects
+     * the document.
+     */
+    private static byte[] removeDoctype(final byte[] data) {
+        final String text = new String(data, StandardCharsets.ISO_8859_1);
+        final int start = text.indexOf(DOCTYPE);
+
+        if (start == -1) {
+            return data;
+        }
+
+        final int end = text.indexOf('>', start);
+
+        if (end == -1 || text.substring(start, end).indexOf('[') != -1) {
+            return data;
+        }
+
+        final byte[] copy = data.clone();
+        Arrays.fill(copy, start, end + 1, (byte) ' ');
+        return copy;
+    }
+
+    private static Element firstElement(final Node node) {
+        Node current = node;
+
+        while (current != null && current.getNodeType() != Node.ELEMENT_NODE) {
+            current = current.getNextSibling();
+        }
+        return (Element) current;
+    }
+
+    private static Object toValue(final Element element) {
+        final String tag = element.getTagName();
+
+        if ("string".equals(tag)) {
+            return element.getTextContent();
+
+        } else if ("integer".equals(tag)) {
+            try {
+                return Long.valueOf(element.getTextContent().trim());
+
+            } catch (final NumberFormatException e) {
+                return null;
+
+            }
+
+        } else if ("true".equals(tag) || "false".equals(tag)) {
+            return Boolean.valueOf(tag);
+
+        }
+        return null;
+    }
+
+    /**
+     * Parses the binary property list format, as described in Apple's {@code CFBinaryPList.c}.
+     */
+    private static final class Binary {
+
+        private final ByteBuffer buffer;
+
+        private int              offsetSize;
+        private int              referenceSize;
+        private int              offsetTable;
+
+        public Binary(final byte[] data) {
+            this.buffer = ByteBuffer.wrap(data);
+        }
+
+        public Map<String, Object> parse() throws IOException {
+            final int trailer = this.buffer.capacity() - TRAILER_SIZE;
+
+            if (trailer < BINARY_MAGIC.length()) {
+                throw new IOException("Binary property list is truncated");
+            }
+
+            this.offsetSize = this.buffer.get(trailer + 6) & 0xFF;
+            this.referenceSize = this.buffer.get(trailer + 7) & 0xFF;
+            final long topObject = this.buffer.getLong(trailer + 16);
+            this.offsetTable = (int) this.buffer.getLong(trailer + 24);
+
+            final int offset = this.getObjectOffset((int) topObject);
+            final int marker = this.buffer.get(offset) & 0xFF;
+
+            if (marker >> 4 != TYPE_DICT) {
+                throw new IOException("Property list does not contain a dictionary");
+            }
+
+            final Map<String, Object> entries = new HashMap<>();
+            final int count = this.getCount(offset);
+            final int references = this.getDataOffset(offset);
+
+            for (int index = 0; index < count; index++) {
+                final Object key = this.readObject(this.readInt(references + index * this.referenceSize, this.referenceSize));
+                final Object value = this.readObject(this.readInt(references + (count + index) * this.referenceSize, this.referenceSize));
+
+                if (key instanceof String && value != null) {
+                    entries.put((String) key, value);
+                }
+            }
+            return entries;
+        }
+
+        private int readInt(final int position, final int size) throws IOException {
+            long value = 0;
+
+            for (int index = 0; index < size; index++) {
+                value = (value << 8) | (this.buffer.get(position + index) & 0xFF);
+            }
+
+            if (value < 0 || value > Integer.MAX_VALUE) {
+                throw new IOException("Value out of range in binary property list");
+            }
+            return (int) value;
+        }
+
+        private int getObjectOffset(final int object) throws IOException {
+            return this.readInt(this.offsetTable + object * this.offsetSize, this.offsetSize);
+        }
+
+        /**
+         * Returns the number of elements or characters of the object at the specified offset. If
+         * the count does not fit into the marker byte, it is stored as an integer object that
+         * follows the marker.
+         */
+        private int getCount(final int offset) throws IOException {
+            final int info = this.buffer.get(offset) & 0x0F;
+
+            if (info != 0x0F) {
+                return info;
+            }
+            final int size = 1 << (this.buffer.get(offset + 1) & 0x0F);
+            return this.readInt(offset + 2, size);
+        }
+
+        private int getDataOffset(final int offset) {
+            final int info = this.buffer.get(offset) & 0x0F;
+
+            if (info != 0x0F) {
+                return offset + 1;
+            }
+            return offset + 2 + (1 << (this.buffer.get(offset + 1) & 0x0F));
+        }
+
+        private Object readObject(final int object) throws IOException {
+            final int offset = this.getObjectOffset(object);
+            final int marker = this.buffer.get(offset) & 0xFF;
+
+            switch (marker >> 4) {
+                case TYPE_BOOLEAN:
+                    return (marker == 0x08 || marker == 0x09) ? Boolean.valueOf(marker == 0x09) : null;
+
+                case TYPE_INT:
+                    final int size = 1 << (marker & 0x0F);
+                    return (size <= 4) ? Long.valueOf(this.readInt(offset + 1, size)) : Long.valueOf(this.buffer.getLong(offset + 1));
+
+                case TYPE_ASCII:
+                    return this.readString(offset, 1);
+
+                case TYPE_UTF16:
+                    return this.readString(offset, 2);
+
+                default:
+                    return null;
+            }
+        }
+
+        private String readString(final int offset, final int charSize) throws IOException {
+            final int length = this.getCount(offset) * charSize;
+            final int start = this.getDataOffset(offset);
+            final byte[] bytes = new byte[length];
+
+            for (int index = 0; index < length; index++) {
+                bytes[index] = this.buffer.get(start + index);
+            }
+            return new String(bytes, (charSize == 1) ? StandardCharsets.US_ASCII : StandardCharsets.UTF_16BE);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jenkinsci.plugins.relution_publisher.util;
+
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Limits the rate at which an operation is performed by spacing permits evenly over time.
+ */
+public class RateLimiter {
+
+    private final long interval;
+    private long       next;
+
+    /**
+     * Initializes a new instance of the {@link RateLimiter} class.
+     * @param permitsPerSecond The maximum number of permits per second, or zero to not limit the
+     * rate at all.
+     */
+    public RateLimiter(final int permitsPerSecond) {
+        this.interval = (permitsPerSecond > 0) ? TimeUnit.SECONDS.toNanos(1) / permitsPerSecond : 0;
+        this.next = System.nanoTime();
+    }
+
+    /**
+     * Blocks until the next permit is available.
+     * @throws InterruptedException The current thread was interrupted while waiting.
+     */
+    public void acquire() throws InterruptedException {
+        if (this.interval == 0) {
+            return;
+        }
+
+        final long delay;
+
+        synchronized (this) {
+            final long now = System.nanoTime();
+
+            if (this.next - now < 0) {
+                this.next = now;
+            }
+
+            delay = this.next - now;
+            this.next += this.interval;
+        }
+
+        if (delay > 0) {
+            TimeUnit.NANOSECONDS.sleep(delay);
+        }
+    }
+}
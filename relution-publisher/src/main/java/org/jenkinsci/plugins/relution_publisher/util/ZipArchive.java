@@ -0,0 +1,251 @@
+/*
+ * Copyright 2016 M-Way Solutions GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jenkinsci.plugins.relution_publisher.util;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+
+/**
+ * Reads individual entries of a ZIP archive using memory-mapped I/O.
+ * <p>
+ * Only the end of central directory record, the central directory and the entries that are
+ * actually read are mapped into memory, so reading a small entry of a large archive does not
+ * require reading the whole archive. ZIP64 archives are not supported.
+ */
+public final class ZipArchive implements Closeable {
+
+    private final static int               EOCD_SIGNATURE  = 0x06054b50;
+    private final static int               CEN_SIGNATURE   = 0x02014b50;
+    private final static int               LOC_SIGNATURE   = 0x04034b50;
+
+    private final static int               EOCD_SIZE       = 22;
+    private final static int               CEN_HEADER_SIZE = 46;
+    private final static int               LOC_HEADER_SIZE = 30;
+    private final static int               MAX_COMMENT     = 0xFFFF;
+
+    private final static int               STORED          = 0;
+    private final static int               DEFLATED        = 8;
+
+    /**
+     * The maximum size of an entry that is read into memory.
+     */
+    private final static long              MAX_ENTRY_SIZE  = 16 * 1024 * 1024;
+
+    private final RandomAccessFile         file;
+    private final FileChannel              channel;
+    private final Map<String, Entry>       entries         = new LinkedHashMap<>();
+
+    /**
+     * Opens the specified ZIP archive and reads its central directory.
+     * @param file The archive to open.
+     * @throws IOException The file could not be read or is not a valid ZIP archive.
+     */
+    public ZipArchive(final File file) throws IOException {
+        this.file = new RandomAccessFile(file, "r");
+        this.channel = this.file.getChannel();
+
+        try {
+            this.readCentralDirectory();
+
+        } catch (final IOException e) {
+            this.close();
+            throw e;
+
+        }
+    }
+
+    private static int u16(final ByteBuffer buffer, final int index) {
+        return buffer.getShort(index) & 0xFFFF;
+    }
+
+    private static long u32(final ByteBuffer buffer, final int index) {
+        return buffer.getInt(index) & 0xFFFFFFFFL;
+    }
+
+    private ByteBuffer map(final long position, final long size) throws IOException {
+        if (position < 0 || size < 0 || position + size > this.channel.size()) {
+            throw new ZipException("Invalid offset or size in ZIP archive");
+        }
+
+        final ByteBuffer buffer = this.channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+        return buffer.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private void readCentralDirectory() throws IOException {
+        final long size = this.channel.size();
+        final int tailSize = (int) Math.min(size, EOCD_SIZE + MAX_COMMENT);
+        final ByteBuffer tail = this.map(size - tailSize, tailSize);
+
+        int eocd = tailSize - EOCD_SIZE;
+
+        while (eocd >= 0 && tail.getInt(eocd) != EOCD_SIGNATURE) {
+            eocd--;
+        }
+
+        if (eocd < 0) {
+            throw new ZipException("End of central directory not found");
+        }
+
+        final int count = u16(tail, eocd + 10);
+        final long directorySize = u32(tail, eocd + 12);
+        final long directoryOffset = u32(tail, eocd + 16);
+
+        if (count == 0xFFFF || directoryOffset == 0xFFFFFFFFL) {
+            throw new ZipException("ZIP64 archives are not supported");
+        }
+
+        final ByteBuffer directory = this.map(directoryOffset, directorySize);
+        int position = 0;
+
+        for (int index = 0; index < count; index++) {
+            if (position + CEN_HEADER_SIZE > directorySize || directory.getInt(position) != CEN_SIGNATURE) {
+                throw new ZipException("Invalid central directory entry");
+            }
+
+            final int method = u16(directory, position + 10);
+            final long compressedSize = u32(directory, position + 20);
+            final long uncompressedSize = u32(directory, position + 24);
+            final int nameLength = u16(directory, position + 28);
+            final int extraLength = u16(directory, position + 30);
+            final int commentLength = u16(directory, position + 32);
+            final long localOffset = u32(directory, position + 42);
+
+            final byte[] name = new byte[nameLength];
+            directory.position(position + CEN_HEADER_SIZE);
+            directory.get(name);
+
+            final Entry entry = new Entry(method, compressedSize, uncompressedSize, localOffset);
+            this.entries.put(new String(name, StandardCharsets.UTF_8), entry);
+
+            position += CEN_HEADER_SIZE + nameLength + extraLength + commentLength;
+        }
+    }
+
+    /**
+     * @return The names of all entries of the archive, in the order of the central directory.
+     */
+    public Set<String> getEntryNames() {
+        return Collections.unmodifiableSet(this.entries.keySet());
+    }
+
+    /**
+     * Reads the uncompressed content of the specified entry.
+     * @param name The name of the entry to read.
+     * @return The content of the entry, or {@code null} if the archive does not contain the entry.
+     * @throws IOException The entry could not be read.
+     */
+    public byte[] read(final String name) throws IOException {
+        final Entry entry = this.entries.get(name);
+
+        if (entry == null) {
+            return null;
+        }
+
+        if (entry.compressedSize > MAX_ENTRY_SIZE || entry.uncompressedSize > MAX_ENTRY_SIZE) {
+            throw new ZipException("Entry " + name + " is too large");
+        }
+
+        final ByteBuffer header = this.map(entry.localOffset, LOC_HEADER_SIZE);
+
+        if (header.getInt(0) != LOC_SIGNATURE) {
+            throw new ZipException("Invalid local header of entry " + name);
+        }
+
+        final long dataOffset = entry.localOffset + LOC_HEADER_SIZE + u16(header, 26) + u16(header, 28);
+        final ByteBuffer data = this.map(dataOffset, entry.compressedSize);
+
+        if (entry.method == STORED) {
+            final byte[] content = new byte[(int) entry.compressedSize];
+            data.get(content);
+            return content;
+
+        } else if (entry.method == DEFLATED) {
+            // The inflater may require an additional byte when used without ZLIB header
+            final byte[] compressed = new byte[(int) entry.compressedSize + 1];
+            data.get(compressed, 0, (int) entry.compressedSize);
+            return this.inflate(name, compressed, (int) entry.uncompressedSize);
+
+        }
+
+        throw new ZipException("Unsupported compression method " + entry.method + " of entry " + name);
+    }
+
+    private byte[] inflate(final String name, final byte[] compressed, final int size) throws ZipException {
+        final Inflater inflater = new Inflater(true);
+        final byte[] content = new byte[size];
+
+        try {
+            inflater.setInput(compressed);
+            int length = 0;
+
+            while (length < size && !inflater.finished()) {
+                final int read = inflater.inflate(content, length, size - length);
+
+                if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                length += read;
+            }
+
+            if (length != size) {
+                throw new ZipException("Entry " + name + " is truncated");
+            }
+            return content;
+
+        } catch (final DataFormatException e) {
+            throw new ZipException("Invalid compressed data in entry " + name + ": " + e.getMessage());
+
+        } finally {
+            inflater.end();
+
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.file.close();
+    }
+
+    private static final class Entry {
+
+        private final int  method;
+        private final long compressedSize;
+        private final long uncompressedSize;
+        private final long localOffset;
+
+        public Entry(final int method, final long compressedSize, final long uncompressedSize, final long localOffset) {
+            this.method = method;
+            this.compressedSize = compressedSize;
+            this.uncompressedSize = uncompressedSize;
+            this.localOffset = localOffset;
+        }
+    }
+}
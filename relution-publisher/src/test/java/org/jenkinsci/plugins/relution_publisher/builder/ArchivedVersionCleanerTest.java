@@ -0,0 +1,131 @@
+
+package org.jenkinsci.plugins.relution_publisher.builder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.google.gson.JsonObject;
+
+import org.jenkinsci.plugins.relution_publisher.configuration.global.Store;
+import org.jenkinsci.plugins.relution_publisher.configuration.jobs.Publication;
+import org.jenkinsci.plugins.relution_publisher.logging.Log;
+import org.jenkinsci.plugins.relution_publisher.model.ArchiveMode;
+import org.jenkinsci.plugins.relution_publisher.model.Artifact;
+import org.jenkinsci.plugins.relution_publisher.model.ReleaseStatus;
+import org.jenkinsci.plugins.relution_publisher.model.UploadMode;
+import org.jenkinsci.plugins.relution_publisher.model.entities.ApiObject;
+import org.jenkinsci.plugins.relution_publisher.model.entities.Version;
+import org.jenkinsci.plugins.relution_publisher.net.RequestFactory;
+import org.jenkinsci.plugins.relution_publisher.unittest.mocks.MockLog;
+import org.jenkinsci.plugins.relution_publisher.unittest.mocks.MockNetwork;
+import org.jenkinsci.plugins.relution_publisher.unittest.mocks.ResponseBuilder;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import hudson.model.Result;
+
+
+public class ArchivedVersionCleanerTest {
+
+    private final RequestFactory  requestFactory  = new RequestFactory();
+    private final MockNetwork     network         = new MockNetwork();
+    private final Log             log             = new MockLog();
+
+    private final Store           store           = new Store(
+            "store-id",
+            "https://store.example.com",
+            "organization",
+            "username",
+            "password",
+            ReleaseStatus.DEVELOPMENT.key,
+            ArchiveMode.OVERWRITE.key,
+            UploadMode.SUCCESS.key,
+            "proxyHost",
+            8080,
+            "proxyUsername",
+            "proxyPassword");
+
+    private final Publication     publication     = new Publication(
+            "**/build/outputs/apk/example-*.apk",
+            null,
+            "store-id",
+            ReleaseStatus.DEFAULT.key,
+            ArchiveMode.DEFAULT.key,
+            UploadMode.DEFAULT.key,
+            "name",
+            "iconPath",
+            "changelog.txt",
+            "description.txt",
+            "versionName",
+            "environment-uuid");
+
+    private final ResponseBuilder responseBuilder = new ResponseBuilder();
+
+    private List<JsonObject> createVersions(final int count) {
+        final List<JsonObject> versions = new ArrayList<>();
+
+        for (int index = 0; index < count; index++) {
+            final JsonObject version = new JsonObject();
+            version.addProperty(ApiObject.UUID, "version-uuid-" + index);
+            version.addProperty(Version.APP_UUID, "app-uuid");
+            version.addProperty(Version.VERSION_NAME, "1." + index);
+            version.addProperty(Version.VERSION_CODE, index);
+            versions.add(version);
+        }
+        return versions;
+    }
+
+    @Test
+    public void shouldBeSuccessIfAllVersionsDeleted() throws IOException, InterruptedException {
+        final ArchivedVersionCleaner cleaner = new ArchivedVersionCleaner(this.requestFactory, this.network, this.log);
+        final Artifact artifact = new Artifact(this.store, new File("."), this.publication, Result.SUCCESS);
+        this.network.add(this.responseBuilder.create("delete-version-200.json", 200, "Success"));
+        this.network.add(this.responseBuilder.create("delete-version-200.json", 200, "Success"));
+
+        cleaner.delete(artifact, this.createVersions(2));
+
+        assertThat(artifact.getResult()).isEqualTo(Result.SUCCESS);
+    }
+
+    @Test
+    public void shouldBeSuccessIfVersionsDeletedConcurrently() throws IOException, InterruptedException {
+        final ArchivedVersionCleaner cleaner = new ArchivedVersionCleaner(this.requestFactory, this.network, this.log);
+        final Artifact artifact = new Artifact(this.store, new File("."), this.publication, Result.SUCCESS);
+        this.store.setDeleteConcurrency(2);
+        this.store.setDeleteRateLimit(100);
+
+        for (int index = 0; index < 3; index++) {
+            this.network.add(this.responseBuilder.create("delete-version-200.json", 200, "Success"));
+        }
+
+        cleaner.delete(artifact, this.createVersions(3));
+
+        assertThat(artifact.getResult()).isEqualTo(Result.SUCCESS);
+    }
+
+    @Test
+    public void shouldBeUnstableIfVersionNotDeleted() throws IOException, InterruptedException {
+        final ArchivedVersionCleaner cleaner = new ArchivedVersionCleaner(this.requestFactory, this.network, this.log);
+        final Artifact artifact = new Artifact(this.store, new File("."), this.publication, Result.SUCCESS);
+        this.store.setDeleteConcurrency(2);
+        this.network.add(this.responseBuilder.create("delete-version-200.json", 200, "Success"));
+        this.network.add(this.responseBuilder.create("post-apps-422.json", 422, "Unprocessable Entity"));
+
+        cleaner.delete(artifact, this.createVersions(2));
+
+        assertThat(artifact.getResult()).isEqualTo(Result.UNSTABLE);
+    }
+
+    @Test
+    public void shouldBeUnstableOnEmptyResponse() throws IOException, InterruptedException {
+        final ArchivedVersionCleaner cleaner = new ArchivedVersionCleaner(this.requestFactory, this.network, this.log);
+        final Artifact artifact = new Artifact(this.store, new File("."), this.publication, Result.SUCCESS);
+
+        cleaner.delete(artifact, this.createVersions(1));
+
+        assertThat(artifact.getResult()).isEqualTo(Result.UNSTABLE);
+    }
+}
@@ -0,0 +1,142 @@
+package org.jenkinsci.plugins.relution_publisher.builder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.jenkinsci.plugins.relution_publisher.configuration.global.Store;
+import org.jenkinsci.plugins.relution_publisher.configuration.jobs.Publication;
+import org.jenkinsci.plugins.relution_publisher.logging.Log;
+import org.jenkinsci.plugins.relution_publisher.model.ArchiveMode;
+import org.jenkinsci.plugins.relution_publisher.model.ReleaseStatus;
+import org.jenkinsci.plugins.relution_publisher.model.UploadMode;
+import org.jenkinsci.plugins.relution_publisher.model.UploadRecord;
+import org.jenkinsci.plugins.relution_publisher.unittest.mocks.MockLog;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import hudson.model.Result;
+import hudson.remoting.VirtualChannel;
+
+
+public class FanOutUploaderTest {
+
+    private final Log log = new MockLog();
+
+    private Store createStore(final String id) {
+        return new Store(
+                id,
+                "https://" + id + ".example.com",
+                "organization",
+                "username",
+                "password",
+                ReleaseStatus.DEVELOPMENT.key,
+                ArchiveMode.ARCHIVE.key,
+                UploadMode.SUCCESS.key,
+                "proxyHost",
+                8080,
+                "proxyUsername",
+                "proxyPassword");
+    }
+
+    @Test
+    public void shouldReturnReportOfEachStoreInOrder() throws IOException, InterruptedException {
+        final CountDownLatch secondCompleted = new CountDownLatch(1);
+
+        // The first store completes after the second one
+        final TestUploader first = new TestUploader(this.createStore("first"), this.log, Result.SUCCESS, "a") {
+
+            @Override
+            protected void await() throws InterruptedException {
+                assertThat(secondCompleted.await(10, TimeUnit.SECONDS)).isTrue();
+            }
+        };
+        final TestUploader second = new TestUploader(this.createStore("second"), this.log, Result.UNSTABLE, "b") {
+
+            @Override
+            protected void completed() {
+                secondCompleted.countDown();
+            }
+        };
+
+        final List<UploadReport> reports = new FanOutUploader(Arrays.<ArtifactFileUploader> asList(first, second)).invoke(new File("."), null);
+
+        assertThat(reports).hasSize(2);
+        assertThat(reports.get(0).getResult()).isEqualTo(Result.SUCCESS);
+        assertThat(reports.get(0).getRecords()).extracting("digest").containsExactly("a");
+        assertThat(reports.get(1).getResult()).isEqualTo(Result.UNSTABLE);
+        assertThat(reports.get(1).getRecords()).extracting("digest").containsExactly("b");
+    }
+
+    @Test
+    public void shouldIsolateFailingStore() throws IOException, InterruptedException {
+        final TestUploader first = new TestUploader(this.createStore("first"), this.log, Result.SUCCESS, "a");
+        final TestUploader failing = new TestUploader(this.createStore("failing"), this.log, Result.SUCCESS, "b") {
+
+            @Override
+            protected void await() throws InterruptedException {
+                throw new IllegalStateException("Connection reset");
+            }
+        };
+        final TestUploader third = new TestUploader(this.createStore("third"), this.log, Result.SUCCESS, "c");
+
+        final List<UploadReport> reports = new FanOutUploader(Arrays.<ArtifactFileUploader> asList(first, failing, third)).invoke(new File("."), null);
+
+        assertThat(reports).hasSize(3);
+        assertThat(reports.get(0).getResult()).isEqualTo(Result.SUCCESS);
+        assertThat(reports.get(0).getRecords()).hasSize(1);
+        assertThat(reports.get(1).getResult()).isEqualTo(Result.FAILURE);
+        assertThat(reports.get(1).getRecords()).isEmpty();
+        assertThat(reports.get(2).getResult()).isEqualTo(Result.SUCCESS);
+        assertThat(reports.get(2).getRecords()).hasSize(1);
+    }
+
+    @Test
+    public void shouldReturnNoReportsWithoutUploaders() throws IOException, InterruptedException {
+        final List<UploadReport> reports = new FanOutUploader(Collections.<ArtifactFileUploader> emptyList()).invoke(new File("."), null);
+
+        assertThat(reports).isEmpty();
+    }
+
+    /**
+     * An uploader that returns a predefined report instead of publishing to its store.
+     */
+    private static class TestUploader extends ArtifactFileUploader {
+
+        private static final long  serialVersionUID = 1L;
+
+        private final Result       expected;
+        private final UploadRecord record;
+
+        public TestUploader(final Store store, final Log log, final Result expected, final String digest) {
+            super(Result.SUCCESS, Collections.<Publication> emptyList(), store, log);
+            this.expected = expected;
+            this.record = new UploadRecord(
+                    store.getId(),
+                    "com.example.app",
+                    1,
+                    ReleaseStatus.DEVELOPMENT.key,
+                    digest,
+                    "asset-" + digest,
+                    System.currentTimeMillis());
+        }
+
+        protected void await() throws InterruptedException {
+        }
+
+        protected void completed() {
+        }
+
+        @Override
+        public UploadReport invoke(final File basePath, final VirtualChannel channel) throws IOException, InterruptedException {
+            this.await();
+            this.completed();
+            return new UploadReport(this.expected, Collections.singletonList(this.record));
+        }
+    }
+}
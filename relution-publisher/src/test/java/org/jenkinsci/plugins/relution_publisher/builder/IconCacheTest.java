@@ -0,0 +1,77 @@
+package org.jenkinsci.plugins.relution_publisher.builder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.google.gson.JsonObject;
+
+import org.jenkinsci.plugins.relution_publisher.configuration.global.Store;
+import org.jenkinsci.plugins.relution_publisher.model.ArchiveMode;
+import org.jenkinsci.plugins.relution_publisher.model.ReleaseStatus;
+import org.jenkinsci.plugins.relution_publisher.model.UploadMode;
+import org.jenkinsci.plugins.relution_publisher.model.entities.ApiObject;
+import org.jenkinsci.plugins.relution_publisher.util.Json;
+import org.junit.Before;
+import org.junit.Test;
+
+
+public class IconCacheTest {
+
+    private final IconCache cache = IconCache.getInstance();
+
+    private final Store     store = new Store(
+            "store-id",
+            "https://store.example.com",
+            "organization",
+            "username",
+            "password",
+            ReleaseStatus.DEVELOPMENT.key,
+            ArchiveMode.OVERWRITE.key,
+            UploadMode.SUCCESS.key,
+            "proxyHost",
+            8080,
+            "proxyUsername",
+            "proxyPassword");
+
+    private static JsonObject createAsset(final String uuid) {
+        final JsonObject asset = new JsonObject();
+        asset.addProperty(ApiObject.UUID, uuid);
+        asset.addProperty("name", "icon.png");
+        return asset;
+    }
+
+    @Before
+    public void setUp() {
+        this.cache.clear();
+    }
+
+    @Test
+    public void shouldReturnCopyOfCachedAsset() {
+        final JsonObject asset = createAsset("icon-uuid");
+        this.cache.put(this.store, "digest", asset);
+
+        final JsonObject cached = this.cache.get(this.store, "digest");
+        cached.addProperty("name", "changed.png");
+
+        assertThat(Json.getString(cached, ApiObject.UUID)).isEqualTo("icon-uuid");
+        assertThat(Json.getString(this.cache.get(this.store, "digest"), "name")).isEqualTo("icon.png");
+        assertThat(this.cache.get(this.store, "other")).isNull();
+    }
+
+    @Test
+    public void shouldIgnoreAssetWithoutUuid() {
+        this.cache.put(this.store, "digest", new JsonObject());
+
+        assertThat(this.cache.get(this.store, "digest")).isNull();
+    }
+
+    @Test
+    public void shouldRemoveInvalidatedAsset() {
+        this.cache.put(this.store, "digest-1", createAsset("icon-1"));
+        this.cache.put(this.store, "digest-2", createAsset("icon-2"));
+
+        this.cache.invalidate(this.store, createAsset("icon-1"));
+
+        assertThat(this.cache.get(this.store, "digest-1")).isNull();
+        assertThat(this.cache.get(this.store, "digest-2")).isNotNull();
+    }
+}
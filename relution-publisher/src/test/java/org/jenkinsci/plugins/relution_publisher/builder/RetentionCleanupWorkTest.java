@@ -0,0 +1,138 @@
+package org.jenkinsci.plugins.relution_publisher.builder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.google.gson.JsonObject;
+
+import org.jenkinsci.plugins.relution_publisher.configuration.global.Store;
+import org.jenkinsci.plugins.relution_publisher.logging.Log;
+import org.jenkinsci.plugins.relution_publisher.model.ArchiveMode;
+import org.jenkinsci.plugins.relution_publisher.model.ReleaseStatus;
+import org.jenkinsci.plugins.relution_publisher.model.RetentionPolicy;
+import org.jenkinsci.plugins.relution_publisher.model.UploadMode;
+import org.jenkinsci.plugins.relution_publisher.model.UploadRecord;
+import org.jenkinsci.plugins.relution_publisher.model.entities.Version;
+import org.jenkinsci.plugins.relution_publisher.net.RequestFactory;
+import org.jenkinsci.plugins.relution_publisher.unittest.mocks.MockLog;
+import org.jenkinsci.plugins.relution_publisher.unittest.mocks.MockNetwork;
+import org.jenkinsci.plugins.relution_publisher.unittest.mocks.ResponseBuilder;
+import org.jenkinsci.plugins.relution_publisher.util.Json;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+
+public class RetentionCleanupWorkTest {
+
+    /**
+     * The time of the cleanup, about eleven days after the newest version was created.
+     */
+    private static final long     NOW             = 1470000000000L;
+
+    @Rule
+    public final TemporaryFolder  folder          = new TemporaryFolder();
+
+    private final RequestFactory  requestFactory  = new RequestFactory();
+    private final MockNetwork     network         = new MockNetwork();
+    private final Log             log             = new MockLog();
+
+    private final Store           store           = new Store(
+            "store-id",
+            "https://store.example.com",
+            "organization",
+            "username",
+            "password",
+            ReleaseStatus.DEVELOPMENT.key,
+            ArchiveMode.OVERWRITE.key,
+            UploadMode.SUCCESS.key,
+            "proxyHost",
+            8080,
+            "proxyUsername",
+            "proxyPassword");
+
+    private final ResponseBuilder responseBuilder = new ResponseBuilder();
+
+    private UploadLedger          ledger;
+
+    @Before
+    public void init() throws IOException {
+        this.ledger = new UploadLedger(this.folder.getRoot());
+        this.network.add(this.responseBuilder.create("get-apps-retention-200.json", 200, "Success"));
+
+        for (int index = 0; index < 5; index++) {
+            this.network.add(this.responseBuilder.create("delete-version-200.json", 200, "Success"));
+        }
+
+        UploadIndex.getInstance().clear();
+    }
+
+    private List<JsonObject> cleanUp(final int keepLast, final int maxAge) throws IOException, InterruptedException, ExecutionException {
+        final RetentionCleanupWork work = new RetentionCleanupWork();
+        final RetentionPolicy policy = new RetentionPolicy(keepLast, maxAge);
+        return work.cleanUp(this.store, policy, this.requestFactory, this.network, this.ledger, NOW, this.log);
+    }
+
+    private List<Integer> getVersionCodes(final List<JsonObject> versions) {
+        final List<Integer> versionCodes = new ArrayList<>();
+
+        for (final JsonObject version : versions) {
+            versionCodes.add(Json.getInt(version, Version.VERSION_CODE));
+        }
+        return versionCodes;
+    }
+
+    private UploadRecord createRecord(final int versionCode) {
+        return new UploadRecord(
+                this.store.getId(),
+                "com.example.app",
+                versionCode,
+                ReleaseStatus.DEVELOPMENT.key,
+                "digest-" + versionCode,
+                "asset-" + versionCode,
+                System.currentTimeMillis());
+    }
+
+    @Test
+    public void shouldDeleteVersionsBeyondKeepLast() throws IOException, InterruptedException, ExecutionException {
+        final List<JsonObject> deleted = this.cleanUp(2, 0);
+
+        assertThat(this.getVersionCodes(deleted)).containsExactly(1);
+    }
+
+    @Test
+    public void shouldDeleteArchivedVersionsOlderThanMaxAge() throws IOException, InterruptedException, ExecutionException {
+        final List<JsonObject> deleted = this.cleanUp(0, 30);
+
+        assertThat(this.getVersionCodes(deleted)).containsExactly(10);
+    }
+
+    @Test
+    public void shouldNotDeleteUndatedVersions() throws IOException, InterruptedException, ExecutionException {
+        final List<JsonObject> deleted = this.cleanUp(1, 1);
+
+        assertThat(this.getVersionCodes(deleted)).containsOnly(1, 2, 10, 12);
+    }
+
+    @Test
+    public void shouldRemoveDeletedVersionsFromLedgerAndIndex() throws IOException, InterruptedException, ExecutionException {
+        final UploadRecord deletedRecord = this.createRecord(1);
+        final UploadRecord keptRecord = this.createRecord(3);
+        this.ledger.append(this.store, Arrays.asList(deletedRecord, keptRecord));
+        UploadIndex.getInstance().add(this.store, deletedRecord);
+        UploadIndex.getInstance().add(this.store, keptRecord);
+
+        this.cleanUp(2, 0);
+
+        assertThat(this.ledger.find(this.store, ReleaseStatus.DEVELOPMENT.key, "digest-1")).isNull();
+        assertThat(this.ledger.find(this.store, ReleaseStatus.DEVELOPMENT.key, "digest-3")).isNotNull();
+        assertThat(UploadIndex.getInstance().find(this.store, ReleaseStatus.DEVELOPMENT.key, "digest-1")).isNull();
+        assertThat(UploadIndex.getInstance().find(this.store, ReleaseStatus.DEVELOPMENT.key, "digest-3")).isNotNull();
+    }
+}
@@ -10,16 +10,27 @@ import org.jenkinsci.plugins.relution_publisher.model.ArchiveMode;
 import org.jenkinsci.plugins.relution_publisher.model.Artifact;
 import org.jenkinsci.plugins.relution_publisher.model.ReleaseStatus;
 import org.jenkinsci.plugins.relution_publisher.model.UploadMode;
+import org.jenkinsci.plugins.relution_publisher.model.UploadRecord;
 import org.jenkinsci.plugins.relution_publisher.net.RequestFactory;
+import org.jenkinsci.plugins.relution_publisher.net.requests.ApiRequest;
+import org.jenkinsci.plugins.relution_publisher.net.requests.ZeroCopyFileRequest;
+import org.jenkinsci.plugins.relution_publisher.net.requests.ZeroCopyFileRequest.Item;
 import org.jenkinsci.plugins.relution_publisher.net.responses.ApiResponse;
 import org.jenkinsci.plugins.relution_publisher.unittest.mocks.MockLog;
 import org.jenkinsci.plugins.relution_publisher.unittest.mocks.MockNetwork;
 import org.jenkinsci.plugins.relution_publisher.unittest.mocks.ResponseBuilder;
+import org.jenkinsci.plugins.relution_publisher.util.Digests;
 import org.junit.Before;
 import org.junit.Test;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ExecutionException;
 
 import hudson.model.Result;
@@ -68,6 +79,39 @@ public class SingleRequestUploaderTest {
 
         final File file = new File(root, "example-1.apk");
         file.createNewFile();
+
+        UploadIndex.getInstance().clear();
+    }
+
+    private List<String> getUploadedFileNames() {
+        final List<String> fileNames = new ArrayList<>();
+
+        for (final ApiRequest request : this.network.getRequests()) {
+            for (final Item item : ((ZeroCopyFileRequest) request).getItems()) {
+                if (item.getName().equals("app")) {
+                    fileNames.add(item.getFileName());
+                }
+            }
+        }
+        return fileNames;
+    }
+
+    private UploadRecord getRecord(final Artifact artifact, final String digest) {
+        for (final UploadRecord record : artifact.getRecords()) {
+            if (record.getDigest().equals(digest)) {
+                return record;
+            }
+        }
+        return null;
+    }
+
+    private File createFile(final String path, final String content) throws IOException {
+        final File file = new File(path);
+
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            writer.write(content);
+        }
+        return file;
     }
 
     @Test
@@ -82,6 +126,136 @@ public class SingleRequestUploaderTest {
         assertThat(result).isEqualTo(Result.SUCCESS);
     }
 
+    @Test
+    public void shouldBeSuccessOnConcurrentCreateResponses() throws IOException, ExecutionException, InterruptedException {
+        final File file = this.createFile("./project/build/outputs/apk/example-2.apk", "example-2");
+
+        final Uploader uploader = new SingleRequestUploader(this.requestFactory, this.network, this.log);
+        final Artifact artifact = new Artifact(this.store, new File("."), this.publication, Result.SUCCESS);
+        this.store.setUploadConcurrency(2);
+        this.network.add(this.responseBuilder.create("post-apps-201.json", 201, "Success"));
+        this.network.add(this.responseBuilder.create("post-apps-201.json", 201, "Success"));
+
+        try {
+            final Result result = uploader.publish(artifact);
+
+            assertThat(result).isEqualTo(Result.SUCCESS);
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void shouldBeUnstableOnConcurrentEmptyResponse() throws IOException, ExecutionException, InterruptedException {
+        final File file = this.createFile("./project/build/outputs/apk/example-2.apk", "example-2");
+
+        final Uploader uploader = new SingleRequestUploader(this.requestFactory, this.network, this.log);
+        final Artifact artifact = new Artifact(this.store, new File("."), this.publication, Result.SUCCESS);
+        this.store.setUploadConcurrency(2);
+        this.network.add(this.responseBuilder.create("post-apps-201.json", 201, "Success"));
+
+        try {
+            final Result result = uploader.publish(artifact);
+
+            assertThat(result).isEqualTo(Result.UNSTABLE);
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void shouldBeSuccessOnBatchResponse() throws IOException, ExecutionException, InterruptedException {
+        final File file = this.createFile("./project/build/outputs/apk/example-2.apk", "example-2");
+
+        final Uploader uploader = new SingleRequestUploader(this.requestFactory, this.network, this.log);
+        final Artifact artifact = new Artifact(this.store, new File("."), this.publication, Result.SUCCESS);
+        this.store.setBatchUploads(true);
+        this.network.add(this.responseBuilder.create("post-apps-batch-201.json", 201, "Success"));
+
+        try {
+            final Result result = uploader.publish(artifact);
+
+            assertThat(result).isEqualTo(Result.SUCCESS);
+            assertThat(artifact.getRecords()).hasSize(2);
+            assertThat(this.network.getRequests()).hasSize(1);
+            assertThat(this.getUploadedFileNames()).containsOnly("example-1.apk", "example-2.apk");
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void shouldMatchBatchResponseByFileName() throws IOException, ExecutionException, InterruptedException {
+        final File file = this.createFile("./project/build/outputs/apk/example-2.apk", "example-2");
+
+        final Uploader uploader = new SingleRequestUploader(this.requestFactory, this.network, this.log);
+        final Artifact artifact = new Artifact(this.store, new File("."), this.publication, Result.SUCCESS);
+        this.store.setBatchUploads(true);
+        // Returns the app of example-2.apk first
+        this.network.add(this.responseBuilder.create("post-apps-batch-reordered-201.json", 201, "Success"));
+
+        try {
+            final Result result = uploader.publish(artifact);
+            final UploadRecord first = this.getRecord(artifact, Digests.sha256(new File("./project/build/outputs/apk/example-1.apk")));
+            final UploadRecord second = this.getRecord(artifact, Digests.sha256(file));
+
+            assertThat(result).isEqualTo(Result.SUCCESS);
+            assertThat(this.network.getRequests()).hasSize(1);
+            assertThat(this.getUploadedFileNames()).hasSize(2);
+            assertThat(first.getAppId()).isEqualTo("com.mwaysolutions.jenkinsandroidtest.flavor");
+            assertThat(second.getAppId()).isEqualTo("com.mwaysolutions.jenkinsandroidtest");
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void shouldBeUnstableOnIncompleteBatchResponse() throws IOException, ExecutionException, InterruptedException {
+        final File file = this.createFile("./project/build/outputs/apk/example-2.apk", "example-2");
+
+        final Uploader uploader = new SingleRequestUploader(this.requestFactory, this.network, this.log);
+        final Artifact artifact = new Artifact(this.store, new File("."), this.publication, Result.SUCCESS);
+        this.store.setBatchUploads(true);
+        this.network.add(this.responseBuilder.create("post-apps-201.json", 201, "Success"));
+
+        try {
+            final Result result = uploader.publish(artifact);
+
+            assertThat(result).isEqualTo(Result.UNSTABLE);
+            assertThat(artifact.getRecords()).hasSize(1);
+            assertThat(this.network.getRequests()).hasSize(1);
+            assertThat(this.getUploadedFileNames()).hasSize(2);
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void shouldBeSuccessOnMatchingChecksum() throws IOException, ExecutionException, InterruptedException {
+        final Uploader uploader = new SingleRequestUploader(this.requestFactory, this.network, this.log);
+        final Artifact artifact = new Artifact(this.store, new File("."), this.publication, Result.SUCCESS);
+        this.store.setVerifyChecksums(true);
+        // Reports the MD5 checksum of the empty file that is uploaded
+        this.network.add(this.responseBuilder.create("post-apps-checksum-201.json", 201, "Success"));
+
+        final Result result = uploader.publish(artifact);
+
+        assertThat(result).isEqualTo(Result.SUCCESS);
+    }
+
+    @Test
+    public void shouldBeUnstableOnChecksumMismatch() throws IOException, ExecutionException, InterruptedException {
+        final Uploader uploader = new SingleRequestUploader(this.requestFactory, this.network, this.log);
+        final Artifact artifact = new Artifact(this.store, new File("."), this.publication, Result.SUCCESS);
+        this.store.setVerifyChecksums(true);
+        this.network.add(this.responseBuilder.create("post-apps-201.json", 201, "Success"));
+
+        final Result result = uploader.publish(artifact);
+
+        assertThat(result).isEqualTo(Result.UNSTABLE);
+        assertThat(artifact.getRecords()).hasSize(1);
+    }
+
     @Test
     public void shouldBeUnstableOnAlreadyExistsResponse() throws IOException, ExecutionException, InterruptedException {
         final Uploader uploader = new SingleRequestUploader(this.requestFactory, this.network, this.log);
@@ -104,6 +278,59 @@ public class SingleRequestUploaderTest {
         assertThat(result).isEqualTo(Result.UNSTABLE);
     }
 
+    @Test
+    public void shouldSkipAlreadyPublishedFile() throws IOException, ExecutionException, InterruptedException {
+        final Uploader uploader = new SingleRequestUploader(this.requestFactory, this.network, this.log);
+        this.network.add(this.responseBuilder.create("post-apps-201.json", 201, "Success"));
+        // The apps of the store, which still contain the published version
+        this.network.add(this.responseBuilder.create("post-apps-201.json", 200, "Success"));
+
+        final Result first = uploader.publish(new Artifact(this.store, new File("."), this.publication, Result.SUCCESS));
+        final Result second = uploader.publish(new Artifact(this.store, new File("."), this.publication, Result.SUCCESS));
+
+        assertThat(first).isEqualTo(Result.SUCCESS);
+        assertThat(second).isEqualTo(Result.SUCCESS);
+    }
+
+    @Test
+    public void shouldUploadFileAgainIfVersionNoLongerExists() throws IOException, ExecutionException, InterruptedException {
+        final Uploader uploader = new SingleRequestUploader(this.requestFactory, this.network, this.log);
+        this.network.add(this.responseBuilder.create("post-apps-201.json", 201, "Success"));
+        this.network.add(this.responseBuilder.create("get-apps-200.json", 200, "Success"));
+
+        final Result first = uploader.publish(new Artifact(this.store, new File("."), this.publication, Result.SUCCESS));
+        final Result second = uploader.publish(new Artifact(this.store, new File("."), this.publication, Result.SUCCESS));
+
+        assertThat(first).isEqualTo(Result.SUCCESS);
+        assertThat(second).isEqualTo(Result.UNSTABLE);
+    }
+
+    @Test
+    public void shouldUploadFileAgainAfterVersionWasDeleted() throws IOException, ExecutionException, InterruptedException {
+        final Uploader uploader = new SingleRequestUploader(this.requestFactory, this.network, this.log);
+        this.network.add(this.responseBuilder.create("post-apps-201.json", 201, "Success"));
+
+        final Artifact artifact = new Artifact(this.store, new File("."), this.publication, Result.SUCCESS);
+        uploader.publish(artifact);
+        UploadIndex.getInstance().removeAsset(this.store, artifact.getRecords().get(0).getAssetUuid());
+
+        final Result second = uploader.publish(new Artifact(this.store, new File("."), this.publication, Result.SUCCESS));
+
+        assertThat(second).isEqualTo(Result.UNSTABLE);
+    }
+
+    @Test
+    public void shouldUploadFileAgainAfterFailedUpload() throws IOException, ExecutionException, InterruptedException {
+        final Uploader uploader = new SingleRequestUploader(this.requestFactory, this.network, this.log);
+        this.network.add(this.responseBuilder.create("post-apps-422.json", 422, "Success"));
+
+        final Result first = uploader.publish(new Artifact(this.store, new File("."), this.publication, Result.SUCCESS));
+        final Result second = uploader.publish(new Artifact(this.store, new File("."), this.publication, Result.SUCCESS));
+
+        assertThat(first).isEqualTo(Result.UNSTABLE);
+        assertThat(second).isEqualTo(Result.UNSTABLE);
+    }
+
     @Test
     public void shouldBeNotBuildIfFileMissing() throws IOException, ExecutionException, InterruptedException {
         final Uploader uploader = new SingleRequestUploader(this.requestFactory, this.network, this.log);
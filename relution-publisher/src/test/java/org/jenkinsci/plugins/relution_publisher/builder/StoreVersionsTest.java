@@ -0,0 +1,74 @@
+package org.jenkinsci.plugins.relution_publisher.builder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.jenkinsci.plugins.relution_publisher.configuration.global.Store;
+import org.jenkinsci.plugins.relution_publisher.logging.Log;
+import org.jenkinsci.plugins.relution_publisher.model.ArchiveMode;
+import org.jenkinsci.plugins.relution_publisher.model.ReleaseStatus;
+import org.jenkinsci.plugins.relution_publisher.model.UploadMode;
+import org.jenkinsci.plugins.relution_publisher.model.UploadRecord;
+import org.jenkinsci.plugins.relution_publisher.net.RequestFactory;
+import org.jenkinsci.plugins.relution_publisher.unittest.mocks.MockLog;
+import org.jenkinsci.plugins.relution_publisher.unittest.mocks.MockNetwork;
+import org.jenkinsci.plugins.relution_publisher.unittest.mocks.ResponseBuilder;
+import org.junit.Test;
+
+import java.io.IOException;
+
+
+public class StoreVersionsTest {
+
+    private final static String   ASSET_UUID      = "16083F49-8A5A-49B8-9134-32F22558FC4E";
+
+    private final RequestFactory  requestFactory  = new RequestFactory();
+    private final MockNetwork     network         = new MockNetwork();
+    private final Log             log             = new MockLog();
+    private final ResponseBuilder responseBuilder = new ResponseBuilder();
+
+    private final Store           store           = new Store(
+            "store-id",
+            "https://store.example.com",
+            "organization",
+            "username",
+            "password",
+            ReleaseStatus.DEVELOPMENT.key,
+            ArchiveMode.ARCHIVE.key,
+            UploadMode.SUCCESS.key,
+            "proxyHost",
+            8080,
+            "proxyUsername",
+            "proxyPassword");
+
+    private UploadRecord createRecord(final int versionCode, final String assetUuid) {
+        return new UploadRecord(
+                "store-id",
+                "com.mwaysolutions.jenkinsandroidtest",
+                versionCode,
+                ReleaseStatus.DEVELOPMENT.key,
+                "digest",
+                assetUuid,
+                System.currentTimeMillis());
+    }
+
+    @Test
+    public void shouldConfirmVersionThatExists() throws IOException, InterruptedException {
+        final StoreVersions versions = new StoreVersions(this.requestFactory, this.network, this.store);
+        this.network.add(this.responseBuilder.create("post-apps-201.json", 200, "OK"));
+
+        assertThat(versions.contains(this.createRecord(1, ASSET_UUID), this.log)).isTrue();
+        assertThat(versions.contains(this.createRecord(1, "deleted-asset"), this.log)).isFalse();
+        assertThat(versions.contains(this.createRecord(2, null), this.log)).isFalse();
+        assertThat(this.network.getRequests()).hasSize(1);
+    }
+
+    @Test
+    public void shouldRelyOnIndexIfStoreCannotAnswer() throws IOException, InterruptedException {
+        final StoreVersions versions = new StoreVersions(this.requestFactory, this.network, this.store);
+        // No response is queued, the request fails
+
+        assertThat(versions.contains(this.createRecord(1, ASSET_UUID), this.log)).isTrue();
+        assertThat(versions.contains(this.createRecord(2, null), this.log)).isTrue();
+        assertThat(this.network.getRequests()).hasSize(1);
+    }
+}
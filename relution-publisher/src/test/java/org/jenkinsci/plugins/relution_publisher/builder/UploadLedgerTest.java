@@ -0,0 +1,174 @@
+
+package org.jenkinsci.plugins.relution_publisher.builder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.jenkinsci.plugins.relution_publisher.configuration.global.Store;
+import org.jenkinsci.plugins.relution_publisher.model.ArchiveMode;
+import org.jenkinsci.plugins.relution_publisher.model.ReleaseStatus;
+import org.jenkinsci.plugins.relution_publisher.model.UploadMode;
+import org.jenkinsci.plugins.relution_publisher.model.UploadRecord;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+
+public class UploadLedgerTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final Store          store  = new Store(
+            "store-id",
+            "https://store.example.com",
+            "organization",
+            "username",
+            "password",
+            ReleaseStatus.DEVELOPMENT.key,
+            ArchiveMode.OVERWRITE.key,
+            UploadMode.SUCCESS.key,
+            "proxyHost",
+            8080,
+            "proxyUsername",
+            "proxyPassword");
+
+    private final long           now    = System.currentTimeMillis();
+
+    private UploadRecord createRecord(final int versionCode, final String digest, final long uploadedAt) {
+        return new UploadRecord(
+                this.store.getId(),
+                "com.example.app",
+                versionCode,
+                ReleaseStatus.DEVELOPMENT.key,
+                digest,
+                "asset-" + versionCode,
+                uploadedAt);
+    }
+
+    private UploadRecord createRecord(final int versionCode, final String digest) {
+        return this.createRecord(versionCode, digest, this.now + versionCode);
+    }
+
+    private List<String> readLines() throws IOException {
+        final File file = new File(this.folder.getRoot(), this.store.getId() + ".jsonl");
+        return Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void shouldFindAppendedRecords() throws IOException {
+        final UploadLedger ledger = new UploadLedger(this.folder.getRoot());
+        ledger.append(this.store, Arrays.asList(this.createRecord(1, "aa")));
+
+        final UploadRecord record = ledger.find(this.store, ReleaseStatus.DEVELOPMENT.key, "aa");
+
+        assertThat(record).isNotNull();
+        assertThat(record.getVersionCode()).isEqualTo(1);
+        assertThat(ledger.find(this.store, ReleaseStatus.RELEASE.key, "aa")).isNull();
+        assertThat(ledger.find(this.store, ReleaseStatus.DEVELOPMENT.key, "bb")).isNull();
+    }
+
+    @Test
+    public void shouldLoadRecordsWrittenBefore() throws IOException {
+        final UploadLedger ledger = new UploadLedger(this.folder.getRoot());
+        ledger.append(this.store, Arrays.asList(this.createRecord(1, "aa"), this.createRecord(2, "bb")));
+
+        final UploadLedger reloaded = new UploadLedger(this.folder.getRoot());
+        final UploadRecord record = reloaded.find(this.store, ReleaseStatus.DEVELOPMENT.key, "bb");
+
+        assertThat(reloaded.getRecords(this.store)).hasSize(2);
+        assertThat(record).isNotNull();
+        assertThat(record.getAssetUuid()).isEqualTo("asset-2");
+        assertThat(record.getUploadedAt()).isEqualTo(this.now + 2);
+    }
+
+    @Test
+    public void shouldReturnLatestVersionPerAppAndReleaseStatus() throws IOException {
+        final UploadLedger ledger = new UploadLedger(this.folder.getRoot());
+        ledger.append(this.store, Arrays.asList(this.createRecord(1, "aa"), this.createRecord(2, "bb")));
+
+        final List<UploadRecord> live = ledger.getLiveVersions(this.store);
+
+        assertThat(live).hasSize(1);
+        assertThat(live.get(0).getVersionCode()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldDiscardIncompleteRecord() throws IOException {
+        final UploadLedger ledger = new UploadLedger(this.folder.getRoot());
+        ledger.append(this.store, Arrays.asList(this.createRecord(1, "aa")));
+
+        final File file = new File(this.folder.getRoot(), this.store.getId() + ".jsonl");
+
+        try (FileOutputStream out = new FileOutputStream(file, true)) {
+            out.write("{\"storeId\":\"store-id\",\"digest\":\"b".getBytes(StandardCharsets.UTF_8));
+        }
+
+        final UploadLedger reloaded = new UploadLedger(this.folder.getRoot());
+        reloaded.append(this.store, Arrays.asList(this.createRecord(3, "cc")));
+
+        final UploadLedger recovered = new UploadLedger(this.folder.getRoot());
+
+        assertThat(recovered.getRecords(this.store)).hasSize(2);
+        assertThat(recovered.find(this.store, ReleaseStatus.DEVELOPMENT.key, "cc")).isNotNull();
+    }
+
+    @Test
+    public void shouldReturnRecordsOfCandidateDigestsOnly() throws IOException {
+        final UploadLedger ledger = new UploadLedger(this.folder.getRoot());
+        ledger.append(this.store, Arrays.asList(this.createRecord(1, "aa"), this.createRecord(2, "bb")));
+
+        final List<UploadRecord> records = ledger.getRecords(this.store, Arrays.asList("bb", "cc"));
+
+        assertThat(records).hasSize(1);
+        assertThat(records.get(0).getDigest()).isEqualTo("bb");
+    }
+
+    @Test
+    public void shouldDropExpiredRecords() throws IOException {
+        final UploadLedger ledger = new UploadLedger(this.folder.getRoot());
+        final long expired = this.now - TimeUnit.DAYS.toMillis(91);
+        ledger.append(this.store, Arrays.asList(this.createRecord(1, "aa", expired), this.createRecord(2, "bb")));
+
+        final UploadLedger reloaded = new UploadLedger(this.folder.getRoot());
+
+        assertThat(reloaded.find(this.store, ReleaseStatus.DEVELOPMENT.key, "aa")).isNull();
+        assertThat(reloaded.find(this.store, ReleaseStatus.DEVELOPMENT.key, "bb")).isNotNull();
+    }
+
+    @Test
+    public void shouldCompactSupersededRecords() throws IOException {
+        final UploadLedger ledger = new UploadLedger(this.folder.getRoot());
+        ledger.append(this.store, Arrays.asList(this.createRecord(1, "aa")));
+        ledger.append(this.store, Arrays.asList(this.createRecord(1, "aa")));
+        ledger.append(this.store, Arrays.asList(this.createRecord(1, "aa")));
+
+        assertThat(this.readLines()).hasSize(1);
+        assertThat(new UploadLedger(this.folder.getRoot()).getRecords(this.store)).hasSize(1);
+    }
+
+    @Test
+    public void shouldRemoveRecordsOfDeletedVersions() throws IOException {
+        final UploadLedger ledger = new UploadLedger(this.folder.getRoot());
+        ledger.append(this.store, Arrays.asList(this.createRecord(1, "aa"), this.createRecord(2, "bb")));
+
+        ledger.removeAssets(this.store, Collections.singletonList("asset-2"));
+
+        final UploadLedger reloaded = new UploadLedger(this.folder.getRoot());
+        final List<UploadRecord> live = reloaded.getLiveVersions(this.store);
+
+        assertThat(reloaded.find(this.store, ReleaseStatus.DEVELOPMENT.key, "bb")).isNull();
+        assertThat(live).hasSize(1);
+        assertThat(live.get(0).getVersionCode()).isEqualTo(1);
+        assertThat(this.readLines()).hasSize(1);
+    }
+}
@@ -0,0 +1,236 @@
+package org.jenkinsci.plugins.relution_publisher.builder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.jenkinsci.plugins.relution_publisher.builder.UploadScheduler.Permit;
+import org.jenkinsci.plugins.relution_publisher.configuration.global.Store;
+import org.jenkinsci.plugins.relution_publisher.model.ArchiveMode;
+import org.jenkinsci.plugins.relution_publisher.model.ReleaseStatus;
+import org.jenkinsci.plugins.relution_publisher.model.UploadMode;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+public class UploadSchedulerTest {
+
+    private final static long     MEGABYTE  = 1024 * 1024;
+
+    private final UploadScheduler scheduler = new UploadScheduler();
+
+    private final Store           store     = new Store(
+            "store-id",
+            "https://store.example.com",
+            "organization",
+            "username",
+            "password",
+            ReleaseStatus.DEVELOPMENT.key,
+            ArchiveMode.OVERWRITE.key,
+            UploadMode.SUCCESS.key,
+            "proxyHost",
+            8080,
+            "proxyUsername",
+            "proxyPassword");
+
+    private final List<String>    started   = Collections.synchronizedList(new ArrayList<String>());
+    private final AtomicInteger   builds    = new AtomicInteger();
+
+    @Before
+    public void setUp() {
+        this.store.setMaxConcurrentPublications(1);
+    }
+
+    private Thread acquireLater(final String job, final boolean release, final long bytes, final CountDownLatch done) {
+        return this.acquireLater(job, null, release, bytes, done);
+    }
+
+    private Thread acquireLater(final String job, final String group, final boolean release, final long bytes, final CountDownLatch done) {
+        return this.acquireLater(this.store, job, group, release, bytes, done);
+    }
+
+    private Thread acquireLater(
+            final Store store,
+            final String job,
+            final String group,
+            final boolean release,
+            final long bytes,
+            final CountDownLatch done) {
+
+        return this.acquireLater(store, job, this.builds.incrementAndGet(), group, release, bytes, done);
+    }
+
+    private Thread acquireLater(
+            final Store store,
+            final String job,
+            final int buildNumber,
+            final String group,
+            final boolean release,
+            final long bytes,
+            final CountDownLatch done) {
+
+        final Thread thread = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    final Permit permit = UploadSchedulerTest.this.scheduler.acquire(store, job, buildNumber, group, release, bytes);
+                    UploadSchedulerTest.this.started.add(permit.isSuperseded() ? "superseded" : job);
+                    UploadSchedulerTest.this.scheduler.release(permit);
+                    done.countDown();
+
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+
+                }
+            }
+        });
+        thread.start();
+        return thread;
+    }
+
+    private void awaitQueueLength(final int length) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(5);
+
+        while (this.scheduler.getQueueLength(this.store) < length) {
+            assertThat(System.currentTimeMillis()).as("Time waited for %d queued publications", length).isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    public void shouldLimitConcurrentPublications() throws InterruptedException {
+        final Permit permit = this.scheduler.acquire(this.store, "job", false, 0);
+        final CountDownLatch done = new CountDownLatch(1);
+
+        this.acquireLater("other", false, 0, done);
+        this.awaitQueueLength(1);
+
+        assertThat(this.started).isEmpty();
+
+        this.scheduler.release(permit);
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(this.started).containsExactly("other");
+    }
+
+    @Test
+    public void shouldStartReleaseBeforeDevelopment() throws InterruptedException {
+        final Permit permit = this.scheduler.acquire(this.store, "job", false, 0);
+        final CountDownLatch done = new CountDownLatch(2);
+
+        this.acquireLater("development", false, 0, done);
+        this.awaitQueueLength(1);
+        this.acquireLater("release", true, 0, done);
+        this.awaitQueueLength(2);
+
+        this.scheduler.release(permit);
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(this.started).containsExactly("release", "development");
+    }
+
+    @Test
+    public void shouldStartJobWithFewerPublicationsOnAllStores() throws InterruptedException {
+        final Store other = new Store(
+                "other-store-id",
+                "https://other.example.com",
+                "organization",
+                "username",
+                "password",
+                ReleaseStatus.DEVELOPMENT.key,
+                ArchiveMode.OVERWRITE.key,
+                UploadMode.SUCCESS.key,
+                "proxyHost",
+                8080,
+                "proxyUsername",
+                "proxyPassword");
+
+        // The busy job already publishes to another store
+        final Permit busy = this.scheduler.acquire(other, "busy", false, 0);
+        final Permit permit = this.scheduler.acquire(this.store, "job", false, 0);
+        final CountDownLatch done = new CountDownLatch(2);
+
+        this.acquireLater("busy", false, 0, done);
+        this.awaitQueueLength(1);
+        this.acquireLater("idle", false, 0, done);
+        this.awaitQueueLength(2);
+
+        this.scheduler.release(permit);
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(this.started).containsExactly("idle", "busy");
+
+        this.scheduler.release(busy);
+    }
+
+    @Test
+    public void shouldLimitInFlightBytes() throws InterruptedException {
+        this.store.setMaxConcurrentPublications(0);
+        this.store.setMaxInFlightMegabytes(10);
+
+        final Permit permit = this.scheduler.acquire(this.store, "job", false, 6 * MEGABYTE);
+        final CountDownLatch done = new CountDownLatch(1);
+
+        this.acquireLater("other", false, 6 * MEGABYTE, done);
+        this.awaitQueueLength(1);
+
+        assertThat(this.started).isEmpty();
+
+        this.scheduler.release(permit);
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(this.started).containsExactly("other");
+    }
+
+    @Test
+    public void shouldStartOversizedPublicationWhenIdle() throws InterruptedException {
+        this.store.setMaxInFlightMegabytes(10);
+
+        final Permit permit = this.scheduler.acquire(this.store, "job", false, 20 * MEGABYTE);
+        assertThat(permit.getWaitTime()).isLessThan(1000);
+
+        this.scheduler.release(permit);
+        assertThat(this.scheduler.getQueueLength(this.store)).isZero();
+    }
+
+    @Test
+    public void shouldSupersedeWaitingPublicationOfSameJob() throws InterruptedException {
+        final Permit permit = this.scheduler.acquire(this.store, "other", false, 0);
+        final CountDownLatch superseded = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(2);
+
+        this.acquireLater("job", "DEVELOPMENT", false, 0, superseded);
+        this.awaitQueueLength(1);
+        this.acquireLater("job", "DEVELOPMENT", false, 0, done);
+        assertThat(superseded.await(5, TimeUnit.SECONDS)).isTrue();
+
+        this.acquireLater("job", "RELEASE", false, 0, done);
+        this.awaitQueueLength(2);
+
+        this.scheduler.release(permit);
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(this.started).containsExactly("superseded", "job", "job");
+    }
+
+    @Test
+    public void shouldSupersedeOlderBuildThatArrivesLate() throws InterruptedException {
+        final Permit permit = this.scheduler.acquire(this.store, "other", false, 0);
+        final CountDownLatch superseded = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(1);
+
+        this.acquireLater(this.store, "job", 2, "DEVELOPMENT", false, 0, done);
+        this.awaitQueueLength(1);
+
+        // Build 1 finished after build 2 and must not replace it
+        this.acquireLater(this.store, "job", 1, "DEVELOPMENT", false, 0, superseded);
+        assertThat(superseded.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(this.started).containsExactly("superseded");
+        assertThat(this.scheduler.getQueueLength(this.store)).isEqualTo(1);
+
+        this.scheduler.release(permit);
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(this.started).containsExactly("superseded", "job");
+    }
+}
@@ -0,0 +1,249 @@
+package org.jenkinsci.plugins.relution_publisher.builder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.apache.commons.io.FileUtils;
+import org.jenkinsci.plugins.relution_publisher.configuration.global.Store;
+import org.jenkinsci.plugins.relution_publisher.configuration.jobs.Publication;
+import org.jenkinsci.plugins.relution_publisher.logging.Log;
+import org.jenkinsci.plugins.relution_publisher.model.ArchiveMode;
+import org.jenkinsci.plugins.relution_publisher.model.ReleaseStatus;
+import org.jenkinsci.plugins.relution_publisher.model.UploadMode;
+import org.jenkinsci.plugins.relution_publisher.model.UploadRecord;
+import org.jenkinsci.plugins.relution_publisher.unittest.mocks.MockLog;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import hudson.FilePath;
+import hudson.model.Result;
+
+
+public class UploadSpoolTest {
+
+    private final static String APP_CONTENT = "example-1";
+
+    @Rule
+    public TemporaryFolder      folder      = new TemporaryFolder();
+
+    private final Log           log         = new MockLog();
+    private final long          now         = System.currentTimeMillis();
+
+    private final Store         store       = new Store(
+            "store-id",
+            "https://store.example.com",
+            "organization",
+            "username",
+            "password",
+            ReleaseStatus.DEVELOPMENT.key,
+            ArchiveMode.ARCHIVE.key,
+            UploadMode.SUCCESS.key,
+            "proxyHost",
+            8080,
+            "proxyUsername",
+            "proxyPassword");
+
+    private final Publication   publication = new Publication(
+            "**/build/outputs/apk/example-*.apk",
+            null,
+            "store-id",
+            ReleaseStatus.DEFAULT.key,
+            ArchiveMode.DEFAULT.key,
+            UploadMode.DEFAULT.key,
+            "name",
+            null,
+            null,
+            null,
+            "versionName",
+            null);
+
+    private File                spoolDirectory;
+    private FilePath            workspace;
+
+    @Before
+    public void init() throws IOException {
+        final File root = this.folder.newFolder("workspace");
+        FileUtils.writeStringToFile(new File(root, "build/outputs/apk/example-1.apk"), APP_CONTENT, "UTF-8");
+
+        this.spoolDirectory = new File(this.folder.getRoot(), "spool");
+        this.workspace = new FilePath(root);
+    }
+
+    private SpoolEntry enqueue(final UploadSpool spool, final Result result) throws IOException, InterruptedException {
+        return this.enqueue(spool, 1, null, result);
+    }
+
+    private SpoolEntry enqueue(final UploadSpool spool, final int buildNumber, final String group, final Result result)
+            throws IOException, InterruptedException {
+        return spool.enqueue("job", buildNumber, this.workspace, this.store, Collections.singletonList(this.publication), result, group, false);
+    }
+
+    private List<Integer> getBuildNumbers(final UploadSpool spool) {
+        final List<Integer> buildNumbers = new ArrayList<>();
+
+        for (final SpoolEntry entry : spool.getEntries()) {
+            buildNumbers.add(entry.getBuildNumber());
+        }
+        return buildNumbers;
+    }
+
+    private UploadReport createFailedReport(final Result result) {
+        return new UploadReport(
+                result,
+                Collections.<UploadRecord> emptyList(),
+                Collections.<String> emptyList(),
+                Collections.singletonList(this.publication.getArtifactPath()));
+    }
+
+    @Test
+    public void shouldReturnEnqueuedEntry() throws IOException, InterruptedException {
+        final UploadSpool spool = new UploadSpool(this.spoolDirectory);
+        final SpoolEntry entry = this.enqueue(spool, Result.SUCCESS);
+
+        final List<SpoolEntry> entries = spool.getEntries();
+
+        assertThat(entries).hasSize(1);
+        assertThat(entries.get(0).getId()).isEqualTo(entry.getId());
+        assertThat(entries.get(0).getJob()).isEqualTo("job");
+        assertThat(entries.get(0).getBytes()).isEqualTo(APP_CONTENT.length());
+        assertThat(new File(spool.getFiles(entry), "build/outputs/apk/example-1.apk")).hasContent(APP_CONTENT);
+    }
+
+    @Test
+    public void shouldIncludeContentOfMatchingDirectories() {
+        final String includes = UploadSpool.withContents("**/*.app, **/*.apk,");
+
+        assertThat(includes).isEqualTo("**/*.app,**/*.app/**,**/*.apk,**/*.apk/**");
+    }
+
+    @Test
+    public void shouldKeepEntryForNewSpoolInstance() throws IOException, InterruptedException {
+        final SpoolEntry entry = this.enqueue(new UploadSpool(this.spoolDirectory), Result.SUCCESS);
+
+        // Jenkins restarted
+        final List<SpoolEntry> entries = new UploadSpool(this.spoolDirectory).getEntries();
+
+        assertThat(entries).hasSize(1);
+        assertThat(entries.get(0).getId()).isEqualTo(entry.getId());
+        assertThat(entries.get(0).getPublications()).hasSize(1);
+        assertThat(entries.get(0).getPublications().get(0).getArtifactPath()).isEqualTo(this.publication.getArtifactPath());
+    }
+
+    @Test
+    public void shouldDiscardDirectoryWithoutManifest() throws IOException, InterruptedException {
+        final File interrupted = new File(this.spoolDirectory, "interrupted");
+        FileUtils.writeStringToFile(new File(interrupted, "files/example-1.apk"), APP_CONTENT, "UTF-8");
+
+        final List<SpoolEntry> entries = new UploadSpool(this.spoolDirectory).getEntries();
+
+        assertThat(entries).isEmpty();
+        assertThat(interrupted).doesNotExist();
+    }
+
+    @Test
+    public void shouldQuarantineEntryWithUnreadableManifest() throws IOException, InterruptedException {
+        final File corrupt = new File(this.spoolDirectory, "corrupt");
+        FileUtils.writeStringToFile(new File(corrupt, "manifest.xml"), "<entry", "UTF-8");
+        FileUtils.writeStringToFile(new File(corrupt, "files/example-1.apk"), APP_CONTENT, "UTF-8");
+
+        final List<SpoolEntry> entries = new UploadSpool(this.spoolDirectory).getEntries();
+
+        assertThat(entries).isEmpty();
+        assertThat(corrupt).doesNotExist();
+        assertThat(new File(this.folder.getRoot(), "quarantine/corrupt/files/example-1.apk")).hasContent(APP_CONTENT);
+    }
+
+    @Test
+    public void shouldRemovePublishedEntry() throws IOException, InterruptedException {
+        final UploadSpool spool = new UploadSpool(this.spoolDirectory);
+        final SpoolEntry entry = this.enqueue(spool, Result.SUCCESS);
+        final UploadReport report = new UploadReport(Result.SUCCESS, Collections.<UploadRecord> emptyList());
+
+        final boolean removed = new UploadSpoolWork().complete(spool, entry, report, this.now, this.log);
+
+        assertThat(removed).isTrue();
+        assertThat(spool.getEntries()).isEmpty();
+    }
+
+    @Test
+    public void shouldRetryFailedPublicationAfterBackoff() throws IOException, InterruptedException {
+        final UploadSpool spool = new UploadSpool(this.spoolDirectory);
+        final UploadSpoolWork work = new UploadSpoolWork();
+
+        // The publication failed, but the report's result is no worse than the unstable build
+        final SpoolEntry entry = this.enqueue(spool, Result.UNSTABLE);
+        final boolean removed = work.complete(spool, entry, this.createFailedReport(Result.UNSTABLE), this.now, this.log);
+
+        assertThat(removed).isFalse();
+
+        final SpoolEntry retry = new UploadSpool(this.spoolDirectory).getEntries().get(0);
+        assertThat(retry.getAttempts()).isEqualTo(1);
+        assertThat(retry.getNextAttempt()).isEqualTo(this.now + UploadSpoolWork.MIN_BACKOFF);
+        assertThat(retry.getLastError()).contains(this.publication.getArtifactPath());
+
+        // The backoff doubles with every failed attempt
+        work.complete(spool, retry, this.createFailedReport(Result.UNSTABLE), this.now, this.log);
+
+        final SpoolEntry second = new UploadSpool(this.spoolDirectory).getEntries().get(0);
+        assertThat(second.getAttempts()).isEqualTo(2);
+        assertThat(second.getNextAttempt()).isEqualTo(this.now + 2 * UploadSpoolWork.MIN_BACKOFF);
+    }
+
+    @Test
+    public void shouldDiscardEntryAfterMaxAttempts() throws IOException, InterruptedException {
+        final UploadSpool spool = new UploadSpool(this.spoolDirectory);
+        final UploadSpoolWork work = new UploadSpoolWork();
+        final SpoolEntry entry = this.enqueue(spool, Result.SUCCESS);
+
+        for (int attempt = 1; attempt < UploadSpoolWork.MAX_ATTEMPTS; attempt++) {
+            assertThat(work.complete(spool, entry, this.createFailedReport(Result.UNSTABLE), this.now, this.log)).isFalse();
+        }
+
+        assertThat(spool.getEntries()).hasSize(1);
+        assertThat(work.complete(spool, entry, this.createFailedReport(Result.UNSTABLE), this.now, this.log)).isTrue();
+        assertThat(spool.getEntries()).isEmpty();
+    }
+
+    @Test
+    public void shouldSupersedeEntriesOfOlderBuilds() throws IOException, InterruptedException {
+        final UploadSpool spool = new UploadSpool(this.spoolDirectory);
+        this.enqueue(spool, 1, "DEVELOPMENT", Result.SUCCESS);
+        this.enqueue(spool, 2, "RELEASE", Result.SUCCESS);
+        final SpoolEntry entry = this.enqueue(spool, 3, "DEVELOPMENT", Result.SUCCESS);
+
+        assertThat(spool.supersede(entry)).isEqualTo(1);
+        assertThat(this.getBuildNumbers(spool)).containsOnly(2, 3);
+    }
+
+    @Test
+    public void shouldSupersedeEntryOfOlderBuildThatArrivesLate() throws IOException, InterruptedException {
+        final UploadSpool spool = new UploadSpool(this.spoolDirectory);
+        spool.supersede(this.enqueue(spool, 1, "DEVELOPMENT", Result.SUCCESS));
+        spool.supersede(this.enqueue(spool, 3, "DEVELOPMENT", Result.SUCCESS));
+
+        // Build 2 finished after build 3 and must not replace it
+        final SpoolEntry late = this.enqueue(spool, 2, "DEVELOPMENT", Result.SUCCESS);
+
+        assertThat(spool.supersede(late)).isEqualTo(-1);
+        assertThat(this.getBuildNumbers(spool)).containsOnly(3);
+    }
+
+    @Test
+    public void shouldNotSupersedeStartedEntry() throws IOException, InterruptedException {
+        final UploadSpool spool = new UploadSpool(this.spoolDirectory);
+        final SpoolEntry started = this.enqueue(spool, 1, "DEVELOPMENT", Result.SUCCESS);
+        assertThat(spool.start(started)).isTrue();
+
+        final SpoolEntry entry = this.enqueue(spool, 2, "DEVELOPMENT", Result.SUCCESS);
+
+        assertThat(spool.supersede(entry)).isZero();
+        assertThat(this.getBuildNumbers(spool)).containsOnly(1, 2);
+    }
+}
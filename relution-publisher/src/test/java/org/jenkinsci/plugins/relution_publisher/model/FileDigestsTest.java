@@ -0,0 +1,72 @@
+package org.jenkinsci.plugins.relution_publisher.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.apache.commons.io.FileUtils;
+import org.jenkinsci.plugins.relution_publisher.util.Digests;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+
+
+public class FileDigestsTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void shouldReuseDigestOfUnchangedFile() throws IOException {
+        final File file = this.folder.newFile("example.apk");
+        FileUtils.writeStringToFile(file, "first", "UTF-8");
+        final long lastModified = file.lastModified();
+
+        final FileDigests digests = new FileDigests();
+        final String digest = digests.sha256(file);
+
+        // Same size and modification time, the file is not read again
+        FileUtils.writeStringToFile(file, "other", "UTF-8");
+        assertThat(file.setLastModified(lastModified)).isTrue();
+
+        assertThat(digests.sha256(file)).isEqualTo(digest);
+        assertThat(digests.getSha256s()).containsOnly(digest);
+    }
+
+    @Test
+    public void shouldDigestChangedFileAgain() throws IOException {
+        final File file = this.folder.newFile("example.apk");
+        FileUtils.writeStringToFile(file, "first", "UTF-8");
+
+        final FileDigests digests = new FileDigests();
+        final String digest = digests.sha256(file);
+
+        FileUtils.writeStringToFile(file, "second", "UTF-8");
+
+        assertThat(digests.sha256(file)).isNotEqualTo(digest).isEqualTo(Digests.sha256(file));
+        assertThat(digests.getSha256s()).containsOnly(Digests.sha256(file));
+    }
+
+    @Test
+    public void shouldComputeMd5OfFile() throws IOException {
+        final File file = this.folder.newFile("example.apk");
+        FileUtils.writeStringToFile(file, "example", "UTF-8");
+
+        final FileDigests digests = new FileDigests();
+
+        assertThat(digests.md5(file)).isEqualTo("Gnmk1g3mcY6OWzJuM4rlMw==");
+        assertThat(digests.sha256(file)).isEqualTo(Digests.sha256(file));
+    }
+
+    @Test
+    public void shouldNotComputeMd5OfDirectory() throws IOException {
+        final File directory = this.folder.newFolder("Example.app");
+        FileUtils.writeStringToFile(new File(directory, "Info.plist"), "plist", "UTF-8");
+
+        final FileDigests digests = new FileDigests();
+
+        assertThat(digests.md5(directory)).isNull();
+        assertThat(digests.sha256(directory)).isEqualTo(Digests.sha256(directory));
+    }
+}
@@ -0,0 +1,98 @@
+package org.jenkinsci.plugins.relution_publisher.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import org.jenkinsci.plugins.relution_publisher.model.entities.App;
+import org.jenkinsci.plugins.relution_publisher.model.entities.Version;
+import org.jenkinsci.plugins.relution_publisher.util.Json;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+
+public class RetentionPolicyTest {
+
+    private static final long NOW = TimeUnit.DAYS.toMillis(1000);
+
+    private final JsonObject  app = new JsonObject();
+
+    private void addVersion(final String releaseStatus, final int versionCode, final int ageInDays) {
+        if (!this.app.has(App.VERSIONS)) {
+            this.app.add(App.VERSIONS, new JsonArray());
+        }
+
+        final JsonObject version = new JsonObject();
+        version.addProperty(Version.RELEASE_STATUS, releaseStatus);
+        version.addProperty(Version.VERSION_CODE, versionCode);
+        version.addProperty(Version.CREATION_DATE, NOW - TimeUnit.DAYS.toMillis(ageInDays));
+        this.app.getAsJsonArray(App.VERSIONS).add(version);
+    }
+
+    private JsonArray getVersions() {
+        return this.app.getAsJsonArray(App.VERSIONS);
+    }
+
+    @Test
+    public void shouldExpireNothingIfDisabled() {
+        final RetentionPolicy policy = new RetentionPolicy(0, 0);
+        this.addVersion(RetentionPolicy.RELEASE_STATUS_ARCHIVE, 1, 500);
+
+        assertThat(policy.isEnabled()).isFalse();
+        assertThat(policy.getExpiredVersions(this.app, NOW)).isEmpty();
+    }
+
+    @Test
+    public void shouldKeepLastVersionsPerReleaseStatus() {
+        final RetentionPolicy policy = new RetentionPolicy(2, 0);
+        this.addVersion(ReleaseStatus.DEVELOPMENT.key, 1, 3);
+        this.addVersion(ReleaseStatus.DEVELOPMENT.key, 3, 1);
+        this.addVersion(ReleaseStatus.DEVELOPMENT.key, 2, 2);
+        this.addVersion(ReleaseStatus.RELEASE.key, 1, 3);
+
+        final List<JsonObject> expired = policy.getExpiredVersions(this.app, NOW);
+
+        assertThat(expired).hasSize(1);
+        assertThat(Json.getInt(expired.get(0), Version.VERSION_CODE)).isEqualTo(1);
+        assertThat(Json.getString(expired.get(0), Version.RELEASE_STATUS)).isEqualTo(ReleaseStatus.DEVELOPMENT.key);
+    }
+
+    @Test
+    public void shouldExpireArchivedVersionsOlderThanMaxAge() {
+        final RetentionPolicy policy = new RetentionPolicy(0, 30);
+        this.addVersion(RetentionPolicy.RELEASE_STATUS_ARCHIVE, 1, 60);
+        this.addVersion(RetentionPolicy.RELEASE_STATUS_ARCHIVE, 2, 10);
+        this.addVersion(ReleaseStatus.RELEASE.key, 3, 60);
+
+        final List<JsonObject> expired = policy.getExpiredVersions(this.app, NOW);
+
+        assertThat(expired).hasSize(1);
+        assertThat(Json.getInt(expired.get(0), Version.VERSION_CODE)).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldExpireVersionOnlyOnce() {
+        final RetentionPolicy policy = new RetentionPolicy(1, 30);
+        this.addVersion(RetentionPolicy.RELEASE_STATUS_ARCHIVE, 1, 60);
+        this.addVersion(RetentionPolicy.RELEASE_STATUS_ARCHIVE, 2, 50);
+
+        final List<JsonObject> expired = policy.getExpiredVersions(this.app, NOW);
+
+        assertThat(expired).hasSize(2);
+    }
+
+    @Test
+    public void shouldNotExpireUndatedVersions() {
+        final RetentionPolicy policy = new RetentionPolicy(1, 30);
+        this.addVersion(RetentionPolicy.RELEASE_STATUS_ARCHIVE, 1, 60);
+        this.addVersion(RetentionPolicy.RELEASE_STATUS_ARCHIVE, 2, 10);
+        this.getVersions().get(0).getAsJsonObject().remove(Version.CREATION_DATE);
+
+        final List<JsonObject> expired = policy.getExpiredVersions(this.app, NOW);
+
+        assertThat(expired).isEmpty();
+    }
+}
@@ -0,0 +1,37 @@
+package org.jenkinsci.plugins.relution_publisher.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+
+
+public class ServerCapabilitiesTest {
+
+    @Test
+    public void shouldSupportSingleRequestUploadOn336() {
+        final ServerCapabilities capabilities = new ServerCapabilities(new ServerVersion("3.36"));
+
+        assertThat(capabilities.supportsSingleRequestUpload()).isTrue();
+    }
+
+    @Test
+    public void shouldSupportSingleRequestUploadOnNewerVersion() {
+        final ServerCapabilities capabilities = new ServerCapabilities(new ServerVersion("4.0.1"));
+
+        assertThat(capabilities.supportsSingleRequestUpload()).isTrue();
+    }
+
+    @Test
+    public void shouldNotSupportSingleRequestUploadOnOlderVersion() {
+        final ServerCapabilities capabilities = new ServerCapabilities(new ServerVersion("3.35"));
+
+        assertThat(capabilities.supportsSingleRequestUpload()).isFalse();
+    }
+
+    @Test
+    public void shouldNotSupportSingleRequestUploadOnUnknownVersion() {
+        final ServerCapabilities capabilities = new ServerCapabilities(new ServerVersion(null));
+
+        assertThat(capabilities.supportsSingleRequestUpload()).isFalse();
+    }
+}
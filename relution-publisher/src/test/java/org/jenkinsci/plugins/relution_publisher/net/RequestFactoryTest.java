@@ -9,6 +9,7 @@ import org.jenkinsci.plugins.relution_publisher.configuration.global.Store;
 import org.jenkinsci.plugins.relution_publisher.model.ArchiveMode;
 import org.jenkinsci.plugins.relution_publisher.model.ReleaseStatus;
 import org.jenkinsci.plugins.relution_publisher.model.UploadMode;
+import org.jenkinsci.plugins.relution_publisher.model.constants.Headers;
 import org.jenkinsci.plugins.relution_publisher.net.requests.ApiRequest.Method;
 import org.jenkinsci.plugins.relution_publisher.net.requests.EntityRequest;
 import org.junit.Before;
@@ -185,4 +186,25 @@ public class RequestFactoryTest {
         assertThat(request.getMethod()).isEqualTo(Method.DELETE);
         assertThat(request.getUri()).isEqualTo("https://example.com/relution/api/v1/apps/{app-uuid}/versions/{version-uuid}");
     }
+
+    @Test
+    public void shouldAddAuthorizationHeaderIfApiTokenSet() {
+        this.store.setUrl(URL_HOST_NAME);
+        this.store.setApiToken("{api-token}");
+
+        final EntityRequest request = this.requestFactory.createLanguageRequest(this.store);
+
+        assertThat(request).isNotNull();
+        assertThat(request.getHeader(Headers.AUTHORIZATION)).isEqualTo("Bearer {api-token}");
+    }
+
+    @Test
+    public void shouldNotAddAuthorizationHeaderIfApiTokenNotSet() {
+        this.store.setUrl(URL_HOST_NAME);
+
+        final EntityRequest request = this.requestFactory.createLanguageRequest(this.store);
+
+        assertThat(request).isNotNull();
+        assertThat(request.getHeader(Headers.AUTHORIZATION)).isNull();
+    }
 }
@@ -0,0 +1,155 @@
+package org.jenkinsci.plugins.relution_publisher.net;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.apache.http.Header;
+import org.apache.http.HttpException;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.bootstrap.HttpServer;
+import org.apache.http.impl.bootstrap.ServerBootstrap;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.protocol.HttpRequestHandler;
+import org.jenkinsci.plugins.relution_publisher.net.requests.ApiRequest.Method;
+import org.jenkinsci.plugins.relution_publisher.net.requests.EntityRequest;
+import org.jenkinsci.plugins.relution_publisher.net.responses.ApiResponse;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+public class RequestManagerTest {
+
+    private final AtomicInteger  closeRequests  = new AtomicInteger();
+    private final RequestManager requestManager = new RequestManager();
+
+    private HttpServer           server;
+    private String               baseUri;
+
+    private static int findFreePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static void setMessage(final HttpResponse response, final String message) {
+        final String json = String.format("{\"message\":\"%s\"}", message);
+        response.setEntity(new StringEntity(json, ContentType.APPLICATION_JSON));
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        final int port = findFreePort();
+
+        this.server = ServerBootstrap.bootstrap()
+                .setListenerPort(port)
+                .registerHandler("/login", new HttpRequestHandler() {
+
+                    @Override
+                    public void handle(final HttpRequest request, final HttpResponse response, final HttpContext context)
+                            throws HttpException, IOException {
+                        response.addHeader("Set-Cookie", "JSESSIONID=abc; Path=/");
+                        response.addHeader("Set-Cookie", "other=xyz; Path=/other");
+                        setMessage(response, "ok");
+                    }
+                })
+                .registerHandler("/cookies", new HttpRequestHandler() {
+
+                    @Override
+                    public void handle(final HttpRequest request, final HttpResponse response, final HttpContext context)
+                            throws HttpException, IOException {
+                        final Header cookie = request.getFirstHeader("Cookie");
+                        setMessage(response, (cookie != null) ? cookie.getValue() : "");
+                    }
+                })
+                .registerHandler("/close", new HttpRequestHandler() {
+
+                    @Override
+                    public void handle(final HttpRequest request, final HttpResponse response, final HttpContext context)
+                            throws HttpException, IOException {
+                        RequestManagerTest.this.closeRequests.incrementAndGet();
+                        response.setHeader("Connection", "close");
+                        setMessage(response, "closed");
+                    }
+                })
+                .create();
+
+        this.server.start();
+        this.baseUri = String.format("http://localhost:%d", port);
+        this.requestManager.setPipelining(true);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        this.requestManager.close();
+        this.server.shutdown(5, TimeUnit.SECONDS);
+    }
+
+    private EntityRequest get(final String path) {
+        return new EntityRequest(Method.GET, this.baseUri + path);
+    }
+
+    @Test
+    public void shouldReturnPipelinedResponsesInOrder() throws IOException, InterruptedException, ExecutionException {
+        final List<ApiResponse> responses = this.requestManager.executePipelined(
+                Arrays.asList(this.get("/login"), this.get("/cookies")),
+                null);
+
+        assertThat(responses).hasSize(2);
+        assertThat(responses.get(0).getMessage()).isEqualTo("ok");
+        assertThat(responses.get(1).getStatusCode()).isEqualTo(200);
+    }
+
+    @Test
+    public void shouldStoreCookiesOfPipelinedResponses() throws IOException, InterruptedException, ExecutionException {
+        this.requestManager.executePipelined(Arrays.asList(this.get("/login"), this.get("/login")), null);
+
+        final List<ApiResponse> responses = this.requestManager.executePipelined(
+                Arrays.asList(this.get("/cookies"), this.get("/cookies")),
+                null);
+
+        // The cookie restricted to another path must not be sent
+        assertThat(responses.get(0).getMessage()).isEqualTo("JSESSIONID=abc");
+        assertThat(responses.get(1).getMessage()).isEqualTo("JSESSIONID=abc");
+    }
+
+    @Test
+    public void shouldRunPipeliningClientOnDaemonThreads() throws IOException, InterruptedException, ExecutionException {
+        this.requestManager.executePipelined(Arrays.asList(this.get("/login"), this.get("/cookies")), null);
+
+        for (final Map.Entry<Thread, StackTraceElement[]> entry : Thread.getAllStackTraces().entrySet()) {
+            if (entry.getKey().isDaemon()) {
+                continue;
+            }
+
+            for (final StackTraceElement element : entry.getValue()) {
+                assertThat(element.getClassName()).as("Class on stack of %s", entry.getKey()).doesNotStartWith("org.apache.http.impl.nio");
+            }
+        }
+    }
+
+    @Test
+    public void shouldFallBackToSequentialRequests() throws IOException, InterruptedException, ExecutionException {
+        final List<ApiResponse> responses = this.requestManager.executePipelined(
+                Arrays.asList(this.get("/close"), this.get("/cookies")),
+                null);
+
+        assertThat(responses).hasSize(2);
+        assertThat(responses.get(0).getMessage()).isEqualTo("closed");
+        assertThat(responses.get(1).getStatusCode()).isEqualTo(200);
+
+        // Sent once pipelined, then again when the requests were sent one at a time
+        assertThat(this.closeRequests.get()).isGreaterThanOrEqualTo(2);
+    }
+}
@@ -0,0 +1,214 @@
+package org.jenkinsci.plugins.relution_publisher.net.requests;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpException;
+import org.apache.http.HttpRequest;
+import org.apache.http.nio.ContentEncoder;
+import org.apache.http.nio.IOControl;
+import org.jenkinsci.plugins.relution_publisher.util.Digests;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Semaphore;
+
+
+public class ZeroCopyFileRequestProducerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ZeroCopyFileRequest createRequest(final File file, final boolean computeChecksums) throws IOException {
+        final ZeroCopyFileRequest request = new ZeroCopyFileRequest("https://store.example.com/relution/api/v1/files");
+        request.addItem("file", file);
+        request.setComputeChecksums(computeChecksums);
+        request.computeChecksums();
+        return request;
+    }
+
+    private File createFile(final String content) throws IOException {
+        final File file = this.folder.newFile("example.apk");
+        FileUtils.writeStringToFile(file, content, "UTF-8");
+        return file;
+    }
+
+    private byte[] send(final ZeroCopyFileRequestProducer producer) throws IOException {
+        final TestContentEncoder encoder = new TestContentEncoder();
+        final TestIOControl ioctrl = new TestIOControl();
+
+        try {
+            while (!encoder.isCompleted()) {
+                producer.produceContent(encoder, ioctrl);
+                ioctrl.awaitOutput();
+            }
+        } finally {
+            producer.close();
+        }
+        return encoder.toByteArray();
+    }
+
+    private String getBoundary(final ZeroCopyFileRequestProducer producer) {
+        final String contentType = producer.getContentType();
+        return contentType.substring(contentType.indexOf('=') + 1);
+    }
+
+    @Test
+    public void shouldSendChecksumTrailer() throws IOException {
+        final File file = this.createFile("content");
+        final ZeroCopyFileRequest request = this.createRequest(file, true);
+        final ZeroCopyFileRequestProducer producer = new ZeroCopyFileRequestProducer(request);
+
+        final String body = new String(this.send(producer), "UTF-8");
+        final String sha256 = Digests.sha256(file);
+
+        assertThat(request.getItems().get(0).getSha256()).isEqualTo(sha256);
+        assertThat(body).contains("\r\n\r\ncontent\r\n");
+        assertThat(body).contains("Content-Disposition: form-data; name=\"file.sha256\"\r\n\r\n" + sha256 + "\r\n");
+        assertThat(body).endsWith("--" + this.getBoundary(producer) + "--\r\n");
+    }
+
+    @Test
+    public void shouldNotSendChecksumTrailerIfDisabled() throws IOException {
+        final File file = this.createFile("content");
+        final ZeroCopyFileRequest request = this.createRequest(file, false);
+        final ZeroCopyFileRequestProducer producer = new ZeroCopyFileRequestProducer(request);
+
+        final String body = new String(this.send(producer), "UTF-8");
+
+        assertThat(request.getItems().get(0).getSha256()).isNull();
+        assertThat(body).doesNotContain("file.sha256");
+    }
+
+    @Test
+    public void shouldIncludeTrailerInContentLength() throws IOException {
+        final File file = this.createFile("content");
+        final ZeroCopyFileRequestProducer producer = new ZeroCopyFileRequestProducer(this.createRequest(file, true));
+        final ZeroCopyFileRequestProducer plain = new ZeroCopyFileRequestProducer(this.createRequest(file, false));
+
+        final String trailer = String.format(
+                "\r\n--%s\r\nContent-Disposition: form-data; name=\"file.sha256\"\r\n\r\n%s",
+                this.getBoundary(producer),
+                Digests.sha256(file));
+
+        assertThat(producer.getContentLength() - plain.getContentLength()).isEqualTo(trailer.length());
+        assertThat((long) this.send(producer).length).isEqualTo(producer.getContentLength());
+        assertThat((long) this.send(plain).length).isEqualTo(plain.getContentLength());
+    }
+
+    @Test
+    public void shouldSendBundleChunkedAsZipArchive() throws IOException, HttpException {
+        final File bundle = this.folder.newFolder("Example.app");
+        FileUtils.writeStringToFile(new File(bundle, "Info.plist"), "content", "UTF-8");
+
+        final ZeroCopyFileRequestProducer producer = new ZeroCopyFileRequestProducer(this.createRequest(bundle, true));
+        final HttpRequest request = producer.generateRequest();
+        final HttpEntity entity = ((HttpEntityEnclosingRequest) request).getEntity();
+
+        assertThat(producer.getContentLength()).isEqualTo(-1);
+        assertThat(entity.isChunked()).isTrue();
+        assertThat(entity.getContentLength()).isEqualTo(-1);
+
+        final String body = new String(this.send(producer), "ISO-8859-1");
+
+        assertThat(body).contains("name=\"file\"; filename=\"Example.app.zip\"\r\nContent-Type: application/zip\r\n");
+        assertThat(body).contains("Example.app/Info.plist");
+        assertThat(body).contains("Content-Disposition: form-data; name=\"file.sha256\"");
+    }
+
+    @Test
+    public void shouldSendSameBodyAfterReset() throws IOException {
+        final File file = this.createFile("content");
+        final ZeroCopyFileRequestProducer producer = new ZeroCopyFileRequestProducer(this.createRequest(file, true));
+
+        final byte[] first = this.send(producer);
+        producer.resetRequest();
+        final byte[] second = this.send(producer);
+
+        assertThat(second).isEqualTo(first);
+    }
+
+    /**
+     * Blocks the sending thread while output is suspended, e.g. until a bundle has been zipped.
+     */
+    private static class TestIOControl implements IOControl {
+
+        private final Semaphore output = new Semaphore(0);
+        private boolean         suspended;
+
+        public void awaitOutput() throws InterruptedIOException {
+            if (!this.suspended) {
+                return;
+            }
+
+            try {
+                this.output.acquire();
+                this.suspended = false;
+
+            } catch (final InterruptedException e) {
+                throw new InterruptedIOException();
+
+            }
+        }
+
+        @Override
+        public void requestInput() {
+        }
+
+        @Override
+        public void suspendInput() {
+        }
+
+        @Override
+        public void requestOutput() {
+            this.output.release();
+        }
+
+        @Override
+        public void suspendOutput() {
+            this.suspended = true;
+        }
+
+        @Override
+        public void shutdown() throws IOException {
+        }
+    }
+
+    private static class TestContentEncoder implements ContentEncoder {
+
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        private boolean                     completed;
+
+        @Override
+        public int write(final ByteBuffer src) {
+            final int length = src.remaining();
+            final byte[] bytes = new byte[length];
+
+            src.get(bytes);
+            this.out.write(bytes, 0, length);
+            return length;
+        }
+
+        @Override
+        public void complete() {
+            this.completed = true;
+        }
+
+        @Override
+        public boolean isCompleted() {
+            return this.completed;
+        }
+
+        public byte[] toByteArray() {
+            return this.out.toByteArray();
+        }
+    }
+}
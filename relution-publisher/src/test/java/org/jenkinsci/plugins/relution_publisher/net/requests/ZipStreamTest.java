@@ -0,0 +1,168 @@
+package org.jenkinsci.plugins.relution_publisher.net.requests;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.http.nio.IOControl;
+import org.apache.tools.zip.UnixStat;
+import org.apache.tools.zip.ZipFile;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+
+public class ZipStreamTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File createBundle() throws IOException {
+        final File bundle = this.folder.newFolder("Test.app");
+
+        FileUtils.writeStringToFile(new File(bundle, "b.txt"), "b", "UTF-8");
+        FileUtils.writeStringToFile(new File(bundle, "a/c.txt"), "c", "UTF-8");
+        FileUtils.writeStringToFile(new File(bundle, "A.txt"), "A", "UTF-8");
+        return bundle;
+    }
+
+    private byte[] readFully(final ZipStream stream) throws IOException, InterruptedException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final ByteBuffer buffer = ByteBuffer.allocate(4096);
+        final TestIOControl ioctrl = new TestIOControl();
+
+        int read;
+
+        while ((read = stream.read(buffer, ioctrl)) != -1) {
+            if (read == 0) {
+                ioctrl.awaitOutput();
+                continue;
+            }
+
+            buffer.flip();
+            out.write(buffer.array(), 0, buffer.limit());
+            buffer.clear();
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    public void shouldWriteEntriesInOrder() throws IOException, InterruptedException {
+        final File bundle = this.createBundle();
+
+        final byte[] archive;
+        try (ZipStream stream = ZipStream.open(bundle)) {
+            archive = this.readFully(stream);
+        }
+
+        final List<String> names = new ArrayList<>();
+        final StringBuilder content = new StringBuilder();
+
+        try (ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(archive))) {
+            ZipEntry entry;
+
+            while ((entry = in.getNextEntry()) != null) {
+                names.add(entry.getName());
+
+                int value;
+                while ((value = in.read()) != -1) {
+                    content.append((char) value);
+                }
+            }
+        }
+
+        assertThat(names).containsExactly("Test.app/", "Test.app/A.txt", "Test.app/a/", "Test.app/a/c.txt", "Test.app/b.txt");
+        assertThat(content.toString()).isEqualTo("Acb");
+    }
+
+    @Test
+    public void shouldStoreLinksAndModes() throws IOException, InterruptedException {
+        Assume.assumeTrue(FileSystems.getDefault().supportedFileAttributeViews().contains("posix"));
+
+        final File bundle = this.createBundle();
+        final File executable = new File(bundle, "Test");
+        FileUtils.writeStringToFile(executable, "binary", "UTF-8");
+        Files.setPosixFilePermissions(executable.toPath(), PosixFilePermissions.fromString("rwxr-xr-x"));
+        Files.createSymbolicLink(new File(bundle, "b-link.txt").toPath(), Paths.get("b.txt"));
+        Files.createSymbolicLink(new File(bundle, "parent").toPath(), Paths.get(".."));
+
+        final File archive = this.folder.newFile("Test.app.zip");
+        try (ZipStream stream = ZipStream.open(bundle)) {
+            FileUtils.writeByteArrayToFile(archive, this.readFully(stream));
+        }
+
+        final ZipFile zip = new ZipFile(archive, "UTF-8");
+
+        try {
+            final org.apache.tools.zip.ZipEntry file = zip.getEntry("Test.app/Test");
+            final org.apache.tools.zip.ZipEntry fileLink = zip.getEntry("Test.app/b-link.txt");
+            final org.apache.tools.zip.ZipEntry directoryLink = zip.getEntry("Test.app/parent");
+
+            assertThat(file.getUnixMode()).isEqualTo(UnixStat.FILE_FLAG | 0755);
+            assertThat(fileLink.getUnixMode() & UnixStat.LINK_FLAG).isEqualTo(UnixStat.LINK_FLAG);
+            assertThat(directoryLink.getUnixMode() & UnixStat.LINK_FLAG).isEqualTo(UnixStat.LINK_FLAG);
+            assertThat(IOUtils.toString(zip.getInputStream(fileLink), "UTF-8")).isEqualTo("b.txt");
+            assertThat(IOUtils.toString(zip.getInputStream(directoryLink), "UTF-8")).isEqualTo("..");
+            assertThat(zip.getEntry("Test.app/parent/Test.app/")).isNull();
+
+        } finally {
+            ZipFile.closeQuietly(zip);
+
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldFailIfDirectoryDoesNotExist() throws IOException, InterruptedException {
+        final File missing = new File(this.folder.getRoot(), "Missing.app");
+
+        try (ZipStream stream = ZipStream.open(missing)) {
+            this.readFully(stream);
+        }
+    }
+
+    private static class TestIOControl implements IOControl {
+
+        private final Semaphore output = new Semaphore(0);
+
+        public void awaitOutput() throws InterruptedException {
+            this.output.acquire();
+        }
+
+        @Override
+        public void requestInput() {
+        }
+
+        @Override
+        public void suspendInput() {
+        }
+
+        @Override
+        public void requestOutput() {
+            this.output.release();
+        }
+
+        @Override
+        public void suspendOutput() {
+        }
+
+        @Override
+        public void shutdown() throws IOException {
+        }
+    }
+}
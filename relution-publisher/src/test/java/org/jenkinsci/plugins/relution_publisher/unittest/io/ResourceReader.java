@@ -28,6 +28,21 @@ public class ResourceReader {
         return sb.toString();
     }
 
+    public byte[] readBytes(final String resourceName) throws IOException {
+        final String name = RESOURCE_PREFIX + resourceName;
+
+        final ClassLoader classLoader = ResourceReader.class.getClassLoader();
+        final InputStream stream = classLoader.getResourceAsStream(name);
+        assertThat(stream).as("Resource stream").isNotNull();
+
+        try {
+            return IOUtils.toByteArray(stream);
+
+        } finally {
+            IOUtils.closeQuietly(stream);
+        }
+    }
+
     private StringBuilder read(final InputStream stream) throws IOException {
 
         if (stream == null) {
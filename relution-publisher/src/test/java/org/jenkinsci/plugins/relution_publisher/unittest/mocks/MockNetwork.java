@@ -1,6 +1,9 @@
 
 package org.jenkinsci.plugins.relution_publisher.unittest.mocks;
 
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+
 import org.jenkinsci.plugins.relution_publisher.logging.Log;
 import org.jenkinsci.plugins.relution_publisher.net.Network;
 import org.jenkinsci.plugins.relution_publisher.net.requests.ApiRequest;
@@ -18,11 +21,19 @@ public class MockNetwork implements Network {
 
     private int                     requestCount;
     private final List<ApiResponse> responses        = new ArrayList<>();
+    private final List<ApiRequest>  requests         = new ArrayList<>();
 
-    public void add(final ApiResponse response) {
+    public synchronized void add(final ApiResponse response) {
         this.responses.add(response);
     }
 
+    /**
+     * @return The requests that were executed, in the order of their execution.
+     */
+    public synchronized List<ApiRequest> getRequests() {
+        return new ArrayList<>(this.requests);
+    }
+
     @Override
     public void setProxy(final String hostname, final int port) {
         // Do nothing
@@ -34,7 +45,29 @@ public class MockNetwork implements Network {
     }
 
     @Override
-    public ApiResponse execute(final ApiRequest request, final Log log) throws IOException, InterruptedException, ExecutionException {
+    public void setConnectionLimits(final int maxConnections, final int maxConnectionsPerRoute) {
+        // Do nothing
+    }
+
+    @Override
+    public void setIoThreadCount(final int ioThreadCount) {
+        // Do nothing
+    }
+
+    @Override
+    public void setConnectionTimeToLive(final int seconds) {
+        // Do nothing
+    }
+
+    @Override
+    public void setPipelining(final boolean enabled) {
+        // Do nothing
+    }
+
+    @Override
+    public synchronized ApiResponse execute(final ApiRequest request, final Log log) throws IOException, InterruptedException, ExecutionException {
+        this.requests.add(request);
+
         if (this.requestCount >= this.responses.size()) {
             return null;
         }
@@ -46,6 +79,36 @@ public class MockNetwork implements Network {
         return this.execute(request, null);
     }
 
+    @Override
+    public List<ApiResponse> executePipelined(final List<? extends ApiRequest> requests, final Log log)
+            throws IOException, InterruptedException, ExecutionException {
+        final List<ApiResponse> responses = new ArrayList<>();
+
+        for (final ApiRequest request : requests) {
+            responses.add(this.execute(request, log));
+        }
+        return responses;
+    }
+
+    @Override
+    public ListenableFuture<ApiResponse> executeAsync(final ApiRequest request, final Log log) throws IOException {
+        try {
+            return Futures.immediateFuture(this.execute(request, log));
+
+        } catch (final InterruptedException e) {
+            return Futures.immediateFailedFuture(e);
+
+        } catch (final ExecutionException e) {
+            return Futures.immediateFailedFuture(e.getCause());
+
+        }
+    }
+
+    @Override
+    public ListenableFuture<ApiResponse> executeAsync(final ApiRequest request) throws IOException {
+        return this.executeAsync(request, null);
+    }
+
     @Override
     public void close() throws IOException {
         // Do nothing
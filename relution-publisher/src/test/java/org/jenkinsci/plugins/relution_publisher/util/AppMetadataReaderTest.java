@@ -0,0 +1,157 @@
+package org.jenkinsci.plugins.relution_publisher.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.jenkinsci.plugins.relution_publisher.model.AppMetadata;
+import org.jenkinsci.plugins.relution_publisher.unittest.io.ResourceReader;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+
+public class AppMetadataReaderTest {
+
+    private static final String INFO_PLIST = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<!DOCTYPE plist PUBLIC \"-//Apple//DTD PLIST 1.0//EN\" \"http://www.apple.com/DTDs/PropertyList-1.0.dtd\">\n"
+            + "<plist version=\"1.0\">\n"
+            + "<dict>\n"
+            + "    <key>CFBundleIdentifier</key>\n"
+            + "    <string>com.example.app</string>\n"
+            + "    <key>CFBundleSupportedPlatforms</key>\n"
+            + "    <array><string>iPhoneOS</string></array>\n"
+            + "    <key>CFBundleVersion</key>\n"
+            + "    <string>42</string>\n"
+            + "    <key>CFBundleShortVersionString</key>\n"
+            + "    <string>1.2.3</string>\n"
+            + "</dict>\n"
+            + "</plist>\n";
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final ResourceReader resourceReader = new ResourceReader();
+
+    private File createArchive(final String fileName, final String entryName, final String content, final int method)
+            throws IOException {
+        return this.createArchive(fileName, entryName, content.getBytes(StandardCharsets.UTF_8), method);
+    }
+
+    private File createArchive(final String fileName, final String entryName, final byte[] content, final int method)
+            throws IOException {
+        final File file = this.folder.newFile(fileName);
+
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(file))) {
+            out.setMethod(method);
+            out.setComment("Archive comment");
+
+            final byte[] filler = new byte[64 * 1024];
+            this.putEntry(out, "Payload/Example.app/Assets.car", filler, method);
+            this.putEntry(out, entryName, content, method);
+        }
+        return file;
+    }
+
+    private void putEntry(final ZipOutputStream out, final String name, final byte[] content, final int method)
+            throws IOException {
+        final ZipEntry entry = new ZipEntry(name);
+
+        if (method == ZipEntry.STORED) {
+            final CRC32 crc = new CRC32();
+            crc.update(content);
+            entry.setSize(content.length);
+            entry.setCrc(crc.getValue());
+        }
+
+        out.putNextEntry(entry);
+        out.write(content);
+        out.closeEntry();
+    }
+
+    @Test
+    public void shouldReadInfoPlistOfDeflatedArchive() throws IOException {
+        final File file = this.createArchive("example.ipa", "Payload/Example.app/Info.plist", INFO_PLIST, ZipEntry.DEFLATED);
+
+        final AppMetadata metadata = AppMetadataReader.read(file);
+
+        assertThat(metadata.getIdentifier()).isEqualTo("com.example.app");
+        assertThat(metadata.getVersionCode()).isEqualTo(42);
+        assertThat(metadata.getVersionName()).isEqualTo("1.2.3");
+    }
+
+    @Test
+    public void shouldReadInfoPlistOfStoredArchive() throws IOException {
+        final File file = this.createArchive("example.ipa", "Payload/Example.app/Info.plist", INFO_PLIST, ZipEntry.STORED);
+
+        final AppMetadata metadata = AppMetadataReader.read(file);
+
+        assertThat(metadata.getIdentifier()).isEqualTo("com.example.app");
+        assertThat(metadata.getVersionCode()).isEqualTo(42);
+    }
+
+    @Test
+    public void shouldNotUseNonNumericBundleVersionAsVersionCode() throws IOException {
+        final String plist = INFO_PLIST.replace("<string>42</string>", "<string>4.2b</string>");
+        final File file = this.createArchive("example.ipa", "Payload/Example.app/Info.plist", plist, ZipEntry.DEFLATED);
+
+        final AppMetadata metadata = AppMetadataReader.read(file);
+
+        assertThat(metadata.getIdentifier()).isEqualTo("com.example.app");
+        assertThat(metadata.getVersionCode()).isNull();
+    }
+
+    @Test
+    public void shouldReadBinaryInfoPlist() throws IOException {
+        final byte[] plist = this.resourceReader.readBytes("binary-Info.plist");
+        final File file = this.createArchive("example.ipa", "Payload/Example.app/Info.plist", plist, ZipEntry.DEFLATED);
+
+        final AppMetadata metadata = AppMetadataReader.read(file);
+
+        assertThat(metadata.getIdentifier()).isEqualTo("com.example.app");
+        assertThat(metadata.getVersionCode()).isEqualTo(42);
+        assertThat(metadata.getVersionName()).isEqualTo("1.2.3");
+    }
+
+    @Test
+    public void shouldReadBinaryAndroidManifest() throws IOException {
+        final byte[] manifest = this.resourceReader.readBytes("binary-AndroidManifest.xml");
+        final File file = this.createArchive("example.apk", "AndroidManifest.xml", manifest, ZipEntry.DEFLATED);
+
+        final AppMetadata metadata = AppMetadataReader.read(file);
+
+        assertThat(metadata.getIdentifier()).isEqualTo("com.example.app");
+        assertThat(metadata.getVersionCode()).isEqualTo(42);
+        assertThat(metadata.getVersionName()).isEqualTo("1.2.3");
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldRejectInfoPlistThatDeclaresEntities() throws IOException {
+        final String plist = INFO_PLIST
+                .replace("PropertyList-1.0.dtd\">", "PropertyList-1.0.dtd\" [<!ENTITY id SYSTEM \"file:///etc/hostname\">]>")
+                .replace("<string>com.example.app</string>", "<string>&id;</string>");
+        final File file = this.createArchive("example.ipa", "Payload/Example.app/Info.plist", plist, ZipEntry.DEFLATED);
+
+        AppMetadataReader.read(file);
+    }
+
+    @Test
+    public void shouldIgnoreUnsupportedFiles() throws IOException {
+        final File file = this.createArchive("example.zip", "Payload/Example.app/Info.plist", INFO_PLIST, ZipEntry.DEFLATED);
+
+        assertThat(AppMetadataReader.read(file)).isNull();
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldFailIfInfoPlistIsMissing() throws IOException {
+        final File file = this.createArchive("example.ipa", "Payload/Example.app/Other.plist", INFO_PLIST, ZipEntry.DEFLATED);
+
+        AppMetadataReader.read(file);
+    }
+}
@@ -0,0 +1,67 @@
+package org.jenkinsci.plugins.relution_publisher.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.tools.ant.DirectoryScanner;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+
+
+public class BundlesTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private DirectoryScanner scan(final String... includes) {
+        final DirectoryScanner scanner = new DirectoryScanner();
+        scanner.setBasedir(this.folder.getRoot());
+        scanner.setIncludes(includes);
+        scanner.scan();
+        return scanner;
+    }
+
+    private static String path(final String... names) {
+        final StringBuilder sb = new StringBuilder();
+
+        for (final String name : names) {
+            if (sb.length() > 0) {
+                sb.append(File.separator);
+            }
+            sb.append(name);
+        }
+        return sb.toString();
+    }
+
+    @Test
+    public void shouldNotReturnFilesInBundle() throws IOException {
+        FileUtils.writeStringToFile(new File(this.folder.getRoot(), "build/Example.app/Info.plist"), "plist", "UTF-8");
+        FileUtils.writeStringToFile(new File(this.folder.getRoot(), "build/Example.app/Frameworks/Nested.framework/Nested"), "binary", "UTF-8");
+        FileUtils.writeStringToFile(new File(this.folder.getRoot(), "build/example.apk"), "apk", "UTF-8");
+
+        final String[] artifacts = Bundles.getIncludedArtifacts(this.scan("build/**"));
+
+        assertThat(artifacts).containsOnly(path("build", "example.apk"), path("build", "Example.app"));
+    }
+
+    @Test
+    public void shouldReturnFilesWithoutBundle() throws IOException {
+        FileUtils.writeStringToFile(new File(this.folder.getRoot(), "build/Example/Info.plist"), "plist", "UTF-8");
+        FileUtils.writeStringToFile(new File(this.folder.getRoot(), "build/example.apk"), "apk", "UTF-8");
+
+        final String[] artifacts = Bundles.getIncludedArtifacts(this.scan("build/**"));
+
+        assertThat(artifacts).containsOnly(path("build", "Example", "Info.plist"), path("build", "example.apk"));
+    }
+
+    @Test
+    public void shouldMatchBundleExtensionIgnoringCase() {
+        assertThat(Bundles.isBundle("build/Example.APP")).isTrue();
+        assertThat(Bundles.isBundle("build/Example.dsym")).isTrue();
+        assertThat(Bundles.isBundle("build/Example.apk")).isFalse();
+    }
+}